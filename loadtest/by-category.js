@@ -0,0 +1,43 @@
+// k6 부하 테스트: GET /books/by-category/{id} 를 동시 접속 5000 으로 호출한다.
+//
+// 플랫폼 스레드 (기본):
+//   ./gradlew bootRun
+//   k6 run -e BASE_URL=http://localhost:8080 -e CATEGORY_IDS=1,2,3 loadtest/by-category.js
+// 가상 스레드 (JDK 21):
+//   ./gradlew bootRun -PvirtualThreads
+//   k6 run -e BASE_URL=http://localhost:8080 -e CATEGORY_IDS=1,2,3 loadtest/by-category.js
+// WebFlux + R2DBC 읽기 서버 (book.reactive, 같은 경로에 포트만 다르다):
+//   k6 run -e BASE_URL=http://localhost:8081 -e CATEGORY_IDS=1,2,3 loadtest/by-category.js
+//
+// 두 번 실행한 summary 의 http_reqs(초당 처리량) 와 http_req_duration p(99) 를 비교한다.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const CATEGORY_IDS = (__ENV.CATEGORY_IDS || '1').split(',');
+const PATH = __ENV.PATH_TEMPLATE || '/books/by-category/{id}';
+
+export const options = {
+    scenarios: {
+        burst: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: '30s', target: Number(__ENV.VUS || 5000) },
+                { duration: __ENV.DURATION || '2m', target: Number(__ENV.VUS || 5000) },
+                { duration: '10s', target: 0 },
+            ],
+            gracefulRampDown: '10s',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+    },
+};
+
+export default function () {
+    const id = CATEGORY_IDS[Math.floor(Math.random() * CATEGORY_IDS.length)];
+    const res = http.get(`${BASE_URL}${PATH.replace('{id}', id)}`);
+    check(res, { 'status is 200': (r) => r.status === 200 });
+}
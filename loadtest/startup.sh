@@ -0,0 +1,70 @@
+#!/usr/bin/env bash
+# 프로세스를 띄운 시점부터 첫 요청이 응답할 때까지 걸린 시간(time-to-first-request)을 잰다.
+#
+# 기본 jar (AOT, CDS 없음):
+#   ./gradlew bootJar
+# AOT + CDS:
+#   ./gradlew cdsArchive -Paot
+# 비교:
+#   loadtest/startup.sh jar cds
+#
+# 모드마다 RUNS 번(기본 5) 띄워서 각 시간과 중앙값을 찍는다. DB 는 application.yml 의 MySQL 을 그대로 쓴다.
+# FIRST_REQUEST 로 첫 요청 경로를 바꿀 수 있다. 응답 코드가 무엇이든 서버가 처리해서 돌려주면 끝으로 본다.
+#
+# 1 코어, JDK 17.0.9, 도서 1000권을 넣은 H2(MySQL 모드, 파일) 로 SPRING_DATASOURCE_*, BOOK_REACTIVE_R2DBC_* 를 바꿔 RUNS=5 로 잰 값:
+#   jar  ms=31679 32403 32099 39525 37201 median=32403
+#   cds  ms=16061 14885 18001 17559 18239 median=17559  (AOT + CDS, 약 46% 짧음)
+set -euo pipefail
+
+BASE_URL=${BASE_URL:-http://localhost:8080}
+FIRST_REQUEST=${FIRST_REQUEST:-/books/by-category/1}
+RUNS=${RUNS:-5}
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-120}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+
+# kill 이 서브셸이 아니라 JVM 에 가도록 exec 로 띄운다.
+launch() {
+  case "$1" in
+    jar) exec java ${JAVA_OPTS:-} -jar "$ROOT"/build/libs/pre-assignment-0.0.1-SNAPSHOT.jar ;;
+    cds) exec "$ROOT"/build/cds/run.sh ;;
+    *) echo "unknown mode: $1 (jar, cds)" >&2; exit 1 ;;
+  esac
+}
+
+now_ms() {
+  echo $(($(date +%s%N) / 1000000))
+}
+
+measure() {
+  local mode=$1 log started pid code elapsed
+  log=$(mktemp)
+  started=$(now_ms)
+  launch "$mode" >"$log" 2>&1 &
+  pid=$!
+  while true; do
+    code=$(curl -s -o /dev/null -w '%{http_code}' "$BASE_URL$FIRST_REQUEST" || true)
+    if [ "$code" != "000" ]; then
+      break
+    fi
+    if ! kill -0 "$pid" 2>/dev/null || [ $(($(now_ms) - started)) -gt $((TIMEOUT_SECONDS * 1000)) ]; then
+      echo "$mode: server did not answer. log: $log" >&2
+      kill "$pid" 2>/dev/null || true
+      exit 1
+    fi
+    sleep 0.05
+  done
+  elapsed=$(($(now_ms) - started))
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  rm -f "$log"
+  echo "$elapsed"
+}
+
+for mode in "${@:-jar}"; do
+  times=()
+  for _ in $(seq "$RUNS"); do
+    times+=("$(measure "$mode")")
+  done
+  median=$(printf '%s\n' "${times[@]}" | sort -n | sed -n "$(((RUNS + 1) / 2))p")
+  echo "$mode: time-to-first-request ms=${times[*]} median=$median"
+done
@@ -0,0 +1,67 @@
+package book.benchmark;
+
+import book.PreAssignmentApplication;
+import book.cache.CategoryCache;
+import book.search.BookSearchIndex;
+import book.service.BookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * 벤치마크마다 공유하는 스프링 컨텍스트. 웹 서버 없이 띄우고 내장 H2 에 합성 카탈로그를 넣는다.
+ * 카탈로그 크기는 -Dbench.catalogSize 로 정한다. (gradle 에서는 -PcatalogSize)
+ */
+@State(Scope.Benchmark)
+public class BenchmarkContext {
+
+    static final int SAMPLE_SIZE = 1_024;
+
+    ConfigurableApplicationContext context;
+    BookService bookService;
+    ObjectMapper objectMapper;
+    int catalogSize;
+    // 검색 벤치마크에서 쓰는 실제 존재하는 (지은이, 제목)
+    String[][] authorTitleSamples;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalogSize = Integer.getInteger("bench.catalogSize", 10_000);
+        context = new SpringApplicationBuilder(PreAssignmentApplication.class)
+                .profiles("bench")
+                .web(WebApplicationType.NONE)
+                .run();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        new CatalogSeeder(jdbcTemplate).seed(catalogSize);
+        context.getBean(CategoryCache.class).invalidateAll();
+        context.getBean(BookSearchIndex.class).rebuild();
+
+        bookService = context.getBean(BookService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        List<String[]> samples = jdbcTemplate.query(
+                "select author, title from book where mod(id, ?) = 0 limit " + SAMPLE_SIZE,
+                (rs, rowNum) -> new String[]{rs.getString(1), rs.getString(2)},
+                Math.max(1, catalogSize / SAMPLE_SIZE));
+        authorTitleSamples = samples.toArray(new String[0][]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    int categoryCount() {
+        return CatalogSeeder.CATEGORY_NAMES.length;
+    }
+}
@@ -0,0 +1,46 @@
+package book.benchmark;
+
+import book.api.BookApiController;
+import book.dto.BulkBookResultDto;
+import book.service.BookBulkService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * POST /books/bulk 의 쓰기 경로. 한번 호출에 도서 BATCH 권을 넣으므로 점수는 초당(ms 당) 등록한 도서 수다.
+ * ./gradlew jmh -PjmhIncludes=BookBulkBenchmark
+ */
+public class BookBulkBenchmark {
+
+    static final int BATCH = 5_000;
+
+    @State(Scope.Thread)
+    public static class Batch {
+        BookBulkService bookBulkService;
+        List<BookApiController.CreateBookCommand> commands;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkContext context) {
+            bookBulkService = context.context.getBean(BookBulkService.class);
+            commands = new ArrayList<>(BATCH);
+            for (int i = 0; i < BATCH; i++) {
+                long first = 1 + i % context.categoryCount();
+                long second = 1 + (i * 7L) % context.categoryCount();
+                commands.add(new BookApiController.CreateBookCommand("일괄 도서 " + i, "지은이 " + i % 100, List.of(first, second)));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<BulkBookResultDto> registerNewBooks(Batch batch) {
+        return batch.bookBulkService.registerNewBooks(batch.commands.iterator());
+    }
+}
@@ -0,0 +1,69 @@
+package book.benchmark;
+
+import book.api.BookApiController;
+import book.dto.RequestBookDto;
+import book.dto.ResponseBookDto;
+import book.enums.BookStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * BookService 조회 / 변경 경로 측정.
+ * ./gradlew jmh -PjmhIncludes=BookServiceBenchmark -PcatalogSize=1000000
+ */
+public class BookServiceBenchmark {
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        // 1 은 zipf 분포상 가장 큰 카테고리, 10 은 중간 크기 카테고리
+        @Param({"1", "10"})
+        long categoryId;
+
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    public List<ResponseBookDto> getBooksByCategory(BenchmarkContext context, ThreadState state) {
+        return context.bookService.getBooksByCategory(state.categoryId);
+    }
+
+    @Benchmark
+    public List<ResponseBookDto> getBooksByAuthorAndTitle(BenchmarkContext context, ThreadState state) {
+        String[] sample = context.authorTitleSamples[state.random.nextInt(context.authorTitleSamples.length)];
+        return context.bookService.getBooksByAuthorAndTitle(new RequestBookDto(sample[1], sample[0]));
+    }
+
+    @Benchmark
+    public ResponseBookDto registerNewBook(BenchmarkContext context, ThreadState state) {
+        long first = 1 + state.random.nextInt(context.categoryCount());
+        return context.bookService.registerNewBook(
+                new BookApiController.CreateBookCommand("벤치마크 도서", "벤치마크", List.of(first, state.categoryId)));
+    }
+
+    // 기존 카테고리 하나는 유지하고 하나를 바꾸는 일반적인 변경
+    @Benchmark
+    public void changeCategories(BenchmarkContext context, ThreadState state) {
+        long bookId = 1 + state.random.nextInt(context.catalogSize);
+        long other = 1 + state.random.nextInt(context.categoryCount());
+        context.bookService.changeCategories(bookId,
+                new BookApiController.UpdateBookCategoryCommand(List.of(state.categoryId, other)));
+    }
+
+    @Benchmark
+    public void changeBookStatus(BenchmarkContext context, ThreadState state) {
+        long bookId = 1 + state.random.nextInt(context.catalogSize);
+        context.bookService.changeBookStatus(bookId, state.random.nextBoolean() ? BookStatus.AVAILABLE : BookStatus.UNAVAILABLE);
+    }
+}
@@ -0,0 +1,111 @@
+package book.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 벤치마크용 합성 카탈로그.
+ * 카테고리 분포는 zipf 로 치우치게 해서 실제처럼 IT, 경제경영 같은 몇개 카테고리에 도서가 몰리게 한다.
+ */
+final class CatalogSeeder {
+
+    static final String[] CATEGORY_NAMES = {
+            "IT", "경제경영", "문학", "인문학", "과학", "자기계발", "역사", "예술", "여행", "요리",
+            "건강", "종교", "사회", "정치", "만화", "아동", "청소년", "외국어", "수험서", "잡지"
+    };
+
+    private static final char[] SYLLABLES = "가나다라마바사아자차카타파하거너더러머버서어저처커터퍼허고노도로모보소오조초".toCharArray();
+    private static final int AUTHOR_POOL = 5_000;
+    private static final int BATCH = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final double[] categoryCdf;
+
+    CatalogSeeder(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.categoryCdf = zipfCdf(CATEGORY_NAMES.length, 1.1);
+    }
+
+    void seed(int bookCount) {
+        List<Object[]> categories = new ArrayList<>();
+        for (int i = 0; i < CATEGORY_NAMES.length; i++) {
+            categories.add(new Object[]{i + 1L, CATEGORY_NAMES[i]});
+        }
+        jdbcTemplate.batchUpdate("insert into category (id, name) values (?, ?)", categories);
+
+        List<Object[]> books = new ArrayList<>(BATCH);
+        List<Object[]> bookCategories = new ArrayList<>(BATCH * 2);
+        for (long id = 1; id <= bookCount; id++) {
+            books.add(new Object[]{id, title(), author(id), "AVAILABLE"});
+            long first = nextCategory();
+            bookCategories.add(new Object[]{id, first});
+            if (random.nextInt(3) == 0) {
+                long second = nextCategory();
+                if (second != first) {
+                    bookCategories.add(new Object[]{id, second});
+                }
+            }
+            if (books.size() == BATCH) {
+                flush(books, bookCategories);
+            }
+        }
+        flush(books, bookCategories);
+
+        // id 를 직접 넣었기 때문에 이후 애플리케이션이 insert 할 때 겹치지 않도록 identity 를 옮겨둔다. (H2 문법)
+        jdbcTemplate.execute("alter table category alter column id restart with " + (CATEGORY_NAMES.length + 1));
+        jdbcTemplate.execute("alter table book alter column id restart with " + (bookCount + 1L));
+    }
+
+    static String author(long bookId) {
+        return syllables(new SplittableRandom(bookId % AUTHOR_POOL), 3);
+    }
+
+    private String title() {
+        return syllables(random, 2 + random.nextInt(6));
+    }
+
+    private void flush(List<Object[]> books, List<Object[]> bookCategories) {
+        if (books.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("insert into book (id, title, author, status) values (?, ?, ?, ?)", books);
+        jdbcTemplate.batchUpdate("insert into book_category (book_id, category_id) values (?, ?)", bookCategories);
+        books.clear();
+        bookCategories.clear();
+    }
+
+    private long nextCategory() {
+        double u = random.nextDouble();
+        for (int i = 0; i < categoryCdf.length; i++) {
+            if (u <= categoryCdf[i]) {
+                return i + 1L;
+            }
+        }
+        return categoryCdf.length;
+    }
+
+    private static String syllables(SplittableRandom r, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = SYLLABLES[r.nextInt(SYLLABLES.length)];
+        }
+        return new String(chars);
+    }
+
+    private static double[] zipfCdf(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, s);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+}
@@ -0,0 +1,66 @@
+package book.benchmark;
+
+import book.repository.BookJdbcRepository;
+import book.search.BookSearchIndex;
+import book.search.CategoryBitmapIndex;
+import book.snapshot.CatalogIndex;
+import book.snapshot.CatalogSnapshot;
+import book.snapshot.CatalogSnapshotService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 시작할 때 검색 색인과 카테고리 비트맵을 DB 풀스캔으로 만드는 시간과 카탈로그 스냅샷을 map 해서 만드는 시간.
+ * 내장 H2 라 네트워크가 없어서 DB 쪽이 실제보다 유리하다.
+ * ./gradlew jmh -PjmhIncludes=CatalogWarmStartBenchmark -PcatalogSize=1000000
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CatalogWarmStartBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Snapshot {
+
+        BookJdbcRepository bookJdbcRepository;
+        List<CatalogIndex> indexes;
+        Path file;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkContext benchmarkContext) throws IOException {
+            bookJdbcRepository = benchmarkContext.context.getBean(BookJdbcRepository.class);
+            indexes = List.of(benchmarkContext.context.getBean(BookSearchIndex.class),
+                    benchmarkContext.context.getBean(CategoryBitmapIndex.class));
+            file = benchmarkContext.context.getBean(CatalogSnapshotService.class).write();
+        }
+    }
+
+    @Benchmark
+    public int fromDatabase(Snapshot snapshot) {
+        for (CatalogIndex index : snapshot.indexes) {
+            index.beginRebuild();
+            index.completeRebuild(snapshot.bookJdbcRepository, List.of());
+        }
+        return snapshot.indexes.size();
+    }
+
+    @Benchmark
+    public int fromSnapshot(Snapshot snapshot) throws IOException {
+        CatalogSnapshot catalogSnapshot = CatalogSnapshot.open(snapshot.file, true);
+        for (CatalogIndex index : snapshot.indexes) {
+            index.beginRebuild();
+            index.completeRebuild(catalogSnapshot, List.of());
+        }
+        return catalogSnapshot.bookCount();
+    }
+}
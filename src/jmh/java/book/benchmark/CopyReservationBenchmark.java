@@ -0,0 +1,72 @@
+package book.benchmark;
+
+import book.enums.CopyCondition;
+import book.exception.CopiesUnavailableException;
+import book.service.InventoryService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.SplittableRandom;
+
+/**
+ * 64 스레드가 적은 수의 같은 도서를 동시에 빌리고 돌려줄 때의 처리량. StatusContentionBenchmark 의 changeBookStatus 와 같은 조건이다.
+ * rejected 는 남은 권수가 없어서 409 로 끝난 빌리기 수. copies 를 스레드 수보다 적게 주면 거의 다 빌려 간 상태를 잰다.
+ * ./gradlew jmh -PjmhIncludes=CopyReservationBenchmark
+ */
+@Threads(64)
+public class CopyReservationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Inventory {
+        @Param({"1", "16"})
+        int hotBooks;
+
+        @Param({"1000", "16"})
+        int copies;
+
+        InventoryService inventoryService;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkContext context) {
+            inventoryService = context.context.getBean(InventoryService.class);
+            for (long id = 1; id <= hotBooks; id++) {
+                inventoryService.setCopies(id, copies, 0, 0);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcome {
+        public long rejected;
+    }
+
+    // 빌린 것은 바로 돌려줘서 권수가 줄지 않게 한다. 한번 호출이 빌리기 + 돌려주기 두 요청이다.
+    @Benchmark
+    public Object reserveAndRelease(Inventory inventory, ThreadState state, Outcome outcome) {
+        long bookId = 1 + state.random.nextInt(inventory.hotBooks);
+        try {
+            inventory.inventoryService.reserve(bookId, 1);
+        } catch (CopiesUnavailableException e) {
+            outcome.rejected++;
+            return e;
+        }
+        return inventory.inventoryService.release(bookId, 1, CopyCondition.GOOD);
+    }
+}
@@ -0,0 +1,141 @@
+package book.benchmark;
+
+import book.PreAssignmentApplication;
+import book.cache.CategoryCache;
+import book.reactive.ReactiveReadServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+
+/**
+ * 동시 요청 256 개에서 MVC(Tomcat + JPA) 와 WebFlux(Netty + R2DBC) 조회 API 비교.
+ * 두 서버를 한 프로세스에 띄우고 같은 내장 H2 를 JDBC, R2DBC 로 각각 읽는다.
+ * 응답 캐시, 카테고리 목록 스토어, 요청 합치기를 끄고 매 요청이 DB 까지 가게 해서 조회 경로만 비교한다.
+ * ./gradlew jmh -PjmhIncludes=ReactiveReadBenchmark -PcatalogSize=100000
+ */
+@Threads(256)
+public class ReactiveReadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Servers {
+
+        ConfigurableApplicationContext context;
+        HttpClient client;
+        String mvcBaseUrl;
+        String reactiveBaseUrl;
+        int categoryCount;
+        String[][] authorTitleSamples;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            int catalogSize = Integer.getInteger("bench.catalogSize", 10_000);
+            context = new SpringApplicationBuilder(PreAssignmentApplication.class)
+                    .profiles("bench")
+                    .web(WebApplicationType.SERVLET)
+                    .properties("server.port=0",
+                            "book.reactive.enabled=true",
+                            "book.response-cache.max-size=0",
+                            "book.category-listing.materialize-after-hits=0",
+                            "book.coalescing.enabled=false")
+                    .run();
+
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            new CatalogSeeder(jdbcTemplate).seed(catalogSize);
+            context.getBean(CategoryCache.class).invalidateAll();
+            categoryCount = CatalogSeeder.CATEGORY_NAMES.length;
+            List<String[]> samples = jdbcTemplate.query(
+                    "select author, title from book where mod(id, ?) = 0 limit " + BenchmarkContext.SAMPLE_SIZE,
+                    (rs, rowNum) -> new String[]{rs.getString(1), rs.getString(2)},
+                    Math.max(1, catalogSize / BenchmarkContext.SAMPLE_SIZE));
+            authorTitleSamples = samples.toArray(new String[0][]);
+
+            mvcBaseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            reactiveBaseUrl = "http://localhost:" + context.getBean(ReactiveReadServer.class).port();
+            client = HttpClient.newBuilder()
+                    .executor(Executors.newFixedThreadPool(16))
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        // hot 은 모든 스레드가 가장 큰 카테고리(1)만, spread 는 카테고리를 골고루 찾는다.
+        @Param({"hot", "spread"})
+        String access;
+
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+
+        long nextCategoryId(Servers servers) {
+            return "hot".equals(access) ? 1 : 1 + random.nextInt(servers.categoryCount);
+        }
+
+        String nextAuthorTitleQuery(Servers servers) {
+            String[] sample = servers.authorTitleSamples[random.nextInt(servers.authorTitleSamples.length)];
+            return "?author=" + URLEncoder.encode(sample[0], StandardCharsets.UTF_8)
+                    + "&title=" + URLEncoder.encode(sample[1], StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public int mvcByCategory(Servers servers, ThreadState state) throws Exception {
+        return get(servers, servers.mvcBaseUrl + "/books/by-category/" + state.nextCategoryId(servers));
+    }
+
+    @Benchmark
+    public int reactiveByCategory(Servers servers, ThreadState state) throws Exception {
+        return get(servers, servers.reactiveBaseUrl + "/books/by-category/" + state.nextCategoryId(servers));
+    }
+
+    @Benchmark
+    public int mvcByAuthorAndTitle(Servers servers, ThreadState state) throws Exception {
+        return get(servers, servers.mvcBaseUrl + "/books/by-author-and-title" + state.nextAuthorTitleQuery(servers));
+    }
+
+    @Benchmark
+    public int reactiveByAuthorAndTitle(Servers servers, ThreadState state) throws Exception {
+        return get(servers, servers.reactiveBaseUrl + "/books/by-author-and-title" + state.nextAuthorTitleQuery(servers));
+    }
+
+    // 응답 본문을 끝까지 읽어야 서버가 다 쓴 시간까지 잰다.
+    private static int get(Servers servers, String url) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = servers.client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(url + " -> " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
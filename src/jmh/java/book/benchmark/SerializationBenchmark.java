@@ -0,0 +1,111 @@
+package book.benchmark;
+
+import book.cache.CategoryCache;
+import book.dto.CategorySummaryDto;
+import book.dto.ResponseBookDto;
+import book.entity.Category;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * DTO -> JSON 직렬화 비용. -prof gc 의 gc.alloc.rate.norm 으로 응답 한번당 할당량을 본다.
+ *   serializeBookList            애플리케이션 ObjectMapper (ResponseBookDtoSerializer + Blackbird)
+ *   serializeBookListReflection  같은 record 를 모듈 없는 ObjectMapper 로 (기본 BeanSerializer, 리플렉션)
+ *   serializeLegacyEntityDto     예전 응답 모양. categories 가 Category 엔티티 목록
+ * ./gradlew jmh -PjmhIncludes=SerializationBenchmark
+ *
+ * 1 CPU, JDK 17, -f 1 -wi 3 -i 5 (2s) -prof gc 결과. gc.alloc.rate.norm (B/op), 처리량 (ops/s)
+ *                                 size=10              size=1000
+ *   serializeBookList             1,986  243,247       263,286  2,504
+ *   serializeBookListReflection   1,987  191,256       263,300  1,968
+ *   serializeLegacyEntityDto      2,267  197,640       314,382  1,691
+ * 할당은 대부분 결과 byte[] 와 출력 버퍼라서 직렬화기를 바꿔도 거의 같다. 줄어든 것은 응답 모양(엔티티 → 요약 DTO)에서 온다.
+ */
+public class SerializationBenchmark {
+
+    private static final ObjectMapper REFLECTION_MAPPER = new ObjectMapper();
+
+    @State(Scope.Thread)
+    public static class Payload {
+        @Param({"10", "1000"})
+        int size;
+
+        List<ResponseBookDto> books;
+        List<LegacyBookDto> legacyBooks;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkContext context) {
+            // 카테고리 두 개씩 붙여서 중첩 객체 직렬화까지 본다.
+            List<Category> categories = context.context.getBean(CategoryCache.class).getAll(List.of(1L, 2L));
+            List<CategorySummaryDto> summaries = categories.stream()
+                    .map(category -> new CategorySummaryDto(category.getId(), category.getName()))
+                    .toList();
+            // 지연 로딩 컬렉션을 건드리면 세션 밖이라 예외가 나므로, 예전 모양은 id, 이름만 채운 엔티티로 만든다.
+            List<Category> detachedCategories = categories.stream()
+                    .map(category -> Category.builder().id(category.getId()).name(category.getName()).build())
+                    .toList();
+
+            books = context.bookService.getBooksByCategory(1L).stream()
+                    .limit(size)
+                    .map(book -> new ResponseBookDto(book.bookId(), book.title(), book.author(), summaries))
+                    .toList();
+            legacyBooks = books.stream()
+                    .map(book -> new LegacyBookDto(book.bookId(), book.title(), book.author(), detachedCategories))
+                    .toList();
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeBookList(BenchmarkContext context, Payload payload) throws JsonProcessingException {
+        return context.objectMapper.writeValueAsBytes(payload.books);
+    }
+
+    @Benchmark
+    public byte[] serializeBookListReflection(Payload payload) throws JsonProcessingException {
+        return REFLECTION_MAPPER.writeValueAsBytes(payload.books);
+    }
+
+    @Benchmark
+    public byte[] serializeLegacyEntityDto(Payload payload) throws JsonProcessingException {
+        return REFLECTION_MAPPER.writeValueAsBytes(payload.legacyBooks);
+    }
+
+    // 바꾸기 전 ResponseBookDto 와 같은 모양 (getter 기반, categories 가 엔티티)
+    public static class LegacyBookDto {
+        private final Long bookId;
+        private final String title;
+        private final String author;
+        private final List<Category> categories;
+
+        LegacyBookDto(Long bookId, String title, String author, List<Category> categories) {
+            this.bookId = bookId;
+            this.title = title;
+            this.author = author;
+            this.categories = categories;
+        }
+
+        public Long getBookId() {
+            return bookId;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getAuthor() {
+            return author;
+        }
+
+        public List<Category> getCategories() {
+            return categories;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package book.benchmark;
+
+import book.dto.BookStatusBulkResultDto;
+import book.dto.BookStatusDto;
+import book.enums.BookStatus;
+import book.exception.BookVersionConflictException;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 64 스레드가 적은 수의 같은 도서 상태를 동시에 바꿀 때의 처리량과 충돌 수.
+ * conflicts 는 재시도를 다 쓰고 409 로 끝난 횟수, stale 은 expectedVersion 이 이미 지난 값이었던 횟수.
+ * ./gradlew jmh -PjmhIncludes=StatusContentionBenchmark
+ */
+@Threads(64)
+public class StatusContentionBenchmark {
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        // 몇 권에 요청이 몰리는지. 1 이면 64 스레드가 전부 같은 행을 두고 다툰다.
+        @Param({"1", "16"})
+        int hotBooks;
+
+        SplittableRandom random;
+        List<Long> hotBookIds;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+            hotBookIds = new ArrayList<>(hotBooks);
+            for (long id = 1; id <= hotBooks; id++) {
+                hotBookIds.add(id);
+            }
+        }
+
+        long nextBookId() {
+            return 1 + random.nextInt(hotBooks);
+        }
+
+        BookStatus nextStatus() {
+            return random.nextBoolean() ? BookStatus.AVAILABLE : BookStatus.UNAVAILABLE;
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcome {
+        public long conflicts;
+        public long stale;
+    }
+
+    // expectedVersion 없이 바꾸는 일반 요청. 밀리면 다시 읽고 재시도한다.
+    @Benchmark
+    public Object changeBookStatus(BenchmarkContext context, ThreadState state, Outcome outcome) {
+        try {
+            return context.bookService.changeBookStatus(state.nextBookId(), state.nextStatus());
+        } catch (BookVersionConflictException e) {
+            outcome.conflicts++;
+            return e;
+        }
+    }
+
+    // 읽은 version 을 들고 오는 클라이언트. 그 사이 다른 변경이 있으면 재시도 없이 바로 409.
+    @Benchmark
+    public Object changeBookStatusWithExpectedVersion(BenchmarkContext context, ThreadState state, Outcome outcome) {
+        long bookId = state.nextBookId();
+        BookStatusDto current = context.bookService.changeBookStatus(bookId, state.nextStatus());
+        try {
+            return context.bookService.changeBookStatus(bookId, state.nextStatus(), current.version());
+        } catch (BookVersionConflictException e) {
+            outcome.stale++;
+            return e;
+        }
+    }
+
+    // 다른 스레드가 한 권씩 되살리는 동안 같은 도서들을 한 문장으로 일괄 중단한다.
+    @Benchmark
+    public BookStatusBulkResultDto markUnavailable(BenchmarkContext context, ThreadState state, Outcome outcome) {
+        try {
+            context.bookService.changeBookStatus(state.nextBookId(), BookStatus.AVAILABLE);
+        } catch (BookVersionConflictException e) {
+            outcome.conflicts++;
+        }
+        return context.bookService.markUnavailable(state.hotBookIds);
+    }
+}
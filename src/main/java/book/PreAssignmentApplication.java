@@ -2,8 +2,26 @@ package book;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.web.SpringDataWebAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.ClientHttpConnectorAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.WebClientAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
 
-@SpringBootApplication
+// R2DBC ConnectionFactory 가 빈으로 생기면 JDBC DataSource 자동 설정이 꺼진다. R2DBC 풀은 ReactiveReadConfig 에서 따로 만든다.
+// 나머지는 classpath 에 있어서 조건 평가, 초기화 비용만 드는 자동 설정이다.
+// (스키마는 Flyway, 컨트롤러에 Pageable 인자 없음, WebClient, WebSocket 안 씀)
+@SpringBootApplication(exclude = {
+        R2dbcAutoConfiguration.class,
+        R2dbcTransactionManagerAutoConfiguration.class,
+        SqlInitializationAutoConfiguration.class,
+        SpringDataWebAutoConfiguration.class,
+        WebClientAutoConfiguration.class,
+        ClientHttpConnectorAutoConfiguration.class,
+        WebSocketServletAutoConfiguration.class
+})
 public class PreAssignmentApplication {
 
     public static void main(String[] args) {
@@ -1,22 +1,68 @@
 package book.api;
 
+import book.cache.CachedResponse;
+import book.cache.CatalogVersions;
+import book.cache.RequestCoalescer;
+import book.cache.ResponseCache;
 import book.common.CommonResponse;
+import book.dto.BookCategoriesDto;
+import book.dto.BookImportStatusDto;
+import book.dto.BookPageDto;
+import book.dto.BookStatusBulkResultDto;
+import book.dto.BookStatusDto;
+import book.dto.BookSummaryDto;
+import book.dto.BulkBookResultDto;
 import book.dto.RequestBookDto;
 import book.dto.ResponseBookDto;
 import book.enums.BookStatus;
+import book.enums.CategoryOperator;
+import book.enums.ExportFormat;
+import book.enums.ImportFormat;
+import book.enums.SearchField;
+import book.enums.SearchMode;
+import book.exception.InvalidExportRequestException;
+import book.exception.InvalidSearchConditionException;
+import book.outbox.SseChangeStream;
+import book.service.BookBulkService;
+import book.service.BookImportService;
+import book.service.BookSearchService;
 import book.service.BookService;
+import book.service.CatalogExportService;
+import book.service.CategoryHistoryService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 @Tag(name = "Book API")
 @RestController
 @RequestMapping("/books")
@@ -25,6 +71,16 @@ import java.util.List;
 public class BookApiController {
 
     private final BookService bookService;
+    private final BookSearchService bookSearchService;
+    private final BookBulkService bookBulkService;
+    private final BookImportService bookImportService;
+    private final CatalogExportService catalogExportService;
+    private final CategoryHistoryService categoryHistoryService;
+    private final ResponseCache responseCache;
+    private final RequestCoalescer requestCoalescer;
+    private final CatalogVersions catalogVersions;
+    private final SseChangeStream sseChangeStream;
+    private final ObjectMapper objectMapper;
 
     /*
 - 도서는 하나 이상의 카테고리에 속할 수 있다.
@@ -44,18 +100,129 @@ public class BookApiController {
 - 현재 서점에 있는 도서 목록은 다음과 같다.
      */
 
-    @Operation(summary = "카테고리 별로 검색")
+    // 자주 바뀌지 않는 목록이라 직렬화된 응답을 캐시해두고, 카테고리 버전이 바뀔 때만 다시 만든다.
+    @Operation(summary = "카테고리 별로 검색", responses = @ApiResponse(responseCode = "200",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = ResponseBookDto.class)))))
     @GetMapping("/by-category/{categoryId}")
-    public ResponseEntity<List<ResponseBookDto>> getBooksByCategory(@PathVariable Long categoryId) {
-        List<ResponseBookDto> books = bookService.getBooksByCategory(categoryId);
-        return ResponseEntity.ok(books);
+    public ResponseEntity<byte[]> getBooksByCategory(@PathVariable Long categoryId,
+                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        long version = catalogVersions.categoryVersion(categoryId);
+        CachedResponse response = responseCache.getOrCompute("by-category:" + categoryId, version,
+                catalogVersions.categoryChangedAt(categoryId), () -> bookService.getBooksByCategory(categoryId));
+        return toResponse(response, ifNoneMatch);
     }
 
-    @Operation(summary = "제목 및 지은이로 검색")
+    @Operation(summary = "카테고리 별로 검색 - 도서 상태, 카테고리 포함")
+    @GetMapping("/by-category/{categoryId}/summaries")
+    public ResponseEntity<List<BookSummaryDto>> getBookSummariesByCategory(@PathVariable Long categoryId) {
+        // 캐시는 하지 않고, 같은 버전에서 동시에 들어온 요청끼리만 한번의 조회 결과를 나눠 쓴다.
+        long version = catalogVersions.categoryVersion(categoryId);
+        return ResponseEntity.ok(requestCoalescer.execute("summaries:" + categoryId + '#' + version,
+                () -> bookService.getBookSummariesByCategory(categoryId)));
+    }
+
+    @Operation(summary = "카테고리 별로 검색 - 커서 페이징, nextCursor 를 cursor 로 넘기면 다음 페이지")
+    @GetMapping("/by-category/{categoryId}/page")
+    public ResponseEntity<BookPageDto> getBookPageByCategory(@PathVariable Long categoryId,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(required = false) Integer size) {
+        long version = catalogVersions.categoryVersion(categoryId);
+        return ResponseEntity.ok(requestCoalescer.execute("page:" + categoryId + ':' + cursor + ':' + size + '#' + version,
+                () -> bookService.getBookPageByCategory(categoryId, cursor, size)));
+    }
+
+    // 전체 결과를 List 로 만들지 않고 DB 커서에서 읽히는 대로 한 줄씩(NDJSON) 내려보낸다.
+    @Operation(summary = "카테고리 별로 검색 - NDJSON 스트리밍")
+    @GetMapping(value = "/by-category/{categoryId}/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamBooksByCategory(@PathVariable Long categoryId) {
+        bookService.checkCategoryExists(categoryId);
+        // 행마다 flush 하지 않고 generator 버퍼가 찰 때만 내보낸다.
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                bookService.streamBooksByCategory(categoryId, book -> {
+                    try {
+                        writer.writeValue(generator, book);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    // 창고 정산용 전체 덤프. ex) /books/export?format=parquet-lite&gzip=true
+    // snapshot=true 면 서버(book.export.snapshot-dir)에 파일로 남기고, 다 쓴 파일을 내려준다.
+    @Operation(summary = "전체 카탈로그 내보내기 (csv, ndjson, parquet-lite) - 스트리밍")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCatalog(@RequestParam(required = false, defaultValue = "csv") String format,
+                                                               @RequestParam(required = false, defaultValue = "false") boolean gzip,
+                                                               @RequestParam(required = false, defaultValue = "false") boolean snapshot) {
+        ExportFormat exportFormat = ExportFormat.from(format)
+                .orElseThrow(() -> new InvalidExportRequestException("format must be csv, ndjson or parquet-lite: " + format));
+        String fileName = catalogExportService.fileName(exportFormat, gzip);
+        StreamingResponseBody body = snapshot
+                ? out -> catalogExportService.transfer(catalogExportService.writeSnapshot(exportFormat, gzip, fileName), out)
+                : out -> catalogExportService.export(exportFormat, gzip, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
+    @Operation(summary = "제목 및 지은이로 검색", responses = @ApiResponse(responseCode = "200",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = ResponseBookDto.class)))))
     @GetMapping("/by-author-and-title")
-    public ResponseEntity<List<ResponseBookDto>> getBooksByAuthorAndTitle(RequestBookDto requestDto) {
-        List<ResponseBookDto> books = bookService.getBooksByAuthorAndTitle(requestDto);
-        return ResponseEntity.ok(books);
+    public ResponseEntity<byte[]> getBooksByAuthorAndTitle(RequestBookDto requestDto,
+                                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        long version = catalogVersions.authorTitleVersion(requestDto.getAuthor(), requestDto.getTitle());
+        CachedResponse response = responseCache.getOrCompute(
+                "by-author-and-title:" + requestDto.getAuthor() + '\u0000' + requestDto.getTitle(), version,
+                catalogVersions.authorTitleChangedAt(requestDto.getAuthor(), requestDto.getTitle()),
+                () -> bookService.getBooksByAuthorAndTitle(requestDto));
+        return toResponse(response, ifNoneMatch);
+    }
+
+    // by-author-and-title 은 정확히 일치하는 것만 찾는다. 일부 글자, 초성(ㄱㅇ) 검색은 이쪽을 사용
+    @Operation(summary = "제목, 지은이 키워드 검색 (exact, prefix, substring)")
+    @GetMapping("/by-keyword")
+    public ResponseEntity<List<ResponseBookDto>> searchBooksByKeyword(@RequestParam String keyword,
+                                                                      @RequestParam(required = false) SearchField field,
+                                                                      @RequestParam(required = false) SearchMode mode,
+                                                                      @RequestParam(required = false) Long categoryId,
+                                                                      @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(bookSearchService.searchByKeyword(keyword, field, mode, categoryId, limit));
+    }
+
+    // ex) /books/search?categories=4,5&op=and&status=AVAILABLE , /books/search?categories=7&op=not
+    @Operation(summary = "카테고리 조합(and, or, not), 상태로 검색 - 커서 페이징")
+    @GetMapping("/search")
+    public ResponseEntity<BookPageDto> searchBooksByCategories(@RequestParam(required = false) List<Long> categories,
+                                                               @RequestParam(required = false, defaultValue = "or") String op,
+                                                               @RequestParam(required = false) BookStatus status,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(required = false) Integer size) {
+        CategoryOperator operator;
+        try {
+            operator = CategoryOperator.valueOf(op.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSearchConditionException("op must be and, or or not: " + op);
+        }
+        return ResponseEntity.ok(bookSearchService.searchByCategories(categories, operator, status, cursor, size));
+    }
+
+    // ex) /books/changes?since=1200 , 연결이 끊겨 다시 붙을 때는 EventSource 가 마지막 id 를 Last-Event-ID 로 보낸다.
+    // 이때 URL 의 since 는 처음 값 그대로라서, 둘 중 뒤의 것부터 보내야 이미 받은 이벤트를 처음부터 다시 받지 않는다.
+    @Operation(summary = "도서 등록, 상태 변경, 카테고리 변경 이벤트 스트림(SSE), since 이후 seq 부터")
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(required = false) Long since,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        Long from = since == null ? lastEventId : lastEventId == null ? since : Math.max(since, lastEventId);
+        return sseChangeStream.subscribe(from);
     }
 
     @Operation(summary = "신규 등록 , 등록된 도서 정보 반환")
@@ -64,12 +231,46 @@ public class BookApiController {
         return ResponseEntity.ok(bookService.registerNewBook(command));
     }
 
+    // JSON 배열, NDJSON 둘 다 받는다. 본문을 한번에 읽지 않고 한 건씩 꺼내서 chunk 로 넣는다.
+    @Operation(summary = "일괄 신규 등록, 요청 순서대로 행 별 결과 반환")
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public ResponseEntity<List<BulkBookResultDto>> createBooks(HttpServletRequest request) throws IOException {
+        try (MappingIterator<CreateBookCommand> commands = objectMapper.readerFor(CreateBookCommand.class)
+                .readValues(request.getInputStream())) {
+            return ResponseEntity.ok(bookBulkService.registerNewBooks(commands));
+        }
+    }
+
+    // 파일은 디스크로 받아서 작업으로 넘기고 바로 202. 진행 상황은 Location 의 작업 상태로 확인한다.
+    // format 을 주지 않으면 확장자(.csv, .tsv, .md/.txt)로 정한다.
+    @Operation(summary = "CSV, TSV, README([카테고리] 제목, 지은이) 파일로 도서 가져오기, 작업 상태 반환")
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<BookImportStatusDto> importBooks(@RequestPart("file") MultipartFile file,
+                                                           @RequestParam(required = false) ImportFormat format) throws IOException {
+        BookImportStatusDto status = bookImportService.submit(file, format);
+        return ResponseEntity.accepted()
+                .location(URI.create("/books/import/" + status.jobId()))
+                .body(status);
+    }
 
-    @Operation(summary = "도서 대여 중단, 활성화")
+    @Operation(summary = "가져오기 작업 진행 상황")
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<BookImportStatusDto> getImportStatus(@PathVariable String jobId) {
+        return ResponseEntity.ok(bookImportService.getStatus(jobId));
+    }
+
+    // expectedVersion 을 주면 그 사이 다른 변경이 있었을 때 덮어쓰지 않고 409 를 돌려준다.
+    @Operation(summary = "도서 대여 중단, 활성화, 변경 후 version 반환")
     @PatchMapping("/{bookId}/changeStatus/{status}")
-    public ResponseEntity<CommonResponse> changeBookStatus(@PathVariable Long bookId, @PathVariable BookStatus status) {
-        bookService.changeBookStatus(bookId, status);
-        return ResponseEntity.ok(new CommonResponse());
+    public ResponseEntity<BookStatusDto> changeBookStatus(@PathVariable Long bookId, @PathVariable BookStatus status,
+                                                          @RequestParam(required = false) Long expectedVersion) {
+        return ResponseEntity.ok(bookService.changeBookStatus(bookId, status, expectedVersion));
+    }
+
+    @Operation(summary = "여러 도서 일괄 대여 중단")
+    @PatchMapping("/unavailable")
+    public ResponseEntity<BookStatusBulkResultDto> markUnavailable(@RequestBody @Valid MarkUnavailableCommand command) {
+        return ResponseEntity.ok(bookService.markUnavailable(command.getBookIds()));
     }
 
     /*
@@ -78,6 +279,7 @@ public class BookApiController {
      soft delete, hard delete, 전부 삭제하고 요청된 것 insert 하는 방식, 현재 있는 것과 비교해서 없는것만 insert하고 빠진거는 delete하는 방식
      이 중에 고민했는데, soft delete를 하기에는 부수적인 코드가 많이 사용될 것 같고, hard delete이긴한데, 전부 삭제하는건 나중에 이력이라도 쌓을때 문제가 된다.
      그래서 있는 것과 비교하여 없는 것만 insert 하고, 빠진것은 delete 하는 방식으로 카테고리 변경을 진행하려고한다.
+     추가, 삭제된 카테고리는 커밋 후에 book_category_history 에 이력으로 쌓인다. (CategoryHistoryWriter)
      */
     @Operation(summary = "카테고리 변경")
     @PutMapping("{bookId}/categories")
@@ -86,6 +288,33 @@ public class BookApiController {
         return ResponseEntity.ok(new CommonResponse());
     }
 
+    @Operation(summary = "여러 도서 카테고리 일괄 변경, 하나라도 실패하면 전체 롤백")
+    @PutMapping("/categories/bulk")
+    public ResponseEntity<CommonResponse> changeCategoriesInBulk(@RequestBody @Valid BulkUpdateBookCategoryCommand command) {
+        bookService.changeCategoriesInBulk(command.getChanges());
+        return ResponseEntity.ok(new CommonResponse());
+    }
+
+    @Operation(summary = "도서 카테고리 조회, asOf(ISO-8601, 예: 2024-05-01T00:00:00Z)를 주면 그 시각의 카테고리")
+    @GetMapping("/{bookId}/categories")
+    public ResponseEntity<BookCategoriesDto> getCategories(@PathVariable Long bookId,
+                                                           @RequestParam(required = false) Instant asOf) {
+        return ResponseEntity.ok(categoryHistoryService.getCategories(bookId, asOf));
+    }
+
+
+    // If-None-Match 가 지금 ETag 와 같으면 본문 없이 304
+    private ResponseEntity<byte[]> toResponse(CachedResponse response, String ifNoneMatch) {
+        if (response.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(response.etag())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(response.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(response.body());
+    }
 
     @NoArgsConstructor(access = AccessLevel.PROTECTED)
     @AllArgsConstructor
@@ -112,5 +341,36 @@ public class BookApiController {
         @Size(min = 1)
         private List<Long> categoryIds = new ArrayList<>();
     }
-}
 
+    @NoArgsConstructor(access = AccessLevel.PROTECTED)
+    @AllArgsConstructor
+    @Getter
+    @Setter
+    public static class BulkUpdateBookCategoryCommand {
+        // 한 트랜잭션, IN 절 하나로 처리하므로 book.bulk.chunk-size(기본 1000) 보다 많이 받지 않는다.
+        @Size(min = 1, max = 1000)
+        @Valid
+        private List<BookCategoryChange> changes = new ArrayList<>();
+    }
+
+    @NoArgsConstructor(access = AccessLevel.PROTECTED)
+    @AllArgsConstructor
+    @Getter
+    @Setter
+    public static class BookCategoryChange {
+        @NotNull
+        private Long bookId;
+        @Size(min = 1)
+        private List<Long> categoryIds = new ArrayList<>();
+    }
+
+    @NoArgsConstructor(access = AccessLevel.PROTECTED)
+    @AllArgsConstructor
+    @Getter
+    @Setter
+    public static class MarkUnavailableCommand {
+        // IN 절 하나로 처리하기 때문에 한번에 받는 개수를 제한한다.
+        @Size(min = 1, max = 1000)
+        private List<@NotNull Long> bookIds = new ArrayList<>();
+    }
+}
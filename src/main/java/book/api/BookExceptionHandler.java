@@ -0,0 +1,23 @@
+package book.api;
+
+import book.common.ErrorResponse;
+import book.exception.BookException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * book.exception 의 예외를 각자 가진 status 와 ErrorResponse 본문으로 돌려준다.
+ * 나머지 예외(검증 실패 등)는 스프링 기본 처리를 그대로 따른다.
+ */
+@RestControllerAdvice
+@Slf4j
+public class BookExceptionHandler {
+
+    @ExceptionHandler(BookException.class)
+    public ResponseEntity<ErrorResponse> handle(BookException e) {
+        log.debug("{} {}", e.getStatus().value(), e.getMessage());
+        return ResponseEntity.status(e.getStatus()).body(new ErrorResponse(e.getMessage()));
+    }
+}
@@ -0,0 +1,68 @@
+package book.api;
+
+import book.dto.BookInventoryDto;
+import book.dto.CopyReservationDto;
+import book.enums.CopyCondition;
+import book.service.InventoryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@Tag(name = "Book Inventory API")
+@RestController
+@RequestMapping("/books/{bookId}/inventory")
+@RequiredArgsConstructor
+public class BookInventoryController {
+
+    private final InventoryService inventoryService;
+
+    // DB(book_inventory) 값에 이 인스턴스가 받아 두고 빌려주지 않은 몫을 더한다. 다른 인스턴스가 받아 둔 몫은 빌려 간 권수로 보인다.
+    @Operation(summary = "도서 실물 권수 - 전체, 빌려줄 수 있는, 빌려 간, 파손, 분실")
+    @GetMapping
+    public ResponseEntity<BookInventoryDto> getInventory(@PathVariable Long bookId) {
+        return ResponseEntity.ok(inventoryService.getInventory(bookId));
+    }
+
+    @Operation(summary = "도서 실물 권수 등록, 변경 - 빌려 간 권수는 그대로 두고 전체, 파손, 분실 권수를 바꾼다")
+    @PutMapping
+    public ResponseEntity<BookInventoryDto> setCopies(@PathVariable Long bookId, @RequestBody @Valid SetCopiesCommand command) {
+        return ResponseEntity.ok(inventoryService.setCopies(bookId, command.getTotalCopies(),
+                command.getDamagedCopies(), command.getLostCopies()));
+    }
+
+    // 남은 권수가 모자라면 409. 행 락 없이 처리해서 한 도서에 요청이 몰려도 줄 서지 않는다.
+    @Operation(summary = "빌리기, 처리 후 이 인스턴스 몫에 남은 권수 반환")
+    @PostMapping("/reserve")
+    public ResponseEntity<CopyReservationDto> reserve(@PathVariable Long bookId,
+                                                      @RequestParam(defaultValue = "1") int count) {
+        return ResponseEntity.ok(inventoryService.reserve(bookId, count));
+    }
+
+    // condition 이 DAMAGED, LOST 면 빌려 간 권수에서 빼고 파손, 분실 권수로 옮긴다.
+    @Operation(summary = "돌려주기, 처리 후 이 인스턴스 몫에 남은 권수 반환")
+    @PostMapping("/release")
+    public ResponseEntity<CopyReservationDto> release(@PathVariable Long bookId,
+                                                      @RequestParam(defaultValue = "1") int count,
+                                                      @RequestParam(defaultValue = "GOOD") CopyCondition condition) {
+        return ResponseEntity.ok(inventoryService.release(bookId, count, condition));
+    }
+
+    @NoArgsConstructor(access = AccessLevel.PROTECTED)
+    @AllArgsConstructor
+    @Getter
+    @Setter
+    public static class SetCopiesCommand {
+        @NotNull
+        @Min(0)
+        private Integer totalCopies;
+        @Min(0)
+        private int damagedCopies;
+        @Min(0)
+        private int lostCopies;
+    }
+}
@@ -0,0 +1,42 @@
+package book.api;
+
+import book.cache.CategoryListingStore;
+import book.dto.CategoryListingStatsDto;
+import book.service.BookService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Tag(name = "Category Listing Admin API")
+@RestController
+@RequestMapping("/admin/category-listings")
+@RequiredArgsConstructor
+public class CategoryListingAdminController {
+
+    private final CategoryListingStore categoryListingStore;
+    private final BookService bookService;
+
+    @Operation(summary = "미리 만들어 둔 카테고리 목록 - 카테고리별 도서 수, 바이트 수, 만든 뒤 지난 시간, 합치지 않은 변경 수")
+    @GetMapping
+    public ResponseEntity<List<CategoryListingStatsDto>> getCategoryListings() {
+        return ResponseEntity.ok(categoryListingStore.stats());
+    }
+
+    // 다 만들 때까지 기다렸다가 응답한다. categoryId 가 없으면 만들어 둔 카테고리 전부를 다시 만든다.
+    @Operation(summary = "카테고리 목록 다시 만들기 - 아직 만들지 않은 카테고리면 새로 만든다")
+    @PostMapping("/rebuild")
+    public ResponseEntity<List<CategoryListingStatsDto>> rebuildCategoryListings(@RequestParam(required = false) Long categoryId) {
+        if (categoryId != null) {
+            bookService.checkCategoryExists(categoryId);
+        }
+        return ResponseEntity.ok(categoryListingStore.rebuild(categoryId));
+    }
+}
@@ -0,0 +1,18 @@
+package book.cache;
+
+// 직렬화가 끝난 JSON 응답. etag 는 body 내용으로 만든 strong ETag (따옴표 포함)
+public record CachedResponse(byte[] body, String etag, long version) {
+
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
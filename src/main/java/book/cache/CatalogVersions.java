@@ -0,0 +1,142 @@
+package book.cache;
+
+import book.event.BookCategoriesChangedEvent;
+import book.event.BookRegisteredEvent;
+import book.event.BookStatusChangedEvent;
+import book.event.CategoryChangedEvent;
+import book.event.ListenerOrder;
+import book.search.BookSearchHit;
+import book.search.BookSearchIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 응답 캐시 무효화용 버전 카운터.
+ * 카테고리마다 하나, (지은이, 제목)은 해시로 나눈 칸마다 하나씩 두고 쓰기가 커밋되면 관련된 것만 올린다.
+ * 캐시된 응답은 만들 때의 버전을 들고 있다가 지금 버전과 다르면 버린다.
+ * (지은이, 제목) 칸은 다른 도서와 겹칠 수 있지만 그때는 불필요하게 한번 더 계산할 뿐 틀린 응답을 주지는 않는다.
+ * 카테고리 버전에는 CategoryListingStore 가 delta 를 합친 횟수도 더한다. 커밋 직후 만든 응답이 아직 합치기 전 목록이어도
+ * 합친 뒤에는 버전이 달라져서 다시 만든다.
+ * 버전마다 마지막으로 바뀐 시각(System.nanoTime)도 남긴다. ResponseCache 는 그 뒤 replica 지연 시간 안에 만든 응답을 캐시에 넣지 않는다.
+ * 리스너는 ListenerOrder.CACHE_VERSION 으로 검색 색인, 카테고리 목록 같은 인메모리 데이터가 바뀐 다음에 돈다.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogVersions {
+
+    private static final int AUTHOR_TITLE_STRIPES = 4096;
+
+    private final BookSearchIndex bookSearchIndex;
+    private final CategoryListingStore categoryListingStore;
+
+    private final ConcurrentHashMap<Long, AtomicLong> categoryVersions = new ConcurrentHashMap<>();
+    private final AtomicLongArray authorTitleVersions = new AtomicLongArray(AUTHOR_TITLE_STRIPES);
+    // 어떤 도서인지 모를 때 전부 무효화하기 위한 값. 모든 버전에 더해진다.
+    private final AtomicLong epoch = new AtomicLong();
+
+    // 버전보다 먼저 올린다. 새 버전을 읽은 쪽은 항상 그 버전의 변경 시각 이후 값을 읽는다.
+    private final ConcurrentHashMap<Long, Long> categoryChangedAt = new ConcurrentHashMap<>();
+    private final AtomicLongArray authorTitleChangedAt = new AtomicLongArray(AUTHOR_TITLE_STRIPES);
+    // 띄운 직후에 만든 응답도 replica 지연 전의 데이터일 수 있으니 시작 시각을 첫 변경 시각으로 둔다.
+    private volatile long epochChangedAt = System.nanoTime();
+
+    public long categoryVersion(Long categoryId) {
+        AtomicLong version = categoryVersions.get(categoryId);
+        return epoch.get() + (version == null ? 0 : version.get()) + categoryListingStore.version(categoryId);
+    }
+
+    public long authorTitleVersion(String author, String title) {
+        return epoch.get() + authorTitleVersions.get(stripe(author, title));
+    }
+
+    // categoryVersion 이 마지막으로 바뀐 System.nanoTime(). 버전을 읽은 다음에 읽는다.
+    public long categoryChangedAt(Long categoryId) {
+        Long changedAt = categoryChangedAt.get(categoryId);
+        return changedAt == null ? epochChangedAt : latest(epochChangedAt, changedAt);
+    }
+
+    public long authorTitleChangedAt(String author, String title) {
+        long changedAt = authorTitleChangedAt.get(stripe(author, title));
+        return changedAt == 0 ? epochChangedAt : latest(epochChangedAt, changedAt);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.CACHE_VERSION)
+    public void on(BookRegisteredEvent event) {
+        event.categoryIds().forEach(this::bumpCategory);
+        bumpAuthorTitle(event.author(), event.title());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.CACHE_VERSION)
+    public void on(BookCategoriesChangedEvent event) {
+        event.addedCategoryIds().forEach(this::bumpCategory);
+        event.removedCategoryIds().forEach(this::bumpCategory);
+        bumpAuthorTitleOf(event.bookId());
+    }
+
+    // 상태 변경 이벤트에는 카테고리, 제목이 없어서 검색 색인에서 찾는다.
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.CACHE_VERSION)
+    public void on(BookStatusChangedEvent event) {
+        long[] categoryIds = bookSearchIndex.categoryIdsOf(event.bookId());
+        if (categoryIds == null) {
+            bumpEpoch();
+            return;
+        }
+        for (long categoryId : categoryIds) {
+            bumpCategory(categoryId);
+        }
+        bumpAuthorTitleOf(event.bookId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.CACHE_VERSION)
+    public void on(CategoryChangedEvent event) {
+        if (event.categoryId() == null) {
+            bumpEpoch();
+        } else {
+            bumpCategory(event.categoryId());
+        }
+    }
+
+    private void bumpEpoch() {
+        epochChangedAt = System.nanoTime();
+        epoch.incrementAndGet();
+    }
+
+    private void bumpCategory(Long categoryId) {
+        categoryChangedAt.put(categoryId, System.nanoTime());
+        categoryVersions.computeIfAbsent(categoryId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    private void bumpAuthorTitleOf(Long bookId) {
+        BookSearchHit book = bookSearchIndex.find(bookId);
+        if (book == null) {
+            bumpEpoch();
+        } else {
+            bumpAuthorTitle(book.author(), book.title());
+        }
+    }
+
+    private void bumpAuthorTitle(String author, String title) {
+        int stripe = stripe(author, title);
+        authorTitleChangedAt.set(stripe, System.nanoTime());
+        authorTitleVersions.incrementAndGet(stripe);
+    }
+
+    private static long latest(long a, long b) {
+        return a - b > 0 ? a : b;
+    }
+
+    private static int stripe(String author, String title) {
+        return (Objects.hash(author, title) & 0x7fffffff) % AUTHOR_TITLE_STRIPES;
+    }
+}
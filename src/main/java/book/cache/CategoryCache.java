@@ -0,0 +1,290 @@
+package book.cache;
+
+import book.entity.Category;
+import book.event.CategoryChangedEvent;
+import book.event.ListenerOrder;
+import book.repository.CategoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * CategoryRepository 앞에 두는 read-through 캐시.
+ * 카테고리는 문학, 경제경영, IT ... 정도로 몇개 안되고 거의 바뀌지 않아서 시작할 때 전부 올려둔다.
+ * 조회는 불변 스냅샷을 읽기만 하고, 변경은 스냅샷을 새로 만들어 바꿔 끼운다.
+ * ttl 이 지나면 요청 스레드는 이전 스냅샷을 그대로 쓰고 다시 읽기는 refreshExecutor 에서 한다. (Caffeine 의 refreshAfterWrite 와 같은 방식)
+ * 없는 id 도 negative-ttl 동안 기억해서 없는 카테고리로 반복해서 들어오는 요청이 매번 DB 를 치지 않게 한다.
+ *
+ * 캐시에 있는 Category 는 id, name 만 가진 detached 객체다. BookCategory 의 FK 로 넣거나 쿼리 파라미터로 쓰는 데는 문제 없지만
+ * 연관관계(bookCategories)는 비어있다.
+ */
+@Component
+@Slf4j
+public class CategoryCache {
+
+    // id 가 이 값보다 작으면 배열, 크면 map 에 담는다.
+    private static final int MAX_DENSE_ID = 1 << 16;
+
+    private final CategoryRepository categoryRepository;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    // 없는 id → 이 시각(nanoTime)까지는 다시 찾지 않는다.
+    private final Map<Long, Long> absent = new ConcurrentHashMap<>();
+
+    private volatile Snapshot snapshot = Snapshot.empty();
+
+    @Value("${book.category-cache.ttl:10m}")
+    private Duration ttl = Duration.ofMinutes(10);
+
+    @Value("${book.category-cache.max-size:4096}")
+    private int maxSize = 4096;
+
+    @Value("${book.category-cache.negative-ttl:30s}")
+    private Duration negativeTtl = Duration.ofSeconds(30);
+
+    private Executor refreshExecutor = ForkJoinPool.commonPool();
+
+    public CategoryCache(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+        log.info("category cache loaded. size={}", snapshot.size);
+    }
+
+    public Optional<Category> get(Long categoryId) {
+        if (categoryId == null) {
+            return Optional.empty();
+        }
+        Snapshot current = currentSnapshot();
+        Category category = current.get(categoryId);
+        if (category != null) {
+            hits.increment();
+            return Optional.of(category);
+        }
+        Long absentUntil = absent.get(categoryId);
+        if (absentUntil != null && System.nanoTime() - absentUntil < 0) {
+            hits.increment();
+            return Optional.empty();
+        }
+        misses.increment();
+        Optional<Category> loaded = categoryRepository.findById(categoryId).map(this::put);
+        if (loaded.isEmpty()) {
+            putAbsent(categoryId);
+        }
+        return loaded;
+    }
+
+    // findAllById 와 같이 존재하는 카테고리만 돌려준다. 중복 id 는 한번만 들어간다.
+    public List<Category> getAll(Collection<Long> categoryIds) {
+        List<Category> result = new ArrayList<>(categoryIds.size());
+        for (Long categoryId : new LinkedHashSet<>(categoryIds)) {
+            get(categoryId).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    public boolean exists(Long categoryId) {
+        return get(categoryId).isPresent();
+    }
+
+    public void evict(Long categoryId) {
+        writeLock.lock();
+        try {
+            snapshot = snapshot.without(categoryId);
+            absent.remove(categoryId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        reload();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.READ_MODEL)
+    public void on(CategoryChangedEvent event) {
+        if (event.categoryId() == null) {
+            invalidateAll();
+        } else {
+            evict(event.categoryId());
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return snapshot.size;
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (System.nanoTime() - current.loadedAt > ttl.toNanos() && refreshing.compareAndSet(false, true)) {
+            // 만료돼도 기다리지 않는다. 다시 읽는 동안(실패해도) 이전 스냅샷을 그대로 쓴다.
+            try {
+                refreshExecutor.execute(this::refresh);
+            } catch (RuntimeException e) {
+                refreshing.set(false);
+                log.warn("category cache refresh rejected.", e);
+            }
+        }
+        return current;
+    }
+
+    private void refresh() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("category cache refresh failed. keep serving the previous snapshot.", e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    private void reload() {
+        writeLock.lock();
+        try {
+            snapshot = load();
+            absent.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void putAbsent(Long categoryId) {
+        if (absent.size() >= maxSize) {
+            absent.clear();
+        }
+        absent.put(categoryId, System.nanoTime() + negativeTtl.toNanos());
+    }
+
+    private Snapshot load() {
+        List<Category> categories = new ArrayList<>();
+        for (Category category : categoryRepository.findAll()) {
+            if (categories.size() >= maxSize) {
+                log.warn("category count exceeds cache max-size {}. remaining categories are read through.", maxSize);
+                break;
+            }
+            categories.add(detach(category));
+        }
+        return Snapshot.of(categories, System.nanoTime());
+    }
+
+    private Category put(Category category) {
+        Category detached = detach(category);
+        writeLock.lock();
+        try {
+            if (snapshot.size < maxSize) {
+                snapshot = snapshot.with(detached);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return detached;
+    }
+
+    private static Category detach(Category category) {
+        return Category.builder()
+                .id(category.getId())
+                .name(category.getName())
+                .build();
+    }
+
+    private static final class Snapshot {
+        private final Category[] dense;
+        private final Map<Long, Category> sparse;
+        private final int size;
+        private final long loadedAt;
+
+        private Snapshot(Category[] dense, Map<Long, Category> sparse, int size, long loadedAt) {
+            this.dense = dense;
+            this.sparse = sparse;
+            this.size = size;
+            this.loadedAt = loadedAt;
+        }
+
+        private static Snapshot empty() {
+            return new Snapshot(new Category[0], Map.of(), 0, System.nanoTime());
+        }
+
+        private static Snapshot of(Collection<Category> categories, long loadedAt) {
+            int maxDenseId = 0;
+            for (Category category : categories) {
+                if (category.getId() < MAX_DENSE_ID) {
+                    maxDenseId = Math.max(maxDenseId, category.getId().intValue());
+                }
+            }
+            Category[] dense = new Category[maxDenseId + 1];
+            Map<Long, Category> sparse = new HashMap<>();
+            for (Category category : categories) {
+                if (category.getId() < MAX_DENSE_ID) {
+                    dense[category.getId().intValue()] = category;
+                } else {
+                    sparse.put(category.getId(), category);
+                }
+            }
+            return new Snapshot(dense, sparse, categories.size(), loadedAt);
+        }
+
+        private Category get(long categoryId) {
+            if (categoryId >= 0 && categoryId < dense.length) {
+                return dense[(int) categoryId];
+            }
+            return sparse.isEmpty() ? null : sparse.get(categoryId);
+        }
+
+        private Snapshot with(Category category) {
+            List<Category> categories = values();
+            categories.removeIf(existing -> existing.getId().equals(category.getId()));
+            categories.add(category);
+            return of(categories, loadedAt);
+        }
+
+        private Snapshot without(Long categoryId) {
+            List<Category> categories = values();
+            categories.removeIf(existing -> existing.getId().equals(categoryId));
+            return of(categories, loadedAt);
+        }
+
+        private List<Category> values() {
+            List<Category> categories = new ArrayList<>(size + 1);
+            for (Category category : dense) {
+                if (category != null) {
+                    categories.add(category);
+                }
+            }
+            categories.addAll(sparse.values());
+            return categories;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package book.cache;
+
+import book.dto.ResponseBookDto;
+import book.enums.BookStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * 카테고리 하나의 도서 목록을 미리 만들어 둔 불변 스냅샷.
+ * 도서 id 는 정렬된 long[], 제목/지은이/상태는 byte[] 하나에 이어 붙이고 offsets 로 찾아간다.
+ * 도서 한 권에 객체를 하나도 만들지 않아서 수십만 권이어도 GC 가 훑을 것이 배열 몇 개뿐이다.
+ *
+ * <pre>
+ * packed[offsets[i]] = varint 제목 바이트 길이, 제목 UTF-8, varint 지은이 바이트 길이, 지은이 UTF-8, BookStatus ordinal 1 byte
+ * </pre>
+ */
+final class CategoryListing {
+
+    static final CategoryListing EMPTY = new CategoryListing(new long[0], new int[1], new byte[0]);
+
+    private static final BookStatus[] STATUSES = BookStatus.values();
+
+    private final long[] ids;
+    // offsets[size] 는 packed 의 끝이라 i 번째 도서는 offsets[i] ~ offsets[i + 1] 이다.
+    private final int[] offsets;
+    private final byte[] packed;
+
+    private CategoryListing(long[] ids, int[] offsets, byte[] packed) {
+        this.ids = ids;
+        this.offsets = offsets;
+        this.packed = packed;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    // 배열이 실제로 차지하는 바이트 수 (객체 헤더 제외)
+    long bytes() {
+        return (long) ids.length * Long.BYTES + (long) offsets.length * Integer.BYTES + packed.length;
+    }
+
+    boolean contains(long bookId) {
+        return Arrays.binarySearch(ids, bookId) >= 0;
+    }
+
+    List<ResponseBookDto> toDtos() {
+        ResponseBookDto[] books = new ResponseBookDto[ids.length];
+        int[] position = new int[1];
+        for (int i = 0; i < ids.length; i++) {
+            position[0] = offsets[i];
+            String title = readString(position);
+            String author = readString(position);
+            books[i] = new ResponseBookDto(ids[i], title, author, List.of());
+        }
+        return List.of(books);
+    }
+
+    /**
+     * 바뀐 도서만 모은 delta 를 id 순서대로 끼워 넣어 새 스냅샷을 만든다. 바뀌지 않은 도서는 바이트를 그대로 복사한다.
+     * 같은 delta 를 두번 적용해도 결과가 같다.
+     */
+    CategoryListing merge(NavigableMap<Long, ListingDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return this;
+        }
+        Builder builder = new Builder(ids.length + deltas.size(), packed.length + deltas.size() * 64);
+        Iterator<Map.Entry<Long, ListingDelta>> changes = deltas.entrySet().iterator();
+        Map.Entry<Long, ListingDelta> change = changes.next();
+        int i = 0;
+        while (i < ids.length || change != null) {
+            if (change == null || (i < ids.length && ids[i] < change.getKey())) {
+                builder.copy(this, i++);
+                continue;
+            }
+            long bookId = change.getKey();
+            ListingDelta delta = change.getValue();
+            boolean existing = i < ids.length && ids[i] == bookId;
+            if (delta.removed()) {
+                // 지울 도서는 건너뛴다.
+            } else if (delta.title() != null) {
+                builder.add(bookId, delta.title(), delta.author(), delta.status());
+            } else if (existing) {
+                builder.copyWithStatus(this, i, delta.status());
+            }
+            // 목록에 없는 도서의 상태만 바뀐 것은 무시한다.
+            if (existing) {
+                i++;
+            }
+            change = changes.hasNext() ? changes.next() : null;
+        }
+        return builder.build();
+    }
+
+    private String readString(int[] position) {
+        int length = readVarInt(position);
+        String value = new String(packed, position[0], length, StandardCharsets.UTF_8);
+        position[0] += length;
+        return value;
+    }
+
+    private int readVarInt(int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = packed[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    // id 가 커지는 순서로만 넣는다.
+    static final class Builder {
+
+        private long[] ids;
+        private int[] offsets;
+        private byte[] packed;
+        private int size;
+        private int length;
+
+        Builder() {
+            this(1024, 64 * 1024);
+        }
+
+        Builder(int expectedBooks, int expectedBytes) {
+            ids = new long[Math.max(expectedBooks, 16)];
+            offsets = new int[ids.length + 1];
+            packed = new byte[Math.max(expectedBytes, 1024)];
+        }
+
+        void add(long bookId, String title, String author, BookStatus status) {
+            byte[] titleBytes = (title == null ? "" : title).getBytes(StandardCharsets.UTF_8);
+            byte[] authorBytes = (author == null ? "" : author).getBytes(StandardCharsets.UTF_8);
+            startBook(bookId, titleBytes.length + authorBytes.length + 11);
+            writeVarInt(titleBytes.length);
+            writeBytes(titleBytes, 0, titleBytes.length);
+            writeVarInt(authorBytes.length);
+            writeBytes(authorBytes, 0, authorBytes.length);
+            packed[length++] = (byte) (status == null ? BookStatus.AVAILABLE : status).ordinal();
+        }
+
+        private void copy(CategoryListing source, int index) {
+            int from = source.offsets[index];
+            int to = source.offsets[index + 1];
+            startBook(source.ids[index], to - from);
+            writeBytes(source.packed, from, to - from);
+        }
+
+        // 상태는 항상 마지막 바이트라 그것만 바꿔 쓴다.
+        private void copyWithStatus(CategoryListing source, int index, BookStatus status) {
+            copy(source, index);
+            packed[length - 1] = (byte) status.ordinal();
+        }
+
+        CategoryListing build() {
+            offsets[size] = length;
+            return new CategoryListing(Arrays.copyOf(ids, size), Arrays.copyOf(offsets, size + 1), Arrays.copyOf(packed, length));
+        }
+
+        private void startBook(long bookId, int maxBytes) {
+            if (size > 0 && ids[size - 1] >= bookId) {
+                throw new IllegalArgumentException("book ids must be added in ascending order: " + bookId);
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2 + 1);
+            }
+            if (length + maxBytes > packed.length) {
+                packed = Arrays.copyOf(packed, Math.max(packed.length * 2, length + maxBytes));
+            }
+            ids[size] = bookId;
+            offsets[size] = length;
+            size++;
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                packed[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            packed[length++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] bytes, int offset, int count) {
+            System.arraycopy(bytes, offset, packed, length, count);
+            length += count;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package book.cache;
+
+import book.dto.CategoryListingStatsDto;
+import book.dto.ResponseBookDto;
+import book.event.BookCategoriesChangedEvent;
+import book.event.BookRegisteredEvent;
+import book.event.BookStatusChangedEvent;
+import book.event.ListenerOrder;
+import book.repository.BookJdbcRepository;
+import book.search.BookSearchHit;
+import book.search.BookSearchIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 자주 찾는 카테고리의 도서 목록을 미리 만들어 두고 getBooksByCategory 를 SQL 없이 처리한다.
+ * 설정한 카테고리는 뜰 때 만들고, 그 밖의 카테고리는 materialize-after-hits 번 찾으면 max-categories 개까지 백그라운드에서 만든다.
+ *
+ * 쓰기가 커밋되면 바뀐 도서만 카테고리별 delta 로 쌓아두고, 가장 오래된 delta 가 max-staleness 를 넘긴 뒤 처음 읽을 때
+ * (또는 delta 가 max-pending 개를 넘으면 바로) 스냅샷에 합친다. 그래서 목록은 커밋 후 최대 max-staleness 만큼 늦을 수 있다.
+ * 합칠 때마다 version 이 올라가고 CatalogVersions 가 이 값을 더하기 때문에 응답 캐시가 오래된 목록을 붙잡고 있지 않는다.
+ */
+@Component
+@Slf4j
+public class CategoryListingStore {
+
+    private final BookJdbcRepository bookJdbcRepository;
+    private final BookSearchIndex bookSearchIndex;
+    private final TaskExecutor taskExecutor;
+
+    private final ConcurrentHashMap<Long, Listing> listings = new ConcurrentHashMap<>();
+    // 아직 만들지 않은 카테고리의 조회 수
+    private final ConcurrentHashMap<Long, LongAdder> candidateHits = new ConcurrentHashMap<>();
+
+    // 뜰 때 바로 만들어 둘 카테고리 id
+    @Value("${book.category-listing.categories:}")
+    private List<Long> preloadCategoryIds = List.of();
+
+    // 0 이면 자동으로 만들지 않는다.
+    @Value("${book.category-listing.materialize-after-hits:100}")
+    private long materializeAfterHits = 100;
+
+    @Value("${book.category-listing.max-categories:16}")
+    private int maxCategories = 16;
+
+    @Value("${book.category-listing.max-staleness:1s}")
+    private Duration maxStaleness = Duration.ofSeconds(1);
+
+    @Value("${book.category-listing.max-pending:10000}")
+    private int maxPending = 10_000;
+
+    public CategoryListingStore(BookJdbcRepository bookJdbcRepository,
+                                BookSearchIndex bookSearchIndex,
+                                @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor) {
+        this.bookJdbcRepository = bookJdbcRepository;
+        this.bookSearchIndex = bookSearchIndex;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        for (Long categoryId : preloadCategoryIds) {
+            build(listings.computeIfAbsent(categoryId, Listing::new));
+        }
+    }
+
+    /**
+     * 만들어 둔 목록이 있으면 돌려준다. 없거나 아직 만드는 중이면 empty 라서 호출하는 쪽이 DB 에서 읽는다.
+     * 카테고리가 있는지는 확인하지 않는다.
+     */
+    public Optional<List<ResponseBookDto>> find(Long categoryId) {
+        Listing listing = listings.get(categoryId);
+        if (listing == null) {
+            countCandidateHit(categoryId);
+            return Optional.empty();
+        }
+        listing.hits.increment();
+        CategoryListing snapshot = current(listing);
+        return snapshot == null ? Optional.empty() : Optional.of(snapshot.toDtos());
+    }
+
+    // 목록을 합칠 때마다 올라가는 값. 만들어 둔 목록이 없으면 0
+    public long version(Long categoryId) {
+        Listing listing = listings.get(categoryId);
+        if (listing == null) {
+            return 0;
+        }
+        current(listing);
+        return listing.version.get();
+    }
+
+    /**
+     * DB 에서 다시 읽어 스냅샷을 새로 만든다. categoryId 가 null 이면 만들어 둔 카테고리 전부,
+     * 아직 만들지 않은 카테고리면 max-categories 와 상관없이 새로 만든다. 이미 만드는 중인 카테고리는 건너뛴다.
+     */
+    public List<CategoryListingStatsDto> rebuild(Long categoryId) {
+        if (categoryId == null) {
+            listings.values().forEach(this::build);
+        } else {
+            candidateHits.remove(categoryId);
+            build(listings.computeIfAbsent(categoryId, Listing::new));
+        }
+        return stats();
+    }
+
+    public List<CategoryListingStatsDto> stats() {
+        List<CategoryListingStatsDto> stats = new ArrayList<>();
+        for (Listing listing : listings.values()) {
+            stats.add(listing.stats());
+        }
+        stats.sort(Comparator.comparing(CategoryListingStatsDto::categoryId));
+        return stats;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.READ_MODEL)
+    public void on(BookRegisteredEvent event) {
+        ListingDelta delta = ListingDelta.upsert(event.title(), event.author(), event.status());
+        for (Long categoryId : event.categoryIds()) {
+            Listing listing = listings.get(categoryId);
+            if (listing != null) {
+                record(listing, event.bookId(), delta);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.READ_MODEL)
+    public void on(BookCategoriesChangedEvent event) {
+        for (Long categoryId : event.removedCategoryIds()) {
+            Listing listing = listings.get(categoryId);
+            if (listing != null) {
+                record(listing, event.bookId(), ListingDelta.REMOVED);
+            }
+        }
+        for (Long categoryId : event.addedCategoryIds()) {
+            Listing listing = listings.get(categoryId);
+            if (listing == null) {
+                continue;
+            }
+            // 이벤트에는 제목, 지은이가 없어서 검색 색인에서 찾는다. 색인에 없으면 그 카테고리는 DB 에서 다시 읽는다.
+            BookSearchHit book = bookSearchIndex.find(event.bookId());
+            if (book == null) {
+                log.warn("book {} not found in search index. rebuilding category listing {}", event.bookId(), categoryId);
+                rebuildAsync(listing);
+            } else {
+                record(listing, event.bookId(), ListingDelta.upsert(book.title(), book.author(), book.status()));
+            }
+        }
+    }
+
+    // 상태 변경 이벤트에는 카테고리가 없어서 만들어 둔 목록마다 그 도서가 있는지 본다.
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.READ_MODEL)
+    public void on(BookStatusChangedEvent event) {
+        ListingDelta delta = ListingDelta.statusOnly(event.status());
+        for (Listing listing : listings.values()) {
+            if (listing.mayContain(event.bookId())) {
+                record(listing, event.bookId(), delta);
+            }
+        }
+    }
+
+    private void countCandidateHit(Long categoryId) {
+        if (materializeAfterHits <= 0) {
+            return;
+        }
+        LongAdder hits = candidateHits.computeIfAbsent(categoryId, id -> new LongAdder());
+        hits.increment();
+        if (hits.sum() >= materializeAfterHits && listings.size() < maxCategories) {
+            materialize(categoryId);
+        }
+    }
+
+    private synchronized void materialize(Long categoryId) {
+        if (listings.containsKey(categoryId) || listings.size() >= maxCategories) {
+            return;
+        }
+        Listing listing = new Listing(categoryId);
+        LongAdder hits = candidateHits.remove(categoryId);
+        if (hits != null) {
+            listing.hits.add(hits.sum());
+        }
+        listings.put(categoryId, listing);
+        log.info("materializing category listing {}", categoryId);
+        rebuildAsync(listing);
+    }
+
+    private void rebuildAsync(Listing listing) {
+        taskExecutor.execute(() -> {
+            try {
+                build(listing);
+            } catch (RuntimeException e) {
+                log.warn("category listing {} rebuild failed", listing.categoryId, e);
+                // 한번도 만들지 못했으면 지워서 다음에 다시 조회가 쌓이면 또 시도하게 한다.
+                if (listing.snapshot == null) {
+                    listings.remove(listing.categoryId, listing);
+                }
+            }
+        });
+    }
+
+    /**
+     * primary 에서 읽는다. replica 는 늦을 수 있는데, 시작 전에 들어온 delta 는 버리기 때문에 그 사이 변경을 놓치게 된다.
+     * 읽는 동안 들어온 delta 는 replay 에도 쌓아 두었다가 새 스냅샷에 다시 적용한다. 이미 반영된 것이어도 결과는 같다.
+     */
+    private void build(Listing listing) {
+        synchronized (listing) {
+            if (listing.replay != null) {
+                return;
+            }
+            listing.replay = new TreeMap<>();
+        }
+        long started = System.nanoTime();
+        CategoryListing.Builder builder = new CategoryListing.Builder();
+        try {
+            bookJdbcRepository.streamCategoryBooks(listing.categoryId,
+                    row -> builder.add(row.id(), row.title(), row.author(), row.status()));
+        } catch (RuntimeException e) {
+            synchronized (listing) {
+                listing.replay = null;
+            }
+            throw e;
+        }
+        CategoryListing built = builder.build();
+        synchronized (listing) {
+            listing.snapshot = built.merge(listing.replay);
+            listing.replay = null;
+            listing.pending = new TreeMap<>();
+            listing.oldestPendingNanos = 0;
+            listing.builtAt = Instant.now();
+            listing.version.incrementAndGet();
+        }
+        log.info("category listing {} built. books={}, bytes={}, elapsedMs={}", listing.categoryId, built.size(),
+                built.bytes(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void record(Listing listing, long bookId, ListingDelta delta) {
+        synchronized (listing) {
+            if (listing.pending.isEmpty()) {
+                listing.oldestPendingNanos = System.nanoTime();
+            }
+            listing.pending.merge(bookId, delta, (previous, next) -> next.after(previous));
+            if (listing.replay != null) {
+                listing.replay.merge(bookId, delta, (previous, next) -> next.after(previous));
+            }
+            if (listing.pending.size() >= maxPending) {
+                mergePending(listing);
+            }
+        }
+    }
+
+    // 쌓인 delta 가 max-staleness 보다 오래됐으면 합친 스냅샷을 돌려준다. 아직 만들지 못했으면 null
+    private CategoryListing current(Listing listing) {
+        long oldest = listing.oldestPendingNanos;
+        if (oldest != 0 && System.nanoTime() - oldest >= maxStaleness.toNanos()) {
+            synchronized (listing) {
+                if (listing.oldestPendingNanos != 0 && System.nanoTime() - listing.oldestPendingNanos >= maxStaleness.toNanos()) {
+                    mergePending(listing);
+                }
+            }
+        }
+        return listing.snapshot;
+    }
+
+    // listing 을 잡은 상태에서 부른다. 처음 만드는 중이면 합칠 스냅샷이 없으니 쌓아둔다. 어차피 replay 로 적용된다.
+    private void mergePending(Listing listing) {
+        if (listing.snapshot == null || listing.pending.isEmpty()) {
+            return;
+        }
+        listing.snapshot = listing.snapshot.merge(listing.pending);
+        listing.pending = new TreeMap<>();
+        listing.oldestPendingNanos = 0;
+        listing.version.incrementAndGet();
+    }
+
+    private static final class Listing {
+
+        private final long categoryId;
+        private final LongAdder hits = new LongAdder();
+        private final AtomicLong version = new AtomicLong();
+
+        // 읽기는 잠금 없이 하고, 바꾸는 것은 모두 this 를 잡고 한다.
+        private volatile CategoryListing snapshot;
+        private volatile long oldestPendingNanos;
+        private volatile Instant builtAt;
+        private TreeMap<Long, ListingDelta> pending = new TreeMap<>();
+        // 다시 만드는 중에만 있다.
+        private TreeMap<Long, ListingDelta> replay;
+
+        private Listing(Long categoryId) {
+            this.categoryId = categoryId;
+        }
+
+        // 만드는 중이면 있는지 알 수 없으니 있다고 본다. 없는 도서의 상태 변경은 합칠 때 버려진다.
+        private synchronized boolean mayContain(long bookId) {
+            if (snapshot == null || replay != null) {
+                return true;
+            }
+            ListingDelta delta = pending.get(bookId);
+            if (delta != null) {
+                return !delta.removed();
+            }
+            return snapshot.contains(bookId);
+        }
+
+        private synchronized CategoryListingStatsDto stats() {
+            CategoryListing current = snapshot == null ? CategoryListing.EMPTY : snapshot;
+            long now = System.nanoTime();
+            return new CategoryListingStatsDto(categoryId,
+                    snapshot != null,
+                    replay != null,
+                    current.size(),
+                    current.bytes(),
+                    builtAt,
+                    builtAt == null ? 0 : Duration.between(builtAt, Instant.now()).toMillis(),
+                    pending.size(),
+                    oldestPendingNanos == 0 ? 0 : (now - oldestPendingNanos) / 1_000_000,
+                    version.get(),
+                    hits.sum());
+        }
+    }
+}
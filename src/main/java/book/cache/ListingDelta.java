@@ -0,0 +1,28 @@
+package book.cache;
+
+import book.enums.BookStatus;
+
+// 카테고리 목록에 아직 합치지 않은 도서 한 권의 변경. title 이 null 이면 상태만 바뀐 것이다.
+record ListingDelta(String title, String author, BookStatus status, boolean removed) {
+
+    static final ListingDelta REMOVED = new ListingDelta(null, null, null, true);
+
+    static ListingDelta upsert(String title, String author, BookStatus status) {
+        return new ListingDelta(title, author, status, false);
+    }
+
+    static ListingDelta statusOnly(BookStatus status) {
+        return new ListingDelta(null, null, status, false);
+    }
+
+    // 같은 도서에 먼저 쌓인 delta 위에 이번 delta 를 덮어쓴다.
+    ListingDelta after(ListingDelta previous) {
+        if (previous == null || removed || title != null) {
+            return this;
+        }
+        if (previous.removed) {
+            return previous;
+        }
+        return new ListingDelta(previous.title, previous.author, status, false);
+    }
+}
@@ -0,0 +1,124 @@
+package book.cache;
+
+import book.datasource.ReadYourWritesContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 같은 조회가 동시에 여러 번 들어오면 처음 온 요청(leader)만 loader 를 부르고, 그 사이에 온 요청(follower)은
+ * 진행 중인 CompletableFuture 의 결과를 같이 받는다(single-flight). 결과는 캐시하지 않아서 leader 가 끝나면 바로 지운다.
+ *
+ * key 에는 호출하는 쪽이 CatalogVersions 의 버전을 넣는다. 쓰기가 커밋되어 버전이 바뀐 뒤에 온 요청은 그 전에 시작한
+ * 계산에 붙지 않으므로, 혼자 계산했을 때보다 오래된 결과를 받지 않는다.
+ *
+ * follower 는 max-wait 까지만 기다리고 넘으면 직접 계산한다. leader 의 요청이 끊겨 인터럽트로 실패한 경우에도
+ * follower 까지 실패시키지 않고 각자 계산한다. follower 가 기다리다 인터럽트되어도 공유 중인 future 는 건드리지 않는다.
+ *
+ * 쓰기 직후라 primary 에서 읽어야 하는 요청은 합치지 않고 직접 계산한다. replica 에서 읽는 leader 에 붙으면
+ * 방금 쓴 내용이 빠진 결과를 받기 때문이다. (버전은 같아도 replica 가 아직 못 따라왔을 수 있다)
+ */
+@Component
+public class RequestCoalescer {
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder followers = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    @Value("${book.coalescing.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${book.coalescing.max-wait:2s}")
+    private Duration maxWait = Duration.ofSeconds(2);
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> loader) {
+        if (!enabled || ReadYourWritesContext.isPinnedToPrimary()) {
+            return loader.get();
+        }
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+        if (existing == null) {
+            leaders.increment();
+            return (T) lead(key, flight, loader);
+        }
+        followers.increment();
+        return (T) follow(existing, loader);
+    }
+
+    // loader 를 부른 요청 수
+    public long leaderCount() {
+        return leaders.sum();
+    }
+
+    // 다른 요청의 결과를 같이 받은 요청 수. max-wait 을 넘겨 직접 계산한 요청도 포함한다.
+    public long followerCount() {
+        return followers.sum();
+    }
+
+    public long timeoutCount() {
+        return timeouts.sum();
+    }
+
+    // 전체 요청 중 loader 를 부르지 않고 끝난 비율
+    public double coalescedRatio() {
+        long leaderCount = leaders.sum();
+        long coalesced = followers.sum() - timeouts.sum();
+        long total = leaderCount + followers.sum();
+        return total == 0 ? 0 : (double) coalesced / total;
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    // 결과를 넘기기 전에 map 에서 지워서, 끝난 계산에 새 요청이 붙지 않게 한다.
+    private Object lead(String key, CompletableFuture<Object> flight, Supplier<?> loader) {
+        Object result;
+        try {
+            result = loader.get();
+        } catch (Throwable e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(Thread.currentThread().isInterrupted()
+                    ? new CancellationException("leader request was interrupted") : e);
+            throw e;
+        }
+        inFlight.remove(key, flight);
+        flight.complete(result);
+        return result;
+    }
+
+    private Object follow(CompletableFuture<Object> flight, Supplier<?> loader) {
+        try {
+            return flight.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            return loader.get();
+        } catch (CancellationException e) {
+            return loader.get();
+        } catch (ExecutionException e) {
+            // leader 와 같은 예외(예: CategoryNotFoundException)를 그대로 던져서 응답도 같게 한다.
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted while waiting for an in-flight request");
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package book.cache;
+
+import book.datasource.ReadYourWritesContext;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * 조회 API 응답을 직렬화된 JSON byte[] 로 들고 있는 캐시.
+ * 같은 요청이 다시 오면 DB 도, Jackson 도 거치지 않고 byte[] 를 그대로 내려준다.
+ * 무효화는 TTL 이 아니라 CatalogVersions 의 버전 비교로 한다. 메모리는 body 크기 합으로 제한하고 W-TinyLFU(Caffeine)로 내보낸다.
+ *
+ * replica 로 읽을 때는 버전이 올라도 replica 가 그 쓰기를 아직 못 받았을 수 있다. 그래서 버전이 바뀐 뒤 replica 지연
+ * (read-your-writes-window) 안에 시작한 계산은 응답만 하고 캐시에 넣지 않는다. 방금 쓰기를 해서 primary 로 읽는 요청은
+ * 캐시도, 다른 요청의 계산도 같이 쓰지 않고 결과도 넣지 않는다. 그 요청만 볼 수 있는 데이터가 다른 클라이언트에게 가지 않게 한다.
+ */
+@Component
+public class ResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final RequestCoalescer requestCoalescer;
+    @Getter
+    private final Cache<String, CachedResponse> cache;
+
+    @Value("${book.datasource.replication.enabled:false}")
+    private boolean replicationEnabled;
+
+    @Value("${book.datasource.replication.read-your-writes-window:2s}")
+    private Duration replicaLag = Duration.ofSeconds(2);
+
+    public ResponseCache(ObjectMapper objectMapper,
+                         RequestCoalescer requestCoalescer,
+                         @Value("${book.response-cache.max-size:64MB}") DataSize maxSize) {
+        this.objectMapper = objectMapper;
+        this.requestCoalescer = requestCoalescer;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, CachedResponse response) -> key.length() * 2 + response.body().length)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * key 에 대해 version 이 같은 응답이 있으면 그대로 주고, 없거나 버전이 바뀌었으면 loader 로 새로 만든다.
+     * version 은 loader 를 부르기 전에 읽어둔 값이어야 하고, changedAt 은 그 버전이 바뀐 System.nanoTime() 으로 version 다음에 읽는다.
+     * 계산 도중 쓰기가 들어오면 버전이 올라가서 다음 조회 때 다시 만든다.
+     * 캐시가 비어있을 때 같은 key, version 으로 동시에 들어온 요청은 하나만 loader 를 부르고 직렬화까지 같이 쓴다.
+     */
+    public CachedResponse getOrCompute(String key, long version, long changedAt, Supplier<?> loader) {
+        if (ReadYourWritesContext.isPinnedToPrimary()) {
+            return create(version, loader);
+        }
+        CachedResponse cached = cache.getIfPresent(key);
+        if (cached != null && cached.version() == version) {
+            return cached;
+        }
+        return requestCoalescer.execute(key + '#' + version, () -> compute(key, version, changedAt, loader));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private CachedResponse compute(String key, long version, long changedAt, Supplier<?> loader) {
+        boolean replicaCaughtUp = replicaCaughtUp(changedAt);
+        CachedResponse response = create(version, loader);
+        if (!replicaCaughtUp) {
+            return response;
+        }
+        cache.asMap().merge(key, response, (existing, created) -> existing.version() > created.version() ? existing : created);
+        return response;
+    }
+
+    private CachedResponse create(long version, Supplier<?> loader) {
+        byte[] body = serialize(loader.get());
+        return new CachedResponse(body, etag(body), version);
+    }
+
+    // 계산을 시작하는 지금, replica 가 changedAt 의 쓰기까지 받았다고 볼 수 있는지
+    private boolean replicaCaughtUp(long changedAt) {
+        return !replicationEnabled || System.nanoTime() - changedAt >= replicaLag.toNanos();
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("response serialization failed", e);
+        }
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package book.common;
+
+import book.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset 페이징용 커서. 클라이언트에는 마지막으로 내려준 book.id 를 감싼 opaque 한 문자열로만 노출한다.
+ */
+public final class BookCursor {
+
+    private static final String PREFIX = "b:";
+
+    private BookCursor() {
+    }
+
+    public static String encode(long lastBookId) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((PREFIX + lastBookId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 커서가 없으면 처음부터 조회
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new InvalidCursorException("invalid cursor: " + cursor);
+            }
+            return Long.parseLong(raw.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package book.common;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * boxing 없이 long 을 담는 open addressing 해시셋. 0 은 빈 칸 표시로 쓰기 때문에 따로 관리한다.
+ * 스레드 안전하지 않다.
+ */
+public final class LongHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private int size;
+    private boolean containsZero;
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.table = new long[capacity];
+    }
+
+    public static LongHashSet of(Collection<Long> values) {
+        LongHashSet set = new LongHashSet(values.size());
+        for (Long value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int mask = table.length - 1;
+        int idx = mix(value) & mask;
+        while (table[idx] != EMPTY) {
+            if (table[idx] == value) {
+                return false;
+            }
+            idx = (idx + 1) & mask;
+        }
+        table[idx] = value;
+        size++;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+        int mask = table.length - 1;
+        int idx = mix(value) & mask;
+        while (table[idx] != EMPTY) {
+            if (table[idx] == value) {
+                return true;
+            }
+            idx = (idx + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // 정렬된 배열로 돌려준다.
+    public long[] toArray() {
+        long[] result = new long[size];
+        int n = 0;
+        if (containsZero) {
+            result[n++] = EMPTY;
+        }
+        for (long value : table) {
+            if (value != EMPTY) {
+                result[n++] = value;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void rehash() {
+        long[] old = table;
+        table = new long[old.length << 1];
+        int mask = table.length - 1;
+        for (long value : old) {
+            if (value == EMPTY) {
+                continue;
+            }
+            int idx = mix(value) & mask;
+            while (table[idx] != EMPTY) {
+                idx = (idx + 1) & mask;
+            }
+            table[idx] = value;
+        }
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
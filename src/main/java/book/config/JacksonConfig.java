@@ -0,0 +1,28 @@
+package book.config;
+
+import book.dto.ResponseBookDto;
+import book.dto.ResponseBookDtoSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Module 빈은 스프링 부트가 기본 ObjectMapper 에 등록한다. (ResponseCache, NDJSON 스트리밍도 같은 ObjectMapper 를 쓴다)
+@Configuration
+public class JacksonConfig {
+
+    // 가장 많이 나가는 응답은 손으로 쓴 serializer 로
+    @Bean
+    public Module bookDtoModule() {
+        SimpleModule module = new SimpleModule("book-dto");
+        module.addSerializer(ResponseBookDto.class, new ResponseBookDtoSerializer());
+        return module;
+    }
+
+    // 나머지 DTO 는 Blackbird 가 getter, setter 리플렉션 호출을 LambdaMetafactory 로 만든 호출로 바꿔준다.
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
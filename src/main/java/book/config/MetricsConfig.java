@@ -0,0 +1,127 @@
+package book.config;
+
+import book.cache.CategoryCache;
+import book.cache.RequestCoalescer;
+import book.cache.ResponseCache;
+import book.history.CategoryHistoryWriter;
+import book.inventory.InventoryStore;
+import book.metrics.InstrumentedJdbcTemplate;
+import book.search.BookSearchIndex;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.autoconfigure.jdbc.JdbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableConfigurationProperties(JdbcProperties.class)
+public class MetricsConfig {
+
+    // 서비스 클래스에 붙은 @Timed 처리
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    // 기본 JdbcTemplate 대신 요청별 SQL 수, DB 시간을 같이 기록하는 JdbcTemplate 을 쓴다.
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource, JdbcProperties properties) {
+        JdbcProperties.Template template = properties.getTemplate();
+        JdbcTemplate jdbcTemplate = new InstrumentedJdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(template.getFetchSize());
+        jdbcTemplate.setMaxRows(template.getMaxRows());
+        if (template.getQueryTimeout() != null) {
+            jdbcTemplate.setQueryTimeout((int) template.getQueryTimeout().getSeconds());
+        }
+        return jdbcTemplate;
+    }
+
+    @Bean
+    public MeterBinder bookCacheMetrics(CategoryCache categoryCache, BookSearchIndex bookSearchIndex, ResponseCache responseCache,
+                                        RequestCoalescer requestCoalescer) {
+        return registry -> {
+            CaffeineCacheMetrics.monitor(registry, responseCache.getCache(), "book.response");
+
+            FunctionCounter.builder("book.category.cache.requests", categoryCache, CategoryCache::hitCount)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("book.category.cache.requests", categoryCache, CategoryCache::missCount)
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("book.category.cache.size", categoryCache, CategoryCache::size)
+                    .register(registry);
+
+            FunctionCounter.builder("book.search.index.requests", bookSearchIndex,
+                            index -> index.searchCount() - index.emptySearchCount())
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("book.search.index.requests", bookSearchIndex, BookSearchIndex::emptySearchCount)
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("book.search.index.size", bookSearchIndex, BookSearchIndex::size)
+                    .register(registry);
+
+            // leader 는 직접 조회한 요청, follower 는 진행 중인 조회에 붙은 요청. timeout 은 follower 중 기다리다 직접 조회한 요청
+            FunctionCounter.builder("book.coalescing.requests", requestCoalescer, RequestCoalescer::leaderCount)
+                    .tag("role", "leader")
+                    .register(registry);
+            FunctionCounter.builder("book.coalescing.requests", requestCoalescer, RequestCoalescer::followerCount)
+                    .tag("role", "follower")
+                    .register(registry);
+            FunctionCounter.builder("book.coalescing.timeouts", requestCoalescer, RequestCoalescer::timeoutCount)
+                    .register(registry);
+            Gauge.builder("book.coalescing.ratio", requestCoalescer, RequestCoalescer::coalescedRatio)
+                    .register(registry);
+            Gauge.builder("book.coalescing.in-flight", requestCoalescer, RequestCoalescer::inFlightCount)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder categoryHistoryMetrics(CategoryHistoryWriter categoryHistoryWriter) {
+        return registry -> {
+            Gauge.builder("book.category-history.pending", categoryHistoryWriter, CategoryHistoryWriter::pendingCount)
+                    .register(registry);
+            FunctionCounter.builder("book.category-history.rows", categoryHistoryWriter, CategoryHistoryWriter::writtenCount)
+                    .register(registry);
+            // 버퍼가 가득 차서 요청 스레드에서 바로 쓴 행
+            FunctionCounter.builder("book.category-history.direct-writes", categoryHistoryWriter, CategoryHistoryWriter::directWriteCount)
+                    .register(registry);
+            // 쓰기 실패 후 다시 쓴 횟수. 늘고 있으면 pending 도 같이 본다.
+            FunctionCounter.builder("book.category-history.failures", categoryHistoryWriter, CategoryHistoryWriter::failureCount)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder inventoryMetrics(InventoryStore inventoryStore) {
+        return registry -> {
+            FunctionCounter.builder("book.inventory.reserved", inventoryStore, InventoryStore::reservedCount)
+                    .register(registry);
+            FunctionCounter.builder("book.inventory.released", inventoryStore, InventoryStore::releasedCount)
+                    .register(registry);
+            // 남은 권수가 모자라서 409 로 끝난 빌리기
+            FunctionCounter.builder("book.inventory.rejected", inventoryStore, InventoryStore::rejectedCount)
+                    .register(registry);
+            // DB 에서 몫을 받아 온 횟수. 빌리기 수에 가까우면 lease-size 가 작다.
+            FunctionCounter.builder("book.inventory.leases", inventoryStore, InventoryStore::leaseCount)
+                    .register(registry);
+            FunctionCounter.builder("book.inventory.flushed-rows", inventoryStore, InventoryStore::flushedRowCount)
+                    .register(registry);
+            FunctionCounter.builder("book.inventory.flush-failures", inventoryStore, InventoryStore::flushFailureCount)
+                    .register(registry);
+            FunctionCounter.builder("book.inventory.evictions", inventoryStore, InventoryStore::evictionCount)
+                    .register(registry);
+            Gauge.builder("book.inventory.resident", inventoryStore, InventoryStore::residentCount)
+                    .register(registry);
+        };
+    }
+}
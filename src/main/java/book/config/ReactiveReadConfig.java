@@ -0,0 +1,72 @@
+package book.config;
+
+import book.reactive.ReactiveBookHandler;
+import book.reactive.ReactiveBookRepository;
+import book.reactive.ReactiveReadServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import java.time.Duration;
+
+/**
+ * book.reactive.enabled=true 일 때 by-category, by-author-and-title 을 WebFlux + R2DBC 로 처리하는 읽기 전용 서버를
+ * book.reactive.port 에 띄운다. MVC 와 같은 DB 를 읽고 쓰기 API 는 없다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "book.reactive", name = "enabled", havingValue = "true")
+public class ReactiveReadConfig {
+
+    @Bean
+    public ReactiveBookRepository reactiveBookRepository(@Value("${book.reactive.r2dbc.url}") String url,
+                                                         @Value("${book.reactive.r2dbc.username:}") String username,
+                                                         @Value("${book.reactive.r2dbc.password:}") String password,
+                                                         @Value("${book.reactive.r2dbc.pool.initial-size:10}") int initialSize,
+                                                         @Value("${book.reactive.r2dbc.pool.max-size:20}") int maxSize,
+                                                         @Value("${book.reactive.r2dbc.pool.max-acquire-time:3s}") Duration maxAcquireTime) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (StringUtils.hasText(username)) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (StringUtils.hasText(password)) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        ConnectionPool connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .name("book-reactive")
+                .initialSize(initialSize)
+                .maxSize(maxSize)
+                // JDBC 쪽 connection-timeout 처럼 풀이 모자라면 오래 기다리지 않고 실패시킨다.
+                .maxAcquireTime(maxAcquireTime)
+                .build());
+        return new ReactiveBookRepository(connectionPool);
+    }
+
+    // MVC 와 같은 ObjectMapper(ResponseBookDto 직렬화기 포함)로 응답을 쓴다.
+    @Bean
+    public ReactiveReadServer reactiveReadServer(ReactiveBookRepository reactiveBookRepository,
+                                                 ObjectMapper objectMapper,
+                                                 @Value("${book.reactive.port:8081}") int port) {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(
+                            new Jackson2JsonEncoder(objectMapper, MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON));
+                    codecs.defaultCodecs().jackson2JsonDecoder(
+                            new Jackson2JsonDecoder(objectMapper, MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON));
+                })
+                .build();
+        ReactiveBookHandler handler = new ReactiveBookHandler(reactiveBookRepository);
+        return new ReactiveReadServer(RouterFunctions.toHttpHandler(handler.routes(), strategies), port);
+    }
+}
@@ -0,0 +1,89 @@
+package book.config;
+
+import book.datasource.ReplicaPool;
+import book.datasource.ReplicationProperties;
+import book.datasource.ReplicationRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * book.datasource.replication.enabled=true 일 때 읽기/쓰기 분리 DataSource 를 만든다.
+ * 꺼져 있으면 이 설정은 없는 것과 같고 spring.datasource 하나로 동작한다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = ReplicationProperties.PREFIX, name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicationProperties.class)
+public class ReplicationDataSourceConfig {
+
+    // 기존 spring.datasource, spring.datasource.hikari 설정을 그대로 primary 풀에 쓴다.
+    @Bean
+    public HikariDataSource primaryDataSource(DataSourceProperties properties, Environment environment) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        if (!StringUtils.hasText(dataSource.getPoolName())) {
+            dataSource.setPoolName("book-primary");
+        }
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaPool replicaPool(ReplicationProperties properties, Environment environment) {
+        Binder binder = Binder.get(environment);
+        List<ReplicaPool.Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            ReplicationProperties.Replica replica = properties.getReplicas().get(i);
+            String name = StringUtils.hasText(replica.getName()) ? replica.getName() : "replica-" + i;
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(replica.getDriverClassName())
+                    .url(replica.getUrl())
+                    .username(replica.getUsername())
+                    .password(replica.getPassword())
+                    .build();
+            // replica 마다 풀 크기, 타임아웃을 따로 준다. ex) book.datasource.replication.replicas[0].hikari.maximum-pool-size
+            binder.bind(ReplicationProperties.PREFIX + ".replicas[" + i + "].hikari", Bindable.ofInstance(dataSource));
+            dataSource.setPoolName("book-" + name);
+            replicas.add(new ReplicaPool.Replica(name, dataSource));
+        }
+        return new ReplicaPool(replicas, properties.getHealthCheckInterval(), properties.getHealthCheckTimeout());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaPool replicaPool, ReplicationProperties properties) {
+        ReplicationRoutingDataSource routingDataSource =
+                new ReplicationRoutingDataSource(primaryDataSource, replicaPool, properties.getReadYourWritesWindow());
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public MeterBinder replicaHealthMetrics(ReplicaPool replicaPool) {
+        return registry -> {
+            for (ReplicaPool.Replica replica : replicaPool.replicas()) {
+                Gauge.builder("book.datasource.replica.healthy", replica, r -> r.healthy() ? 1 : 0)
+                        .tag("replica", replica.name())
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package book.config;
+
+import book.datasource.ReadYourWritesContext;
+import book.metrics.RequestQueryStats;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+/**
+ * applicationTaskExecutor 에 걸리는 TaskDecorator. (스프링 부트가 하나뿐인 TaskDecorator 빈을 자동으로 붙인다)
+ * StreamingResponseBody, SseEmitter 같은 MVC 비동기 처리도 이 실행기에서 돌기 때문에 요청 스레드의 상태를 넘겨준다.
+ * - ReadYourWritesContext: 쓰기 직후의 요청이 비동기 스레드에서 replica 로 읽지 않도록
+ * - RequestQueryStats: 비동기 스레드에서 실행한 SQL 도 그 요청의 지표(QueryStatsFilter)에 들어가도록
+ * 둘 다 요청 밖에서 넘어온 작업은 그대로 돌려주므로 replication 설정과 상관없이 항상 건다.
+ */
+@Component
+public class RequestContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return ReadYourWritesContext.wrap(RequestQueryStats.wrap(runnable));
+    }
+}
@@ -0,0 +1,61 @@
+package book.config;
+
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.MethodMetadata;
+
+import java.util.List;
+
+// 시작 시간을 줄이려고 요청 처리에 필요 없는 빈은 처음 쓰일 때 만든다.
+@Configuration(proxyBeanMethods = false)
+public class StartupConfig {
+
+    /**
+     * book.startup.lazy-packages 패키지의 클래스, 또는 그 패키지의 설정 클래스가 만드는 빈을 lazy 로 바꾼다.
+     * 기본은 springdoc 이라 /v3/api-docs, /swagger-ui 첫 요청에서 만들어진다.
+     * 컨트롤러는 lazy 여도 핸들러 매핑이 타입만 보고 등록하기 때문에 경로는 그대로 잡힌다.
+     */
+    @Bean
+    public static BeanFactoryPostProcessor lazyPackagesPostProcessor(Environment environment) {
+        List<String> packages = Binder.get(environment)
+                .bind("book.startup.lazy-packages", Bindable.listOf(String.class))
+                .orElse(List.of("org.springdoc"));
+        return beanFactory -> {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                if (inPackages(sourceClassName(definition), packages)) {
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    // 자동 설정의 @Bean 메서드로 만든 빈은 클래스 이름이 없어서 메서드를 선언한 설정 클래스로 판단한다.
+    private static String sourceClassName(BeanDefinition definition) {
+        if (definition instanceof AnnotatedBeanDefinition annotated) {
+            MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+            if (factoryMethod != null) {
+                return factoryMethod.getDeclaringClassName();
+            }
+        }
+        return definition.getBeanClassName();
+    }
+
+    private static boolean inPackages(String className, List<String> packages) {
+        if (className == null) {
+            return false;
+        }
+        for (String prefix : packages) {
+            if (className.startsWith(prefix + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
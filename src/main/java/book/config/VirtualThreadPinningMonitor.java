@@ -0,0 +1,82 @@
+package book.config;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 가상 스레드 모드에서 carrier 스레드를 붙잡는(pinning) 구간을 JFR 로 잡아서 로그로 남긴다.
+ * synchronized 블록 안에서 JDBC I/O 를 기다리는 드라이버 코드가 대표적이다.
+ * JDK 21 미만에서는 jdk.VirtualThreadPinned 이벤트가 없어서 아무것도 기록되지 않는다.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    private final LongAdder pinnedCount = new LongAdder();
+
+    @Value("${book.virtual-threads.pinning-threshold:20ms}")
+    private Duration threshold = Duration.ofMillis(20);
+
+    private RecordingStream stream;
+
+    @Override
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("virtual thread pinning monitor started. threshold={}", threshold);
+    }
+
+    @Override
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    public long pinnedCount() {
+        return pinnedCount.sum();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCount.increment();
+        StringBuilder frames = new StringBuilder();
+        if (event.getStackTrace() != null) {
+            List<RecordedFrame> recordedFrames = event.getStackTrace().getFrames();
+            for (int i = 0; i < Math.min(LOGGED_FRAMES, recordedFrames.size()); i++) {
+                RecordedFrame frame = recordedFrames.get(i);
+                frames.append("\n\tat ")
+                        .append(frame.getMethod().getType().getName())
+                        .append('.')
+                        .append(frame.getMethod().getName())
+                        .append(':')
+                        .append(frame.getLineNumber());
+            }
+        }
+        log.warn("virtual_thread_pinned duration_ms={} thread={}{}",
+                event.getDuration().toMillis(),
+                event.getThread() == null ? null : event.getThread().getJavaName(),
+                frames);
+    }
+}
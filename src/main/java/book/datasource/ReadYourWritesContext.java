@@ -0,0 +1,81 @@
+package book.datasource;
+
+import java.time.Duration;
+
+/**
+ * 요청 스레드별로 "언제까지 primary 에서 읽어야 하는지" 를 들고 있는다.
+ * 요청 사이에는 ReadYourWritesFilter 가 쿠키로 넘겨주고, 요청이 끝나면 비운다.
+ * begin 으로 시작한 요청 스레드(와 wrap 으로 넘겨받은 비동기 스레드)에서만 기록한다. 배치, 릴레이 같은 요청 밖 스레드는
+ * 쓰기를 해도 아무것도 남기지 않아서, 풀 스레드에 값이 남아 이후 작업까지 primary 로 읽는 일이 없다.
+ */
+public final class ReadYourWritesContext {
+
+    private static final ThreadLocal<Pin> PIN = new ThreadLocal<>();
+
+    private ReadYourWritesContext() {
+    }
+
+    public static void begin() {
+        PIN.set(new Pin());
+    }
+
+    // 이전 요청에서 쓰기를 했던 클라이언트라면 그때 정해진 시각까지 primary 로 읽는다.
+    public static void restore(long primaryUntilMillis) {
+        current().primaryUntil = primaryUntilMillis;
+    }
+
+    static void markWrite(Duration window) {
+        Pin pin = PIN.get();
+        if (pin == null) {
+            return;
+        }
+        pin.primaryUntil = Math.max(pin.primaryUntil, System.currentTimeMillis() + window.toMillis());
+        pin.written = true;
+    }
+
+    public static boolean isPinnedToPrimary() {
+        Pin pin = PIN.get();
+        return pin != null && pin.primaryUntil > System.currentTimeMillis();
+    }
+
+    // 이번 요청에서 primary 를 썼으면 언제까지 primary 로 읽어야 하는지, 아니면 0
+    public static long writtenUntil() {
+        Pin pin = PIN.get();
+        return pin != null && pin.written ? pin.primaryUntil : 0L;
+    }
+
+    public static void clear() {
+        PIN.remove();
+    }
+
+    // 요청 스레드의 상태를 StreamingResponseBody, SseEmitter 를 처리하는 비동기 스레드에서도 쓰게 넘긴다. 끝나면 그 스레드에서 지운다.
+    public static Runnable wrap(Runnable task) {
+        Pin pin = PIN.get();
+        if (pin == null) {
+            return task;
+        }
+        return () -> {
+            PIN.set(pin);
+            try {
+                task.run();
+            } finally {
+                PIN.remove();
+            }
+        };
+    }
+
+    private static Pin current() {
+        Pin pin = PIN.get();
+        if (pin == null) {
+            pin = new Pin();
+            PIN.set(pin);
+        }
+        return pin;
+    }
+
+    // wrap 으로 넘기면 요청 스레드와 비동기 스레드가 같이 본다.
+    private static final class Pin {
+        private volatile long primaryUntil;
+        private volatile boolean written;
+    }
+}
@@ -0,0 +1,102 @@
+package book.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * 쓰기를 한 클라이언트가 바로 다음 요청에서 replica 의 지난 데이터를 보지 않도록,
+ * primary 를 쓴 요청의 응답에 "언제까지 primary 로 읽을지" 쿠키를 실어 보내고 다음 요청에서 되살린다.
+ * 응답 본문이 나가기 시작하면 헤더를 못 바꾸니 본문을 쓰기 직전에 쿠키를 붙인다.
+ */
+@Component
+@ConditionalOnProperty(prefix = ReplicationProperties.PREFIX, name = "enabled", havingValue = "true")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "BOOK_PRIMARY_UNTIL";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ReadYourWritesContext.begin();
+        restore(request);
+        PinningResponse pinningResponse = new PinningResponse(response);
+        try {
+            filterChain.doFilter(request, pinningResponse);
+            pinningResponse.addPinCookie();
+        } finally {
+            ReadYourWritesContext.clear();
+        }
+    }
+
+    private static void restore(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    ReadYourWritesContext.restore(Long.parseLong(cookie.getValue()));
+                } catch (NumberFormatException ignored) {
+                    // 잘못된 값이면 그냥 replica 로 읽는다.
+                }
+                return;
+            }
+        }
+    }
+
+    private static final class PinningResponse extends HttpServletResponseWrapper {
+
+        private boolean cookieAdded;
+
+        private PinningResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addPinCookie();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addPinCookie();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addPinCookie();
+            super.flushBuffer();
+        }
+
+        private void addPinCookie() {
+            if (cookieAdded || isCommitted()) {
+                return;
+            }
+            long until = ReadYourWritesContext.writtenUntil();
+            long remaining = until - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return;
+            }
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(until));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (remaining + 999) / 1000));
+            addCookie(cookie);
+            cookieAdded = true;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package book.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 replica 목록. 살아있는 replica 만 라운드로빈으로 돌려준다.
+ * 주기적으로 커넥션을 하나 얻어서 isValid 로 확인하고, 실패하면 빼뒀다가 다시 통과하면 되돌린다.
+ * 요청 중에 커넥션을 못 얻은 경우에도 바로 빼서 다음 헬스 체크까지 primary 로 넘긴다.
+ */
+@Slf4j
+public class ReplicaPool implements SmartLifecycle {
+
+    private final List<Replica> replicas;
+    private final Duration healthCheckInterval;
+    private final Duration healthCheckTimeout;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private ScheduledExecutorService scheduler;
+
+    public ReplicaPool(List<Replica> replicas, Duration healthCheckInterval, Duration healthCheckTimeout) {
+        this.replicas = List.copyOf(replicas);
+        this.healthCheckInterval = healthCheckInterval;
+        this.healthCheckTimeout = healthCheckTimeout;
+    }
+
+    public List<Replica> replicas() {
+        return replicas;
+    }
+
+    // 살아있는 replica 가 없으면 null. 호출한 쪽에서 primary 로 보낸다.
+    public Replica next() {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    public void markDown(Replica replica, Exception cause) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            log.warn("replica marked down. name={}, cause={}", replica.name(), cause.toString());
+        }
+    }
+
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource().getConnection()) {
+                healthy = connection.isValid((int) Math.max(1, healthCheckTimeout.toSeconds()));
+            } catch (SQLException | RuntimeException e) {
+                markDown(replica, e);
+                continue;
+            }
+            if (healthy && !replica.healthy) {
+                log.info("replica back up. name={}", replica.name());
+            } else if (!healthy && replica.healthy) {
+                log.warn("replica marked down. name={}, cause=isValid returned false", replica.name());
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkHealthSafely,
+                0, healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource() instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("failed to close replica pool. name={}", replica.name(), e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    private void checkHealthSafely() {
+        try {
+            checkHealth();
+        } catch (RuntimeException e) {
+            log.warn("replica health check failed", e);
+        }
+    }
+
+    public static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public DataSource dataSource() {
+            return dataSource;
+        }
+
+        public boolean healthy() {
+            return healthy;
+        }
+    }
+}
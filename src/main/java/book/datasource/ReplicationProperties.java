@@ -0,0 +1,42 @@
+package book.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * book.datasource.replication 설정. primary 는 spring.datasource(.hikari) 를 그대로 쓰고 여기에는 replica 만 적는다.
+ * replica 마다 hikari.* 로 풀 설정을 따로 줄 수 있다. (ReplicationDataSourceConfig 에서 바인딩)
+ */
+@ConfigurationProperties(prefix = ReplicationProperties.PREFIX)
+@Getter
+@Setter
+public class ReplicationProperties {
+
+    public static final String PREFIX = "book.datasource.replication";
+
+    private boolean enabled;
+
+    // 쓰기 직후 이 시간 동안은 같은 클라이언트의 읽기도 primary 로 보낸다. replica 복제 지연보다 길게 잡는다.
+    private Duration readYourWritesWindow = Duration.ofSeconds(2);
+
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+    private Duration healthCheckTimeout = Duration.ofSeconds(1);
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String name;
+        private String driverClassName;
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,111 @@
+package book.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @Transactional(readOnly = true) 안에서 얻는 커넥션은 replica 로, 나머지는 전부 primary 로 보낸다.
+ * 트랜잭션 시작 시점에는 아직 readOnly 표시가 안 되어 있어서 반드시 LazyConnectionDataSourceProxy 로 감싸서
+ * 첫 문장을 실행할 때 커넥션을 얻도록 해야 한다.
+ *
+ * readOnly 가 아닌 트랜잭션이 primary 커넥션을 쓰고 커밋되면, readYourWritesWindow 동안 같은 요청(클라이언트)의 읽기도 primary 로 보낸다.
+ * 트랜잭션 밖에서 primary 로 간 조회나 롤백된 트랜잭션은 replica 에 없는 데이터를 만들지 않았으니 고정하지 않는다.
+ * replica 커넥션을 못 얻으면 그 replica 를 빼고 primary 로 넘긴다.
+ */
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final ReplicaPool replicaPool;
+    private final Duration readYourWritesWindow;
+
+    public ReplicationRoutingDataSource(DataSource primary, ReplicaPool replicaPool, Duration readYourWritesWindow) {
+        this.primary = primary;
+        this.replicaPool = replicaPool;
+        this.readYourWritesWindow = readYourWritesWindow;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (ReplicaPool.Replica replica : replicaPool.replicas()) {
+            targets.put(replica.name(), replica.dataSource());
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        ReplicaPool.Replica replica = route();
+        return replica == null ? PRIMARY : replica.name();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        ReplicaPool.Replica replica = route();
+        if (replica != null) {
+            try {
+                return replica.dataSource().getConnection();
+            } catch (SQLException e) {
+                replicaPool.markDown(replica, e);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        ReplicaPool.Replica replica = route();
+        if (replica != null) {
+            try {
+                return replica.dataSource().getConnection(username, password);
+            } catch (SQLException e) {
+                replicaPool.markDown(replica, e);
+            }
+        }
+        return primary.getConnection(username, password);
+    }
+
+    // null 이면 primary
+    private ReplicaPool.Replica route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            pinAfterCommit();
+            return null;
+        }
+        if (ReadYourWritesContext.isPinnedToPrimary()) {
+            return null;
+        }
+        return replicaPool.next();
+    }
+
+    // 트랜잭션 하나에 한번만 등록한다. REQUIRES_NEW 로 중첩되면 안쪽 트랜잭션은 자기 동기화 목록에 따로 등록된다.
+    private void pinAfterCommit() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PinAfterCommit) {
+                return;
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new PinAfterCommit(readYourWritesWindow));
+    }
+
+    private record PinAfterCommit(Duration window) implements TransactionSynchronization {
+
+        @Override
+        public void afterCommit() {
+            ReadYourWritesContext.markWrite(window);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package book.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+// asOf 가 null 이면 현재 카테고리
+public record BookCategoriesDto(Long bookId, Instant asOf, List<CategorySummaryDto> categories) {
+}
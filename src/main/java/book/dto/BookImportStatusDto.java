@@ -0,0 +1,27 @@
+package book.dto;
+
+import book.enums.ImportFormat;
+import book.enums.ImportJobState;
+
+import java.time.Instant;
+import java.util.List;
+
+// 가져오기 작업 진행 상황. errors 는 앞에서부터 최대 book.import.max-errors 건만 담는다.
+public record BookImportStatusDto(String jobId,
+                                  ImportJobState state,
+                                  ImportFormat format,
+                                  String fileName,
+                                  long totalBytes,
+                                  long bytesRead,
+                                  long rowsRead,
+                                  long rowsImported,
+                                  long rowsRejected,
+                                  long categoriesCreated,
+                                  List<RowError> errors,
+                                  String failureReason,
+                                  Instant submittedAt,
+                                  Instant finishedAt) {
+
+    public record RowError(long line, String message) {
+    }
+}
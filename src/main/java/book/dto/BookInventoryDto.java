@@ -0,0 +1,10 @@
+package book.dto;
+
+// 도서 한 권의 실물 권수. availableCopies 는 빌려줄 수 있는 권수이고 나머지와 합치면 totalCopies 다.
+public record BookInventoryDto(Long bookId,
+                               int totalCopies,
+                               long availableCopies,
+                               long reservedCopies,
+                               int damagedCopies,
+                               int lostCopies) {
+}
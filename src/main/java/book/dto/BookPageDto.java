@@ -0,0 +1,17 @@
+package book.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@Builder
+@AllArgsConstructor
+public class BookPageDto {
+    private List<ResponseBookDto> books;
+    // 다음 페이지 요청 시 그대로 넘겨주면 된다. 마지막 페이지면 null
+    private String nextCursor;
+    private int size;
+}
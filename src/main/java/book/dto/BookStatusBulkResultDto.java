@@ -0,0 +1,5 @@
+package book.dto;
+
+// 일괄 상태 변경 결과. 이미 같은 상태였거나 없는 도서는 changed 에 포함되지 않는다.
+public record BookStatusBulkResultDto(int requested, int changed) {
+}
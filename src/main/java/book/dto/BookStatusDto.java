@@ -0,0 +1,7 @@
+package book.dto;
+
+import book.enums.BookStatus;
+
+// 상태 변경 결과. 다음 변경 때 version 을 expectedVersion 으로 넘기면 그 사이 다른 변경이 있었는지 확인할 수 있다.
+public record BookStatusDto(Long bookId, BookStatus status, long version) {
+}
@@ -0,0 +1,17 @@
+package book.dto;
+
+import book.enums.BookStatus;
+
+import java.util.List;
+
+// 엔티티를 거치지 않고 쿼리 결과에서 바로 만들어지는 조회 전용 모델
+public record BookSummaryDto(Long bookId,
+                             String title,
+                             String author,
+                             BookStatus status,
+                             List<CategorySummaryDto> categories) {
+
+    public BookSummaryDto {
+        categories = categories == null ? List.of() : List.copyOf(categories);
+    }
+}
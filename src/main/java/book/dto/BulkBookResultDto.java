@@ -0,0 +1,13 @@
+package book.dto;
+
+// 일괄 등록 요청의 index 번째 도서 처리 결과. 실패하면 bookId 는 null 이고 message 에 사유가 들어간다.
+public record BulkBookResultDto(int index, Long bookId, boolean success, String message) {
+
+    public static BulkBookResultDto success(int index, long bookId) {
+        return new BulkBookResultDto(index, bookId, true, null);
+    }
+
+    public static BulkBookResultDto fail(int index, String message) {
+        return new BulkBookResultDto(index, null, false, message);
+    }
+}
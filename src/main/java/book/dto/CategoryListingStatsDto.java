@@ -0,0 +1,17 @@
+package book.dto;
+
+import java.time.Instant;
+
+// 미리 만들어 둔 카테고리 목록 하나의 상태. builtAt 은 마지막으로 DB 에서 다시 읽은 시각이고 그 뒤 변경은 delta 로 합친다.
+public record CategoryListingStatsDto(Long categoryId,
+                                      boolean ready,
+                                      boolean building,
+                                      int books,
+                                      long bytes,
+                                      Instant builtAt,
+                                      long ageMillis,
+                                      int pendingDeltas,
+                                      long oldestPendingMillis,
+                                      long version,
+                                      long hits) {
+}
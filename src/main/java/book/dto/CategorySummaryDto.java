@@ -0,0 +1,4 @@
+package book.dto;
+
+public record CategorySummaryDto(Long categoryId, String name) {
+}
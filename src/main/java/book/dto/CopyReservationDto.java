@@ -0,0 +1,5 @@
+package book.dto;
+
+// 빌리기/돌려주기 결과. availableCopies 는 처리 직후 남은 권수로, 동시에 들어온 요청 때문에 정확한 순간값은 아니다.
+public record CopyReservationDto(Long bookId, int count, long availableCopies) {
+}
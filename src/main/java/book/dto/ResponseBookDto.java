@@ -1,18 +1,17 @@
 package book.dto;
 
-import book.entity.Category;
-import lombok.*;
+import lombok.Builder;
 
-import java.util.ArrayList;
 import java.util.List;
-@Getter
-@Setter
+
+/**
+ * 도서 응답. 엔티티를 들고 있지 않는 불변 값이라 직렬화하면서 지연 로딩이나 Category → BookCategory → Book 순환을 타지 않는다.
+ * 직렬화는 JacksonConfig 에 등록한 ResponseBookDtoSerializer 가 리플렉션 없이 한다.
+ */
 @Builder
-@NoArgsConstructor
-@AllArgsConstructor
-public class ResponseBookDto {
-    private Long bookId;
-    private String title;
-    private String author;
-    private List<Category> categories = new ArrayList<>();
+public record ResponseBookDto(Long bookId, String title, String author, List<CategorySummaryDto> categories) {
+
+    public ResponseBookDto {
+        categories = categories == null ? List.of() : List.copyOf(categories);
+    }
 }
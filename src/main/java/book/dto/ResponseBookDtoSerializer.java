@@ -0,0 +1,64 @@
+package book.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 목록 응답 대부분을 차지하는 ResponseBookDto 를 리플렉션, BeanPropertyWriter 없이 바로 쓴다.
+ * 필드 이름은 미리 인코딩해둔 SerializedString 이라 매번 문자열을 이스케이프, 인코딩하지 않는다.
+ * 출력은 기본 BeanSerializer 와 같다. {"bookId":1,"title":"..","author":"..","categories":[{"categoryId":1,"name":".."}]}
+ */
+public class ResponseBookDtoSerializer extends StdSerializer<ResponseBookDto> {
+
+    private static final SerializedString BOOK_ID = new SerializedString("bookId");
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString AUTHOR = new SerializedString("author");
+    private static final SerializedString CATEGORIES = new SerializedString("categories");
+    private static final SerializedString CATEGORY_ID = new SerializedString("categoryId");
+    private static final SerializedString NAME = new SerializedString("name");
+
+    public ResponseBookDtoSerializer() {
+        super(ResponseBookDto.class);
+    }
+
+    @Override
+    public void serialize(ResponseBookDto value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(value);
+        generator.writeFieldName(BOOK_ID);
+        if (value.bookId() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value.bookId());
+        }
+        generator.writeFieldName(TITLE);
+        generator.writeString(value.title());
+        generator.writeFieldName(AUTHOR);
+        generator.writeString(value.author());
+        generator.writeFieldName(CATEGORIES);
+        List<CategorySummaryDto> categories = value.categories();
+        generator.writeStartArray(categories, categories.size());
+        for (int i = 0; i < categories.size(); i++) {
+            writeCategory(categories.get(i), generator);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    static void writeCategory(CategorySummaryDto category, JsonGenerator generator) throws IOException {
+        generator.writeStartObject(category);
+        generator.writeFieldName(CATEGORY_ID);
+        if (category.categoryId() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(category.categoryId());
+        }
+        generator.writeFieldName(NAME);
+        generator.writeString(category.name());
+        generator.writeEndObject();
+    }
+}
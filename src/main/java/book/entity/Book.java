@@ -3,7 +3,10 @@ package book.entity;
 import book.enums.BookStatus;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -27,10 +30,18 @@ public class Book {
     @Column(name = "author")
     private String author;
 
+    // MySQL 방언은 enum 컬럼을 기대하는데 스키마는 VARCHAR(20) 라서 validate 가 통과하도록 맞춘다.
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
     @Column(name = "status")
     private BookStatus status;
 
+    // 동시에 들어온 상태 변경이 서로 덮어쓰지 않도록 비교하는 값. JDBC 로 직접 바꿀 때도 같이 올린다.
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @OneToMany(mappedBy = "book")
     private List<BookCategory> bookCategories = new ArrayList<>();
 
@@ -0,0 +1,6 @@
+package book.enums;
+
+public enum CategoryHistoryOp {
+    ADD,
+    REMOVE
+}
@@ -0,0 +1,10 @@
+package book.enums;
+
+public enum CategoryOperator {
+    // 모든 카테고리에 속한 도서
+    AND,
+    // 하나라도 속한 도서
+    OR,
+    // 어느 카테고리에도 속하지 않은 도서
+    NOT
+}
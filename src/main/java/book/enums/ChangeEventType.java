@@ -0,0 +1,7 @@
+package book.enums;
+
+public enum ChangeEventType {
+    BOOK_REGISTERED,
+    BOOK_STATUS_CHANGED,
+    BOOK_CATEGORIES_CHANGED
+}
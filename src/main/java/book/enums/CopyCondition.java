@@ -0,0 +1,8 @@
+package book.enums;
+
+// 빌려 간 책이 돌아온 상태. GOOD 만 다시 빌려줄 수 있는 권수로 돌아간다.
+public enum CopyCondition {
+    GOOD,
+    DAMAGED,
+    LOST
+}
@@ -0,0 +1,38 @@
+package book.enums;
+
+import java.util.Locale;
+import java.util.Optional;
+
+public enum ExportFormat {
+    CSV("csv", "text/csv;charset=UTF-8"),
+    NDJSON("ndjson", "application/x-ndjson"),
+    // 외부 라이브러리 없이 쓰는 열 단위 바이너리. 레이아웃은 book.export.ColumnarCatalogWriter 참고
+    PARQUET_LITE("parquet-lite", "application/octet-stream");
+
+    private final String extension;
+    private final String contentType;
+
+    ExportFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    // 요청 파라미터 값(csv, ndjson, parquet-lite)으로 찾는다.
+    public static Optional<ExportFormat> from(String value) {
+        String normalized = value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+        for (ExportFormat format : values()) {
+            if (format.extension.equals(normalized)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+}
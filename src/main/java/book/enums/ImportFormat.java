@@ -0,0 +1,9 @@
+package book.enums;
+
+public enum ImportFormat {
+    // title, author, categories 순서. 첫 줄이 헤더면 헤더 이름으로 열을 찾는다.
+    CSV,
+    TSV,
+    // README 의 도서 목록 형식: [카테고리] 제목, 지은이
+    README
+}
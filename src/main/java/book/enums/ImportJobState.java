@@ -0,0 +1,8 @@
+package book.enums;
+
+public enum ImportJobState {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,7 @@
+package book.enums;
+
+public enum SearchField {
+    TITLE,
+    AUTHOR,
+    ALL
+}
@@ -0,0 +1,7 @@
+package book.enums;
+
+public enum SearchMode {
+    EXACT,
+    PREFIX,
+    SUBSTRING
+}
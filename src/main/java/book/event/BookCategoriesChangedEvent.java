@@ -0,0 +1,8 @@
+package book.event;
+
+import java.util.List;
+
+public record BookCategoriesChangedEvent(Long bookId,
+                                         List<Long> addedCategoryIds,
+                                         List<Long> removedCategoryIds) {
+}
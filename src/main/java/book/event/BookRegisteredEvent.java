@@ -0,0 +1,12 @@
+package book.event;
+
+import book.enums.BookStatus;
+
+import java.util.List;
+
+public record BookRegisteredEvent(Long bookId,
+                                  String title,
+                                  String author,
+                                  BookStatus status,
+                                  List<Long> categoryIds) {
+}
@@ -0,0 +1,6 @@
+package book.event;
+
+import book.enums.BookStatus;
+
+public record BookStatusChangedEvent(Long bookId, BookStatus status) {
+}
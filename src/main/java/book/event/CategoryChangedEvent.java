@@ -0,0 +1,5 @@
+package book.event;
+
+// 카테고리가 추가, 변경, 삭제되면 발행한다. categoryId 가 null 이면 전체가 바뀐 것으로 본다.
+public record CategoryChangedEvent(Long categoryId) {
+}
@@ -0,0 +1,18 @@
+package book.event;
+
+/**
+ * 같은 커밋 이벤트를 받는 리스너 사이의 순서 (@Order 값, 작을수록 먼저).
+ * 응답 캐시 버전(CatalogVersions)은 그 응답을 만드는 인메모리 데이터를 모두 바꾼 다음에 올린다.
+ * 버전을 먼저 올리면 그 사이에 들어온 요청이 바뀌기 전 데이터로 만든 응답을 새 버전으로 캐시한다.
+ */
+public final class ListenerOrder {
+
+    // 검색 색인, 카테고리 비트맵, 카테고리 목록, 카테고리 캐시
+    public static final int READ_MODEL = 0;
+
+    // 응답 캐시 버전
+    public static final int CACHE_VERSION = 100;
+
+    private ListenerOrder() {
+    }
+}
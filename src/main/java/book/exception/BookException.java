@@ -0,0 +1,19 @@
+package book.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * 클라이언트에게 status 로 돌려줄 예외. BookExceptionHandler 가 ErrorResponse 본문으로 바꾼다.
+ */
+@Getter
+public abstract class BookException extends RuntimeException {
+    private final HttpStatus status;
+    private final String message;
+
+    protected BookException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+        this.message = message;
+    }
+}
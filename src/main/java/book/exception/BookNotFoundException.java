@@ -1,16 +1,10 @@
 package book.exception;
 
-import lombok.Getter;
 import org.springframework.http.HttpStatus;
 
-@Getter
-public class BookNotFoundException  extends RuntimeException{
-    private final HttpStatus status;
-    private final String message;
+public class BookNotFoundException extends BookException {
 
     public BookNotFoundException(String message) {
-        this.status = HttpStatus.NOT_FOUND;
-        this.message = message;
+        super(HttpStatus.NOT_FOUND, message);
     }
-
 }
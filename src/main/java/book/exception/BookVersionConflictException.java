@@ -0,0 +1,10 @@
+package book.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class BookVersionConflictException extends BookException {
+
+    public BookVersionConflictException(String message) {
+        super(HttpStatus.CONFLICT, message);
+    }
+}
@@ -0,0 +1,10 @@
+package book.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class CopiesUnavailableException extends BookException {
+
+    public CopiesUnavailableException(String message) {
+        super(HttpStatus.CONFLICT, message);
+    }
+}
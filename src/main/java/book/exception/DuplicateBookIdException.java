@@ -0,0 +1,10 @@
+package book.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class DuplicateBookIdException extends BookException {
+
+    public DuplicateBookIdException(String message) {
+        super(HttpStatus.BAD_REQUEST, message);
+    }
+}
@@ -0,0 +1,10 @@
+package book.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class ImportJobNotFoundException extends BookException {
+
+    public ImportJobNotFoundException(String message) {
+        super(HttpStatus.NOT_FOUND, message);
+    }
+}
@@ -0,0 +1,10 @@
+package book.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class ImportQueueFullException extends BookException {
+
+    public ImportQueueFullException(String message) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, message);
+    }
+}
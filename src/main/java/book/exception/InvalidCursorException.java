@@ -0,0 +1,10 @@
+package book.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidCursorException extends BookException {
+
+    public InvalidCursorException(String message) {
+        super(HttpStatus.BAD_REQUEST, message);
+    }
+}
@@ -0,0 +1,10 @@
+package book.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidExportRequestException extends BookException {
+
+    public InvalidExportRequestException(String message) {
+        super(HttpStatus.BAD_REQUEST, message);
+    }
+}
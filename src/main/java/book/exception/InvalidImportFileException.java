@@ -0,0 +1,10 @@
+package book.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidImportFileException extends BookException {
+
+    public InvalidImportFileException(String message) {
+        super(HttpStatus.BAD_REQUEST, message);
+    }
+}
@@ -0,0 +1,10 @@
+package book.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidInventoryRequestException extends BookException {
+
+    public InvalidInventoryRequestException(String message) {
+        super(HttpStatus.BAD_REQUEST, message);
+    }
+}
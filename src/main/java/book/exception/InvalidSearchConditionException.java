@@ -0,0 +1,10 @@
+package book.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidSearchConditionException extends BookException {
+
+    public InvalidSearchConditionException(String message) {
+        super(HttpStatus.BAD_REQUEST, message);
+    }
+}
@@ -0,0 +1,10 @@
+package book.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class InventoryConflictException extends BookException {
+
+    public InventoryConflictException(String message) {
+        super(HttpStatus.CONFLICT, message);
+    }
+}
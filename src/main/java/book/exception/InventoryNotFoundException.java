@@ -0,0 +1,10 @@
+package book.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class InventoryNotFoundException extends BookException {
+
+    public InventoryNotFoundException(String message) {
+        super(HttpStatus.NOT_FOUND, message);
+    }
+}
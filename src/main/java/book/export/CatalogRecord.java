@@ -0,0 +1,10 @@
+package book.export;
+
+import book.dto.CategorySummaryDto;
+import book.enums.BookStatus;
+
+import java.util.List;
+
+// 내보내기 한 건. 도서 한 권과 그 카테고리들
+public record CatalogRecord(long bookId, String title, String author, BookStatus status, List<CategorySummaryDto> categories) {
+}
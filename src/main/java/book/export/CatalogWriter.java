@@ -0,0 +1,26 @@
+package book.export;
+
+import book.enums.ExportFormat;
+import com.fasterxml.jackson.core.JsonFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 내보내기 형식별 쓰기. 받은 OutputStream 은 닫지 않고, finish 에서 남은 버퍼만 내보낸다.
+ * 한 건씩 쓰기 때문에 내보내는 건수와 상관없이 버퍼 크기만큼만 메모리를 쓴다.
+ */
+public interface CatalogWriter {
+
+    void write(CatalogRecord record) throws IOException;
+
+    void finish() throws IOException;
+
+    static CatalogWriter of(ExportFormat format, OutputStream out, JsonFactory jsonFactory) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvCatalogWriter(out);
+            case NDJSON -> new NdjsonCatalogWriter(out, jsonFactory);
+            case PARQUET_LITE -> new ColumnarCatalogWriter(out);
+        };
+    }
+}
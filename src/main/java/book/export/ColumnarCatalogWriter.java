@@ -0,0 +1,152 @@
+package book.export;
+
+import book.dto.CategorySummaryDto;
+import book.enums.BookStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * parquet-lite. Parquet 처럼 행을 row group 으로 묶고 그 안은 열마다 따로 모아 쓰는 바이너리 형식이다.
+ * 정산처럼 id, 상태만 훑는 쪽은 필요한 열만 건너뛰며 읽을 수 있고, 같은 값이 모여서 gzip 이 잘 먹는다.
+ * 정수는 모두 unsigned LEB128 varint, 문자열은 varint 바이트 길이 + UTF-8 이다.
+ *
+ * <pre>
+ * "BKPQ" version(1 byte)
+ * row group * N
+ *   varint rowCount
+ *   varint 열 바이트 길이 5개 (id, title, author, status, categories)
+ *   id          앞 행과의 차이 (첫 행은 그대로). id 순서로 나오므로 항상 0 이상
+ *   title       문자열
+ *   author      문자열
+ *   status      BookStatus ordinal 1 byte (footer 의 status 사전 순서)
+ *   categories  varint 개수 + 카테고리 id
+ * footer
+ *   varint rowGroup 수, 각 row group 시작 offset (varint)
+ *   varint status 수, 문자열
+ *   varint 카테고리 수, (varint id, 문자열) - 이름은 행마다 넣지 않고 여기 한번만
+ *   varint 전체 행 수
+ * footer 길이 (4 byte big endian) "BKPQ"
+ * </pre>
+ * 메모리에는 row group 하나와 카테고리 사전만 올라간다.
+ */
+public class ColumnarCatalogWriter implements CatalogWriter {
+
+    private static final byte[] MAGIC = {'B', 'K', 'P', 'Q'};
+    private static final int VERSION = 1;
+    private static final int ROW_GROUP_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final ColumnBuffer ids = new ColumnBuffer();
+    private final ColumnBuffer titles = new ColumnBuffer();
+    private final ColumnBuffer authors = new ColumnBuffer();
+    private final ColumnBuffer statuses = new ColumnBuffer();
+    private final ColumnBuffer categories = new ColumnBuffer();
+    private final List<Long> rowGroupOffsets = new ArrayList<>();
+    private final Map<Long, String> categoryNames = new LinkedHashMap<>();
+
+    private int rowsInGroup;
+    private long previousId;
+    private long totalRows;
+    // 지금까지 쓴 바이트 수 = 다음 row group 의 offset. DataOutputStream.size() 는 int 라서 따로 센다.
+    private long written;
+
+    public ColumnarCatalogWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.out.write(MAGIC);
+        this.out.write(VERSION);
+        written = MAGIC.length + 1;
+    }
+
+    @Override
+    public void write(CatalogRecord record) throws IOException {
+        ids.writeVarLong(rowsInGroup == 0 ? record.bookId() : record.bookId() - previousId);
+        previousId = record.bookId();
+        titles.writeString(record.title());
+        authors.writeString(record.author());
+        statuses.write(record.status().ordinal());
+        categories.writeVarLong(record.categories().size());
+        for (CategorySummaryDto category : record.categories()) {
+            categories.writeVarLong(category.categoryId());
+            categoryNames.putIfAbsent(category.categoryId(), category.name());
+        }
+        rowsInGroup++;
+        totalRows++;
+        if (rowsInGroup >= ROW_GROUP_SIZE) {
+            flushRowGroup();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        flushRowGroup();
+        ColumnBuffer footer = new ColumnBuffer();
+        footer.writeVarLong(rowGroupOffsets.size());
+        for (long offset : rowGroupOffsets) {
+            footer.writeVarLong(offset);
+        }
+        footer.writeVarLong(BookStatus.values().length);
+        for (BookStatus status : BookStatus.values()) {
+            footer.writeString(status.name());
+        }
+        footer.writeVarLong(categoryNames.size());
+        for (Map.Entry<Long, String> category : categoryNames.entrySet()) {
+            footer.writeVarLong(category.getKey());
+            footer.writeString(category.getValue());
+        }
+        footer.writeVarLong(totalRows);
+        footer.writeTo(out);
+        out.writeInt(footer.size());
+        out.write(MAGIC);
+        out.flush();
+    }
+
+    private void flushRowGroup() throws IOException {
+        if (rowsInGroup == 0) {
+            return;
+        }
+        rowGroupOffsets.add(written);
+        ColumnBuffer header = new ColumnBuffer();
+        header.writeVarLong(rowsInGroup);
+        ColumnBuffer[] columns = {ids, titles, authors, statuses, categories};
+        for (ColumnBuffer column : columns) {
+            header.writeVarLong(column.size());
+        }
+        header.writeTo(out);
+        written += header.size();
+        for (ColumnBuffer column : columns) {
+            column.writeTo(out);
+            written += column.size();
+            column.reset();
+        }
+        rowsInGroup = 0;
+    }
+
+    private static final class ColumnBuffer extends ByteArrayOutputStream {
+
+        ColumnBuffer() {
+            super(64 * 1024);
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeString(String value) {
+            byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
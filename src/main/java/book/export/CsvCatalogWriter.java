@@ -0,0 +1,74 @@
+package book.export;
+
+import book.dto.CategorySummaryDto;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * id,title,author,status,categories,category_ids
+ * categories, category_ids 는 | 로 이어 붙인다. 헤더 이름이 가져오기(/books/import) CSV 와 같아서 그대로 다시 넣을 수 있다.
+ */
+public class CsvCatalogWriter implements CatalogWriter {
+
+    private final Writer writer;
+
+    public CsvCatalogWriter(OutputStream out) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write("id,title,author,status,categories,category_ids\r\n");
+    }
+
+    @Override
+    public void write(CatalogRecord record) throws IOException {
+        writer.write(Long.toString(record.bookId()));
+        writer.write(',');
+        writeField(record.title());
+        writer.write(',');
+        writeField(record.author());
+        writer.write(',');
+        writer.write(record.status().name());
+        writer.write(',');
+        StringBuilder names = new StringBuilder();
+        StringBuilder ids = new StringBuilder();
+        for (CategorySummaryDto category : record.categories()) {
+            if (!ids.isEmpty()) {
+                names.append('|');
+                ids.append('|');
+            }
+            names.append(category.name());
+            ids.append(category.categoryId());
+        }
+        writeField(names.toString());
+        writer.write(',');
+        writer.write(ids.toString());
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    // 구분자, 따옴표, 줄바꿈이 있을 때만 따옴표로 감싼다.
+    private void writeField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
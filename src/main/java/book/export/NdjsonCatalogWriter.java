@@ -0,0 +1,47 @@
+package book.export;
+
+import book.dto.CategorySummaryDto;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// {"id":1,"title":"..","author":"..","status":"AVAILABLE","categories":[{"id":3,"name":".."}]} 를 한 줄에 하나씩
+public class NdjsonCatalogWriter implements CatalogWriter {
+
+    private final JsonGenerator generator;
+
+    public NdjsonCatalogWriter(OutputStream out, JsonFactory jsonFactory) throws IOException {
+        // 받은 스트림은 호출한 쪽이 닫는다.
+        this.generator = jsonFactory.createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        // 최상위 값 사이에 기본으로 들어가는 공백 대신 줄바꿈을 직접 쓴다.
+        generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void write(CatalogRecord record) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", record.bookId());
+        generator.writeStringField("title", record.title());
+        generator.writeStringField("author", record.author());
+        generator.writeStringField("status", record.status().name());
+        generator.writeArrayFieldStart("categories");
+        for (CategorySummaryDto category : record.categories()) {
+            generator.writeStartObject();
+            generator.writeNumberField("id", category.categoryId());
+            generator.writeStringField("name", category.name());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,234 @@
+package book.history;
+
+import book.enums.CategoryHistoryOp;
+import book.event.BookCategoriesChangedEvent;
+import book.event.BookRegisteredEvent;
+import book.repository.CategoryHistoryRepository;
+import book.repository.CategoryHistoryRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 도서 카테고리 변경을 book_category_history 에 쌓는 write-behind 버퍼.
+ * 변경 트랜잭션이 커밋된 뒤에 이벤트를 받아 큐에 넣기만 하고, 한 스레드가 batchSize 또는 flushInterval 마다 모아서
+ * batch insert 한다. 그래서 쓰기 트랜잭션에는 이력 insert 가 들어가지 않는다.
+ *
+ * 쓰기가 실패하면 버리지 않고 retryBackoff 부터 maxRetryBackoff 까지 늘려 가며 성공할 때까지 다시 쓴다.
+ * DB 가 내려가 있으면 flush 스레드가 그 batch 에 멈춰 큐가 차고, 큐가 가득 차면 받은 스레드에서 바로 쓰므로(역시 성공할 때까지)
+ * 카테고리를 바꾸는 요청이 느려지는 것으로 버틴다.
+ * 커밋 후에 버퍼에 있다가 프로세스가 죽으면 그만큼 이력이 빈다. 정상 종료할 때는 남은 것을 다 쓰고 멈춘다.
+ */
+@Component
+@Slf4j
+public class CategoryHistoryWriter implements SmartLifecycle {
+
+    private final CategoryHistoryRepository categoryHistoryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<CategoryHistoryRow> queue;
+    // running 확인과 큐에 넣기를 묶어서, 멈추면서 큐를 비운 뒤에 들어오는 행이 없게 한다.
+    private final ReentrantReadWriteLock runningLock = new ReentrantReadWriteLock();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder directWrites = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @Value("${book.category-history.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${book.category-history.flush-interval:200ms}")
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    @Value("${book.category-history.retry-backoff:100ms}")
+    private Duration retryBackoff = Duration.ofMillis(100);
+
+    @Value("${book.category-history.max-retry-backoff:5s}")
+    private Duration maxRetryBackoff = Duration.ofSeconds(5);
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public CategoryHistoryWriter(CategoryHistoryRepository categoryHistoryRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${book.category-history.capacity:100000}") int capacity) {
+        this.categoryHistoryRepository = categoryHistoryRepository;
+        // 커밋 후 리스너에서 바로 쓸 때 끝난 트랜잭션의 커넥션에 붙지 않도록 항상 새 트랜잭션으로 쓴다.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookRegisteredEvent event) {
+        long ts = System.currentTimeMillis();
+        List<CategoryHistoryRow> rows = new ArrayList<>(event.categoryIds().size());
+        for (Long categoryId : event.categoryIds()) {
+            rows.add(new CategoryHistoryRow(event.bookId(), categoryId, CategoryHistoryOp.ADD, ts));
+        }
+        append(rows);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookCategoriesChangedEvent event) {
+        long ts = System.currentTimeMillis();
+        List<CategoryHistoryRow> rows = new ArrayList<>(event.removedCategoryIds().size() + event.addedCategoryIds().size());
+        for (Long categoryId : event.removedCategoryIds()) {
+            rows.add(new CategoryHistoryRow(event.bookId(), categoryId, CategoryHistoryOp.REMOVE, ts));
+        }
+        for (Long categoryId : event.addedCategoryIds()) {
+            rows.add(new CategoryHistoryRow(event.bookId(), categoryId, CategoryHistoryOp.ADD, ts));
+        }
+        append(rows);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = new Thread(this::flushLoop, "category-history-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("category history writer started. batchSize={}, flushInterval={}", batchSize, flushInterval);
+    }
+
+    @Override
+    public void stop() {
+        runningLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+        Thread current = flusher;
+        if (current != null) {
+            try {
+                current.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (current.isAlive()) {
+                // DB 에 못 쓰고 있는 중. flush 스레드는 데몬이라 계속 다시 쓰다가 프로세스와 같이 끝난다.
+                log.error("category history writer did not finish. pending={}", queue.size());
+            }
+            flusher = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    public long writtenCount() {
+        return written.sum();
+    }
+
+    // 큐가 가득 차서(또는 멈춘 뒤라서) 받은 스레드에서 바로 쓴 행 수
+    public long directWriteCount() {
+        return directWrites.sum();
+    }
+
+    // 실패해서 다시 쓴 횟수
+    public long failureCount() {
+        return failures.sum();
+    }
+
+    private void append(List<CategoryHistoryRow> rows) {
+        int queued = 0;
+        runningLock.readLock().lock();
+        try {
+            while (running && queued < rows.size() && queue.offer(rows.get(queued))) {
+                queued++;
+            }
+        } finally {
+            runningLock.readLock().unlock();
+        }
+        if (queued < rows.size()) {
+            List<CategoryHistoryRow> rest = rows.subList(queued, rows.size());
+            directWrites.add(rest.size());
+            write(new ArrayList<>(rest));
+        }
+    }
+
+    // 멈춘 뒤에도 큐가 빌 때까지 돈다.
+    private void flushLoop() {
+        List<CategoryHistoryRow> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                CategoryHistoryRow first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // 첫 행이 들어온 뒤 flushInterval 까지는 batchSize 가 찰 때까지 더 모은다.
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < batchSize && running) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    CategoryHistoryRow next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+                write(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+                return;
+            }
+        }
+    }
+
+    // 성공할 때까지 다시 쓴다. 기다리는 중에 interrupt 되어도 버리지 않고, 다 쓴 뒤에 interrupt 상태를 되돌려 놓는다.
+    private void write(List<CategoryHistoryRow> rows) {
+        long backoffMillis = retryBackoff.toMillis();
+        boolean interrupted = false;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> categoryHistoryRepository.insert(rows));
+                    written.add(rows.size());
+                    return;
+                } catch (RuntimeException e) {
+                    failures.increment();
+                    log.warn("category history write failed, retry in {}ms. rows={}, attempt={}, first={}",
+                            backoffMillis, rows.size(), attempt, rows.get(0), e);
+                    try {
+                        Thread.sleep(backoffMillis);
+                    } catch (InterruptedException ignored) {
+                        interrupted = true;
+                    }
+                    backoffMillis = Math.min(backoffMillis * 2, maxRetryBackoff.toMillis());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
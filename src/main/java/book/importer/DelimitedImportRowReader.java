@@ -0,0 +1,147 @@
+package book.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * CSV(,) / TSV(탭) 읽기. RFC 4180 처럼 "..." 안의 구분자, 줄바꿈, "" 를 그대로 살린다.
+ * 열 순서는 title, author, categories 이고, 첫 행에 title, author 헤더가 있으면 헤더 순서를 따른다.
+ * categories 는 카테고리 이름을 | 나 ; 로 구분해서 여러 개 줄 수 있다.
+ */
+public class DelimitedImportRowReader implements ImportRowReader {
+
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final char delimiter;
+
+    private int titleColumn = 0;
+    private int authorColumn = 1;
+    private int categoriesColumn = 2;
+    private boolean firstRecord = true;
+
+    // 다음에 읽을 문자가 있는 줄 번호, 지금 읽은 레코드가 시작한 줄 번호
+    private long line = 1;
+    private long recordLine;
+
+    public DelimitedImportRowReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    @Override
+    public ImportRow next() throws IOException {
+        List<String> fields;
+        while ((fields = readRecord()) != null) {
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            if (firstRecord) {
+                firstRecord = false;
+                if (readHeader(fields)) {
+                    continue;
+                }
+            }
+            return toRow(fields);
+        }
+        return null;
+    }
+
+    private ImportRow toRow(List<String> fields) {
+        int required = Math.max(titleColumn, Math.max(authorColumn, categoriesColumn)) + 1;
+        if (fields.size() < required) {
+            return ImportRow.invalid(recordLine, "expected " + required + " columns but was " + fields.size());
+        }
+        return ImportRow.of(recordLine, fields.get(titleColumn).trim(), fields.get(authorColumn).trim(),
+                splitCategories(fields.get(categoriesColumn)));
+    }
+
+    // 헤더면 열 위치를 잡고 true
+    private boolean readHeader(List<String> fields) {
+        int title = -1;
+        int author = -1;
+        int categories = -1;
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.get(i).trim().toLowerCase(Locale.ROOT);
+            switch (name) {
+                case "title" -> title = i;
+                case "author" -> author = i;
+                case "categories", "category" -> categories = i;
+                default -> {
+                }
+            }
+        }
+        if (title < 0 || author < 0) {
+            return false;
+        }
+        titleColumn = title;
+        authorColumn = author;
+        categoriesColumn = categories >= 0 ? categories : Math.max(title, author) + 1;
+        return true;
+    }
+
+    static List<String> splitCategories(String value) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : value.split("[|;]")) {
+            String trimmed = name.trim();
+            if (!trimmed.isEmpty()) {
+                names.add(trimmed);
+            }
+        }
+        return List.copyOf(names);
+    }
+
+    // 레코드 하나를 필드 목록으로. 파일 끝이면 null
+    private List<String> readRecord() throws IOException {
+        int c = reader.read();
+        if (c == EOF) {
+            return null;
+        }
+        recordLine = line;
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (c == EOF) {
+                if (quoted) {
+                    throw new ImportFileException(recordLine, "unterminated quoted field");
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            if (quoted) {
+                if (c == '"') {
+                    c = reader.read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                if (c == '\n') {
+                    line++;
+                }
+                field.append((char) c);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                line++;
+                fields.add(field.toString());
+                return fields;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            if (field.length() > MAX_LINE_LENGTH) {
+                throw new ImportFileException(recordLine, "field is longer than " + MAX_LINE_LENGTH + " characters");
+            }
+            c = reader.read();
+        }
+    }
+}
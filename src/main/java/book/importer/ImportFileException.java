@@ -0,0 +1,11 @@
+package book.importer;
+
+import java.io.IOException;
+
+// 행 단위로 건너뛸 수 없게 파일이 깨졌을 때. 가져오기 작업 전체가 실패한다.
+public class ImportFileException extends IOException {
+
+    public ImportFileException(long lineNumber, String message) {
+        super("line " + lineNumber + ": " + message);
+    }
+}
@@ -0,0 +1,19 @@
+package book.importer;
+
+import java.util.List;
+
+// 가져오기 파일의 한 행. 형식이 잘못된 행은 error 에 사유가 들어가고 나머지는 null 일 수 있다.
+public record ImportRow(long lineNumber, String title, String author, List<String> categoryNames, String error) {
+
+    public static ImportRow of(long lineNumber, String title, String author, List<String> categoryNames) {
+        return new ImportRow(lineNumber, title, author, categoryNames, null);
+    }
+
+    public static ImportRow invalid(long lineNumber, String error) {
+        return new ImportRow(lineNumber, null, null, List.of(), error);
+    }
+
+    public boolean isInvalid() {
+        return error != null;
+    }
+}
@@ -0,0 +1,32 @@
+package book.importer;
+
+import book.enums.ImportFormat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * 가져오기 파일을 앞에서부터 한 행씩 읽는다. 파일 전체를 메모리에 올리지 않고, 한 행(필드)의 길이도 제한한다.
+ * 행 단위 형식 오류는 ImportRow.invalid 로 돌려주고, 더 읽을 수 없는 오류(닫히지 않은 따옴표 등)만 예외로 던진다.
+ */
+public interface ImportRowReader {
+
+    // 한 필드, 한 줄에 허용하는 최대 글자 수. 넘으면 파일이 깨진 것으로 본다.
+    int MAX_LINE_LENGTH = 64 * 1024;
+
+    // 더 읽을 행이 없으면 null
+    ImportRow next() throws IOException;
+
+    // 앞에 붙은 UTF-8 BOM 은 건너뛴다.
+    static ImportRowReader of(ImportFormat format, BufferedReader reader) throws IOException {
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+        return switch (format) {
+            case CSV -> new DelimitedImportRowReader(reader, ',');
+            case TSV -> new DelimitedImportRowReader(reader, '\t');
+            case README -> new ReadmeImportRowReader(reader);
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package book.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * README 도서 목록 형식 읽기. 한 줄에 한 권이고 카테고리는 대괄호로 여러 개 붙일 수 있다.
+ * ex) [문학] 너에게 해주지 못한 말들, 권태영
+ *     [경제경영][IT] 재테크 바이블, 투자, 홍길동
+ * 제목에 쉼표가 들어갈 수 있어서 마지막 쉼표 뒤를 지은이로 본다. - 로 시작하는 목록 표시는 떼고 읽는다.
+ */
+public class ReadmeImportRowReader implements ImportRowReader {
+
+    private final Reader reader;
+    private final StringBuilder buffer = new StringBuilder();
+    private long line;
+
+    public ReadmeImportRowReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public ImportRow next() throws IOException {
+        String text;
+        while ((text = readLine()) != null) {
+            String trimmed = text.strip();
+            if (trimmed.startsWith("- ") || trimmed.startsWith("* ")) {
+                trimmed = trimmed.substring(2).strip();
+            }
+            if (!trimmed.isEmpty()) {
+                return parse(line, trimmed);
+            }
+        }
+        return null;
+    }
+
+    static ImportRow parse(long lineNumber, String text) {
+        Set<String> categories = new LinkedHashSet<>();
+        int position = 0;
+        while (position < text.length() && text.charAt(position) == '[') {
+            int close = text.indexOf(']', position);
+            if (close < 0) {
+                return ImportRow.invalid(lineNumber, "unclosed category bracket");
+            }
+            String name = text.substring(position + 1, close).strip();
+            if (!name.isEmpty()) {
+                categories.add(name);
+            }
+            position = close + 1;
+            while (position < text.length() && text.charAt(position) == ' ') {
+                position++;
+            }
+        }
+        if (categories.isEmpty()) {
+            return ImportRow.invalid(lineNumber, "expected '[category] title, author'");
+        }
+        String rest = text.substring(position);
+        int comma = rest.lastIndexOf(',');
+        if (comma < 0) {
+            return ImportRow.invalid(lineNumber, "missing ', author'");
+        }
+        return ImportRow.of(lineNumber, rest.substring(0, comma).strip(), rest.substring(comma + 1).strip(), List.copyOf(categories));
+    }
+
+    private String readLine() throws IOException {
+        buffer.setLength(0);
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        line++;
+        while (c != -1 && c != '\n') {
+            if (c != '\r') {
+                if (buffer.length() >= MAX_LINE_LENGTH) {
+                    throw new ImportFileException(line, "line is longer than " + MAX_LINE_LENGTH + " characters");
+                }
+                buffer.append((char) c);
+            }
+            c = reader.read();
+        }
+        return buffer.toString();
+    }
+}
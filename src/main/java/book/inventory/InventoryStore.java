@@ -0,0 +1,419 @@
+package book.inventory;
+
+import book.dto.BookInventoryDto;
+import book.enums.CopyCondition;
+import book.exception.CopiesUnavailableException;
+import book.exception.InvalidInventoryRequestException;
+import book.exception.InventoryConflictException;
+import book.exception.InventoryNotFoundException;
+import book.repository.InventoryDelta;
+import book.repository.InventoryRepository;
+import book.repository.InventoryRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 도서별 권수의 기준은 book_inventory 이고, 인스턴스는 남은 권수 중 일부를 자기 몫으로 받아(lease) 메모리 카운터(StripedCopyCounter)로 빌려준다.
+ * 몫을 받을 때는 조건부 update 한 문장으로 reserved 에 먼저 더해 두므로, 여러 인스턴스가 같은 도서를 빌려줘도 있는 것보다 많이 나가지 않는다.
+ * 몫 안에서의 빌리기/돌려주기는 DB 도 락도 거치지 않으므로 한 도서에 요청이 몰려도 행 락을 두고 줄 서지 않는다.
+ *
+ * - 몫이 모자라면 leaseSize 만큼(모자라면 필요한 만큼) 더 받는다. 도서별 모니터를 잡고 받아서 한 인스턴스 안에서는 한번에 하나만 DB 에 간다.
+ * - flushInterval 마다 leaseSize 를 넘게 남은 몫과 파손, 분실을 더하고 빼는 변경으로 모아서 쓴다. 값을 덮어쓰지 않으므로 다른 인스턴스의 변경을 지우지 않는다.
+ * - 다른 인스턴스에서 빌려 간 책은 이 인스턴스 카운터에 없으므로 DB 의 reserved 에서 바로 뺀다.
+ * - evictAfter 동안 안 바뀐 카운터는 남은 몫을 돌려주고 내린다. 정상 종료할 때는 모든 몫을 돌려준다.
+ * - 프로세스가 죽으면 받아 두고 빌려주지 않은 몫(도서당 대략 leaseSize)이 reserved 에 남는다. 더 빌려주는 쪽이 아니라 덜 빌려주는 쪽으로 어긋난다.
+ *
+ * 파손/분실 반납과 관리 API 는 드물어서 도서별 모니터를 잡고 처리한다.
+ */
+@Component
+@Slf4j
+public class InventoryStore implements SmartLifecycle {
+
+    private final InventoryRepository inventoryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    // flush 끼리, 그리고 flush 와 관리 API 의 쓰기가 겹치지 않게 한다. 빌리기/돌려주기는 잡지 않는다.
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // 쓰기에 실패했거나 이미 내린 카운터의 변경. flushLock 안에서만 읽고 쓴다.
+    private final List<InventoryDelta> unflushed = new ArrayList<>();
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder leases = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Value("${book.inventory.stripes:0}")
+    private int stripes = 0;
+
+    @Value("${book.inventory.lease-size:16}")
+    private int leaseSize = 16;
+
+    @Value("${book.inventory.flush-interval:200ms}")
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    @Value("${book.inventory.evict-after:10m}")
+    private Duration evictAfter = Duration.ofMinutes(10);
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public InventoryStore(InventoryRepository inventoryRepository, PlatformTransactionManager transactionManager) {
+        this.inventoryRepository = inventoryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * DB 값에 이 인스턴스가 받아 두고 빌려주지 않은 몫과 아직 쓰지 않은 변경을 반영해서 돌려준다.
+     * 다른 인스턴스가 받아 둔 몫은 빌려 간 권수로 보인다.
+     */
+    public BookInventoryDto get(long bookId) {
+        InventoryRow row = inventoryRepository.findByBookId(bookId)
+                .orElseThrow(() -> new InventoryNotFoundException("Inventory not found for book id: " + bookId));
+        long idle = 0;
+        int damaged = row.damagedCopies();
+        int lost = row.lostCopies();
+        Entry entry = entries.get(bookId);
+        if (entry != null) {
+            synchronized (entry) {
+                if (!entry.counter.isEvicted()) {
+                    idle = entry.counter.available() + entry.unleased;
+                    damaged += entry.damaged;
+                    lost += entry.lost;
+                }
+            }
+        }
+        long available = row.availableCopies() + idle;
+        return new BookInventoryDto(bookId, row.totalCopies(), available, row.totalCopies() - damaged - lost - available,
+                damaged, lost);
+    }
+
+    // 빌린 뒤 이 인스턴스 몫에 남은 권수를 돌려준다. DB 에서 더 받아도 모자라면 CopiesUnavailableException
+    public long reserve(long bookId, int count) {
+        while (true) {
+            Entry entry = entry(bookId);
+            switch (entry.counter.reserve(count)) {
+                case DONE -> {
+                    reserved.add(count);
+                    return entry.counter.available();
+                }
+                case INSUFFICIENT -> {
+                    if (!lease(entry, count)) {
+                        rejected.increment();
+                        throw new CopiesUnavailableException("Not enough available copies. bookId: " + bookId + ", count: " + count);
+                    }
+                }
+                case EVICTED -> {
+                    // 내려간 카운터다. 새 카운터로 한번 더 한다.
+                }
+            }
+        }
+    }
+
+    /**
+     * 돌려받은 뒤 이 인스턴스 몫에 남은 권수를 돌려준다. 파손, 분실이면 빌려 간 권수에서 빼고 다시 빌려주지 않는다.
+     * 이 인스턴스에서 빌려 간 책이 아니면 DB 의 reserved 에서 바로 빼고, reserved 가 모자라면 InventoryConflictException
+     */
+    public long release(long bookId, int count, CopyCondition condition) {
+        while (true) {
+            Entry entry = entry(bookId);
+            StripedCopyCounter.Result result;
+            if (condition == CopyCondition.GOOD) {
+                result = entry.counter.release(count);
+            } else {
+                synchronized (entry) {
+                    result = entry.counter.retire(count);
+                    if (result == StripedCopyCounter.Result.DONE) {
+                        entry.retired(condition, count);
+                    }
+                }
+            }
+            switch (result) {
+                case DONE -> {
+                    released.add(count);
+                    return entry.counter.available();
+                }
+                case INSUFFICIENT -> {
+                    if (!inventoryRepository.releaseReserved(bookId, count,
+                            condition == CopyCondition.DAMAGED ? count : 0, condition == CopyCondition.LOST ? count : 0)) {
+                        throw new InventoryConflictException("Not that many copies are reserved. bookId: " + bookId + ", count: " + count);
+                    }
+                    released.add(count);
+                    return entry.counter.available();
+                }
+                case EVICTED -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * 전체, 파손, 분실 권수를 바꾼다. 처음이면 행을 만든다.
+     * 빌려 간 권수와 인스턴스들이 받아 둔 몫은 그대로 두므로 total - damaged - lost 가 reserved 보다 적어지면 InventoryConflictException
+     * 이 인스턴스의 변경을 먼저 써서, 쓰지 않은 파손, 분실이 새 값 위에 한번 더 더해지지 않게 한다.
+     */
+    public BookInventoryDto setCopies(long bookId, int total, int damaged, int lost) {
+        if ((long) damaged + lost > total) {
+            throw new InvalidInventoryRequestException("damaged + lost exceeds total copies. bookId: " + bookId);
+        }
+        if (!entries.containsKey(bookId)
+                && inventoryRepository.insertIfAbsent(new InventoryRow(bookId, total, 0, damaged, lost))) {
+            return new BookInventoryDto(bookId, total, total - damaged - lost, 0, damaged, lost);
+        }
+        flushLock.lock();
+        try {
+            flush();
+            if (!inventoryRepository.updateCopies(bookId, total, damaged, lost)) {
+                InventoryRow row = inventoryRepository.findByBookId(bookId)
+                        .orElseThrow(() -> new InventoryNotFoundException("Inventory not found for book id: " + bookId));
+                throw new InventoryConflictException("Reserved copies exceed the new usable copies. bookId: " + bookId
+                        + ", reserved: " + row.reservedCopies());
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        return get(bookId);
+    }
+
+    // 남은 몫과 파손, 분실을 한 batch 로 쓰고, 오래 안 바뀐 카운터는 내린다.
+    public void flush() {
+        flush(false);
+    }
+
+    private void flush(boolean evictAll) {
+        flushLock.lock();
+        try {
+            List<InventoryDelta> deltas = new ArrayList<>(unflushed);
+            unflushed.clear();
+            long evictAfterFlushes = Math.max(1, evictAfter.toMillis() / Math.max(1, flushInterval.toMillis()));
+            for (Entry entry : entries.values()) {
+                synchronized (entry) {
+                    if (entry.counter.isEvicted()) {
+                        continue;
+                    }
+                    boolean changed = entry.counter.clearDirty();
+                    if (changed) {
+                        entry.idleFlushes = 0;
+                        entry.unleaseSurplus(leaseSize);
+                    }
+                    if (evictAll || (!changed && ++entry.idleFlushes >= evictAfterFlushes)) {
+                        long idle = entry.counter.tryEvict(entry.allotment);
+                        if (idle >= 0) {
+                            entry.unleased += (int) idle;
+                            entries.remove(entry.counter.bookId(), entry);
+                            evictions.increment();
+                        }
+                    }
+                    InventoryDelta delta = entry.takeDelta();
+                    if (delta != null) {
+                        deltas.add(delta);
+                    }
+                }
+            }
+            if (deltas.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> inventoryRepository.applyDeltas(deltas));
+                flushedRows.add(deltas.size());
+            } catch (RuntimeException e) {
+                // 한 트랜잭션이라 하나도 쓰이지 않았다. 다음 flush 에서 같이 쓴다.
+                flushFailures.increment();
+                unflushed.addAll(deltas);
+                log.warn("inventory flush failed. rows={}", deltas.size(), e);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = new Thread(this::flushLoop, "inventory-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("inventory store started. stripes={}, leaseSize={}, flushInterval={}, evictAfter={}",
+                stripeCount(), leaseSize, flushInterval, evictAfter);
+    }
+
+    // 멈출 때 남은 변경을 쓰고 받아 둔 몫을 돌려준다.
+    @Override
+    public void stop() {
+        running = false;
+        Thread current = flusher;
+        if (current != null) {
+            try {
+                current.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+        }
+        flush(true);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int residentCount() {
+        return entries.size();
+    }
+
+    public long reservedCount() {
+        return reserved.sum();
+    }
+
+    public long releasedCount() {
+        return released.sum();
+    }
+
+    // 남은 권수가 모자라서 409 로 끝난 빌리기
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    // DB 에서 몫을 받아 온 횟수
+    public long leaseCount() {
+        return leases.sum();
+    }
+
+    public long flushedRowCount() {
+        return flushedRows.sum();
+    }
+
+    public long flushFailureCount() {
+        return flushFailures.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    // 몫을 더 받았거나 다른 요청이 먼저 받아 다시 해볼 만하면 true, DB 에도 남은 권수가 모자라면 false
+    private boolean lease(Entry entry, int count) {
+        synchronized (entry) {
+            if (entry.counter.isEvicted()) {
+                return true;
+            }
+            long missing = count - entry.counter.available();
+            if (missing <= 0) {
+                return true;
+            }
+            long bookId = entry.counter.bookId();
+            int granted = Math.max(count, leaseSize);
+            if (!inventoryRepository.lease(bookId, granted)) {
+                granted = (int) missing;
+                if (!inventoryRepository.lease(bookId, granted)) {
+                    return false;
+                }
+            }
+            // 모니터를 잡고 있어서 그 사이 내려가지 않는다.
+            entry.counter.addAvailable(granted);
+            entry.allotment += granted;
+            leases.increment();
+            return true;
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                Thread.sleep(flushInterval.toMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("inventory flush loop failed", e);
+            }
+        }
+    }
+
+    private Entry entry(long bookId) {
+        Entry entry = entries.get(bookId);
+        if (entry != null) {
+            return entry;
+        }
+        return entries.computeIfAbsent(bookId, this::load);
+    }
+
+    // 행이 있는지만 확인하고 빈 몫으로 시작한다. 첫 빌리기에서 몫을 받는다.
+    private Entry load(Long bookId) {
+        if (inventoryRepository.findByBookId(bookId).isEmpty()) {
+            throw new InventoryNotFoundException("Inventory not found for book id: " + bookId);
+        }
+        return new Entry(new StripedCopyCounter(bookId, stripeCount(), 0, 0));
+    }
+
+    // 0 이면 코어 수 이상인 가장 작은 2 의 거듭제곱. (최대 64)
+    private int stripeCount() {
+        if (stripes <= 0) {
+            stripes = Math.min(64, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1);
+        }
+        return stripes;
+    }
+
+    // 카운터와 DB 에 아직 쓰지 않은 변경. 아래 필드는 이 객체의 모니터 안에서만 읽고 쓴다.
+    private static final class Entry {
+        private final StripedCopyCounter counter;
+        // 받아 둔 몫에서 돌려주거나 파손, 분실로 빠진 것을 뺀 권수. 카운터 칸의 available + reserved 와 같아야 한다.
+        private long allotment;
+        private int unleased;
+        private int damaged;
+        private int lost;
+        private long idleFlushes;
+
+        private Entry(StripedCopyCounter counter) {
+            this.counter = counter;
+        }
+
+        private void retired(CopyCondition condition, int count) {
+            if (condition == CopyCondition.DAMAGED) {
+                damaged += count;
+            } else {
+                lost += count;
+            }
+            allotment -= count;
+        }
+
+        // 빌려주지 않고 leaseSize 를 넘게 남은 몫은 다른 인스턴스가 쓸 수 있게 돌려준다.
+        private void unleaseSurplus(int leaseSize) {
+            long surplus = counter.available() - leaseSize;
+            if (surplus > 0 && counter.removeAvailable((int) surplus) == StripedCopyCounter.Result.DONE) {
+                unleased += (int) surplus;
+                allotment -= surplus;
+            }
+        }
+
+        private InventoryDelta takeDelta() {
+            if (unleased == 0 && damaged == 0 && lost == 0) {
+                return null;
+            }
+            InventoryDelta delta = new InventoryDelta(counter.bookId(), unleased, damaged, lost);
+            unleased = 0;
+            damaged = 0;
+            lost = 0;
+            return delta;
+        }
+    }
+}
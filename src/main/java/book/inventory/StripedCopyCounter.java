@@ -0,0 +1,244 @@
+package book.inventory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 한 도서에 대해 이 인스턴스가 DB 에서 받아 둔 몫을 세는 카운터. 아직 빌려주지 않은 권수(available)와
+ * 이 인스턴스에서 빌려 간 권수(reserved)를 여러 칸(stripe)에 나눠 든다.
+ * 칸 하나는 long 하나에 available(상위 32비트)과 reserved(하위 32비트)를 같이 담아서, 한 칸 안에서 옮기는 것은 CAS 한번이다.
+ * 스레드마다 정해진 칸부터 시도하므로 같은 도서를 동시에 빌려도 한 행이나 한 변수를 두고 다투지 않는다.
+ *
+ * 자기 칸에 모자라면 다른 칸을 차례로 보고, 한 칸에 n 권이 없으면 여러 칸에서 조금씩 모은다.
+ * 모으는 동안 가져온 권수는 어느 칸에도 없어서, 거의 다 빌려 간 상태에서 동시에 모으면 남아 있어도 모자란다고 답할 수 있다.
+ * 반대로 있는 것보다 많이 빌려주거나 빌려 간 것보다 많이 돌려받는 일은 없다.
+ *
+ * 오래 안 쓰인 카운터는 InventoryStore 가 모든 칸을 RETIRED 로 막은 뒤 칸의 합이 받아 둔 몫과 같을 때만 내보낸다. (tryEvict)
+ * 막혀 있는 칸을 만난 요청은 풀리거나 내보내질 때까지 기다리고, 내보내졌으면 EVICTED 를 받아 DB 에서 다시 읽은 카운터로 한번 더 한다.
+ */
+final class StripedCopyCounter {
+
+    enum Result {DONE, INSUFFICIENT, EVICTED}
+
+    static final int AVAILABLE = 32;
+    static final int RESERVED = 0;
+    // 어느 칸에도 넣지 않는다. (파손, 분실로 빠지거나 관리 API 로 줄인 권수)
+    static final int NONE = -1;
+
+    private static final long FIELD_MASK = 0xFFFF_FFFFL;
+    // 칸 하나가 64 바이트 캐시 라인 하나를 차지하도록 long 8 개 간격으로 둔다.
+    private static final int PAD = 8;
+    // 내보내는 중인 칸. 권수는 int 범위라 정상 값은 최상위 비트가 켜지지 않는다.
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    private final long bookId;
+    private final AtomicLongArray cells;
+    private final int stripes;
+    private final int mask;
+    // 지난 flush 뒤로 쓰인 적이 있는지. 오래 안 쓰인 카운터를 고르는 데 쓴다. 이미 켜져 있으면 다시 쓰지 않아서 요청마다 같은 캐시 라인에 쓰지 않는다.
+    private volatile boolean dirty;
+    private volatile boolean evicted;
+
+    StripedCopyCounter(long bookId, int stripes, int available, int reserved) {
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("stripes must be a power of two: " + stripes);
+        }
+        this.bookId = bookId;
+        this.stripes = stripes;
+        this.mask = stripes - 1;
+        this.cells = new AtomicLongArray(stripes * PAD);
+        for (int s = 0; s < stripes; s++) {
+            cells.set(s * PAD, pack(share(available, s), share(reserved, s)));
+        }
+    }
+
+    long bookId() {
+        return bookId;
+    }
+
+    Result reserve(int n) {
+        return move(n, AVAILABLE, RESERVED);
+    }
+
+    Result release(int n) {
+        return move(n, RESERVED, AVAILABLE);
+    }
+
+    // 빌려 간 책이 파손, 분실로 돌아오지 않는다.
+    Result retire(int n) {
+        return move(n, RESERVED, NONE);
+    }
+
+    Result removeAvailable(int n) {
+        return move(n, AVAILABLE, NONE);
+    }
+
+    Result addAvailable(int n) {
+        return add(home(), AVAILABLE, n) ? markDirty() : Result.EVICTED;
+    }
+
+    // 칸마다 따로 읽은 합이라 동시에 옮기는 중이면 잠깐 어긋날 수 있다. 다음 flush 에서 다시 맞춰진다.
+    long available() {
+        return sum(AVAILABLE);
+    }
+
+    long reserved() {
+        return sum(RESERVED);
+    }
+
+    boolean isEvicted() {
+        return evicted;
+    }
+
+    // flush 마다 부른다. 그 뒤의 변경은 다시 dirty 로 남는다.
+    boolean clearDirty() {
+        if (!dirty) {
+            return false;
+        }
+        dirty = false;
+        return true;
+    }
+
+    /**
+     * 모든 칸을 막고, available + reserved 가 allotment(이 인스턴스가 받아 둔 몫에서 파손, 분실로 빠진 것을 뺀 권수)와 같으면 내보낸다.
+     * 내보냈으면 DB 에 돌려줄 available 을, 모으는 중이라 칸 밖에 있는 권수가 있으면 칸을 되돌리고 -1.
+     * InventoryStore 가 이 카운터의 모니터를 잡고 부른다.
+     */
+    long tryEvict(long allotment) {
+        long[] frozen = new long[stripes];
+        long available = 0;
+        long reserved = 0;
+        for (int s = 0; s < stripes; s++) {
+            long value;
+            do {
+                value = cells.get(s * PAD);
+            } while (!cells.compareAndSet(s * PAD, value, RETIRED));
+            frozen[s] = value;
+            available += field(value, AVAILABLE);
+            reserved += field(value, RESERVED);
+        }
+        if (available + reserved == allotment) {
+            evicted = true;
+            return available;
+        }
+        for (int s = 0; s < stripes; s++) {
+            cells.set(s * PAD, frozen[s]);
+        }
+        return -1;
+    }
+
+    private Result move(int n, int from, int to) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("count must be positive: " + n);
+        }
+        int home = home();
+        for (int i = 0; i < stripes; i++) {
+            int index = ((home + i) & mask) * PAD;
+            long value = awaitCell(index);
+            if (value == RETIRED) {
+                return Result.EVICTED;
+            }
+            // CAS 에 밀리면 같은 칸을 다시 잡지 않고 다음 칸으로 넘어간다. 다 돌아도 안 되면 아래에서 모은다.
+            if (field(value, from) >= n && cells.compareAndSet(index, value, shift(value, from, to, n))) {
+                return markDirty();
+            }
+        }
+        return gather(home, n, from, to);
+    }
+
+    private Result gather(int home, int n, int from, int to) {
+        int taken = 0;
+        for (int i = 0; i < stripes && taken < n; i++) {
+            int index = ((home + i) & mask) * PAD;
+            while (true) {
+                long value = awaitCell(index);
+                if (value == RETIRED) {
+                    // 칸 밖에 권수를 들고 있으면 합이 안 맞아서 내보내지 않는다. 들고 있는 것이 없을 때만 여기로 온다.
+                    return Result.EVICTED;
+                }
+                int take = (int) Math.min(field(value, from), n - taken);
+                if (take == 0) {
+                    break;
+                }
+                if (cells.compareAndSet(index, value, value - ((long) take << from))) {
+                    taken += take;
+                    break;
+                }
+            }
+        }
+        if (taken < n) {
+            if (taken > 0) {
+                add(home, from, taken);
+                markDirty();
+            }
+            return Result.INSUFFICIENT;
+        }
+        if (to != NONE) {
+            add(home, to, n);
+        }
+        return markDirty();
+    }
+
+    // 칸 밖에 들고 있는 권수를 돌려놓는 데도 쓴다. 들고 있는 동안은 내보내지 않으므로 막힌 칸은 곧 풀린다.
+    private boolean add(int stripe, int field, int n) {
+        int index = stripe * PAD;
+        while (true) {
+            long value = awaitCell(index);
+            if (value == RETIRED) {
+                return false;
+            }
+            if (cells.compareAndSet(index, value, value + ((long) n << field))) {
+                return true;
+            }
+        }
+    }
+
+    // 막힌 칸이면 풀리거나 내보내질 때까지 기다린다. 내보내졌으면 RETIRED 를 돌려준다.
+    private long awaitCell(int index) {
+        long value = cells.get(index);
+        while (value == RETIRED && !evicted) {
+            Thread.onSpinWait();
+            value = cells.get(index);
+        }
+        return value;
+    }
+
+    private Result markDirty() {
+        if (!dirty) {
+            dirty = true;
+        }
+        return Result.DONE;
+    }
+
+    private long sum(int field) {
+        long total = 0;
+        for (int s = 0; s < stripes; s++) {
+            long value = cells.get(s * PAD);
+            if (value != RETIRED) {
+                total += field(value, field);
+            }
+        }
+        return total;
+    }
+
+    private int home() {
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    private int share(int count, int stripe) {
+        return count / stripes + (stripe < count % stripes ? 1 : 0);
+    }
+
+    private static long shift(long value, int from, int to, int n) {
+        long next = value - ((long) n << from);
+        return to == NONE ? next : next + ((long) n << to);
+    }
+
+    private static long field(long value, int field) {
+        return (value >>> field) & FIELD_MASK;
+    }
+
+    private static long pack(int available, int reserved) {
+        return ((long) available << AVAILABLE) | reserved;
+    }
+}
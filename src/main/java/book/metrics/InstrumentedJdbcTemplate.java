@@ -0,0 +1,99 @@
+package book.metrics;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * JPA 를 거치지 않는 JdbcTemplate 쿼리도 요청별 SQL 수, DB 시간에 포함시키기 위한 JdbcTemplate.
+ * JdbcTemplate 은 statement 를 실행하기 전에 applyStatementSettings, 실행한 뒤에 handleWarnings 를 항상 부르기 때문에
+ * 그 사이를 재고, 그 안에서 ResultSetExtractor(RowMapper, RowCallbackHandler 포함)가 돈 시간은 뺀다.
+ * ConnectionCallback 은 statement 를 직접 다루니 콜백이 만든 statement 의 execute* 호출만 잰다.
+ */
+public class InstrumentedJdbcTemplate extends JdbcTemplate {
+
+    public InstrumentedJdbcTemplate(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        super.applyStatementSettings(stmt);
+        RequestQueryStats.current().statementStarted();
+    }
+
+    @Override
+    protected void handleWarnings(Statement stmt) throws SQLException {
+        RequestQueryStats.current().statementFinished();
+        super.handleWarnings(stmt);
+    }
+
+    // RowMapper, RowCallbackHandler 를 받는 query 도 결국 이 두 메서드로 들어온다.
+    @Override
+    public <T> T query(String sql, ResultSetExtractor<T> rse) throws DataAccessException {
+        return super.query(sql, excludeExtraction(rse));
+    }
+
+    @Override
+    public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse) throws DataAccessException {
+        return super.query(psc, pss, excludeExtraction(rse));
+    }
+
+    @Override
+    protected Connection createConnectionProxy(Connection con) {
+        Connection proxy = super.createConnectionProxy(con);
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class},
+                (target, method, args) -> {
+                    Object result = invoke(proxy, method, args);
+                    if (result instanceof Statement statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        return timed(statement, method.getReturnType());
+                    }
+                    return result;
+                });
+    }
+
+    private static <T> ResultSetExtractor<T> excludeExtraction(ResultSetExtractor<T> rse) {
+        return rs -> {
+            long started = System.nanoTime();
+            try {
+                return rse.extractData(rs);
+            } finally {
+                RequestQueryStats.current().excludeFromStatement(System.nanoTime() - started);
+            }
+        };
+    }
+
+    private static Object timed(Statement statement, Class<?> type) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (target, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return invoke(statement, method, args);
+            }
+            long started = System.nanoTime();
+            try {
+                return invoke(statement, method, args);
+            } finally {
+                RequestQueryStats.current().record(System.nanoTime() - started);
+            }
+        });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
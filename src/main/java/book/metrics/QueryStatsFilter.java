@@ -0,0 +1,106 @@
+package book.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청마다 SQL 실행 수와 DB 시간을 기록하고, 느린 요청은 한 줄짜리 key=value 로그로 남긴다.
+ * meter 는 시작할 때 한번 등록해두고 요청마다 새로 찾지 않는다.
+ * 비동기로 넘어간 요청(StreamingResponseBody, SseEmitter)은 끝날 때(AsyncListener.onComplete) 요청 스레드 값에
+ * RequestContextTaskDecorator 로 넘긴 비동기 스레드 값을 더해서 기록한다.
+ */
+@Component
+@Slf4j
+public class QueryStatsFilter extends OncePerRequestFilter {
+
+    private final DistributionSummary statementsPerRequest;
+    private final Timer dbTimePerRequest;
+
+    @Value("${book.metrics.slow-request-threshold:500ms}")
+    private Duration slowRequestThreshold = Duration.ofMillis(500);
+
+    public QueryStatsFilter(MeterRegistry meterRegistry) {
+        this.statementsPerRequest = DistributionSummary.builder("book.request.sql.statements")
+                .description("SQL statements executed per HTTP request")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.dbTimePerRequest = Timer.builder("book.request.sql.time")
+                .description("time spent executing SQL per HTTP request")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestQueryStats stats = RequestQueryStats.current();
+        RequestQueryStats.AsyncStats async = stats.begin();
+        long started = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statementCount = stats.statementCount();
+            long statementNanos = stats.statementNanos();
+            stats.reset();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        async.close();
+                        record(request, response, started, statementCount + async.statementCount(),
+                                statementNanos + async.statementNanos());
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                async.close();
+                record(request, response, started, statementCount + async.statementCount(),
+                        statementNanos + async.statementNanos());
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, long started,
+                        int statementCount, long statementNanos) {
+        long elapsed = System.nanoTime() - started;
+        statementsPerRequest.record(statementCount);
+        dbTimePerRequest.record(statementNanos, TimeUnit.NANOSECONDS);
+        if (elapsed > slowRequestThreshold.toNanos()) {
+            log.warn("slow_request method={} uri={} pattern={} status={} elapsed_ms={} sql_count={} sql_time_ms={}",
+                    request.getMethod(),
+                    request.getRequestURI(),
+                    request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE),
+                    response.getStatus(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    statementCount,
+                    TimeUnit.NANOSECONDS.toMillis(statementNanos));
+        }
+    }
+}
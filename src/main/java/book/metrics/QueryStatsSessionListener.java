@@ -0,0 +1,33 @@
+package book.metrics;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Hibernate 세션에서 실행되는 SQL 을 요청 단위로 센다.
+ * hibernate.session.events.auto 로 등록하면 세션마다 하나씩 만들어진다.
+ */
+public class QueryStatsSessionListener implements SessionEventListener {
+
+    private long statementStartedAt;
+    private long batchStartedAt;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStartedAt = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        RequestQueryStats.current().record(System.nanoTime() - statementStartedAt);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStartedAt = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        RequestQueryStats.current().record(System.nanoTime() - batchStartedAt);
+    }
+}
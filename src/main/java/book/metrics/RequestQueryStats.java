@@ -0,0 +1,123 @@
+package book.metrics;
+
+/**
+ * 요청 하나 동안 실행된 SQL 수와 DB 에서 보낸 시간.
+ * 스레드마다 객체 하나를 재사용해서 요청마다 새로 만들지 않는다.
+ * StreamingResponseBody 처럼 다른 스레드에서 도는 일은 wrap 으로 넘기면, 그 스레드에서 센 값이 요청의 AsyncStats 로 모인다.
+ */
+public final class RequestQueryStats {
+
+    private static final ThreadLocal<RequestQueryStats> CURRENT = ThreadLocal.withInitial(RequestQueryStats::new);
+
+    private int statementCount;
+    private long statementNanos;
+    private long statementStartedAt;
+    // begin 으로 시작한 요청 스레드(와 wrap 으로 넘겨받은 비동기 스레드)에서만 있다. 요청 밖 스레드는 null 이라 wrap 해도 그대로다.
+    private AsyncStats async;
+
+    private RequestQueryStats() {
+    }
+
+    public static RequestQueryStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 지금 요청의 AsyncStats 를 task 를 실행하는 스레드로 넘긴다. task 가 실행한 SQL 은 그 스레드의 값에 남기지 않고
+     * AsyncStats 로 옮긴다. 요청 밖에서 부르면 task 를 그대로 돌려준다.
+     */
+    public static Runnable wrap(Runnable task) {
+        AsyncStats target = CURRENT.get().async;
+        if (target == null) {
+            return task;
+        }
+        return () -> {
+            RequestQueryStats worker = CURRENT.get();
+            int countBefore = worker.statementCount;
+            long nanosBefore = worker.statementNanos;
+            AsyncStats previous = worker.async;
+            worker.async = target;
+            try {
+                task.run();
+            } finally {
+                target.add(worker.statementCount - countBefore, worker.statementNanos - nanosBefore);
+                worker.statementCount = countBefore;
+                worker.statementNanos = nanosBefore;
+                worker.async = previous;
+            }
+        };
+    }
+
+    // 요청 시작. 이전 요청에서 남은 값을 비우고 이 요청의 비동기 작업을 모을 곳을 만든다.
+    public AsyncStats begin() {
+        reset();
+        async = new AsyncStats();
+        return async;
+    }
+
+    public void record(long elapsedNanos) {
+        statementCount++;
+        statementNanos += elapsedNanos;
+    }
+
+    public void statementStarted() {
+        statementStartedAt = System.nanoTime();
+    }
+
+    public void statementFinished() {
+        record(System.nanoTime() - statementStartedAt);
+    }
+
+    // statementStarted ~ statementFinished 사이에서 SQL 실행이 아닌 일(ResultSet 을 객체로 바꾸기 등)에 쓴 시간을 뺀다.
+    public void excludeFromStatement(long elapsedNanos) {
+        statementStartedAt += elapsedNanos;
+    }
+
+    public void reset() {
+        statementCount = 0;
+        statementNanos = 0;
+        async = null;
+    }
+
+    public int statementCount() {
+        return statementCount;
+    }
+
+    public long statementNanos() {
+        return statementNanos;
+    }
+
+    /**
+     * 요청 하나의 비동기 스레드들이 실행한 SQL. 여러 스레드가 더하므로 잠그고, close 한 뒤에 끝난 작업은
+     * 이미 기록한 요청에 섞이지 않게 버린다.
+     */
+    public static final class AsyncStats {
+
+        private int statementCount;
+        private long statementNanos;
+        private boolean closed;
+
+        private AsyncStats() {
+        }
+
+        synchronized void add(int count, long nanos) {
+            if (!closed) {
+                statementCount += count;
+                statementNanos += nanos;
+            }
+        }
+
+        // 요청이 끝났을 때 한번 부른다. 이후에 들어오는 값은 받지 않는다.
+        public synchronized void close() {
+            closed = true;
+        }
+
+        public synchronized int statementCount() {
+            return statementCount;
+        }
+
+        public synchronized long statementNanos() {
+            return statementNanos;
+        }
+    }
+}
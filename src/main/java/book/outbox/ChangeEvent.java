@@ -0,0 +1,15 @@
+package book.outbox;
+
+import book.enums.ChangeEventType;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+/**
+ * outbox 에서 꺼낸 변경 이벤트. seq 는 단조 증가하고 sink 는 seq 순서대로 받는다.
+ * 같은 이벤트가 두번 올 수 있으니(at-least-once) 받는 쪽은 seq 로 중복을 거른다.
+ */
+public record ChangeEvent(long seq,
+                          ChangeEventType type,
+                          long bookId,
+                          @JsonRawValue String payload,
+                          long createdAt) {
+}
@@ -0,0 +1,80 @@
+package book.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 로컬 파일에 한 줄에 이벤트 하나씩(NDJSON) 이어 쓴다. 배치마다 한번 write 하고 force 해서 디스크에 내린다.
+ * 파일은 처음 전달할 때 열기 때문에 sinks 에 file 이 없으면 만들어지지 않는다.
+ */
+@Component
+@Slf4j
+public class FileOutboxSink implements OutboxSink {
+
+    private final ObjectWriter writer;
+
+    @Value("${book.outbox.file.path:data/book-changes.ndjson}")
+    private Path path = Path.of("data/book-changes.ndjson");
+
+    private FileChannel channel;
+
+    public FileOutboxSink(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writerFor(ChangeEvent.class);
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public synchronized void deliver(List<ChangeEvent> events) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(events.size() * 160);
+        for (ChangeEvent event : events) {
+            writer.writeValue(buffer, event);
+            buffer.write('\n');
+        }
+        FileChannel fileChannel = channel();
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            fileChannel.write(bytes);
+        }
+        fileChannel.force(false);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("failed to close change log file. path={}", path, e);
+            }
+            channel = null;
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+}
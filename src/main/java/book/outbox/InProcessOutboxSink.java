@@ -0,0 +1,27 @@
+package book.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// 같은 프로세스 안에서 @EventListener ChangeEvent 로 받는다. 리스너가 예외를 던지면 그 배치를 다시 보낸다.
+@Component
+@RequiredArgsConstructor
+public class InProcessOutboxSink implements OutboxSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public String name() {
+        return "in-process";
+    }
+
+    @Override
+    public void deliver(List<ChangeEvent> events) {
+        for (ChangeEvent event : events) {
+            eventPublisher.publishEvent(event);
+        }
+    }
+}
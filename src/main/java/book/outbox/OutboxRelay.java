@@ -0,0 +1,202 @@
+package book.outbox;
+
+import book.repository.OutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * outbox 를 flushInterval 마다 batchSize 씩 읽어서 sink 마다 seq 순서대로 넘기고, 넘긴 뒤에 sink 별 offset 을 올린다.
+ * 전달 후 offset 저장 전에 죽으면 다시 보내기 때문에 at-least-once 다.
+ *
+ * seq 는 insert 시점에 매겨지고 커밋 순서는 다를 수 있어서, 앞 번호가 비어 있으면 거기서 멈추고 기다린다.
+ * 비어 있는 뒤 번호 이벤트가 settleDelay 보다 오래됐으면 앞 번호는 롤백으로 영영 비는 것으로 보고 넘어간다.
+ * 인스턴스가 여러 대면 relay 는 한 대에서만 켜야 한다. (book.outbox.relay-enabled)
+ * SSE 구독은 relay 를 거치지 않고 인스턴스마다 SseChangeStream 이 테이블을 따로 읽는다.
+ */
+@Component
+@Slf4j
+public class OutboxRelay implements SmartLifecycle {
+
+    private static final int CLEANUP_LIMIT = 10_000;
+    private static final long CLEANUP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final OutboxRepository outboxRepository;
+    private final Map<String, OutboxSink> sinksByName = new HashMap<>();
+    private final Map<String, Long> offsets = new ConcurrentHashMap<>();
+
+    @Value("${book.outbox.relay-enabled:true}")
+    private boolean relayEnabled = true;
+
+    @Value("${book.outbox.sinks:in-process}")
+    private Set<String> enabledSinks = Set.of("in-process");
+
+    @Value("${book.outbox.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${book.outbox.flush-interval:200ms}")
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    @Value("${book.outbox.settle-delay:10s}")
+    private Duration settleDelay = Duration.ofSeconds(10);
+
+    @Value("${book.outbox.retention:7d}")
+    private Duration retention = Duration.ofDays(7);
+
+    private List<OutboxSink> activeSinks;
+    private ScheduledExecutorService scheduler;
+    private long lastCleanup;
+
+    public OutboxRelay(OutboxRepository outboxRepository, List<OutboxSink> sinks) {
+        this.outboxRepository = outboxRepository;
+        for (OutboxSink sink : sinks) {
+            sinksByName.put(sink.name(), sink);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!relayEnabled) {
+            log.info("outbox relay disabled");
+            return;
+        }
+        activeSinks();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::relaySafely,
+                flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("outbox relay started. sinks={}, batchSize={}, flushInterval={}", enabledSinks, batchSize, flushInterval);
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    public long offset(String sink) {
+        return offsets.getOrDefault(sink, 0L);
+    }
+
+    public void relay() {
+        for (OutboxSink sink : activeSinks()) {
+            try {
+                drain(sink);
+            } catch (Exception e) {
+                // offset 을 올리지 않았으니 다음 주기에 같은 이벤트부터 다시 보낸다.
+                log.warn("outbox delivery failed. sink={}, offset={}", sink.name(), offsets.get(sink.name()), e);
+            }
+        }
+        cleanupIfDue();
+    }
+
+    private List<OutboxSink> activeSinks() {
+        if (activeSinks == null) {
+            List<OutboxSink> sinks = new ArrayList<>();
+            for (String name : enabledSinks) {
+                OutboxSink sink = sinksByName.get(name);
+                if (sink == null) {
+                    log.warn("unknown outbox sink ignored. name={}, available={}", name, sinksByName.keySet());
+                } else {
+                    sinks.add(sink);
+                }
+            }
+            activeSinks = List.copyOf(sinks);
+        }
+        return activeSinks;
+    }
+
+    private void relaySafely() {
+        try {
+            relay();
+        } catch (RuntimeException e) {
+            log.warn("outbox relay failed", e);
+        }
+    }
+
+    private void drain(OutboxSink sink) throws Exception {
+        long offset = offsets.computeIfAbsent(sink.name(), name -> loadOffset(sink));
+        while (true) {
+            List<ChangeEvent> ready = settled(offset, outboxRepository.findAfter(offset, batchSize), settleDelay);
+            if (ready.isEmpty()) {
+                return;
+            }
+            sink.deliver(ready);
+            offset = ready.get(ready.size() - 1).seq();
+            outboxRepository.saveOffset(sink.name(), offset);
+            offsets.put(sink.name(), offset);
+            if (ready.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    // 처음 붙는 sink 는 지난 이벤트를 전부 받지 않고 지금부터 받는다.
+    private long loadOffset(OutboxSink sink) {
+        long offset = outboxRepository.findOffset(sink.name()).orElseGet(() -> {
+            long current = outboxRepository.maxSeq();
+            outboxRepository.saveOffset(sink.name(), current);
+            return current;
+        });
+        sink.resume(offset);
+        return offset;
+    }
+
+    // offset 다음부터 빈 번호 없이 이어지는 이벤트. 빈 번호 뒤 이벤트가 settleDelay 보다 오래됐으면 빈 번호는 건너뛴다.
+    static List<ChangeEvent> settled(long offset, List<ChangeEvent> batch, Duration settleDelay) {
+        long settledBefore = System.currentTimeMillis() - settleDelay.toMillis();
+        long expected = offset + 1;
+        List<ChangeEvent> ready = new ArrayList<>(batch.size());
+        for (ChangeEvent event : batch) {
+            if (event.seq() != expected && event.createdAt() > settledBefore) {
+                break;
+            }
+            ready.add(event);
+            expected = event.seq() + 1;
+        }
+        return ready;
+    }
+
+    private void cleanupIfDue() {
+        long now = System.currentTimeMillis();
+        if (activeSinks().isEmpty() || now - lastCleanup < CLEANUP_INTERVAL_MILLIS) {
+            return;
+        }
+        lastCleanup = now;
+        long delivered = Long.MAX_VALUE;
+        for (OutboxSink sink : activeSinks()) {
+            delivered = Math.min(delivered, offsets.getOrDefault(sink.name(), 0L));
+        }
+        int deleted = outboxRepository.deleteDelivered(delivered, now - retention.toMillis(), CLEANUP_LIMIT);
+        if (deleted > 0) {
+            log.info("outbox cleaned up. deleted={}, upToSeq={}", deleted, delivered);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package book.outbox;
+
+import java.util.List;
+
+/**
+ * OutboxRelay 가 변경 이벤트를 넘겨주는 곳. 어떤 sink 를 쓸지는 book.outbox.sinks 에 name() 으로 적는다.
+ * deliver 가 예외 없이 끝나야 전달한 것으로 보고 offset 을 올린다. 예외가 나면 다음 주기에 같은 이벤트부터 다시 보낸다.
+ */
+public interface OutboxSink {
+
+    String name();
+
+    // relay 가 저장된 offset 을 읽었을 때 한번 알려준다. 이 seq 까지는 이미 전달된 것이다.
+    default void resume(long deliveredSeq) {
+    }
+
+    void deliver(List<ChangeEvent> events) throws Exception;
+}
@@ -0,0 +1,87 @@
+package book.outbox;
+
+import book.enums.ChangeEventType;
+import book.event.BookCategoriesChangedEvent;
+import book.event.BookRegisteredEvent;
+import book.event.BookStatusChangedEvent;
+import book.repository.NewOutboxRow;
+import book.repository.OutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 도서 변경 이벤트를 발행한 쪽 트랜잭션 안에서 outbox 에 기록한다.
+ * 커밋 이후에 받는 @TransactionalEventListener 가 아니라 @EventListener 라서 변경이 롤백되면 outbox 도 같이 롤백된다.
+ * 트랜잭션 안에서 여러 건이 나오면(일괄 등록 등) 모아뒀다가 커밋 직전에 batch insert 한번으로 넣는다.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxWriter {
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    @EventListener
+    public void on(BookRegisteredEvent event) {
+        append(ChangeEventType.BOOK_REGISTERED, event.bookId(), event);
+    }
+
+    @EventListener
+    public void on(BookStatusChangedEvent event) {
+        append(ChangeEventType.BOOK_STATUS_CHANGED, event.bookId(), event);
+    }
+
+    @EventListener
+    public void on(BookCategoriesChangedEvent event) {
+        append(ChangeEventType.BOOK_CATEGORIES_CHANGED, event.bookId(), event);
+    }
+
+    private void append(ChangeEventType type, Long bookId, Object event) {
+        NewOutboxRow row = new NewOutboxRow(type, bookId, toJson(event));
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            outboxRepository.insert(List.of(row), System.currentTimeMillis());
+            return;
+        }
+
+        PendingRows pending = (PendingRows) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            PendingRows newPending = new PendingRows();
+            TransactionSynchronizationManager.bindResource(this, newPending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // created_at 은 커밋 시각에 최대한 가깝게 찍는다. relay 가 빈 seq 를 기다릴지 판단하는 기준이다.
+                    outboxRepository.insert(newPending.rows, System.currentTimeMillis());
+                    newPending.rows.clear();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OutboxWriter.this);
+                }
+            });
+            pending = newPending;
+        }
+        pending.rows.add(row);
+    }
+
+    private String toJson(Object event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("failed to serialize change event: " + event, e);
+        }
+    }
+
+    private static final class PendingRows {
+        private final List<NewOutboxRow> rows = new ArrayList<>();
+    }
+}
@@ -0,0 +1,260 @@
+package book.outbox;
+
+import book.repository.OutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /books/changes?since= 구독자에게 변경 이벤트를 SSE 로 밀어준다.
+ * relay 는 한 인스턴스에서만 돌기 때문에 relay 에 붙지 않고, 인스턴스마다 outbox 테이블을 flushInterval 마다 따라 읽는다.
+ * 앞 번호가 비어 있으면 relay 와 같은 규칙(settle-delay)으로 기다린다.
+ *
+ * 구독하면 먼저 테이블에서 since 이후를 따라잡고, 그 사이 읽은 이벤트는 모아뒀다가 이어서 보낸다.
+ * 따라잡을 때는 이 인스턴스가 이미 읽은 seq 까지만 본다. 그 뒤는 아직 커밋 전인 앞 번호가 있을 수 있어서 다음 읽기를 기다린다.
+ * emitter.send 는 구독마다 applicationTaskExecutor 에서 한번에 하나씩 돌린다. 느린 클라이언트가 테이블 읽기나 다른 구독을 막지 않는다.
+ */
+@Component
+@Slf4j
+public class SseChangeStream implements SmartLifecycle {
+
+    // 보내지 못하고 쌓아둘 수 있는 이벤트 수. 넘으면 연결을 끊고 클라이언트가 Last-Event-ID 로 다시 붙게 한다.
+    private static final int MAX_PENDING = 10_000;
+
+    private final OutboxRepository outboxRepository;
+    private final AsyncTaskExecutor taskExecutor;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    @Value("${book.outbox.sse-timeout:30m}")
+    private Duration timeout = Duration.ofMinutes(30);
+
+    @Value("${book.outbox.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${book.outbox.flush-interval:200ms}")
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    @Value("${book.outbox.settle-delay:10s}")
+    private Duration settleDelay = Duration.ofSeconds(10);
+
+    // 이 인스턴스가 테이블에서 읽어 구독자에게 넘긴 마지막 seq. 처음 읽기 전에는 -1
+    private volatile long tailSeq = -1;
+
+    private ScheduledExecutorService scheduler;
+
+    public SseChangeStream(OutboxRepository outboxRepository,
+                           @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor) {
+        this.outboxRepository = outboxRepository;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-sse-tail");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::tailSafely, 0, flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        for (Subscription subscription : subscriptions) {
+            close(subscription, null);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    // since 가 없으면 지금부터 생기는 변경만 받는다.
+    public SseEmitter subscribe(Long since) {
+        return subscribe(new SseEmitter(timeout.toMillis()), since);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Long since) {
+        Subscription subscription = new Subscription(emitter, since == null ? Math.max(tailSeq, 0) : since);
+        subscriptions.add(subscription);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(() -> subscriptions.remove(subscription));
+        emitter.onError(e -> subscriptions.remove(subscription));
+        schedule(subscription, () -> catchUp(subscription));
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    // 테이블에서 새로 커밋된 이벤트를 읽어 구독마다 넘긴다. 처음에는 지금 마지막 seq 에서 시작한다.
+    void tail() {
+        if (tailSeq < 0) {
+            tailSeq = outboxRepository.maxSeq();
+            return;
+        }
+        while (true) {
+            List<ChangeEvent> ready = OutboxRelay.settled(tailSeq, outboxRepository.findAfter(tailSeq, batchSize), settleDelay);
+            if (ready.isEmpty()) {
+                return;
+            }
+            // 구독자에게 넘기기 전에 먼저 올려야, 지금 막 구독한 쪽이 이 이벤트를 테이블에서 따라잡거나 pending 으로 받는다.
+            tailSeq = ready.get(ready.size() - 1).seq();
+            for (Subscription subscription : subscriptions) {
+                offer(subscription, ready);
+            }
+            if (ready.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private void tailSafely() {
+        try {
+            tail();
+        } catch (RuntimeException e) {
+            log.warn("change stream tail failed. tailSeq={}", tailSeq, e);
+        }
+    }
+
+    private void offer(Subscription subscription, List<ChangeEvent> events) {
+        synchronized (subscription) {
+            if (subscription.pending.size() + events.size() > MAX_PENDING) {
+                subscription.pending.clear();
+                subscription.closing = true;
+            } else {
+                subscription.pending.addAll(events);
+            }
+            if (subscription.catchingUp || subscription.sending) {
+                return;
+            }
+            subscription.sending = true;
+        }
+        schedule(subscription, () -> flush(subscription));
+    }
+
+    private void catchUp(Subscription subscription) {
+        try {
+            long until = tailSeq;
+            while (subscription.lastSent < until) {
+                List<ChangeEvent> batch = outboxRepository.findAfter(subscription.lastSent, batchSize);
+                List<ChangeEvent> visible = new ArrayList<>(batch.size());
+                for (ChangeEvent event : batch) {
+                    if (event.seq() <= until) {
+                        visible.add(event);
+                    }
+                }
+                if (visible.isEmpty()) {
+                    break;
+                }
+                if (!send(subscription, visible)) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("change stream catch-up failed", e);
+            close(subscription, e);
+            return;
+        }
+        synchronized (subscription) {
+            subscription.catchingUp = false;
+        }
+        flush(subscription);
+    }
+
+    // pending 이 빌 때까지 보낸다. 한 구독에서는 catchUp 이나 flush 하나만 돈다.
+    private void flush(Subscription subscription) {
+        while (true) {
+            List<ChangeEvent> events;
+            synchronized (subscription) {
+                if (subscription.closing) {
+                    close(subscription, null);
+                    return;
+                }
+                if (subscription.pending.isEmpty()) {
+                    subscription.sending = false;
+                    return;
+                }
+                events = new ArrayList<>(subscription.pending);
+                subscription.pending.clear();
+            }
+            if (!send(subscription, events)) {
+                return;
+            }
+        }
+    }
+
+    private void schedule(Subscription subscription, Runnable task) {
+        try {
+            taskExecutor.execute(task);
+        } catch (RuntimeException e) {
+            log.warn("change stream delivery rejected", e);
+            close(subscription, e);
+        }
+    }
+
+    // seq 가 이미 보낸 것보다 작거나 같으면 건너뛴다. 보내다 끊기면 구독을 정리하고 false
+    private boolean send(Subscription subscription, List<ChangeEvent> events) {
+        try {
+            for (ChangeEvent event : events) {
+                if (event.seq() <= subscription.lastSent) {
+                    continue;
+                }
+                subscription.emitter.send(SseEmitter.event()
+                        .id(Long.toString(event.seq()))
+                        .name(event.type().name())
+                        .data(event, MediaType.APPLICATION_JSON));
+                subscription.lastSent = event.seq();
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            close(subscription, e);
+            return false;
+        }
+    }
+
+    private void close(Subscription subscription, Exception cause) {
+        subscriptions.remove(subscription);
+        if (cause == null) {
+            subscription.emitter.complete();
+        } else {
+            subscription.emitter.completeWithError(cause);
+        }
+    }
+
+    private static final class Subscription {
+        private final SseEmitter emitter;
+        // pending, catchingUp, sending, closing 은 Subscription 으로 동기화한다.
+        private final List<ChangeEvent> pending = new ArrayList<>();
+        private boolean catchingUp = true;
+        private boolean sending = true;
+        private boolean closing;
+        // catchUp, flush 중 지금 도는 하나만 쓴다.
+        private volatile long lastSent;
+
+        private Subscription(SseEmitter emitter, long since) {
+            this.emitter = emitter;
+            this.lastSent = since;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package book.reactive;
+
+import book.common.CommonResponse;
+import book.dto.ResponseBookDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * BookApiController 의 조회 API 중 by-category, by-author-and-title 을 같은 경로로 제공하는 WebFlux 핸들러.
+ * Accept 가 application/x-ndjson 이면 한 줄에 한 권씩, 아니면 JSON 배열로 내려준다. 어느 쪽이든 결과를 모아두지 않고
+ * 소켓에 쓸 수 있는 만큼만 DB 에서 읽는다.
+ */
+@RequiredArgsConstructor
+public class ReactiveBookHandler {
+
+    private final ReactiveBookRepository reactiveBookRepository;
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .GET("/books/by-category/{categoryId}", this::getBooksByCategory)
+                .GET("/books/by-author-and-title", this::getBooksByAuthorAndTitle)
+                .build();
+    }
+
+    public Mono<ServerResponse> getBooksByCategory(ServerRequest request) {
+        long categoryId;
+        try {
+            categoryId = Long.parseLong(request.pathVariable("categoryId"));
+        } catch (NumberFormatException e) {
+            return error(HttpStatus.BAD_REQUEST, "categoryId must be a number");
+        }
+        return reactiveBookRepository.existsCategory(categoryId)
+                .flatMap(exists -> exists
+                        ? books(request, reactiveBookRepository.findAllByCategory(categoryId))
+                        : error(HttpStatus.NOT_FOUND, "Category not found with id: " + categoryId));
+    }
+
+    public Mono<ServerResponse> getBooksByAuthorAndTitle(ServerRequest request) {
+        Optional<String> author = request.queryParam("author").filter(StringUtils::hasText);
+        Optional<String> title = request.queryParam("title").filter(StringUtils::hasText);
+        if (author.isEmpty() || title.isEmpty()) {
+            return error(HttpStatus.BAD_REQUEST, "author and title are required");
+        }
+        return books(request, reactiveBookRepository.findAllByAuthorAndTitle(author.get(), title.get()));
+    }
+
+    private Mono<ServerResponse> books(ServerRequest request, Flux<ResponseBookDto> books) {
+        MediaType contentType = request.headers().accept().contains(MediaType.APPLICATION_NDJSON)
+                ? MediaType.APPLICATION_NDJSON
+                : MediaType.APPLICATION_JSON;
+        return ServerResponse.ok()
+                .contentType(contentType)
+                .body(books, ResponseBookDto.class);
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, String message) {
+        return ServerResponse.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new CommonResponse(false, message));
+    }
+}
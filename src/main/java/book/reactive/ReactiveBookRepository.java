@@ -0,0 +1,65 @@
+package book.reactive;
+
+import book.dto.ResponseBookDto;
+import io.r2dbc.pool.ConnectionPool;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * BookRepository 의 조회 쿼리를 R2DBC 로 옮긴 것. 같은 스키마(book, book_category, category)를 그대로 읽는다.
+ * Flux 는 구독하는 쪽이 요청한 만큼만 드라이버에서 행을 꺼내기 때문에, 응답을 느리게 받는 클라이언트가 있어도
+ * 결과 전체가 메모리에 쌓이지 않는다.
+ *
+ * ConnectionFactory 를 빈으로 등록하면 스프링 부트가 JDBC DataSource 자동 설정을 끄기 때문에 풀은 여기서 직접 들고 있는다.
+ */
+public class ReactiveBookRepository implements DisposableBean {
+
+    private final ConnectionPool connectionPool;
+    private final DatabaseClient databaseClient;
+
+    public ReactiveBookRepository(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+        this.databaseClient = DatabaseClient.create(connectionPool);
+    }
+
+    // BookRepository.findAllByCategory 와 같은 결과를 id 순서로 흘려보낸다.
+    public Flux<ResponseBookDto> findAllByCategory(long categoryId) {
+        return databaseClient.sql("select b.id, b.title, b.author from book b " +
+                        "join book_category bc on bc.book_id = b.id " +
+                        "where bc.category_id = :categoryId order by b.id")
+                .bind("categoryId", categoryId)
+                .map((row, metadata) -> ResponseBookDto.builder()
+                        .bookId(row.get(0, Long.class))
+                        .title(row.get(1, String.class))
+                        .author(row.get(2, String.class))
+                        .build())
+                .all();
+    }
+
+    public Flux<ResponseBookDto> findAllByAuthorAndTitle(String author, String title) {
+        return databaseClient.sql("select id, title, author from book where author = :author and title = :title order by id")
+                .bind("author", author)
+                .bind("title", title)
+                .map((row, metadata) -> ResponseBookDto.builder()
+                        .bookId(row.get(0, Long.class))
+                        .title(row.get(1, String.class))
+                        .author(row.get(2, String.class))
+                        .build())
+                .all();
+    }
+
+    public Mono<Boolean> existsCategory(long categoryId) {
+        return databaseClient.sql("select id from category where id = :categoryId")
+                .bind("categoryId", categoryId)
+                .map((row, metadata) -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+}
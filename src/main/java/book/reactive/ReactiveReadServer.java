@@ -0,0 +1,55 @@
+package book.reactive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * 읽기 전용 WebFlux API 를 MVC(Tomcat)와 다른 포트의 Reactor Netty 서버로 띄운다.
+ * 애플리케이션은 서블릿 모드로 뜨기 때문에 스프링 부트가 reactive 서버를 만들어주지 않는다.
+ */
+@Slf4j
+public class ReactiveReadServer implements SmartLifecycle {
+
+    private final HttpHandler httpHandler;
+    private final int port;
+
+    private volatile DisposableServer server;
+
+    public ReactiveReadServer(HttpHandler httpHandler, int port) {
+        this.httpHandler = httpHandler;
+        this.port = port;
+    }
+
+    @Override
+    public void start() {
+        server = HttpServer.create()
+                .port(port)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        log.info("reactive read server started on port {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer current = server;
+        if (current != null) {
+            current.disposeNow();
+            server = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    // 실제로 열린 포트. book.reactive.port=0 이면 임의 포트가 열린다.
+    public int port() {
+        DisposableServer current = server;
+        return current == null ? -1 : current.port();
+    }
+}
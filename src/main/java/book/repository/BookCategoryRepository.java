@@ -3,14 +3,24 @@ package book.repository;
 import book.entity.Book;
 import book.entity.BookCategory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface BookCategoryRepository extends JpaRepository<BookCategory, Long> {
     @Query("select bc from BookCategory bc where bc.book = :book")
     List<BookCategory> findAllByBook(@Param(value = "book") Book book);
+
+    @Query("select bc.category.id from BookCategory bc where bc.book.id = :bookId")
+    List<Long> findCategoryIdsByBookId(@Param(value = "bookId") Long bookId);
+
+    // 엔티티를 하나씩 지우지 않고 delete 한번으로 처리
+    @Modifying(flushAutomatically = true)
+    @Query("delete from BookCategory bc where bc.book.id = :bookId and bc.category.id in :categoryIds")
+    int deleteAllByBookIdAndCategoryIdIn(@Param(value = "bookId") Long bookId, @Param(value = "categoryIds") Collection<Long> categoryIds);
 }
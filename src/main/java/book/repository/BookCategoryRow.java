@@ -0,0 +1,4 @@
+package book.repository;
+
+public record BookCategoryRow(long bookId, long categoryId) {
+}
@@ -0,0 +1,266 @@
+package book.repository;
+
+import book.dto.ResponseBookDto;
+import book.enums.BookStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * JPA 로 엔티티를 올리지 않고 JDBC 로 바로 처리하는 쿼리 모음.
+ * 결과를 한번에 메모리에 올리면 안되는 대용량 조회는 여기서 forward-only 커서로 흘려보낸다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookJdbcRepository implements CatalogSource {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // MySQL 은 url 에 useCursorFetch=true 가 있어야 fetchSize 만큼 끊어서 가져온다.
+    @Value("${book.stream.fetch-size:1000}")
+    private int fetchSize = 1000;
+
+    public void streamByCategory(Long categoryId, Consumer<ResponseBookDto> consumer) {
+        jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(
+                            "select b.id, b.title, b.author from book b " +
+                                    "join book_category bc on bc.book_id = b.id " +
+                                    "where bc.category_id = ? order by b.id",
+                            ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    ps.setLong(1, categoryId);
+                    return ps;
+                },
+                rs -> {
+                    consumer.accept(ResponseBookDto.builder()
+                            .bookId(rs.getLong(1))
+                            .title(rs.getString(2))
+                            .author(rs.getString(3))
+                            .build());
+                });
+    }
+
+    /**
+     * book 을 한번의 batch 로 insert 하고 생성된 id 를 넘겨받은 순서대로 돌려준다.
+     * IDENTITY 전략이라 Hibernate 는 batch insert 를 못하기 때문에 JDBC 로 직접 넣는다.
+     * MySQL 은 rewriteBatchedStatements=true 로 multi-row insert 로 바뀐다.
+     */
+    public long[] insertBooks(List<NewBookRow> rows) {
+        if (rows.isEmpty()) {
+            return new long[0];
+        }
+        return jdbcTemplate.execute((ConnectionCallback<long[]>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(
+                    "insert into book (title, author, status) values (?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (NewBookRow row : rows) {
+                    ps.setString(1, row.title());
+                    ps.setString(2, row.author());
+                    ps.setString(3, row.status().name());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                long[] ids = new long[rows.size()];
+                int n = 0;
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next() && n < ids.length) {
+                        ids[n++] = keys.getLong(1);
+                    }
+                }
+                if (n != ids.length) {
+                    throw new IllegalStateException("generated key count mismatch. expected=" + ids.length + ", actual=" + n);
+                }
+                return ids;
+            }
+        });
+    }
+
+    public void insertBookCategories(List<BookCategoryRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("insert into book_category (book_id, category_id) values (?, ?)",
+                rows,
+                rows.size(),
+                (ps, row) -> {
+                    ps.setLong(1, row.bookId());
+                    ps.setLong(2, row.categoryId());
+                });
+    }
+
+    public void deleteBookCategories(List<BookCategoryRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("delete from book_category where book_id = ? and category_id = ?",
+                rows,
+                rows.size(),
+                (ps, row) -> {
+                    ps.setLong(1, row.bookId());
+                    ps.setLong(2, row.categoryId());
+                });
+    }
+
+    public List<BookCategoryRow> findBookCategoriesByBookIds(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(",", Collections.nCopies(bookIds.size(), "?"));
+        List<BookCategoryRow> rows = new ArrayList<>();
+        jdbcTemplate.query("select book_id, category_id from book_category where book_id in (" + placeholders + ")",
+                rs -> {
+                    rows.add(new BookCategoryRow(rs.getLong(1), rs.getLong(2)));
+                },
+                bookIds.toArray());
+        return rows;
+    }
+
+    public Optional<BookStatusRow> findStatus(long bookId) {
+        List<BookStatusRow> rows = jdbcTemplate.query("select id, status, version from book where id = ?",
+                (rs, rowNum) -> new BookStatusRow(rs.getLong(1), toStatus(rs.getString(2)), rs.getLong(3)),
+                bookId);
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * 읽었던 version 그대로일 때만 상태를 바꾼다. 행 잠금은 UPDATE 한 문장 동안만 잡힌다.
+     * false 면 그 사이 다른 요청이 먼저 바꾼 것이다.
+     */
+    public boolean updateStatusIfVersion(long bookId, BookStatus status, long expectedVersion) {
+        return jdbcTemplate.update("update book set status = ?, version = version + 1 where id = ? and version = ?",
+                status.name(), bookId, expectedVersion) == 1;
+    }
+
+    // bookIds 중 status 가 아닌 도서 id 를 잠그면서 읽는다. 여러 요청이 겹쳐도 교착되지 않게 id 순으로 잠근다.
+    public List<Long> lockIdsWithStatusOtherThan(Collection<Long> bookIds, BookStatus status) {
+        if (bookIds.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(",", Collections.nCopies(bookIds.size(), "?"));
+        List<Object> args = new ArrayList<>(bookIds.size() + 1);
+        args.addAll(bookIds);
+        args.add(status.name());
+        return jdbcTemplate.queryForList("select id from book " +
+                        "where id in (" + placeholders + ") and (status is null or status <> ?) order by id for update",
+                Long.class, args.toArray());
+    }
+
+    // 이미 같은 상태인 행은 건드리지 않고 한 문장으로 바꾼다. 실제로 바뀐 행 수를 돌려준다.
+    public int updateStatusAll(Collection<Long> bookIds, BookStatus status) {
+        if (bookIds.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(",", Collections.nCopies(bookIds.size(), "?"));
+        List<Object> args = new ArrayList<>(bookIds.size() + 2);
+        args.add(status.name());
+        args.addAll(bookIds);
+        args.add(status.name());
+        return jdbcTemplate.update("update book set status = ?, version = version + 1 " +
+                        "where id in (" + placeholders + ") and (status is null or status <> ?)",
+                args.toArray());
+    }
+
+    // 인메모리 색인을 만들 때 사용. book 테이블 전체를 id 순으로 흘려보낸다.
+    @Override
+    public void streamAllBooks(Consumer<BookRow> consumer) {
+        jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(
+                            "select id, title, author, status from book order by id",
+                            ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    return ps;
+                },
+                rs -> {
+                    consumer.accept(new BookRow(rs.getLong(1), rs.getString(2), rs.getString(3), toStatus(rs.getString(4))));
+                });
+    }
+
+    // 카탈로그 스냅샷 파일에서 배열 자리를 잡을 때 사용.
+    public int countBooks() {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from book", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    public int countBookCategories() {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from book_category", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    // 카테고리 목록 스냅샷을 만들 때 사용. 한 카테고리의 도서를 id 순으로 흘려보낸다.
+    public void streamCategoryBooks(long categoryId, Consumer<BookRow> consumer) {
+        jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(
+                            "select b.id, b.title, b.author, b.status from book b " +
+                                    "join book_category bc on bc.book_id = b.id " +
+                                    "where bc.category_id = ? order by b.id",
+                            ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    ps.setLong(1, categoryId);
+                    return ps;
+                },
+                rs -> {
+                    consumer.accept(new BookRow(rs.getLong(1), rs.getString(2), rs.getString(3), toStatus(rs.getString(4))));
+                });
+    }
+
+    @Override
+    public void streamAllBookCategories(BookCategoryRowHandler handler) {
+        jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(
+                            "select book_id, category_id from book_category order by book_id",
+                            ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    return ps;
+                },
+                rs -> {
+                    handler.accept(rs.getLong(1), rs.getLong(2));
+                });
+    }
+
+    /**
+     * 카탈로그 전체 내보내기. book ⋈ book_category ⋈ category 를 한 커서로 도서 id, 카테고리 id 순서로 흘려보낸다.
+     * 같은 도서의 행은 붙어서 나오므로 받는 쪽은 한 권씩만 모으면 된다. 카테고리가 없는 도서도 한 행 나온다.
+     */
+    public void streamCatalog(Consumer<CatalogRow> consumer) {
+        jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(
+                            "select b.id, b.title, b.author, b.status, c.id, c.name from book b " +
+                                    "left join book_category bc on bc.book_id = b.id " +
+                                    "left join category c on c.id = bc.category_id " +
+                                    "order by b.id, bc.category_id",
+                            ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    return ps;
+                },
+                rs -> {
+                    // wasNull 은 마지막으로 읽은 컬럼 기준이라 getLong(5) 바로 다음에 본다.
+                    long categoryId = rs.getLong(5);
+                    Long nullableCategoryId = rs.wasNull() ? null : categoryId;
+                    consumer.accept(new CatalogRow(rs.getLong(1), rs.getString(2), rs.getString(3), toStatus(rs.getString(4)),
+                            nullableCategoryId, rs.getString(6)));
+                });
+    }
+
+    // status 가 비어있는 예전 데이터는 컬럼 기본값과 같이 AVAILABLE 로 본다.
+    static BookStatus toStatus(String status) {
+        return status == null ? BookStatus.AVAILABLE : BookStatus.valueOf(status);
+    }
+}
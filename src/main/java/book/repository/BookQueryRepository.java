@@ -0,0 +1,79 @@
+package book.repository;
+
+import book.dto.BookSummaryDto;
+import book.dto.CategorySummaryDto;
+import book.entity.QBook;
+import book.entity.QBookCategory;
+import book.entity.QCategory;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * QueryDSL 프로젝션 조회.
+ * 엔티티를 영속성 컨텍스트에 올리지 않고 필요한 컬럼만 가져오기 때문에 Lazy 로딩, dirty checking 이 일어나지 않는다.
+ * 도서 목록 1번, 도서들의 카테고리 1번 해서 결과 건수와 상관없이 쿼리는 항상 2번이다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookQueryRepository {
+
+    private static final QBook book = QBook.book;
+    private static final QBookCategory bookCategory = QBookCategory.bookCategory;
+    private static final QCategory category = QCategory.category;
+
+    private final JPAQueryFactory queryFactory;
+
+    public List<BookSummaryDto> findSummariesByCategory(Long categoryId) {
+        List<Tuple> bookRows = queryFactory
+                .select(book.id, book.title, book.author, book.status)
+                .from(bookCategory)
+                .join(bookCategory.book, book)
+                .where(bookCategory.category.id.eq(categoryId))
+                .orderBy(book.id.asc())
+                .fetch();
+
+        if (bookRows.isEmpty()) {
+            return List.of();
+        }
+
+        // 도서 id 를 IN 으로 넘기면 건수만큼 파라미터가 늘어나니 같은 조건을 서브쿼리로 다시 건다.
+        QBookCategory target = new QBookCategory("target");
+        List<Tuple> categoryRows = queryFactory
+                .select(bookCategory.book.id, category.id, category.name)
+                .from(bookCategory)
+                .join(bookCategory.category, category)
+                .where(bookCategory.book.id.in(
+                        JPAExpressions.select(target.book.id)
+                                .from(target)
+                                .where(target.category.id.eq(categoryId))))
+                .orderBy(bookCategory.book.id.asc(), category.id.asc())
+                .fetch();
+
+        Map<Long, List<CategorySummaryDto>> categoriesByBookId = new HashMap<>(bookRows.size() * 2);
+        for (Tuple row : categoryRows) {
+            categoriesByBookId
+                    .computeIfAbsent(row.get(bookCategory.book.id), id -> new ArrayList<>(2))
+                    .add(new CategorySummaryDto(row.get(category.id), row.get(category.name)));
+        }
+
+        List<BookSummaryDto> result = new ArrayList<>(bookRows.size());
+        for (Tuple row : bookRows) {
+            Long bookId = row.get(book.id);
+            result.add(new BookSummaryDto(
+                    bookId,
+                    row.get(book.title),
+                    row.get(book.author),
+                    row.get(book.status),
+                    categoriesByBookId.get(bookId)));
+        }
+        return result;
+    }
+}
@@ -2,11 +2,13 @@ package book.repository;
 
 import book.entity.Book;
 import book.entity.Category;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,6 +16,13 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     @Query("select b from Book b join b.bookCategories bc where bc.category = :category")
     List<Book> findAllByCategory(@Param(value = "category") Category category);
 
+    // offset 이 아닌 book.id 기준 keyset 페이징. 뒤 페이지로 갈수록 느려지지 않는다.
+    @Query("select b from Book b join b.bookCategories bc where bc.category = :category and b.id > :cursor order by b.id")
+    List<Book> findPageByCategory(@Param(value = "category") Category category, @Param(value = "cursor") Long cursor, Pageable pageable);
+
+    @Query("select b.id from Book b where b.id in :ids")
+    List<Long> findIdsByIdIn(@Param(value = "ids") Collection<Long> ids);
+
     // 정확한 제목, 정확한 지은이가 아닌 글자로 검색하는 ex) "가" 로 검색한다면 가지, 가마 이렇게 나오는 걸 요구한다면 %% 사용해서 쿼리를 바꿀 필요 있음.
     @Query("select b from Book b where b.author = :author and b.title = :title")
     List<Book> findAllByAuthorAndTitle(@Param(value = "author") String author, @Param(value = "title") String title);
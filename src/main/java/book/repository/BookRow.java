@@ -0,0 +1,7 @@
+package book.repository;
+
+import book.enums.BookStatus;
+
+// 카탈로그 전체를 훑을 때 한 행씩 넘겨주는 값. 엔티티를 만들지 않는다.
+public record BookRow(long id, String title, String author, BookStatus status) {
+}
@@ -0,0 +1,7 @@
+package book.repository;
+
+import book.enums.BookStatus;
+
+// 상태 변경 때 엔티티 대신 읽는 값. version 은 조건부 UPDATE 의 비교값으로 쓴다.
+public record BookStatusRow(long id, BookStatus status, long version) {
+}
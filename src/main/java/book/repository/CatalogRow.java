@@ -0,0 +1,7 @@
+package book.repository;
+
+import book.enums.BookStatus;
+
+// 카탈로그 내보내기 조인 결과 한 행. 카테고리가 없는 도서는 categoryId, categoryName 이 null
+public record CatalogRow(long bookId, String title, String author, BookStatus status, Long categoryId, String categoryName) {
+}
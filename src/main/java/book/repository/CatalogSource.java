@@ -0,0 +1,19 @@
+package book.repository;
+
+import java.util.function.Consumer;
+
+/**
+ * 인메모리 색인을 처음부터 만들 때 읽는 카탈로그 원본. DB(BookJdbcRepository) 또는 디스크의 카탈로그 스냅샷이다.
+ * 두 메서드 모두 도서 id 순서로 흘려보낸다.
+ */
+public interface CatalogSource {
+
+    void streamAllBooks(Consumer<BookRow> consumer);
+
+    void streamAllBookCategories(BookCategoryRowHandler handler);
+
+    @FunctionalInterface
+    interface BookCategoryRowHandler {
+        void accept(long bookId, long categoryId);
+    }
+}
@@ -0,0 +1,41 @@
+package book.repository;
+
+import book.enums.CategoryHistoryOp;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class CategoryHistoryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(List<CategoryHistoryRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("insert into book_category_history (book_id, category_id, op, ts) values (?, ?, ?, ?)",
+                rows,
+                rows.size(),
+                (ps, row) -> {
+                    ps.setLong(1, row.bookId());
+                    ps.setLong(2, row.categoryId());
+                    ps.setString(3, row.op().name());
+                    ps.setLong(4, row.ts());
+                });
+    }
+
+    // asOf 까지의 이력을 일어난 순서대로. (book_id, ts) 인덱스 범위만 읽고 정렬도 인덱스 순서 그대로다.
+    public List<CategoryHistoryRow> findByBookIdUpTo(long bookId, long asOf) {
+        return jdbcTemplate.query("select book_id, category_id, op, ts from book_category_history " +
+                        "where book_id = ? and ts <= ? order by ts, id",
+                (rs, rowNum) -> new CategoryHistoryRow(rs.getLong(1),
+                        rs.getLong(2),
+                        CategoryHistoryOp.valueOf(rs.getString(3)),
+                        rs.getLong(4)),
+                bookId, asOf);
+    }
+}
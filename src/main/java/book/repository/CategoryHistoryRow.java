@@ -0,0 +1,7 @@
+package book.repository;
+
+import book.enums.CategoryHistoryOp;
+
+// book_category_history 한 행. ts 는 epoch millis
+public record CategoryHistoryRow(long bookId, long categoryId, CategoryHistoryOp op, long ts) {
+}
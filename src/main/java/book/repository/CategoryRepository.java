@@ -4,7 +4,11 @@ import book.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
 
+    // 이름은 유니크가 아니라서 같은 이름이 여럿이면 먼저 만들어진 것
+    Optional<Category> findFirstByNameOrderByIdAsc(String name);
 }
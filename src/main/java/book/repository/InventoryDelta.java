@@ -0,0 +1,5 @@
+package book.repository;
+
+// 한 인스턴스가 book_inventory 에 더하거나 뺄 권수. 돌려주는 몫(unleased)과 파손, 분실은 모두 reserved 에서 빠진다.
+public record InventoryDelta(long bookId, int unleasedCopies, int damagedCopies, int lostCopies) {
+}
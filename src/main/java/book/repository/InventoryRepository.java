@@ -0,0 +1,81 @@
+package book.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class InventoryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<InventoryRow> findByBookId(long bookId) {
+        return jdbcTemplate.query("select book_id, total_copies, reserved_copies, damaged_copies, lost_copies " +
+                                "from book_inventory where book_id = ?",
+                        (rs, rowNum) -> new InventoryRow(rs.getLong(1), rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getInt(5)),
+                        bookId)
+                .stream()
+                .findFirst();
+    }
+
+    // 이미 있으면 false. 동시에 처음 등록하는 요청은 하나만 넣고 나머지는 있는 행을 고치는 쪽으로 간다.
+    public boolean insertIfAbsent(InventoryRow row) {
+        try {
+            jdbcTemplate.update("insert into book_inventory (book_id, total_copies, reserved_copies, damaged_copies, lost_copies, updated_at) " +
+                            "values (?, ?, ?, ?, ?, ?)",
+                    row.bookId(), row.totalCopies(), row.reservedCopies(), row.damagedCopies(), row.lostCopies(),
+                    System.currentTimeMillis());
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 남은 권수에서 count 권을 이 인스턴스 몫으로 받아 reserved 에 더한다. 남은 권수가 모자라면 false
+     * 조건과 더하기를 한 문장으로 해서, 여러 인스턴스가 동시에 받아도 total - damaged - lost 보다 많이 나가지 않는다.
+     */
+    public boolean lease(long bookId, int count) {
+        return jdbcTemplate.update("update book_inventory set reserved_copies = reserved_copies + ?, updated_at = ? " +
+                        "where book_id = ? and total_copies - damaged_copies - lost_copies - reserved_copies >= ?",
+                count, System.currentTimeMillis(), bookId, count) == 1;
+    }
+
+    // 다른 인스턴스에서 빌려 간 책을 바로 돌려받는다. damaged + lost 는 count 중 다시 빌려주지 않을 권수. reserved 가 count 보다 적으면 false
+    public boolean releaseReserved(long bookId, int count, int damaged, int lost) {
+        return jdbcTemplate.update("update book_inventory set reserved_copies = reserved_copies - ?, damaged_copies = damaged_copies + ?, " +
+                        "lost_copies = lost_copies + ?, updated_at = ? where book_id = ? and reserved_copies >= ?",
+                count, damaged, lost, System.currentTimeMillis(), bookId, count) == 1;
+    }
+
+    // 전체, 파손, 분실 권수를 바꾼다. 바꾼 뒤 남은 권수가 reserved 보다 적어지면 바꾸지 않고 false
+    public boolean updateCopies(long bookId, int total, int damaged, int lost) {
+        return jdbcTemplate.update("update book_inventory set total_copies = ?, damaged_copies = ?, lost_copies = ?, updated_at = ? " +
+                        "where book_id = ? and ? - ? - ? >= reserved_copies",
+                total, damaged, lost, System.currentTimeMillis(), bookId, total, damaged, lost) == 1;
+    }
+
+    // 인스턴스마다 모아둔 변경을 지금 값에 더한다. 다른 인스턴스가 쓴 값을 덮어쓰지 않는다.
+    public void applyDeltas(List<InventoryDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        jdbcTemplate.batchUpdate("update book_inventory set reserved_copies = reserved_copies - ?, damaged_copies = damaged_copies + ?, " +
+                        "lost_copies = lost_copies + ?, updated_at = ? where book_id = ?",
+                deltas,
+                deltas.size(),
+                (ps, delta) -> {
+                    ps.setInt(1, delta.unleasedCopies() + delta.damagedCopies() + delta.lostCopies());
+                    ps.setInt(2, delta.damagedCopies());
+                    ps.setInt(3, delta.lostCopies());
+                    ps.setLong(4, now);
+                    ps.setLong(5, delta.bookId());
+                });
+    }
+}
@@ -0,0 +1,9 @@
+package book.repository;
+
+// book_inventory 한 행. 빌려줄 수 있는 권수는 따로 두지 않고 total - reserved - damaged - lost 로 구한다.
+public record InventoryRow(long bookId, int totalCopies, int reservedCopies, int damagedCopies, int lostCopies) {
+
+    public int availableCopies() {
+        return totalCopies - reservedCopies - damagedCopies - lostCopies;
+    }
+}
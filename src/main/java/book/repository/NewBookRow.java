@@ -0,0 +1,6 @@
+package book.repository;
+
+import book.enums.BookStatus;
+
+public record NewBookRow(String title, String author, BookStatus status) {
+}
@@ -0,0 +1,7 @@
+package book.repository;
+
+import book.enums.ChangeEventType;
+
+// outbox 에 넣을 이벤트 한 건. payload 는 이벤트를 직렬화한 JSON
+public record NewOutboxRow(ChangeEventType type, long bookId, String payload) {
+}
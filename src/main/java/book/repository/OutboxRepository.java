@@ -0,0 +1,81 @@
+package book.repository;
+
+import book.enums.ChangeEventType;
+import book.outbox.ChangeEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class OutboxRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(List<NewOutboxRow> rows, long createdAt) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("insert into book_change_outbox (event_type, book_id, payload, created_at) values (?, ?, ?, ?)",
+                rows,
+                rows.size(),
+                (ps, row) -> {
+                    ps.setString(1, row.type().name());
+                    ps.setLong(2, row.bookId());
+                    ps.setString(3, row.payload());
+                    ps.setLong(4, createdAt);
+                });
+    }
+
+    public List<ChangeEvent> findAfter(long seq, int limit) {
+        return jdbcTemplate.query("select seq, event_type, book_id, payload, created_at from book_change_outbox " +
+                        "where seq > ? order by seq limit ?",
+                (rs, rowNum) -> new ChangeEvent(rs.getLong(1),
+                        ChangeEventType.valueOf(rs.getString(2)),
+                        rs.getLong(3),
+                        rs.getString(4),
+                        rs.getLong(5)),
+                seq, limit);
+    }
+
+    public long maxSeq() {
+        Long seq = jdbcTemplate.queryForObject("select max(seq) from book_change_outbox", Long.class);
+        return seq == null ? 0L : seq;
+    }
+
+    // createdBefore 전에 기록된 마지막 seq. 없으면 0
+    public long findLastSeqCreatedBefore(long createdBefore) {
+        return jdbcTemplate.queryForList("select seq from book_change_outbox where created_at < ? order by seq desc limit 1",
+                        Long.class, createdBefore)
+                .stream()
+                .findFirst()
+                .orElse(0L);
+    }
+
+    public Optional<Long> findOffset(String sink) {
+        return jdbcTemplate.queryForList("select last_seq from book_change_sink_offset where sink = ?", Long.class, sink)
+                .stream()
+                .findFirst();
+    }
+
+    public void saveOffset(String sink, long seq) {
+        int updated = jdbcTemplate.update("update book_change_sink_offset set last_seq = ? where sink = ?", seq, sink);
+        if (updated == 0) {
+            try {
+                jdbcTemplate.update("insert into book_change_sink_offset (sink, last_seq) values (?, ?)", sink, seq);
+            } catch (DuplicateKeyException e) {
+                jdbcTemplate.update("update book_change_sink_offset set last_seq = ? where sink = ?", seq, sink);
+            }
+        }
+    }
+
+    // 모든 sink 가 지나갔고 보관 기간도 지난 이벤트를 limit 건씩 지운다.
+    public int deleteDelivered(long upToSeq, long createdBefore, int limit) {
+        return jdbcTemplate.update("delete from book_change_outbox where seq <= ? and created_at < ? limit ?",
+                upToSeq, createdBefore, limit);
+    }
+}
@@ -0,0 +1,6 @@
+package book.search;
+
+import book.enums.BookStatus;
+
+public record BookSearchHit(long bookId, String title, String author, BookStatus status) {
+}
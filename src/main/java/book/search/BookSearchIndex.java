@@ -0,0 +1,310 @@
+package book.search;
+
+import book.enums.BookStatus;
+import book.enums.SearchField;
+import book.enums.SearchMode;
+import book.event.BookCategoriesChangedEvent;
+import book.event.BookRegisteredEvent;
+import book.event.BookStatusChangedEvent;
+import book.repository.BookJdbcRepository;
+import book.repository.CatalogSource;
+import book.snapshot.AbstractCatalogIndex;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 제목, 지은이 검색용 인메모리 역색인.
+ * LIKE '%...%' 는 인덱스를 못 타서 book 테이블을 풀스캔 하기 때문에, 글자 단위 unigram / bigram 으로 색인해두고
+ * posting list 교집합으로 후보를 줄인 다음 원문과 비교해서 prefix, substring, exact 를 판단한다.
+ * 시작할 때 CatalogLoader 가 카탈로그 스냅샷(없으면 book 테이블)으로 한번 만들고 이후에는 BookService 에서 발행하는 이벤트로 갱신한다.
+ */
+@Component
+public class BookSearchIndex extends AbstractCatalogIndex<BookSearchIndex.IndexData> {
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder emptySearches = new LongAdder();
+
+    public BookSearchIndex(BookJdbcRepository bookJdbcRepository) {
+        super("book search index", bookJdbcRepository, new IndexData());
+    }
+
+    @Override
+    protected IndexData load(CatalogSource source) {
+        IndexData fresh = new IndexData();
+        source.streamAllBooks(row -> fresh.put(row.id(), row.title(), row.author(), row.status()));
+        source.streamAllBookCategories(fresh::addCategory);
+        return fresh;
+    }
+
+    @Override
+    protected String describe(IndexData data) {
+        return "books=" + data.books.size();
+    }
+
+    public List<BookSearchHit> search(String keyword, SearchField field, SearchMode mode, Long categoryId, int limit) {
+        String query = KeywordNormalizer.normalize(keyword);
+        if (query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        boolean choseong = KeywordNormalizer.isChoseongOnly(query);
+
+        lock.readLock().lock();
+        try {
+            long[] candidates = switch (field) {
+                case TITLE -> candidates(data.titlePostings, query);
+                case AUTHOR -> candidates(data.authorPostings, query);
+                case ALL -> union(candidates(data.titlePostings, query), candidates(data.authorPostings, query));
+            };
+
+            List<BookSearchHit> hits = new ArrayList<>(Math.min(candidates.length, limit));
+            for (long id : candidates) {
+                IndexedBook book = data.books.get(id);
+                if (book == null || !matches(book, field, mode, query, choseong)) {
+                    continue;
+                }
+                if (categoryId != null && Arrays.binarySearch(book.categoryIds, categoryId) < 0) {
+                    continue;
+                }
+                hits.add(new BookSearchHit(book.id, book.title, book.author, book.status));
+                if (hits.size() >= limit) {
+                    break;
+                }
+            }
+            searches.increment();
+            if (hits.isEmpty()) {
+                emptySearches.increment();
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 색인에 있는 도서의 제목, 지은이, 카테고리. 없으면 null
+    public BookSearchHit find(long bookId) {
+        lock.readLock().lock();
+        try {
+            IndexedBook book = data.books.get(bookId);
+            return book == null ? null : new BookSearchHit(book.id, book.title, book.author, book.status);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long[] categoryIdsOf(long bookId) {
+        lock.readLock().lock();
+        try {
+            IndexedBook book = data.books.get(bookId);
+            return book == null ? null : book.categoryIds.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return data.books.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long searchCount() {
+        return searches.sum();
+    }
+
+    // 결과가 하나도 없었던 검색 수
+    public long emptySearchCount() {
+        return emptySearches.sum();
+    }
+
+    // 재구축 후 같은 이벤트가 한번 더 들어와도 결과가 같도록 모두 멱등하게 처리한다.
+    @Override
+    protected void apply(Object event) {
+        if (event instanceof BookRegisteredEvent registered) {
+            data.put(registered.bookId(), registered.title(), registered.author(), registered.status());
+            for (Long categoryId : registered.categoryIds()) {
+                data.addCategory(registered.bookId(), categoryId);
+            }
+        } else if (event instanceof BookStatusChangedEvent statusChanged) {
+            IndexedBook book = data.books.get(statusChanged.bookId());
+            if (book != null) {
+                book.status = statusChanged.status();
+            }
+        } else if (event instanceof BookCategoriesChangedEvent categoriesChanged) {
+            for (Long categoryId : categoriesChanged.removedCategoryIds()) {
+                data.removeCategory(categoriesChanged.bookId(), categoryId);
+            }
+            for (Long categoryId : categoriesChanged.addedCategoryIds()) {
+                data.addCategory(categoriesChanged.bookId(), categoryId);
+            }
+        }
+    }
+
+    private static boolean matches(IndexedBook book, SearchField field, SearchMode mode, String query, boolean choseong) {
+        return switch (field) {
+            case TITLE -> matches(choseong ? book.titleChoseong : book.normalizedTitle, mode, query);
+            case AUTHOR -> matches(choseong ? book.authorChoseong : book.normalizedAuthor, mode, query);
+            case ALL -> matches(choseong ? book.titleChoseong : book.normalizedTitle, mode, query)
+                    || matches(choseong ? book.authorChoseong : book.normalizedAuthor, mode, query);
+        };
+    }
+
+    private static boolean matches(String text, SearchMode mode, String query) {
+        return switch (mode) {
+            case EXACT -> text.equals(query);
+            case PREFIX -> text.startsWith(query);
+            case SUBSTRING -> text.contains(query);
+        };
+    }
+
+    // 검색어의 모든 토큰을 가진 도서 id. posting list 가 짧은 것부터 교집합을 구한다.
+    private static long[] candidates(Map<Integer, LongPostingList> postings, String query) {
+        int[] tokens = queryTokens(query);
+        LongPostingList[] lists = new LongPostingList[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            lists[i] = postings.get(tokens[i]);
+            if (lists[i] == null) {
+                return new long[0];
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(LongPostingList::size));
+
+        long[] result = lists[0].toArray();
+        for (int i = 1; i < lists.length && result.length > 0; i++) {
+            result = lists[i].intersect(result);
+        }
+        return result;
+    }
+
+    private static long[] union(long[] a, long[] b) {
+        long[] result = new long[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length || j < b.length) {
+            long next;
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            result[n++] = next;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    // 한 글자 검색어는 unigram, 두 글자 이상은 bigram 만으로 후보를 찾는다.
+    private static int[] queryTokens(String query) {
+        if (query.length() == 1) {
+            return new int[]{query.charAt(0)};
+        }
+        int[] tokens = new int[query.length() - 1];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = bigram(query.charAt(i), query.charAt(i + 1));
+        }
+        return tokens;
+    }
+
+    private static int bigram(char first, char second) {
+        return (first << 16) | second;
+    }
+
+    static final class IndexData {
+        private final Map<Long, IndexedBook> books = new HashMap<>();
+        private final Map<Integer, LongPostingList> titlePostings = new HashMap<>();
+        private final Map<Integer, LongPostingList> authorPostings = new HashMap<>();
+
+        private void put(long id, String title, String author, BookStatus status) {
+            IndexedBook book = books.get(id);
+            if (book == null) {
+                book = new IndexedBook(id);
+                books.put(id, book);
+            }
+            book.title = title;
+            book.author = author;
+            book.normalizedTitle = KeywordNormalizer.normalize(title);
+            book.normalizedAuthor = KeywordNormalizer.normalize(author);
+            book.titleChoseong = KeywordNormalizer.choseong(book.normalizedTitle);
+            book.authorChoseong = KeywordNormalizer.choseong(book.normalizedAuthor);
+            book.status = status;
+
+            index(titlePostings, book.normalizedTitle, id);
+            index(authorPostings, book.normalizedAuthor, id);
+            if (!book.titleChoseong.equals(book.normalizedTitle)) {
+                index(titlePostings, book.titleChoseong, id);
+            }
+            if (!book.authorChoseong.equals(book.normalizedAuthor)) {
+                index(authorPostings, book.authorChoseong, id);
+            }
+        }
+
+        private void addCategory(long bookId, long categoryId) {
+            IndexedBook book = books.get(bookId);
+            if (book == null) {
+                return;
+            }
+            int idx = Arrays.binarySearch(book.categoryIds, categoryId);
+            if (idx >= 0) {
+                return;
+            }
+            int insertAt = -idx - 1;
+            long[] next = new long[book.categoryIds.length + 1];
+            System.arraycopy(book.categoryIds, 0, next, 0, insertAt);
+            next[insertAt] = categoryId;
+            System.arraycopy(book.categoryIds, insertAt, next, insertAt + 1, book.categoryIds.length - insertAt);
+            book.categoryIds = next;
+        }
+
+        private void removeCategory(long bookId, long categoryId) {
+            IndexedBook book = books.get(bookId);
+            if (book == null) {
+                return;
+            }
+            int idx = Arrays.binarySearch(book.categoryIds, categoryId);
+            if (idx < 0) {
+                return;
+            }
+            long[] next = new long[book.categoryIds.length - 1];
+            System.arraycopy(book.categoryIds, 0, next, 0, idx);
+            System.arraycopy(book.categoryIds, idx + 1, next, idx, next.length - idx);
+            book.categoryIds = next;
+        }
+
+        private static void index(Map<Integer, LongPostingList> postings, String text, long id) {
+            for (int i = 0; i < text.length(); i++) {
+                postings.computeIfAbsent((int) text.charAt(i), token -> new LongPostingList()).add(id);
+                if (i + 1 < text.length()) {
+                    postings.computeIfAbsent(bigram(text.charAt(i), text.charAt(i + 1)), token -> new LongPostingList()).add(id);
+                }
+            }
+        }
+    }
+
+    private static final class IndexedBook {
+        private final long id;
+        private String title;
+        private String author;
+        private String normalizedTitle;
+        private String normalizedAuthor;
+        private String titleChoseong;
+        private String authorChoseong;
+        private BookStatus status;
+        private long[] categoryIds = new long[0];
+
+        private IndexedBook(long id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package book.search;
+
+import book.enums.BookStatus;
+import book.enums.CategoryOperator;
+import book.event.BookCategoriesChangedEvent;
+import book.event.BookRegisteredEvent;
+import book.event.BookStatusChangedEvent;
+import book.repository.BookJdbcRepository;
+import book.repository.CatalogSource;
+import book.snapshot.AbstractCatalogIndex;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 카테고리 -> 도서 id, 도서 상태 -> 도서 id 비트맵 색인.
+ * "IT 이면서 과학", "문학 또는 인문학 중 대여 가능", "만화가 아닌 것" 같은 조건을 book_category 조인 없이 비트 연산으로 처리한다.
+ * 도서 id 는 int 범위라고 가정한다.
+ */
+@Component
+public class CategoryBitmapIndex extends AbstractCatalogIndex<CategoryBitmapIndex.Bitmaps> {
+
+    public CategoryBitmapIndex(BookJdbcRepository bookJdbcRepository) {
+        super("category bitmap index", bookJdbcRepository, new Bitmaps());
+    }
+
+    @Override
+    protected Bitmaps load(CatalogSource source) {
+        Bitmaps fresh = new Bitmaps();
+        source.streamAllBooks(row -> fresh.setStatus(row.id(), row.status()));
+        source.streamAllBookCategories(fresh::addCategory);
+        fresh.optimize();
+        return fresh;
+    }
+
+    @Override
+    protected String describe(Bitmaps data) {
+        return "categories=" + data.byCategory.size();
+    }
+
+    /**
+     * 조건에 맞는 도서 id 를 afterBookId 다음부터 limit 개 돌려준다.
+     * categoryIds 가 비어있으면 status 조건만 본다.
+     */
+    public long[] search(Collection<Long> categoryIds, CategoryOperator operator, BookStatus status, long afterBookId, int limit) {
+        if (afterBookId >= Integer.MAX_VALUE || limit <= 0) {
+            return new long[0];
+        }
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = evaluate(categoryIds, operator, status);
+            if (result == null) {
+                return new long[0];
+            }
+
+            long[] page = new long[Math.min(limit, result.getCardinality())];
+            int n = 0;
+            PeekableIntIterator iterator = result.getIntIterator();
+            iterator.advanceIfNeeded((int) afterBookId + 1);
+            while (iterator.hasNext() && n < page.length) {
+                page[n++] = iterator.next();
+            }
+            return n == page.length ? page : Arrays.copyOf(page, n);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 결과 비트맵을 만든다. 조건에 맞는 도서가 없으면 null
+    private RoaringBitmap evaluate(Collection<Long> categoryIds, CategoryOperator operator, BookStatus status) {
+        if (operator == CategoryOperator.NOT && categoryIds != null && !categoryIds.isEmpty()) {
+            return exclude(categoryIds, status);
+        }
+        RoaringBitmap result = null;
+        if (categoryIds != null && !categoryIds.isEmpty()) {
+            List<RoaringBitmap> categoryBitmaps = new ArrayList<>(categoryIds.size());
+            for (Long categoryId : categoryIds) {
+                RoaringBitmap bitmap = data.byCategory.get(categoryId);
+                if (bitmap == null) {
+                    if (operator == CategoryOperator.AND) {
+                        return null;
+                    }
+                    continue;
+                }
+                categoryBitmaps.add(bitmap);
+            }
+            if (categoryBitmaps.isEmpty()) {
+                return null;
+            }
+            // 원본을 건드리지 않도록 항상 새 비트맵을 만든다.
+            if (categoryBitmaps.size() == 1) {
+                result = categoryBitmaps.get(0).clone();
+            } else {
+                RoaringBitmap[] array = categoryBitmaps.toArray(new RoaringBitmap[0]);
+                result = operator == CategoryOperator.AND ? FastAggregation.and(array) : FastAggregation.or(array);
+            }
+        }
+
+        if (status != null) {
+            RoaringBitmap statusBitmap = data.byStatus.get(status);
+            result = result == null ? statusBitmap.clone() : RoaringBitmap.and(result, statusBitmap);
+        }
+        return result;
+    }
+
+    // 어느 카테고리에도 속하지 않은 도서. 모든 도서는 상태 비트맵 중 하나에 있으므로 그 합(status 가 있으면 그 상태)에서 뺀다.
+    private RoaringBitmap exclude(Collection<Long> categoryIds, BookStatus status) {
+        RoaringBitmap result = status != null
+                ? data.byStatus.get(status).clone()
+                : FastAggregation.or(data.byStatus.values().iterator());
+        for (Long categoryId : categoryIds) {
+            RoaringBitmap bitmap = data.byCategory.get(categoryId);
+            if (bitmap != null) {
+                result.andNot(bitmap);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected void apply(Object event) {
+        if (event instanceof BookRegisteredEvent registered) {
+            data.setStatus(registered.bookId(), registered.status());
+            for (Long categoryId : registered.categoryIds()) {
+                data.addCategory(registered.bookId(), categoryId);
+            }
+        } else if (event instanceof BookStatusChangedEvent statusChanged) {
+            data.setStatus(statusChanged.bookId(), statusChanged.status());
+        } else if (event instanceof BookCategoriesChangedEvent categoriesChanged) {
+            for (Long categoryId : categoriesChanged.removedCategoryIds()) {
+                data.removeCategory(categoriesChanged.bookId(), categoryId);
+            }
+            for (Long categoryId : categoriesChanged.addedCategoryIds()) {
+                data.addCategory(categoriesChanged.bookId(), categoryId);
+            }
+        }
+    }
+
+    static final class Bitmaps {
+        private final Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+        private final Map<BookStatus, RoaringBitmap> byStatus = new EnumMap<>(BookStatus.class);
+
+        private Bitmaps() {
+            for (BookStatus status : BookStatus.values()) {
+                byStatus.put(status, new RoaringBitmap());
+            }
+        }
+
+        private void setStatus(long bookId, BookStatus status) {
+            int id = Math.toIntExact(bookId);
+            for (Map.Entry<BookStatus, RoaringBitmap> entry : byStatus.entrySet()) {
+                if (entry.getKey() == status) {
+                    entry.getValue().add(id);
+                } else {
+                    entry.getValue().remove(id);
+                }
+            }
+        }
+
+        private void addCategory(long bookId, long categoryId) {
+            byCategory.computeIfAbsent(categoryId, id -> new RoaringBitmap()).add(Math.toIntExact(bookId));
+        }
+
+        private void removeCategory(long bookId, long categoryId) {
+            RoaringBitmap bitmap = byCategory.get(categoryId);
+            if (bitmap != null) {
+                bitmap.remove(Math.toIntExact(bookId));
+            }
+        }
+
+        // 초기 적재가 끝나면 run container 로 압축할 수 있는 부분은 압축한다.
+        private void optimize() {
+            byCategory.values().forEach(RoaringBitmap::runOptimize);
+            byStatus.values().forEach(RoaringBitmap::runOptimize);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package book.search;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * 검색어와 색인 대상 문자열을 같은 형태로 맞춘다.
+ * 공백은 모두 지워서 "게임개발" 로 "게임 개발" 을 찾을 수 있게 하고,
+ * 한글은 초성 문자열도 만들어서 "ㄱㅇ" 같은 초성 검색을 지원한다.
+ */
+public final class KeywordNormalizer {
+
+    private static final int HANGUL_BASE = 0xAC00;
+    private static final int HANGUL_LAST = 0xD7A3;
+    private static final int JUNGSEONG_JONGSEONG = 21 * 28;
+    private static final char[] CHOSEONG = {
+            'ㄱ', 'ㄲ', 'ㄴ', 'ㄷ', 'ㄸ', 'ㄹ', 'ㅁ', 'ㅂ', 'ㅃ', 'ㅅ',
+            'ㅆ', 'ㅇ', 'ㅈ', 'ㅉ', 'ㅊ', 'ㅋ', 'ㅌ', 'ㅍ', 'ㅎ'
+    };
+
+    private KeywordNormalizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String composed = Normalizer.normalize(text, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(composed.length());
+        for (int i = 0; i < composed.length(); i++) {
+            char c = composed.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // normalize 된 문자열을 받는다. 한글 음절만 초성으로 바꾸고 나머지 글자는 그대로 둔다.
+    public static String choseong(String normalized) {
+        char[] chars = normalized.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (c >= HANGUL_BASE && c <= HANGUL_LAST) {
+                chars[i] = CHOSEONG[(c - HANGUL_BASE) / JUNGSEONG_JONGSEONG];
+            }
+        }
+        return new String(chars);
+    }
+
+    // 호환용 자음(ㄱ ~ ㅎ)으로만 이루어진 검색어면 초성 검색으로 본다.
+    public static boolean isChoseongOnly(String normalized) {
+        if (normalized.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (c < 'ㄱ' || c > 'ㅎ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,67 @@
+package book.search;
+
+import java.util.Arrays;
+
+/**
+ * 정렬된 long 배열로 관리하는 posting list.
+ * 도서 id 는 대부분 증가하는 순서로 들어오기 때문에 add 는 보통 뒤에 붙이기만 한다.
+ * 동기화는 BookSearchIndex 의 lock 에 맡긴다.
+ */
+final class LongPostingList {
+
+    private long[] ids = new long[4];
+    private int size;
+
+    void add(long id) {
+        if (size == 0 || ids[size - 1] < id) {
+            ensureCapacity();
+            ids[size++] = id;
+            return;
+        }
+        int idx = Arrays.binarySearch(ids, 0, size, id);
+        if (idx >= 0) {
+            return;
+        }
+        int insertAt = -idx - 1;
+        ensureCapacity();
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    // 이미 정렬된 배열과의 교집합
+    long[] intersect(long[] sorted) {
+        long[] result = new long[Math.min(sorted.length, size)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < sorted.length && j < size) {
+            long a = sorted[i];
+            long b = ids[j];
+            if (a == b) {
+                result[n++] = a;
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+    }
+}
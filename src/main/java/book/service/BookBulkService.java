@@ -0,0 +1,161 @@
+package book.service;
+
+import book.api.BookApiController;
+import book.cache.CategoryCache;
+import book.dto.BulkBookResultDto;
+import book.enums.BookStatus;
+import book.event.BookRegisteredEvent;
+import book.repository.BookCategoryRow;
+import book.repository.BookJdbcRepository;
+import book.repository.NewBookRow;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 입고 때 수천권을 한번에 등록하는 일괄 등록.
+ * 요청을 chunk 단위로 끊어서 chunk 마다 트랜잭션 하나, book / book_category 각각 batch insert 한번씩 처리한다.
+ * 한 chunk 가 실패해도 이미 커밋된 앞 chunk 는 그대로 두고, 결과는 요청 순서대로 행마다 돌려준다.
+ * 본문이 중간에 깨져서 더 읽을 수 없으면 그 행을 실패로 남기고 거기서 멈춘다. 그 앞까지의 결과는 그대로 돌려준다.
+ */
+@Service
+@Timed(value = "book.service", histogram = true)
+@Slf4j
+public class BookBulkService {
+
+    private final BookJdbcRepository bookJdbcRepository;
+    private final CategoryCache categoryCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${book.bulk.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    public BookBulkService(BookJdbcRepository bookJdbcRepository,
+                           CategoryCache categoryCache,
+                           ApplicationEventPublisher eventPublisher,
+                           Validator validator,
+                           PlatformTransactionManager transactionManager) {
+        this.bookJdbcRepository = bookJdbcRepository;
+        this.categoryCache = categoryCache;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public List<BulkBookResultDto> registerNewBooks(Iterator<BookApiController.CreateBookCommand> commands) {
+        List<BulkBookResultDto> results = new ArrayList<>();
+        List<PendingBook> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+        while (true) {
+            BookApiController.CreateBookCommand command;
+            try {
+                if (!commands.hasNext()) {
+                    break;
+                }
+                command = commands.next();
+            } catch (RuntimeException e) {
+                // 요청 본문을 이 행부터 읽을 수 없다. 앞 chunk 는 이미 커밋됐으니 읽은 데까지 넣고 결과를 돌려준다.
+                results.add(BulkBookResultDto.fail(index, "unreadable row, later rows were not processed: " + firstLine(e.getMessage())));
+                break;
+            }
+            String invalidReason = validate(command);
+            if (invalidReason != null) {
+                results.add(BulkBookResultDto.fail(index++, invalidReason));
+                continue;
+            }
+            chunk.add(new PendingBook(index++, command));
+            if (chunk.size() >= chunkSize) {
+                results.addAll(writeChunk(chunk));
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(writeChunk(chunk));
+        }
+
+        results.sort((a, b) -> Integer.compare(a.index(), b.index()));
+        return results;
+    }
+
+    // 검증이 끝난 chunk 하나를 트랜잭션 하나로 넣는다. 파일 가져오기(BookImportService)의 쓰기 단계도 이걸 쓴다.
+    List<BulkBookResultDto> writeChunk(List<PendingBook> chunk) {
+        try {
+            return transactionTemplate.execute(status -> {
+                List<NewBookRow> bookRows = new ArrayList<>(chunk.size());
+                for (PendingBook pending : chunk) {
+                    bookRows.add(new NewBookRow(pending.command().getTitle(), pending.command().getAuthor(), BookStatus.AVAILABLE));
+                }
+                long[] bookIds = bookJdbcRepository.insertBooks(bookRows);
+
+                List<BookCategoryRow> bookCategoryRows = new ArrayList<>(chunk.size() * 2);
+                List<BulkBookResultDto> results = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    PendingBook pending = chunk.get(i);
+                    List<Long> distinctCategoryIds = List.copyOf(new LinkedHashSet<>(pending.command().getCategoryIds()));
+                    for (Long categoryId : distinctCategoryIds) {
+                        bookCategoryRows.add(new BookCategoryRow(bookIds[i], categoryId));
+                    }
+                    results.add(BulkBookResultDto.success(pending.index(), bookIds[i]));
+                    eventPublisher.publishEvent(new BookRegisteredEvent(bookIds[i], pending.command().getTitle(),
+                            pending.command().getAuthor(), BookStatus.AVAILABLE, distinctCategoryIds));
+                }
+                bookJdbcRepository.insertBookCategories(bookCategoryRows);
+                return results;
+            });
+        } catch (DataAccessException e) {
+            log.warn("bulk insert chunk failed. firstIndex={}, size={}", chunk.get(0).index(), chunk.size(), e);
+            List<BulkBookResultDto> results = new ArrayList<>(chunk.size());
+            for (PendingBook pending : chunk) {
+                results.add(BulkBookResultDto.fail(pending.index(), "insert failed: " + e.getMostSpecificCause().getMessage()));
+            }
+            return results;
+        }
+    }
+
+    // 카테고리 검증은 CategoryCache 에서 끝나기 때문에 DB 를 타지 않는다.
+    private String validate(BookApiController.CreateBookCommand command) {
+        if (command == null) {
+            return "empty row";
+        }
+        Set<ConstraintViolation<BookApiController.CreateBookCommand>> violations = validator.validate(command);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<BookApiController.CreateBookCommand> violation = violations.iterator().next();
+            return violation.getPropertyPath() + " " + violation.getMessage();
+        }
+        if (command.getCategoryIds() == null || command.getCategoryIds().isEmpty()) {
+            return "categoryIds must not be empty";
+        }
+        for (Long categoryId : command.getCategoryIds()) {
+            if (categoryId == null || !categoryCache.exists(categoryId)) {
+                return "category is NotFound: " + categoryId;
+            }
+        }
+        return null;
+    }
+
+    private static String firstLine(String message) {
+        if (message == null) {
+            return "";
+        }
+        int newline = message.indexOf('\n');
+        return newline < 0 ? message : message.substring(0, newline);
+    }
+
+    record PendingBook(int index, BookApiController.CreateBookCommand command) {
+    }
+}
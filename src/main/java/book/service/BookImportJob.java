@@ -0,0 +1,164 @@
+package book.service;
+
+import book.api.BookApiController;
+import book.dto.BookImportStatusDto;
+import book.enums.ImportFormat;
+import book.enums.ImportJobState;
+import book.importer.ImportRow;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 가져오기 작업 하나의 상태와 단계 사이 큐.
+ * 단계 사이는 batch(행 목록) 단위로 넘기고, 큐 용량이 차면 앞 단계가 기다린다. 빈 batch 가 끝 표시다.
+ * 한 단계가 실패하면 abort 하고, 나머지 단계는 큐를 기다리다가 abort 를 보고 빠져나온다.
+ */
+final class BookImportJob {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final String id;
+    private final ImportFormat format;
+    private final String fileName;
+    private final Path file;
+    private final long totalBytes;
+    private final int maxErrors;
+    private final Instant submittedAt = Instant.now();
+
+    final BlockingQueue<List<ImportRow>> parsed;
+    final BlockingQueue<List<ResolvedRow>> resolved;
+
+    final AtomicLong bytesRead = new AtomicLong();
+    final AtomicLong rowsRead = new AtomicLong();
+    final AtomicLong rowsImported = new AtomicLong();
+    final AtomicLong rowsRejected = new AtomicLong();
+    final AtomicLong categoriesCreated = new AtomicLong();
+
+    private final List<BookImportStatusDto.RowError> errors = new ArrayList<>();
+    private volatile ImportJobState state = ImportJobState.QUEUED;
+    private volatile boolean aborted;
+    private volatile String failureReason;
+    private volatile Instant finishedAt;
+
+    BookImportJob(String id, ImportFormat format, String fileName, Path file, long totalBytes, int queueCapacity, int maxErrors) {
+        this.id = id;
+        this.format = format;
+        this.fileName = fileName;
+        this.file = file;
+        this.totalBytes = totalBytes;
+        this.maxErrors = maxErrors;
+        this.parsed = new ArrayBlockingQueue<>(queueCapacity);
+        this.resolved = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    String id() {
+        return id;
+    }
+
+    ImportFormat format() {
+        return format;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    boolean isFinished() {
+        return state == ImportJobState.COMPLETED || state == ImportJobState.FAILED;
+    }
+
+    void started() {
+        state = ImportJobState.RUNNING;
+    }
+
+    void finished() {
+        finishedAt = Instant.now();
+        state = aborted ? ImportJobState.FAILED : ImportJobState.COMPLETED;
+    }
+
+    // 처음 실패 사유만 남긴다.
+    void abort(String reason) {
+        if (!aborted) {
+            failureReason = reason;
+            aborted = true;
+        }
+    }
+
+    // 행 하나가 빠질 때. 사유는 앞에서부터 maxErrors 건만 보관한다.
+    void reject(long line, String message) {
+        rowsRejected.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < maxErrors) {
+                errors.add(new BookImportStatusDto.RowError(line, message));
+            }
+        }
+    }
+
+    <T> void put(BlockingQueue<List<T>> queue, List<T> batch) throws InterruptedException {
+        while (!queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            checkNotAborted();
+        }
+    }
+
+    <T> List<T> take(BlockingQueue<List<T>> queue) throws InterruptedException {
+        List<T> batch;
+        while ((batch = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+            checkNotAborted();
+        }
+        return batch;
+    }
+
+    private void checkNotAborted() {
+        if (aborted) {
+            throw new CancellationException(failureReason);
+        }
+    }
+
+    // 읽은 바이트 수로 진행률을 보여준다.
+    InputStream track(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    bytesRead.incrementAndGet();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) {
+                    bytesRead.addAndGet(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    BookImportStatusDto toStatus() {
+        List<BookImportStatusDto.RowError> errorsSnapshot;
+        synchronized (errors) {
+            errorsSnapshot = List.copyOf(errors);
+        }
+        return new BookImportStatusDto(id, state, format, fileName, totalBytes, bytesRead.get(), rowsRead.get(),
+                rowsImported.get(), rowsRejected.get(), categoriesCreated.get(), errorsSnapshot, failureReason,
+                submittedAt, finishedAt);
+    }
+
+    // 검증, 카테고리 찾기가 끝나서 넣기만 하면 되는 행
+    record ResolvedRow(long line, BookApiController.CreateBookCommand command) {
+    }
+}
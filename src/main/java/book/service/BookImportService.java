@@ -0,0 +1,405 @@
+package book.service;
+
+import book.api.BookApiController;
+import book.dto.BookImportStatusDto;
+import book.dto.BulkBookResultDto;
+import book.entity.Category;
+import book.enums.ImportFormat;
+import book.event.CategoryChangedEvent;
+import book.exception.ImportJobNotFoundException;
+import book.exception.ImportQueueFullException;
+import book.exception.InvalidImportFileException;
+import book.importer.ImportRow;
+import book.importer.ImportRowReader;
+import book.repository.CategoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CSV, TSV, README 형식 파일로 도서를 가져온다. 요청은 파일을 작업 디렉터리로 옮기고 작업 id 만 돌려준다.
+ * 작업은 읽기 → 검증, 카테고리 찾기(없으면 만들기) → batch insert 세 단계가 각자 스레드에서 돌고 크기가 정해진 큐로 이어진다.
+ * 쓰기가 밀리면 큐가 차서 읽기가 멈추기 때문에, 파일이 몇 GB 여도 메모리에는 queueCapacity * batchSize 행만 있다.
+ * 쓰기는 BookBulkService 와 같은 chunk 트랜잭션이라 한 batch 가 실패해도 앞 batch 는 남는다.
+ * 기다리는 작업은 max-queued-jobs 까지만 받고 넘으면 503 으로 거절한다. 기다리던 작업은 종료할 때 옮겨둔 파일과 함께 정리한다.
+ */
+@Service
+@Slf4j
+public class BookImportService implements SmartLifecycle {
+
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private final BookBulkService bookBulkService;
+    private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${book.import.work-dir:}")
+    private String workDir = "";
+
+    @Value("${book.import.batch-size:1000}")
+    private int batchSize = 1000;
+
+    // 단계 사이 큐에 쌓아둘 batch 수
+    @Value("${book.import.queue-capacity:4}")
+    private int queueCapacity = 4;
+
+    // 동시에 도는 작업 수. 넘는 작업은 QUEUED 로 기다린다.
+    @Value("${book.import.max-concurrent-jobs:2}")
+    private int maxConcurrentJobs = 2;
+
+    // 실행을 기다릴 수 있는 작업 수. 작업마다 업로드 파일 하나를 디스크에 들고 있다.
+    @Value("${book.import.max-queued-jobs:8}")
+    private int maxQueuedJobs = 8;
+
+    @Value("${book.import.max-errors:100}")
+    private int maxErrors = 100;
+
+    // 끝난 작업 상태를 몇 개까지 들고 있을지
+    @Value("${book.import.retained-jobs:100}")
+    private int retainedJobs = 100;
+
+    private final Map<String, BookImportJob> jobs = new LinkedHashMap<>();
+    private ThreadPoolExecutor jobExecutor;
+    private ExecutorService stageExecutor;
+
+    public BookImportService(BookBulkService bookBulkService,
+                             CategoryRepository categoryRepository,
+                             ApplicationEventPublisher eventPublisher) {
+        this.bookBulkService = bookBulkService;
+        this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // 업로드된 파일은 요청이 끝나면 지워지기 때문에 먼저 작업 디렉터리로 옮긴다. (같은 파일시스템이면 rename)
+    public BookImportStatusDto submit(MultipartFile file, ImportFormat format) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new InvalidImportFileException("file is empty");
+        }
+        ImportFormat resolvedFormat = format != null ? format : detectFormat(file.getOriginalFilename());
+        // 파일을 옮기기 전에 먼저 본다. 그 사이 다른 요청이 자리를 채우면 아래 execute 에서 거절된다.
+        ThreadPoolExecutor executor = jobExecutor;
+        if (executor == null || executor.getQueue().remainingCapacity() == 0) {
+            throw queueFull();
+        }
+        Path directory = workDirectory();
+        Files.createDirectories(directory);
+        String jobId = UUID.randomUUID().toString();
+        Path target = directory.resolve(jobId + ".import");
+        file.transferTo(target);
+
+        BookImportJob job = new BookImportJob(jobId, resolvedFormat, file.getOriginalFilename(), target, file.getSize(),
+                queueCapacity, maxErrors);
+        register(job);
+        try {
+            executor.execute(new ImportTask(job));
+        } catch (RejectedExecutionException e) {
+            synchronized (jobs) {
+                jobs.remove(jobId);
+            }
+            deleteFile(job);
+            throw queueFull();
+        }
+        return job.toStatus();
+    }
+
+    public BookImportStatusDto getStatus(String jobId) {
+        BookImportJob job;
+        synchronized (jobs) {
+            job = jobs.get(jobId);
+        }
+        if (job == null) {
+            throw new ImportJobNotFoundException("import job is NotFound: " + jobId);
+        }
+        return job.toStatus();
+    }
+
+    static ImportFormat detectFormat(String fileName) {
+        String name = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return ImportFormat.CSV;
+        }
+        if (name.endsWith(".tsv") || name.endsWith(".tab")) {
+            return ImportFormat.TSV;
+        }
+        if (name.endsWith(".md") || name.endsWith(".txt")) {
+            return ImportFormat.README;
+        }
+        throw new InvalidImportFileException("format is required for file: " + fileName);
+    }
+
+    void run(BookImportJob job) {
+        job.started();
+        log.info("import started. jobId={}, format={}", job.id(), job.format());
+        Future<?> resolver = stageExecutor.submit(() -> stage(job, "resolve", () -> resolveStage(job)));
+        Future<?> writer = stageExecutor.submit(() -> stage(job, "write", () -> writeStage(job)));
+        stage(job, "parse", () -> parseStage(job));
+        await(job, resolver);
+        await(job, writer);
+        job.finished();
+        deleteFile(job);
+        BookImportStatusDto status = job.toStatus();
+        log.info("import finished. jobId={}, state={}, imported={}, rejected={}, categoriesCreated={}", job.id(),
+                status.state(), status.rowsImported(), status.rowsRejected(), status.categoriesCreated());
+    }
+
+    private void parseStage(BookImportJob job) throws Exception {
+        // 깨진 UTF-8 은 대체 문자로 바꾸지 않고 실패시킨다.
+        InputStreamReader decoder = new InputStreamReader(job.track(Files.newInputStream(job.file())),
+                StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT));
+        try (BufferedReader reader = new BufferedReader(decoder, 64 * 1024)) {
+            ImportRowReader rows = ImportRowReader.of(job.format(), reader);
+            List<ImportRow> batch = new ArrayList<>(batchSize);
+            ImportRow row;
+            while ((row = rows.next()) != null) {
+                job.rowsRead.incrementAndGet();
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    job.put(job.parsed, batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                job.put(job.parsed, batch);
+            }
+        } catch (CharacterCodingException e) {
+            throw new IOException("file is not valid UTF-8", e);
+        } finally {
+            job.put(job.parsed, List.of());
+        }
+    }
+
+    private void resolveStage(BookImportJob job) throws Exception {
+        Map<String, Long> categoryIds = loadCategoryIds();
+        List<ImportRow> batch;
+        try {
+            while (!(batch = job.take(job.parsed)).isEmpty()) {
+                List<BookImportJob.ResolvedRow> resolved = new ArrayList<>(batch.size());
+                for (ImportRow row : batch) {
+                    String invalidReason = validate(row);
+                    if (invalidReason != null) {
+                        job.reject(row.lineNumber(), invalidReason);
+                        continue;
+                    }
+                    List<Long> ids = new ArrayList<>(row.categoryNames().size());
+                    for (String name : row.categoryNames()) {
+                        ids.add(categoryIds.computeIfAbsent(name, key -> findOrCreateCategory(key, job)));
+                    }
+                    resolved.add(new BookImportJob.ResolvedRow(row.lineNumber(),
+                            new BookApiController.CreateBookCommand(row.title(), row.author(), ids)));
+                }
+                if (!resolved.isEmpty()) {
+                    job.put(job.resolved, resolved);
+                }
+            }
+        } finally {
+            job.put(job.resolved, List.of());
+        }
+    }
+
+    private void writeStage(BookImportJob job) throws Exception {
+        List<BookImportJob.ResolvedRow> batch;
+        while (!(batch = job.take(job.resolved)).isEmpty()) {
+            List<BookBulkService.PendingBook> chunk = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                chunk.add(new BookBulkService.PendingBook(i, batch.get(i).command()));
+            }
+            for (BulkBookResultDto result : bookBulkService.writeChunk(chunk)) {
+                if (result.success()) {
+                    job.rowsImported.incrementAndGet();
+                } else {
+                    job.reject(batch.get(result.index()).line(), result.message());
+                }
+            }
+        }
+    }
+
+    private static String validate(ImportRow row) {
+        if (row.isInvalid()) {
+            return row.error();
+        }
+        if (row.title() == null || row.title().isBlank()) {
+            return "title must not be blank";
+        }
+        if (row.author() == null || row.author().isBlank()) {
+            return "author must not be blank";
+        }
+        if (row.title().length() > MAX_TEXT_LENGTH || row.author().length() > MAX_TEXT_LENGTH) {
+            return "title and author must be at most " + MAX_TEXT_LENGTH + " characters";
+        }
+        if (row.categoryNames().isEmpty()) {
+            return "categories must not be empty";
+        }
+        for (String name : row.categoryNames()) {
+            if (name.length() > MAX_TEXT_LENGTH) {
+                return "category name must be at most " + MAX_TEXT_LENGTH + " characters";
+            }
+        }
+        return null;
+    }
+
+    // 카테고리 테이블은 작아서(CategoryCache 도 통째로 올린다) 작업 시작 때 이름 → id 를 한번 읽어둔다.
+    private Map<String, Long> loadCategoryIds() {
+        Map<String, Long> ids = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            ids.merge(category.getName(), category.getId(), Math::min);
+        }
+        return ids;
+    }
+
+    // 동시에 도는 다른 작업이 같은 이름을 만들 수 있어서 한번 더 찾아보고 만든다. (인스턴스가 여러 대면 중복될 수 있다)
+    private synchronized Long findOrCreateCategory(String name, BookImportJob job) {
+        return categoryRepository.findFirstByNameOrderByIdAsc(name)
+                .map(Category::getId)
+                .orElseGet(() -> {
+                    Long id = categoryRepository.save(Category.builder().name(name).build()).getId();
+                    job.categoriesCreated.incrementAndGet();
+                    eventPublisher.publishEvent(new CategoryChangedEvent(id));
+                    return id;
+                });
+    }
+
+    private void stage(BookImportJob job, String name, ImportStage stage) {
+        try {
+            stage.run();
+        } catch (CancellationException e) {
+            // 다른 단계가 먼저 실패했다.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.abort(name + " interrupted");
+        } catch (Exception e) {
+            log.warn("import {} stage failed. jobId={}", name, job.id(), e);
+            job.abort(name + " failed: " + (e instanceof UncheckedIOException u ? u.getCause() : e).getMessage());
+        }
+    }
+
+    private void await(BookImportJob job, Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.abort("interrupted");
+        } catch (Exception e) {
+            job.abort(e.getMessage());
+        }
+    }
+
+    private ImportQueueFullException queueFull() {
+        return new ImportQueueFullException("import queue is full, retry later. maxQueuedJobs=" + maxQueuedJobs);
+    }
+
+    private static void deleteFile(BookImportJob job) {
+        try {
+            Files.deleteIfExists(job.file());
+        } catch (IOException e) {
+            log.warn("import file delete failed. {}", job.file(), e);
+        }
+    }
+
+    private void register(BookImportJob job) {
+        synchronized (jobs) {
+            jobs.put(job.id(), job);
+            Iterator<BookImportJob> iterator = jobs.values().iterator();
+            while (jobs.size() > retainedJobs && iterator.hasNext()) {
+                if (iterator.next().isFinished()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private Path workDirectory() {
+        return workDir == null || workDir.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "book-import")
+                : Path.of(workDir);
+    }
+
+    @Override
+    public void start() {
+        // 작업 하나가 단계 스레드 두 개를 더 쓰므로 단계 풀은 작업 수의 두 배여야 서로 기다리다 멈추지 않는다.
+        jobExecutor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueuedJobs), threadFactory("book-import"));
+        stageExecutor = Executors.newFixedThreadPool(maxConcurrentJobs * 2, threadFactory("book-import-stage"));
+    }
+
+    @Override
+    public void stop() {
+        if (jobExecutor != null) {
+            // 시작도 못 한 작업은 실패로 끝내고 옮겨둔 파일을 지운다. 도는 작업은 인터럽트되어 run 에서 지운다.
+            for (Runnable neverRan : jobExecutor.shutdownNow()) {
+                BookImportJob job = ((ImportTask) neverRan).job;
+                job.abort("import service stopped before the job started");
+                job.finished();
+                deleteFile(job);
+            }
+            stageExecutor.shutdownNow();
+            jobExecutor = null;
+            stageExecutor = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return jobExecutor != null;
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // 종료할 때 큐에 남은 작업을 찾을 수 있게 작업을 들고 있는다.
+    private final class ImportTask implements Runnable {
+        private final BookImportJob job;
+
+        private ImportTask(BookImportJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void run() {
+            BookImportService.this.run(job);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ImportStage {
+        void run() throws Exception;
+    }
+}
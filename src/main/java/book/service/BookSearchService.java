@@ -0,0 +1,112 @@
+package book.service;
+
+import book.common.BookCursor;
+import book.dto.BookPageDto;
+import book.dto.ResponseBookDto;
+import book.entity.Book;
+import book.enums.BookStatus;
+import book.enums.CategoryOperator;
+import book.enums.SearchField;
+import book.enums.SearchMode;
+import book.exception.InvalidSearchConditionException;
+import book.repository.BookRepository;
+import book.search.BookSearchIndex;
+import book.search.CategoryBitmapIndex;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@Timed(value = "book.service", histogram = true)
+@RequiredArgsConstructor
+public class BookSearchService {
+
+    private final BookSearchIndex bookSearchIndex;
+    private final CategoryBitmapIndex categoryBitmapIndex;
+    private final BookRepository bookRepository;
+
+    @Value("${book.search.default-limit:100}")
+    private int defaultLimit = 100;
+
+    @Value("${book.search.max-limit:1000}")
+    private int maxLimit = 1000;
+
+    @Value("${book.paging.default-size:50}")
+    private int defaultPageSize = 50;
+
+    @Value("${book.paging.max-size:500}")
+    private int maxPageSize = 500;
+
+    // DB 를 거치지 않고 인메모리 색인에서 바로 찾는다.
+    public List<ResponseBookDto> searchByKeyword(String keyword, SearchField field, SearchMode mode, Long categoryId, Integer limit) {
+        int resolvedLimit = limit == null || limit <= 0 ? defaultLimit : Math.min(limit, maxLimit);
+        return bookSearchIndex.search(keyword,
+                        field == null ? SearchField.ALL : field,
+                        mode == null ? SearchMode.SUBSTRING : mode,
+                        categoryId,
+                        resolvedLimit)
+                .stream()
+                .map(hit -> ResponseBookDto.builder()
+                        .bookId(hit.bookId())
+                        .title(hit.title())
+                        .author(hit.author())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * 카테고리 AND / OR / NOT 조합과 상태 조건으로 검색. 조건 평가는 비트맵 색인에서 끝나고
+     * DB 에는 한 페이지 분량의 도서를 id 로 한번만 읽으러 간다.
+     */
+    @Transactional(readOnly = true)
+    public BookPageDto searchByCategories(List<Long> categoryIds, CategoryOperator operator, BookStatus status,
+                                          String cursor, Integer size) {
+        if ((categoryIds == null || categoryIds.isEmpty()) && status == null) {
+            throw new InvalidSearchConditionException("categories or status is required");
+        }
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+
+        long[] ids = categoryBitmapIndex.search(categoryIds,
+                operator == null ? CategoryOperator.OR : operator,
+                status,
+                BookCursor.decode(cursor),
+                pageSize + 1);
+        boolean hasNext = ids.length > pageSize;
+        int count = Math.min(ids.length, pageSize);
+
+        List<Long> pageIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            pageIds.add(ids[i]);
+        }
+        Map<Long, Book> booksById = new HashMap<>(count * 2);
+        for (Book book : bookRepository.findAllById(pageIds)) {
+            booksById.put(book.getId(), book);
+        }
+
+        // 색인 순서(id 오름차순)를 그대로 유지한다. 그 사이 지워진 도서는 건너뛴다.
+        List<ResponseBookDto> books = new ArrayList<>(count);
+        for (Long id : pageIds) {
+            Book book = booksById.get(id);
+            if (book != null) {
+                books.add(ResponseBookDto.builder()
+                        .bookId(book.getId())
+                        .title(book.getTitle())
+                        .author(book.getAuthor())
+                        .build());
+            }
+        }
+
+        return BookPageDto.builder()
+                .books(books)
+                .nextCursor(hasNext ? BookCursor.encode(pageIds.get(count - 1)) : null)
+                .size(books.size())
+                .build();
+    }
+}
@@ -1,43 +1,147 @@
 package book.service;
 
 import book.api.BookApiController;
+import book.cache.CategoryCache;
+import book.cache.CategoryListingStore;
+import book.common.LongHashSet;
+import book.common.BookCursor;
+import book.dto.BookPageDto;
+import book.dto.BookStatusBulkResultDto;
+import book.dto.BookStatusDto;
+import book.dto.BookSummaryDto;
+import book.dto.CategorySummaryDto;
 import book.dto.RequestBookDto;
 import book.dto.ResponseBookDto;
 import book.entity.Book;
 import book.entity.BookCategory;
 import book.entity.Category;
 import book.enums.BookStatus;
+import book.event.BookCategoriesChangedEvent;
+import book.event.BookRegisteredEvent;
+import book.event.BookStatusChangedEvent;
 import book.exception.BookCategoryNotFoundException;
 import book.exception.BookNotFoundException;
+import book.exception.BookVersionConflictException;
 import book.exception.CategoryNotFoundException;
+import book.exception.DuplicateBookIdException;
 import book.repository.BookCategoryRepository;
+import book.repository.BookCategoryRow;
+import book.repository.BookJdbcRepository;
+import book.repository.BookQueryRepository;
 import book.repository.BookRepository;
-import book.repository.CategoryRepository;
+import book.repository.BookStatusRow;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 @Service
+@Timed(value = "book.service", histogram = true)
 @RequiredArgsConstructor
 @Slf4j
 public class BookService {
 
     private final BookRepository bookRepository;
-    private final CategoryRepository categoryRepository;
+    private final CategoryCache categoryCache;
     private final BookCategoryRepository bookCategoryRepository;
+    private final BookJdbcRepository bookJdbcRepository;
+    private final BookQueryRepository bookQueryRepository;
+    private final CategoryListingStore categoryListingStore;
+    // 인메모리 색인 등은 커밋 이후 이 이벤트를 받아서 갱신한다. outbox 는 같은 트랜잭션 안에서 받는다.
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
+    @Value("${book.paging.default-size:50}")
+    private int defaultPageSize = 50;
+
+    @Value("${book.paging.max-size:500}")
+    private int maxPageSize = 500;
+
+    @Value("${book.status-update.max-attempts:3}")
+    private int statusUpdateMaxAttempts = 3;
+
+    // 자주 찾는 카테고리는 미리 만들어 둔 목록을 돌려주고 DB 에는 쿼리를 보내지 않는다.
+    // 그 밖의 카테고리는 DB 에서 읽는데, readOnly 트랜잭션 안이어야 replica 로 가고 쓰기로 보지 않는다. (ReplicationRoutingDataSource)
+    @Transactional(readOnly = true)
     public List<ResponseBookDto> getBooksByCategory(Long categoryId) {
-        Category category = categoryRepository.findById(categoryId).orElseThrow(() -> new CategoryNotFoundException("Category not found with id: " + categoryId));
+        Category category = getCategory(categoryId);
+        Optional<List<ResponseBookDto>> materialized = categoryListingStore.find(categoryId);
+        if (materialized.isPresent()) {
+            return materialized.get();
+        }
         List<Book> bookList = bookRepository.findAllByCategory(category);
         return bookList.stream()
                 .map(this::toDto)
                 .toList();
     }
 
+    // 카테고리까지 포함한 결과가 필요할 때는 엔티티 대신 프로젝션으로 가져온다.
+    @Transactional(readOnly = true)
+    public List<BookSummaryDto> getBookSummariesByCategory(Long categoryId) {
+        getCategory(categoryId);
+        return bookQueryRepository.findSummariesByCategory(categoryId);
+    }
+
+    @Transactional(readOnly = true)
+    public BookPageDto getBookPageByCategory(Long categoryId, String cursor, Integer size) {
+        Category category = getCategory(categoryId);
+        int pageSize = resolvePageSize(size);
+
+        // 한개 더 가져와서 다음 페이지가 있는지 판단한다. count 쿼리는 날리지 않는다.
+        List<Book> bookList = bookRepository.findPageByCategory(category, BookCursor.decode(cursor), PageRequest.of(0, pageSize + 1));
+        boolean hasNext = bookList.size() > pageSize;
+        List<ResponseBookDto> books = bookList.stream()
+                .limit(pageSize)
+                .map(this::toDto)
+                .toList();
+
+        String nextCursor = hasNext ? BookCursor.encode(books.get(books.size() - 1).bookId()) : null;
+        return BookPageDto.builder()
+                .books(books)
+                .nextCursor(nextCursor)
+                .size(books.size())
+                .build();
+    }
+
+    // JDBC 커서로 한 행씩 넘겨준다. 읽기 전용 트랜잭션이라 replica 에서 읽는다. 카테고리 존재 여부는 호출 전에 checkCategoryExists 로 확인
+    @Transactional(readOnly = true)
+    public void streamBooksByCategory(Long categoryId, Consumer<ResponseBookDto> consumer) {
+        bookJdbcRepository.streamByCategory(categoryId, consumer);
+    }
+
+    public void checkCategoryExists(Long categoryId) {
+        getCategory(categoryId);
+    }
+
+    private Category getCategory(Long categoryId) {
+        return categoryCache.get(categoryId).orElseThrow(() -> new CategoryNotFoundException("Category not found with id: " + categoryId));
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    @Transactional(readOnly = true)
     public List<ResponseBookDto> getBooksByAuthorAndTitle(RequestBookDto requestDto) {
         return bookRepository.findAllByAuthorAndTitle(requestDto.getAuthor(), requestDto.getTitle())
                 .stream()
@@ -45,10 +149,63 @@ public class BookService {
                 .toList();
     }
 
+    public BookStatusDto changeBookStatus(Long bookId, BookStatus status) {
+        return changeBookStatus(bookId, status, null);
+    }
+
+    /**
+     * 엔티티를 올리지 않고 (status, version) 만 읽은 뒤 version 이 그대로일 때만 UPDATE 한다.
+     * 읽기는 트랜잭션 밖에서 해서 밀렸을 때 다시 읽으면 항상 최신 version 이 보이고,
+     * UPDATE 와 변경 이벤트(outbox 기록)만 짧은 트랜잭션 하나로 묶는다.
+     * expectedVersion 을 주면 그 version 일 때만 바꾸고 재시도 없이 409, 안 주면 statusUpdateMaxAttempts 번까지 다시 시도한다.
+     */
+    public BookStatusDto changeBookStatus(Long bookId, BookStatus status, Long expectedVersion) {
+        for (int attempt = 1; ; attempt++) {
+            BookStatusRow current = bookJdbcRepository.findStatus(bookId)
+                    .orElseThrow(() -> new BookNotFoundException("Book not found with id: " + bookId));
+            if (expectedVersion != null && current.version() != expectedVersion) {
+                throw new BookVersionConflictException("Book version mismatch. id: " + bookId
+                        + ", expected: " + expectedVersion + ", actual: " + current.version());
+            }
+            // 이미 원하는 상태면 쓰지 않는다. 신고가 몰려도 첫 건만 UPDATE 한다.
+            if (current.status() == status) {
+                return new BookStatusDto(bookId, status, current.version());
+            }
+            if (updateStatusIfVersion(bookId, status, current.version())) {
+                return new BookStatusDto(bookId, status, current.version() + 1);
+            }
+            if (expectedVersion != null || attempt >= statusUpdateMaxAttempts) {
+                throw new BookVersionConflictException("Book status was changed concurrently. id: " + bookId);
+            }
+            // 같은 도서에 몰린 요청들이 같은 박자로 다시 부딪히지 않도록 조금씩 어긋나게 쉰다.
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(100_000L * attempt));
+        }
+    }
+
+    private boolean updateStatusIfVersion(Long bookId, BookStatus status, long version) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(transactionStatus -> {
+            if (!bookJdbcRepository.updateStatusIfVersion(bookId, status, version)) {
+                return false;
+            }
+            eventPublisher.publishEvent(new BookStatusChangedEvent(bookId, status));
+            return true;
+        }));
+    }
+
+    /**
+     * 파손, 분실 처리처럼 여러 권을 한번에 대여 중단할 때 쓴다. version 비교는 하지 않는다.
+     * MySQL 은 UPDATE 가 바뀐 id 를 돌려주지 않아서, 아직 UNAVAILABLE 이 아닌 도서를 select ... for update 로 먼저 잠그고
+     * 그 도서만 바꾼 뒤 이벤트도 그 도서에만 보낸다. 잠근 뒤라 그 사이 다른 요청이 상태를 바꿀 수 없다.
+     */
     @Transactional
-    public void changeBookStatus(Long bookId, BookStatus status) {
-        Book book = getBook(bookId);
-        book.updateStatus(status);
+    public BookStatusBulkResultDto markUnavailable(List<Long> bookIds) {
+        List<Long> distinctBookIds = List.copyOf(new LinkedHashSet<>(bookIds));
+        List<Long> changingBookIds = bookJdbcRepository.lockIdsWithStatusOtherThan(distinctBookIds, BookStatus.UNAVAILABLE);
+        int changed = bookJdbcRepository.updateStatusAll(changingBookIds, BookStatus.UNAVAILABLE);
+        for (Long bookId : changingBookIds) {
+            eventPublisher.publishEvent(new BookStatusChangedEvent(bookId, BookStatus.UNAVAILABLE));
+        }
+        return new BookStatusBulkResultDto(distinctBookIds.size(), changed);
     }
 
     private Book getBook(Long bookId) {
@@ -61,9 +218,10 @@ public class BookService {
         Book book = bookRepository.save(Book.builder()
                         .title(requestDto.getTitle())
                         .author(requestDto.getAuthor())
+                        .status(BookStatus.AVAILABLE)
                         .build());
 
-        List<Category> categories = categoryRepository.findAllById(requestDto.getCategoryIds());
+        List<Category> categories = categoryCache.getAll(requestDto.getCategoryIds());
         if (categories.size() == 0) {
             throw new CategoryNotFoundException("category is NotFound");
         }
@@ -78,6 +236,8 @@ public class BookService {
 
         bookCategoryRepository.saveAll(bookCategories);
 
+        eventPublisher.publishEvent(new BookRegisteredEvent(book.getId(), book.getTitle(), book.getAuthor(), book.getStatus(),
+                categories.stream().map(Category::getId).toList()));
         return toDto(book, categories);
     }
 
@@ -89,47 +249,117 @@ public class BookService {
                 .build();
     }
 
+    // 응답에는 엔티티 대신 카테고리 id, 이름만 담는다.
     public ResponseBookDto toDto(Book book, List<Category> categories) {
         return ResponseBookDto.builder()
                 .bookId(book.getId())
                 .author(book.getAuthor())
                 .title(book.getTitle())
-                .categories(categories)
+                .categories(categories.stream()
+                        .map(category -> new CategorySummaryDto(category.getId(), category.getName()))
+                        .toList())
                 .build();
     }
 
+    /*
+     있는 것과 비교해서 빠진 것은 delete, 없던 것만 insert 한다.
+     비교는 long 해시셋으로 하고, 삭제는 delete ... where book_id = ? and category_id in (...) 한번, 추가는 batch insert 한번으로 끝낸다.
+     */
     @Transactional
     public void changeCategories(Long bookId, BookApiController.UpdateBookCategoryCommand command) {
-        Book book = getBook(bookId);
+        getBook(bookId);
 
-        List<Category> afterCategoryList = categoryRepository.findAllById(command.getCategoryIds());
-        List<BookCategory> beforeCategoryList = bookCategoryRepository.findAllByBook(book);
+        List<Category> afterCategoryList = categoryCache.getAll(command.getCategoryIds());
+        List<Long> beforeCategoryIds = bookCategoryRepository.findCategoryIdsByBookId(bookId);
 
-        if (beforeCategoryList.isEmpty()) {
+        if (beforeCategoryIds.isEmpty()) {
             log.debug("BookCategoryList is Empty, bookId is {}.", bookId);
             throw new BookCategoryNotFoundException("book category is Empty. Category Not Found");
         }
 
-        List<Long> commonCategoryIds = afterCategoryList.stream()
-                .map(Category::getId)
-                .filter(categoryId -> beforeCategoryList.stream()
-                        .anyMatch(bookCategory -> bookCategory.getCategory().getId().equals(categoryId)))
-                .toList();
+        CategoryDiff diff = CategoryDiff.of(bookId, beforeCategoryIds, afterCategoryList);
+        if (!diff.removedCategoryIds().isEmpty()) {
+            bookCategoryRepository.deleteAllByBookIdAndCategoryIdIn(bookId, diff.removedCategoryIds());
+        }
+        bookJdbcRepository.insertBookCategories(diff.insertRows());
 
+        eventPublisher.publishEvent(diff.toEvent());
+    }
 
-        List<BookCategory> deleteBookCategories = beforeCategoryList.stream()
-                .filter(bookCategory -> !commonCategoryIds.contains(bookCategory.getCategory().getId()))
-                .toList();
+    // 여러 도서의 카테고리를 한 트랜잭션에서 바꾼다. 기존 카테고리는 한번에 읽고, 삭제 / 추가는 각각 batch 한번씩
+    // 같은 도서가 두번 나오면 어느 쪽을 따를지 알 수 없으므로 아무것도 바꾸지 않고 400 으로 중복된 id 를 알려준다.
+    @Transactional
+    public void changeCategoriesInBulk(List<BookApiController.BookCategoryChange> changes) {
+        Map<Long, List<Category>> afterByBookId = new LinkedHashMap<>();
+        Set<Long> duplicateBookIds = new LinkedHashSet<>();
+        for (BookApiController.BookCategoryChange change : changes) {
+            if (afterByBookId.put(change.getBookId(), categoryCache.getAll(change.getCategoryIds())) != null) {
+                duplicateBookIds.add(change.getBookId());
+            }
+        }
+        if (!duplicateBookIds.isEmpty()) {
+            throw new DuplicateBookIdException("bookId is duplicated: " + duplicateBookIds);
+        }
 
-        List<BookCategory> insertBookCategories = afterCategoryList.stream()
-                .filter(category -> !commonCategoryIds.contains(category.getId()))
-                .map(category -> BookCategory.builder()
-                        .book(book)
-                        .category(category)
-                        .build())
-                .toList();
+        LongHashSet existingBookIds = LongHashSet.of(bookRepository.findIdsByIdIn(afterByBookId.keySet()));
+        Map<Long, List<Long>> beforeByBookId = new HashMap<>();
+        for (BookCategoryRow row : bookJdbcRepository.findBookCategoriesByBookIds(afterByBookId.keySet())) {
+            beforeByBookId.computeIfAbsent(row.bookId(), id -> new ArrayList<>()).add(row.categoryId());
+        }
 
-        bookCategoryRepository.deleteAll(deleteBookCategories);
-        bookCategoryRepository.saveAll(insertBookCategories);
+        List<BookCategoryRow> deleteRows = new ArrayList<>();
+        List<BookCategoryRow> insertRows = new ArrayList<>();
+        List<BookCategoriesChangedEvent> events = new ArrayList<>(afterByBookId.size());
+        for (Map.Entry<Long, List<Category>> entry : afterByBookId.entrySet()) {
+            Long bookId = entry.getKey();
+            if (!existingBookIds.contains(bookId)) {
+                throw new BookNotFoundException("Book not found with id: " + bookId);
+            }
+            List<Long> beforeCategoryIds = beforeByBookId.getOrDefault(bookId, List.of());
+            if (beforeCategoryIds.isEmpty()) {
+                throw new BookCategoryNotFoundException("book category is Empty. Category Not Found. bookId: " + bookId);
+            }
+            CategoryDiff diff = CategoryDiff.of(bookId, beforeCategoryIds, entry.getValue());
+            deleteRows.addAll(diff.deleteRows());
+            insertRows.addAll(diff.insertRows());
+            events.add(diff.toEvent());
+        }
+
+        bookJdbcRepository.deleteBookCategories(deleteRows);
+        bookJdbcRepository.insertBookCategories(insertRows);
+        events.forEach(eventPublisher::publishEvent);
+    }
+
+    private record CategoryDiff(long bookId, List<Long> addedCategoryIds, List<Long> removedCategoryIds) {
+
+        static CategoryDiff of(long bookId, List<Long> beforeCategoryIds, List<Category> afterCategoryList) {
+            LongHashSet before = LongHashSet.of(beforeCategoryIds);
+            LongHashSet after = new LongHashSet(afterCategoryList.size());
+            List<Long> added = new ArrayList<>();
+            for (Category category : afterCategoryList) {
+                if (after.add(category.getId()) && !before.contains(category.getId())) {
+                    added.add(category.getId());
+                }
+            }
+            List<Long> removed = new ArrayList<>();
+            for (Long categoryId : beforeCategoryIds) {
+                if (!after.contains(categoryId)) {
+                    removed.add(categoryId);
+                }
+            }
+            return new CategoryDiff(bookId, added, removed);
+        }
+
+        List<BookCategoryRow> insertRows() {
+            return addedCategoryIds.stream().map(categoryId -> new BookCategoryRow(bookId, categoryId)).toList();
+        }
+
+        List<BookCategoryRow> deleteRows() {
+            return removedCategoryIds.stream().map(categoryId -> new BookCategoryRow(bookId, categoryId)).toList();
+        }
+
+        BookCategoriesChangedEvent toEvent() {
+            return new BookCategoriesChangedEvent(bookId, addedCategoryIds, removedCategoryIds);
+        }
     }
 }
@@ -0,0 +1,182 @@
+package book.service;
+
+import book.dto.CategorySummaryDto;
+import book.enums.ExportFormat;
+import book.export.CatalogRecord;
+import book.export.CatalogWriter;
+import book.repository.BookJdbcRepository;
+import book.repository.CatalogRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 창고 정산용 카탈로그 전체 내보내기. book ⋈ book_category ⋈ category 를 커서 하나로 읽으면서 도서 한 권씩 모아 바로 쓴다.
+ * 메모리에는 도서 한 권과 형식별 버퍼만 있어서 1000만권이어도 힙이 늘지 않는다.
+ * 스냅샷은 FileChannel 로 임시 파일에 쓰고 force 한 뒤 이름을 바꾸고, 응답에는 그 파일을 복사해 보낸다.
+ */
+@Service
+@Timed(value = "book.service", histogram = true)
+@Slf4j
+public class CatalogExportService {
+
+    private static final DateTimeFormatter SNAPSHOT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'");
+    private static final String SNAPSHOT_PREFIX = "books-";
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final BookJdbcRepository bookJdbcRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${book.export.snapshot-dir:data/exports}")
+    private String snapshotDir = "data/exports";
+
+    // 남겨둘 스냅샷 파일 수. 오래된 것부터 지운다.
+    @Value("${book.export.retained-snapshots:7}")
+    private int retainedSnapshots = 7;
+
+    public CatalogExportService(BookJdbcRepository bookJdbcRepository,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager) {
+        this.bookJdbcRepository = bookJdbcRepository;
+        this.objectMapper = objectMapper;
+        // 읽기 전용 트랜잭션이라 replica 로 간다. 스냅샷 쓰기에서 export 를 다시 부르기 때문에 @Transactional 대신 템플릿을 쓴다.
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public String fileName(ExportFormat format, boolean gzip) {
+        return SNAPSHOT_PREFIX + ZonedDateTime.now(ZoneOffset.UTC).format(SNAPSHOT_TIME) + "." + format.extension()
+                + (gzip ? ".gz" : "");
+    }
+
+    // out 은 닫지 않는다. 내보낸 도서 수를 돌려준다.
+    public long export(ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        long startedAt = System.nanoTime();
+        GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        CatalogWriter writer = CatalogWriter.of(format, gzipOut != null ? gzipOut : out, objectMapper.getFactory());
+        RecordAssembler assembler = new RecordAssembler(writer);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> bookJdbcRepository.streamCatalog(assembler));
+            assembler.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+        if (gzipOut != null) {
+            gzipOut.finish();
+        }
+        out.flush();
+        log.info("catalog exported. format={}, gzip={}, books={}, elapsedMs={}", format, gzip, assembler.count,
+                (System.nanoTime() - startedAt) / 1_000_000);
+        return assembler.count;
+    }
+
+    // 임시 파일에 다 쓰고 디스크에 내린 다음 이름을 바꾸기 때문에, snapshot-dir 에 보이는 파일은 항상 완성된 파일이다.
+    public Path writeSnapshot(ExportFormat format, boolean gzip, String fileName) throws IOException {
+        Path directory = Path.of(snapshotDir);
+        Files.createDirectories(directory);
+        Path target = directory.resolve(fileName);
+        Path temp = directory.resolve(fileName + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            export(format, gzip, out);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        deleteOldSnapshots(directory);
+        return target;
+    }
+
+    // 서블릿 OutputStream 은 소켓 채널이 아니라서 FileChannel.transferTo 로 넘겨도 zero-copy 가 되지 않고 버퍼를 거친다.
+    // 그러니 그냥 버퍼로 복사한다.
+    public long transfer(Path file, OutputStream out) throws IOException {
+        long size = Files.copy(file, out);
+        out.flush();
+        return size;
+    }
+
+    private void deleteOldSnapshots(Path directory) throws IOException {
+        List<Path> snapshots;
+        try (Stream<Path> files = Files.list(directory)) {
+            // 파일 이름에 UTC 시각이 들어가서 이름 순서가 곧 만든 순서다.
+            snapshots = files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && !name.endsWith(".tmp");
+                    })
+                    .sorted(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed())
+                    .toList();
+        }
+        for (int i = retainedSnapshots; i < snapshots.size(); i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+    }
+
+    // 같은 도서의 행은 붙어서 오므로 도서 id 가 바뀔 때 앞 도서를 쓴다.
+    private static final class RecordAssembler implements Consumer<CatalogRow> {
+
+        private final CatalogWriter writer;
+        private CatalogRow current;
+        private List<CategorySummaryDto> categories = new ArrayList<>();
+        private long count;
+
+        RecordAssembler(CatalogWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void accept(CatalogRow row) {
+            if (current != null && current.bookId() != row.bookId()) {
+                flush();
+            }
+            if (current == null) {
+                current = row;
+            }
+            if (row.categoryId() != null) {
+                categories.add(new CategorySummaryDto(row.categoryId(), row.categoryName()));
+            }
+        }
+
+        void flush() {
+            if (current == null) {
+                return;
+            }
+            try {
+                writer.write(new CatalogRecord(current.bookId(), current.title(), current.author(), current.status(), categories));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count++;
+            current = null;
+            categories = new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package book.service;
+
+import book.cache.CategoryCache;
+import book.dto.BookCategoriesDto;
+import book.dto.CategorySummaryDto;
+import book.enums.CategoryHistoryOp;
+import book.exception.BookNotFoundException;
+import book.repository.BookCategoryRepository;
+import book.repository.BookRepository;
+import book.repository.CategoryHistoryRepository;
+import book.repository.CategoryHistoryRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 도서의 카테고리를 지금 또는 과거 시각 기준으로 돌려준다.
+ * 과거 시각은 book_category_history 를 asOf 까지 순서대로 다시 적용해서 구한다.
+ * 이력은 커밋 후 write-behind 로 쌓이므로 asOf 가 방금 전이면 아직 안 써진 변경이 빠질 수 있다. (book.category-history.flush-interval)
+ */
+@Service
+@RequiredArgsConstructor
+public class CategoryHistoryService {
+
+    private final BookRepository bookRepository;
+    private final BookCategoryRepository bookCategoryRepository;
+    private final CategoryHistoryRepository categoryHistoryRepository;
+    private final CategoryCache categoryCache;
+
+    @Transactional(readOnly = true)
+    public BookCategoriesDto getCategories(Long bookId, Instant asOf) {
+        if (!bookRepository.existsById(bookId)) {
+            throw new BookNotFoundException("Book not found with id: " + bookId);
+        }
+        List<Long> categoryIds = asOf == null
+                ? bookCategoryRepository.findCategoryIdsByBookId(bookId)
+                : categoryIdsAsOf(bookId, asOf.toEpochMilli());
+        // 지금은 없어진 카테고리는 이름을 알 수 없어서 빠진다.
+        List<CategorySummaryDto> categories = categoryCache.getAll(categoryIds).stream()
+                .map(category -> new CategorySummaryDto(category.getId(), category.getName()))
+                .toList();
+        return new BookCategoriesDto(bookId, asOf, categories);
+    }
+
+    private List<Long> categoryIdsAsOf(long bookId, long asOf) {
+        Set<Long> categoryIds = new TreeSet<>();
+        for (CategoryHistoryRow row : categoryHistoryRepository.findByBookIdUpTo(bookId, asOf)) {
+            if (row.op() == CategoryHistoryOp.ADD) {
+                categoryIds.add(row.categoryId());
+            } else {
+                categoryIds.remove(row.categoryId());
+            }
+        }
+        return List.copyOf(categoryIds);
+    }
+}
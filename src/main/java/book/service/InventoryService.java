@@ -0,0 +1,51 @@
+package book.service;
+
+import book.dto.BookInventoryDto;
+import book.dto.CopyReservationDto;
+import book.enums.CopyCondition;
+import book.exception.BookNotFoundException;
+import book.exception.InvalidInventoryRequestException;
+import book.inventory.InventoryStore;
+import book.repository.BookRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * 도서별 실물 권수. 빌리기/돌려주기는 InventoryStore 가 DB 에서 받아 둔 몫 안에서 메모리 카운터로 처리한다.
+ * 도서 상태(BookStatus)는 제목 단위로 대여를 막을지를 정하는 값이라 여기서 바꾸지 않는다.
+ */
+@Service
+@RequiredArgsConstructor
+public class InventoryService {
+
+    private final BookRepository bookRepository;
+    private final InventoryStore inventoryStore;
+
+    public BookInventoryDto getInventory(Long bookId) {
+        return inventoryStore.get(bookId);
+    }
+
+    public BookInventoryDto setCopies(Long bookId, int totalCopies, int damagedCopies, int lostCopies) {
+        if (!bookRepository.existsById(bookId)) {
+            throw new BookNotFoundException("Book not found with id: " + bookId);
+        }
+        return inventoryStore.setCopies(bookId, totalCopies, damagedCopies, lostCopies);
+    }
+
+    // 권수 행이 있으면 도서도 있으므로 도서 존재 여부는 따로 확인하지 않는다.
+    public CopyReservationDto reserve(Long bookId, int count) {
+        checkCount(count);
+        return new CopyReservationDto(bookId, count, inventoryStore.reserve(bookId, count));
+    }
+
+    public CopyReservationDto release(Long bookId, int count, CopyCondition condition) {
+        checkCount(count);
+        return new CopyReservationDto(bookId, count, inventoryStore.release(bookId, count, condition));
+    }
+
+    private static void checkCount(int count) {
+        if (count < 1) {
+            throw new InvalidInventoryRequestException("count must be at least 1: " + count);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package book.snapshot;
+
+import book.event.BookCategoriesChangedEvent;
+import book.event.BookRegisteredEvent;
+import book.event.BookStatusChangedEvent;
+import book.event.ListenerOrder;
+import book.repository.CatalogSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 색인 데이터(D)를 통째로 새로 만들어 바꿔 끼우는 CatalogIndex 의 공통 부분.
+ * 재구축 중에 들어온 이벤트를 모아뒀다가 새 데이터에 다시 반영하고, 실패하면 기존 데이터를 그대로 쓴다.
+ * 하위 클래스는 source 로 D 를 만드는 법(load)과 이벤트 하나를 D 에 반영하는 법(apply)만 구현한다.
+ * apply 는 재구축 후 같은 이벤트가 한번 더 들어와도 결과가 같도록 멱등해야 한다.
+ */
+@Slf4j
+public abstract class AbstractCatalogIndex<D> implements CatalogIndex {
+
+    private final String name;
+    private final CatalogSource rebuildSource;
+
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 아래 필드는 모두 lock 으로 보호한다.
+    protected D data;
+    // 재구축 중에 들어온 이벤트. 재구축이 끝나면 새 색인에 다시 반영한다.
+    private List<Object> pendingEvents;
+
+    protected AbstractCatalogIndex(String name, CatalogSource rebuildSource, D empty) {
+        this.name = name;
+        this.rebuildSource = rebuildSource;
+        this.data = empty;
+    }
+
+    // DB 로 처음부터 다시 만든다.
+    public void rebuild() {
+        beginRebuild();
+        completeRebuild(rebuildSource, List.of());
+    }
+
+    @Override
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingEvents = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void completeRebuild(CatalogSource source, List<Object> catchUpEvents) {
+        long started = System.currentTimeMillis();
+        D fresh;
+        try {
+            fresh = load(source);
+        } catch (RuntimeException e) {
+            // 실패하면 기존 색인을 그대로 쓴다.
+            abortRebuild();
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            data = fresh;
+            for (Object event : catchUpEvents) {
+                apply(event);
+            }
+            for (Object event : pendingEvents) {
+                apply(event);
+            }
+            pendingEvents = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("{} built. {}, catchUpEvents={}, elapsed={}ms", name, describe(fresh), catchUpEvents.size(),
+                System.currentTimeMillis() - started);
+    }
+
+    @Override
+    public void abortRebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingEvents = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.READ_MODEL)
+    public void on(BookRegisteredEvent event) {
+        update(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.READ_MODEL)
+    public void on(BookStatusChangedEvent event) {
+        update(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(ListenerOrder.READ_MODEL)
+    public void on(BookCategoriesChangedEvent event) {
+        update(event);
+    }
+
+    // source 로 새 색인 데이터를 만든다. lock 밖에서 부른다.
+    protected abstract D load(CatalogSource source);
+
+    // 이벤트 하나를 data 에 반영한다. write lock 을 잡은 채로 부른다.
+    protected abstract void apply(Object event);
+
+    // 재구축 로그에 남길 크기
+    protected abstract String describe(D data);
+
+    private void update(Object event) {
+        lock.writeLock().lock();
+        try {
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+            }
+            apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package book.snapshot;
+
+import book.repository.CatalogSource;
+
+import java.util.List;
+
+/**
+ * 카탈로그 전체로 만드는 인메모리 색인. 시작할 때 CatalogLoader 가 스냅샷 또는 DB 로 한번에 채운다.
+ * beginRebuild 이후에 들어오는 이벤트는 모아뒀다가 completeRebuild 에서 새 색인에 다시 반영한다.
+ */
+public interface CatalogIndex {
+
+    void beginRebuild();
+
+    // source 로 새 색인을 만들고 catchUpEvents, 그 다음 재구축 중에 들어온 이벤트 순서로 반영한 뒤 교체한다.
+    void completeRebuild(CatalogSource source, List<Object> catchUpEvents);
+
+    // 재구축을 그만두고 기존 색인을 그대로 쓴다.
+    void abortRebuild();
+}
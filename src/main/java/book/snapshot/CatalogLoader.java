@@ -0,0 +1,135 @@
+package book.snapshot;
+
+import book.event.BookCategoriesChangedEvent;
+import book.event.BookRegisteredEvent;
+import book.event.BookStatusChangedEvent;
+import book.outbox.ChangeEvent;
+import book.repository.BookJdbcRepository;
+import book.repository.OutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 시작할 때 CatalogIndex 들을 채운다.
+ * 쓸 수 있는 카탈로그 스냅샷이 있으면 스냅샷으로 만들고 high-water mark 뒤의 outbox 이벤트만 따라잡는다.
+ * 스냅샷이 없거나, 깨졌거나, 따라잡을 이벤트가 너무 많으면 예전처럼 DB 를 풀스캔 하고 다음 시작을 위해 스냅샷을 하나 남긴다.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogLoader {
+
+    private static final int CATCH_UP_BATCH_SIZE = 1000;
+
+    private final List<CatalogIndex> indexes;
+    private final BookJdbcRepository bookJdbcRepository;
+    private final OutboxRepository outboxRepository;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final ObjectMapper objectMapper;
+
+    // 이보다 많으면 이벤트를 메모리에 모아 다시 적용하는 것보다 DB 풀스캔이 낫다.
+    @Value("${book.snapshot.max-catch-up-events:500000}")
+    private int maxCatchUpEvents = 500_000;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        Optional<CatalogSnapshot> snapshot;
+        try {
+            snapshot = catalogSnapshotService.openLatest();
+        } catch (RuntimeException e) {
+            log.warn("catalog snapshot lookup failed", e);
+            snapshot = Optional.empty();
+        }
+
+        if (snapshot.isPresent() && loadFromSnapshot(snapshot.get())) {
+            log.info("catalog indexes loaded from snapshot. file={}, books={}, elapsed={}ms",
+                    snapshot.get().file(), snapshot.get().bookCount(), System.currentTimeMillis() - started);
+            return;
+        }
+
+        for (CatalogIndex index : indexes) {
+            index.beginRebuild();
+            index.completeRebuild(bookJdbcRepository, List.of());
+        }
+        log.info("catalog indexes loaded from database. elapsed={}ms", System.currentTimeMillis() - started);
+        catalogSnapshotService.requestWrite();
+    }
+
+    private boolean loadFromSnapshot(CatalogSnapshot snapshot) {
+        // 이벤트를 읽기 전에 시작해야 읽는 사이에 커밋된 이벤트도 색인마다 모아둔다. 양쪽에 다 들어가도 멱등이다.
+        for (CatalogIndex index : indexes) {
+            index.beginRebuild();
+        }
+
+        List<Object> catchUpEvents;
+        try {
+            catchUpEvents = catchUpEvents(snapshot.highWaterSeq());
+        } catch (RuntimeException e) {
+            log.warn("catalog snapshot catch-up failed. file={}, highWaterSeq={}", snapshot.file(), snapshot.highWaterSeq(), e);
+            abortAll(0);
+            return false;
+        }
+
+        for (int i = 0; i < indexes.size(); i++) {
+            try {
+                indexes.get(i).completeRebuild(snapshot, catchUpEvents);
+            } catch (RuntimeException e) {
+                // 실패한 색인은 스스로 재구축을 그만둔다. 이미 만든 색인도 DB 로 다시 만든다.
+                log.warn("catalog snapshot load failed. file={}", snapshot.file(), e);
+                abortAll(i + 1);
+                return false;
+            }
+        }
+        log.info("catalog snapshot caught up. highWaterSeq={}, events={}", snapshot.highWaterSeq(), catchUpEvents.size());
+        return true;
+    }
+
+    private List<Object> catchUpEvents(long afterSeq) {
+        List<Object> events = new ArrayList<>();
+        long seq = afterSeq;
+        while (true) {
+            List<ChangeEvent> batch = outboxRepository.findAfter(seq, CATCH_UP_BATCH_SIZE);
+            for (ChangeEvent event : batch) {
+                events.add(toDomainEvent(event));
+            }
+            if (events.size() > maxCatchUpEvents) {
+                throw new IllegalStateException("too many changes since snapshot. events>" + maxCatchUpEvents);
+            }
+            if (batch.size() < CATCH_UP_BATCH_SIZE) {
+                return events;
+            }
+            seq = batch.get(batch.size() - 1).seq();
+        }
+    }
+
+    // OutboxWriter 가 도메인 이벤트를 그대로 JSON 으로 남기므로 타입만 골라서 되돌린다.
+    private Object toDomainEvent(ChangeEvent event) {
+        Class<?> type = switch (event.type()) {
+            case BOOK_REGISTERED -> BookRegisteredEvent.class;
+            case BOOK_STATUS_CHANGED -> BookStatusChangedEvent.class;
+            case BOOK_CATEGORIES_CHANGED -> BookCategoriesChangedEvent.class;
+        };
+        try {
+            return objectMapper.readValue(event.payload(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("failed to read change event. seq=" + event.seq(), e);
+        }
+    }
+
+    private void abortAll(int from) {
+        for (int i = from; i < indexes.size(); i++) {
+            indexes.get(i).abortRebuild();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package book.snapshot;
+
+import book.enums.BookStatus;
+import book.repository.BookRow;
+import book.repository.CatalogSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 디스크에 남긴 카탈로그 스냅샷(.bksn)을 FileChannel.map 으로 읽는다. 파일 내용을 힙으로 복사하지 않고
+ * 페이지 캐시를 그대로 읽기 때문에 색인을 만드는 동안 DB 를 한번도 안 거친다.
+ *
+ * 파일은 헤더(HEADER_SIZE) 뒤에 구역(Section)이 순서대로 붙어 있고, 헤더에 구역마다 위치, 길이, CRC32 가 있다.
+ * 숫자는 모두 little-endian 이다.
+ * <pre>
+ * IDS              long[books]  도서 id 오름차순
+ * STATUSES         byte[books]  STATUS_NAMES 의 순번
+ * AUTHOR_REFS      int[books]   AUTHORS 사전의 순번. null 이면 -1
+ * TITLE_ENDS       int[books]   TITLES 에서 제목이 끝나는 위치. 제목이 null 이면 ~위치
+ * CATEGORY_STARTS  int[books+1] CATEGORY_REFS 에서 도서의 카테고리가 시작하는 위치
+ * CATEGORY_REFS    int[links]   CATEGORY_IDS 사전의 순번
+ * TITLES           byte[]       UTF-8 제목을 이어붙인 것. 제목은 거의 겹치지 않아서 사전을 만들지 않는다.
+ * AUTHORS          int[authors+1] 시작 위치 + UTF-8 바이트
+ * CATEGORY_IDS     long[categories]
+ * STATUS_NAMES     BookStatus 이름을 '\n' 으로 이은 것. enum 순서가 바뀌어도 읽을 수 있게 이름으로 남긴다.
+ * </pre>
+ */
+public final class CatalogSnapshot implements CatalogSource {
+
+    static final int MAGIC = 0x4E534B42; // "BKSN"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 256;
+    static final int SECTION_TABLE_OFFSET = 40;
+    static final int SECTION_ENTRY_SIZE = 20;
+    static final int HEADER_CRC_OFFSET = SECTION_TABLE_OFFSET + Section.values().length * SECTION_ENTRY_SIZE;
+
+    enum Section {
+        IDS, STATUSES, AUTHOR_REFS, TITLE_ENDS, CATEGORY_STARTS, CATEGORY_REFS, TITLES, AUTHORS, CATEGORY_IDS, STATUS_NAMES
+    }
+
+    private final Path file;
+    private final long createdAt;
+    private final long highWaterSeq;
+    private final int bookCount;
+    private final int linkCount;
+    private final int authorCount;
+    private final int categoryCount;
+    private final Map<Section, ByteBuffer> sections;
+    private final BookStatus[] statuses;
+
+    private CatalogSnapshot(Path file, ByteBuffer header, Map<Section, ByteBuffer> sections) throws IOException {
+        this.file = file;
+        this.createdAt = header.getLong(8);
+        this.highWaterSeq = header.getLong(16);
+        this.bookCount = header.getInt(24);
+        this.linkCount = header.getInt(28);
+        this.authorCount = header.getInt(32);
+        this.categoryCount = header.getInt(36);
+        this.sections = sections;
+        this.statuses = decodeStatuses(sections.get(Section.STATUS_NAMES));
+        checkLength(Section.IDS, (long) bookCount * Long.BYTES);
+        checkLength(Section.STATUSES, bookCount);
+        checkLength(Section.AUTHOR_REFS, (long) bookCount * Integer.BYTES);
+        checkLength(Section.TITLE_ENDS, (long) bookCount * Integer.BYTES);
+        checkLength(Section.CATEGORY_STARTS, (long) (bookCount + 1) * Integer.BYTES);
+        checkLength(Section.CATEGORY_REFS, (long) linkCount * Integer.BYTES);
+        checkLength(Section.CATEGORY_IDS, (long) categoryCount * Long.BYTES);
+    }
+
+    /**
+     * 구역마다 따로 map 한다. 구역 하나가 2GB 를 넘지 않으면 되므로 도서 수천만 권까지 한 파일로 된다.
+     * verifyChecksum 이면 map 한 뒤 구역마다 CRC32 를 비교한다. 파일을 한번 다 읽게 되지만 색인을 만들면서 어차피 다 읽는다.
+     */
+    public static CatalogSnapshot open(Path file, boolean verifyChecksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw invalid(file, "file too short");
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw invalid(file, "unexpected end of header");
+                }
+            }
+            header.flip();
+            if (header.getInt(0) != MAGIC) {
+                throw invalid(file, "bad magic");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw invalid(file, "unsupported version " + header.getInt(4));
+            }
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(header.duplicate().limit(HEADER_CRC_OFFSET));
+            if ((int) headerCrc.getValue() != header.getInt(HEADER_CRC_OFFSET)) {
+                throw invalid(file, "header checksum mismatch");
+            }
+
+            Map<Section, ByteBuffer> sections = new EnumMap<>(Section.class);
+            for (Section section : Section.values()) {
+                int entry = SECTION_TABLE_OFFSET + section.ordinal() * SECTION_ENTRY_SIZE;
+                long offset = header.getLong(entry);
+                long length = header.getLong(entry + 8);
+                if (offset < HEADER_SIZE || length < 0 || length > Integer.MAX_VALUE || offset + length > size) {
+                    throw invalid(file, section + " out of range");
+                }
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+                if (verifyChecksum) {
+                    CRC32 crc = new CRC32();
+                    crc.update(buffer.duplicate());
+                    if ((int) crc.getValue() != header.getInt(entry + 16)) {
+                        throw invalid(file, section + " checksum mismatch");
+                    }
+                }
+                sections.put(section, buffer);
+            }
+            // 채널을 닫아도 map 한 영역은 버퍼가 GC 될 때까지 유효하다.
+            return new CatalogSnapshot(file, header, sections);
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public long createdAt() {
+        return createdAt;
+    }
+
+    // 이 seq 까지의 outbox 이벤트는 스냅샷에 반영돼 있다. 뒤의 이벤트만 따라잡으면 된다.
+    public long highWaterSeq() {
+        return highWaterSeq;
+    }
+
+    public int bookCount() {
+        return bookCount;
+    }
+
+    public int linkCount() {
+        return linkCount;
+    }
+
+    @Override
+    public void streamAllBooks(Consumer<BookRow> consumer) {
+        ByteBuffer ids = sections.get(Section.IDS);
+        ByteBuffer statusCodes = sections.get(Section.STATUSES);
+        ByteBuffer authorRefs = sections.get(Section.AUTHOR_REFS);
+        ByteBuffer titleEnds = sections.get(Section.TITLE_ENDS);
+        ByteBuffer titles = sections.get(Section.TITLES);
+        String[] authors = decodeAuthors();
+
+        byte[] buffer = new byte[256];
+        int start = 0;
+        for (int i = 0; i < bookCount; i++) {
+            int rawEnd = titleEnds.getInt(i * Integer.BYTES);
+            int end = rawEnd < 0 ? ~rawEnd : rawEnd;
+            String title = null;
+            if (rawEnd >= 0) {
+                int length = end - start;
+                if (buffer.length < length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                titles.get(start, buffer, 0, length);
+                title = new String(buffer, 0, length, StandardCharsets.UTF_8);
+            }
+            start = end;
+
+            int authorRef = authorRefs.getInt(i * Integer.BYTES);
+            consumer.accept(new BookRow(ids.getLong(i * Long.BYTES),
+                    title,
+                    authorRef < 0 ? null : authors[authorRef],
+                    statuses[statusCodes.get(i)]));
+        }
+    }
+
+    @Override
+    public void streamAllBookCategories(BookCategoryRowHandler handler) {
+        ByteBuffer ids = sections.get(Section.IDS);
+        ByteBuffer starts = sections.get(Section.CATEGORY_STARTS);
+        ByteBuffer refs = sections.get(Section.CATEGORY_REFS);
+        ByteBuffer categoryIdBuffer = sections.get(Section.CATEGORY_IDS);
+        long[] categoryIds = new long[categoryCount];
+        for (int i = 0; i < categoryCount; i++) {
+            categoryIds[i] = categoryIdBuffer.getLong(i * Long.BYTES);
+        }
+
+        int start = starts.getInt(0);
+        for (int i = 0; i < bookCount; i++) {
+            int end = starts.getInt((i + 1) * Integer.BYTES);
+            long bookId = ids.getLong(i * Long.BYTES);
+            for (int j = start; j < end; j++) {
+                handler.accept(bookId, categoryIds[refs.getInt(j * Integer.BYTES)]);
+            }
+            start = end;
+        }
+    }
+
+    private String[] decodeAuthors() {
+        ByteBuffer buffer = sections.get(Section.AUTHORS);
+        int base = (authorCount + 1) * Integer.BYTES;
+        String[] authors = new String[authorCount];
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < authorCount; i++) {
+            int start = buffer.getInt(i * Integer.BYTES);
+            int length = buffer.getInt((i + 1) * Integer.BYTES) - start;
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            buffer.get(base + start, bytes, 0, length);
+            authors[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        return authors;
+    }
+
+    private BookStatus[] decodeStatuses(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(0, bytes);
+        String[] names = new String(bytes, StandardCharsets.UTF_8).split("\n");
+        BookStatus[] decoded = new BookStatus[names.length];
+        for (int i = 0; i < names.length; i++) {
+            try {
+                decoded[i] = BookStatus.valueOf(names[i]);
+            } catch (IllegalArgumentException e) {
+                throw invalid(file, "unknown status " + names[i]);
+            }
+        }
+        return decoded;
+    }
+
+    private void checkLength(Section section, long expected) throws IOException {
+        if (sections.get(section).capacity() != expected) {
+            throw invalid(file, section + " length mismatch");
+        }
+    }
+
+    private static IOException invalid(Path file, String reason) {
+        return new IOException("invalid catalog snapshot " + file + ": " + reason);
+    }
+}
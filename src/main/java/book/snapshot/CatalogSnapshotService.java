@@ -0,0 +1,219 @@
+package book.snapshot;
+
+import book.repository.BookJdbcRepository;
+import book.repository.OutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * writeInterval 마다 카탈로그 스냅샷 파일을 남기고, 시작할 때 쓸 수 있는 가장 최근 파일을 찾아준다.
+ *
+ * 스냅샷은 primary 에서 REPEATABLE READ 트랜잭션 하나로 읽어서 한 시점의 카탈로그가 된다.
+ * high-water mark 는 트랜잭션을 시작하기 settleDelay 전까지 기록된 마지막 outbox seq 다. outbox relay 와 같이
+ * settleDelay 안에 커밋이 끝난다고 보고, 그 seq 까지의 변경은 스냅샷에 들어있다고 본다. 그 뒤의 이벤트가 스냅샷에
+ * 이미 들어있을 수도 있지만 색인 쪽 반영이 모두 멱등이라 다시 적용해도 된다.
+ */
+@Component
+@Slf4j
+public class CatalogSnapshotService implements SmartLifecycle {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'")
+            .withZone(ZoneOffset.UTC);
+    private static final String FILE_PREFIX = "catalog-";
+    private static final String FILE_SUFFIX = ".bksn";
+
+    private final BookJdbcRepository bookJdbcRepository;
+    private final OutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${book.snapshot.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${book.snapshot.dir:data/snapshots}")
+    private String dir = "data/snapshots";
+
+    @Value("${book.snapshot.write-interval:1h}")
+    private Duration writeInterval = Duration.ofHours(1);
+
+    // outbox retention 보다 충분히 짧아야 스냅샷 이후의 이벤트가 지워지지 않고 남아있다.
+    @Value("${book.snapshot.max-age:1d}")
+    private Duration maxAge = Duration.ofDays(1);
+
+    @Value("${book.snapshot.retained:2}")
+    private int retained = 2;
+
+    @Value("${book.snapshot.verify-checksum:true}")
+    private boolean verifyChecksum = true;
+
+    @Value("${book.outbox.settle-delay:10s}")
+    private Duration settleDelay = Duration.ofSeconds(10);
+
+    private ScheduledExecutorService scheduler;
+
+    public CatalogSnapshotService(BookJdbcRepository bookJdbcRepository,
+                                  OutboxRepository outboxRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.bookJdbcRepository = bookJdbcRepository;
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            log.info("catalog snapshot disabled");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::writeSafely,
+                writeInterval.toMillis(), writeInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    // 스냅샷 없이 DB 로 색인을 만든 직전처럼 다음 시작을 빠르게 하려고 바로 한번 남길 때 쓴다.
+    public void requestWrite() {
+        ScheduledExecutorService current = scheduler;
+        if (current != null) {
+            current.execute(this::writeSafely);
+        }
+    }
+
+    // 최근 파일부터 열어보고 깨졌거나 max-age 보다 오래된 파일은 건너뛴다.
+    public Optional<CatalogSnapshot> openLatest() {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        long oldest = System.currentTimeMillis() - maxAge.toMillis();
+        for (Path file : snapshotFiles(Path.of(dir))) {
+            try {
+                CatalogSnapshot snapshot = CatalogSnapshot.open(file, verifyChecksum);
+                if (snapshot.createdAt() < oldest) {
+                    log.info("catalog snapshot too old. file={}, createdAt={}", file, Instant.ofEpochMilli(snapshot.createdAt()));
+                    return Optional.empty();
+                }
+                return Optional.of(snapshot);
+            } catch (IOException e) {
+                log.warn("catalog snapshot skipped. file={}", file, e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 임시 파일에 다 쓰고 디스크에 내린 다음 이름을 바꾼다. dir 에 보이는 .bksn 파일은 항상 완성된 파일이다.
+     * 스케줄러 한 스레드에서만 부르므로 동시에 두 개를 쓰지 않는다.
+     */
+    public synchronized Path write() throws IOException {
+        Path directory = Path.of(dir);
+        Files.createDirectories(directory);
+        long startedAt = System.currentTimeMillis();
+        Path target = directory.resolve(FILE_PREFIX + FILE_TIME.format(Instant.ofEpochMilli(startedAt)) + FILE_SUFFIX);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+
+        int[] counts = new int[2];
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            transactionTemplate.executeWithoutResult(status -> {
+                long highWaterSeq = outboxRepository.findLastSeqCreatedBefore(startedAt - settleDelay.toMillis());
+                counts[0] = bookJdbcRepository.countBooks();
+                counts[1] = bookJdbcRepository.countBookCategories();
+                CatalogSnapshotWriter writer = new CatalogSnapshotWriter(channel, counts[0], counts[1]);
+                bookJdbcRepository.streamAllBooks(writer::book);
+                bookJdbcRepository.streamAllBookCategories(writer::bookCategory);
+                try {
+                    writer.finish(startedAt, highWaterSeq);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        deleteOldSnapshots(directory);
+        log.info("catalog snapshot written. file={}, books={}, bookCategories={}, bytes={}, elapsed={}ms",
+                target, counts[0], counts[1], Files.size(target), System.currentTimeMillis() - startedAt);
+        return target;
+    }
+
+    private void writeSafely() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            // 기존 스냅샷을 그대로 두고 다음 주기에 다시 쓴다.
+            log.warn("catalog snapshot failed", e);
+        }
+    }
+
+    private void deleteOldSnapshots(Path directory) throws IOException {
+        List<Path> snapshots = snapshotFiles(directory);
+        for (int i = retained; i < snapshots.size(); i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+    }
+
+    // 파일 이름에 UTC 시각이 들어가서 이름 역순이 곧 최신순이다.
+    private static List<Path> snapshotFiles(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+                    })
+                    .sorted(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed())
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package book.snapshot;
+
+import book.enums.BookStatus;
+import book.repository.BookRow;
+import book.snapshot.CatalogSnapshot.Section;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * CatalogSnapshot 형식으로 파일을 쓴다. 도서 수와 도서-카테고리 수를 먼저 받아서 고정 길이 구역의 자리를 잡아두고,
+ * book(...) 을 id 순으로, 그 다음 bookCategory(...) 를 도서 id 순으로 한번씩 받으면서 구역마다 제 위치에 바로 쓴다.
+ * 길이를 미리 모르는 제목은 고정 구역 뒤에 이어 쓰고, 지은이와 카테고리 사전은 finish 에서 맨 뒤에 붙인다.
+ */
+final class CatalogSnapshotWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final int expectedBooks;
+    private final int expectedLinks;
+    private final long[] ids;
+
+    private final SectionOutput idOutput;
+    private final SectionOutput statusOutput;
+    private final SectionOutput authorRefOutput;
+    private final SectionOutput titleEndOutput;
+    private final SectionOutput categoryStartOutput;
+    private final SectionOutput categoryRefOutput;
+    private final SectionOutput titleOutput;
+    private final Map<Section, SectionOutput> finished = new EnumMap<>(Section.class);
+
+    private final Map<String, Integer> authorRefs = new HashMap<>();
+    private final List<byte[]> authors = new ArrayList<>();
+    private final Map<Long, Integer> categoryRefs = new HashMap<>();
+    private final List<Long> categoryIds = new ArrayList<>();
+
+    private int books;
+    private int links;
+    private int linkBook;
+    private boolean booksDone;
+
+    CatalogSnapshotWriter(FileChannel channel, int expectedBooks, int expectedLinks) {
+        this.channel = channel;
+        this.expectedBooks = expectedBooks;
+        this.expectedLinks = expectedLinks;
+        this.ids = new long[expectedBooks];
+
+        long position = CatalogSnapshot.HEADER_SIZE;
+        idOutput = new SectionOutput(Section.IDS, position);
+        position += (long) expectedBooks * Long.BYTES;
+        statusOutput = new SectionOutput(Section.STATUSES, position);
+        position += expectedBooks;
+        authorRefOutput = new SectionOutput(Section.AUTHOR_REFS, position);
+        position += (long) expectedBooks * Integer.BYTES;
+        titleEndOutput = new SectionOutput(Section.TITLE_ENDS, position);
+        position += (long) expectedBooks * Integer.BYTES;
+        categoryStartOutput = new SectionOutput(Section.CATEGORY_STARTS, position);
+        position += (long) (expectedBooks + 1) * Integer.BYTES;
+        categoryRefOutput = new SectionOutput(Section.CATEGORY_REFS, position);
+        position += (long) expectedLinks * Integer.BYTES;
+        titleOutput = new SectionOutput(Section.TITLES, position);
+    }
+
+    void book(BookRow row) {
+        if (booksDone) {
+            throw new IllegalStateException("books must be written before book categories");
+        }
+        if (books == expectedBooks) {
+            throw new IllegalStateException("catalog changed while writing snapshot. expected books=" + expectedBooks);
+        }
+        if (books > 0 && row.id() <= ids[books - 1]) {
+            throw new IllegalStateException("books must be in id order. id=" + row.id());
+        }
+        ids[books++] = row.id();
+        idOutput.putLong(row.id());
+        statusOutput.put((byte) row.status().ordinal());
+        authorRefOutput.putInt(row.author() == null ? -1 : authorRef(row.author()));
+        if (row.title() == null) {
+            titleEndOutput.putInt(~titleEnd());
+        } else {
+            titleOutput.put(row.title().getBytes(StandardCharsets.UTF_8));
+            titleEndOutput.putInt(titleEnd());
+        }
+    }
+
+    void bookCategory(long bookId, long categoryId) {
+        finishBooks();
+        while (linkBook < books && ids[linkBook] < bookId) {
+            categoryStartOutput.putInt(links);
+            linkBook++;
+        }
+        if (linkBook == books || ids[linkBook] != bookId) {
+            // book 보다 나중에 읽어서 그 사이에 등록된 도서의 카테고리. 이런 변경은 outbox 로 따라잡는다.
+            return;
+        }
+        if (links == expectedLinks) {
+            throw new IllegalStateException("catalog changed while writing snapshot. expected book categories=" + expectedLinks);
+        }
+        categoryRefOutput.putInt(categoryRef(categoryId));
+        links++;
+    }
+
+    // 헤더는 맨 마지막에 쓴다. 중간에 실패한 파일은 magic 이 없어서 읽는 쪽이 바로 버린다.
+    void finish(long createdAt, long highWaterSeq) throws IOException {
+        finishBooks();
+        while (linkBook < books) {
+            categoryStartOutput.putInt(links);
+            linkBook++;
+        }
+        if (books != expectedBooks || links != expectedLinks) {
+            throw new IllegalStateException("catalog changed while writing snapshot. books=" + books + "/" + expectedBooks
+                    + ", bookCategories=" + links + "/" + expectedLinks);
+        }
+        for (SectionOutput output : List.of(idOutput, statusOutput, authorRefOutput, titleEndOutput,
+                categoryStartOutput, categoryRefOutput, titleOutput)) {
+            output.finish();
+        }
+
+        SectionOutput authorOutput = new SectionOutput(Section.AUTHORS, titleOutput.end());
+        int start = 0;
+        for (byte[] author : authors) {
+            authorOutput.putInt(start);
+            start += author.length;
+        }
+        authorOutput.putInt(start);
+        for (byte[] author : authors) {
+            authorOutput.put(author);
+        }
+        authorOutput.finish();
+
+        SectionOutput categoryIdOutput = new SectionOutput(Section.CATEGORY_IDS, authorOutput.end());
+        for (Long categoryId : categoryIds) {
+            categoryIdOutput.putLong(categoryId);
+        }
+        categoryIdOutput.finish();
+
+        SectionOutput statusNameOutput = new SectionOutput(Section.STATUS_NAMES, categoryIdOutput.end());
+        StringBuilder statusNames = new StringBuilder();
+        for (BookStatus status : BookStatus.values()) {
+            statusNames.append(statusNames.isEmpty() ? "" : "\n").append(status.name());
+        }
+        statusNameOutput.put(statusNames.toString().getBytes(StandardCharsets.UTF_8));
+        statusNameOutput.finish();
+
+        writeHeader(createdAt, highWaterSeq);
+    }
+
+    private void finishBooks() {
+        if (!booksDone) {
+            booksDone = true;
+            categoryStartOutput.putInt(0);
+        }
+    }
+
+    private int titleEnd() {
+        long end = titleOutput.length();
+        if (end > Integer.MAX_VALUE) {
+            throw new IllegalStateException("titles exceed 2GB");
+        }
+        return (int) end;
+    }
+
+    private int authorRef(String author) {
+        Integer ref = authorRefs.get(author);
+        if (ref == null) {
+            ref = authors.size();
+            authorRefs.put(author, ref);
+            authors.add(author.getBytes(StandardCharsets.UTF_8));
+        }
+        return ref;
+    }
+
+    private int categoryRef(long categoryId) {
+        Integer ref = categoryRefs.get(categoryId);
+        if (ref == null) {
+            ref = categoryIds.size();
+            categoryRefs.put(categoryId, ref);
+            categoryIds.add(categoryId);
+        }
+        return ref;
+    }
+
+    private void writeHeader(long createdAt, long highWaterSeq) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(CatalogSnapshot.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0, CatalogSnapshot.MAGIC);
+        header.putInt(4, CatalogSnapshot.VERSION);
+        header.putLong(8, createdAt);
+        header.putLong(16, highWaterSeq);
+        header.putInt(24, books);
+        header.putInt(28, links);
+        header.putInt(32, authors.size());
+        header.putInt(36, categoryIds.size());
+        for (SectionOutput output : finished.values()) {
+            int entry = CatalogSnapshot.SECTION_TABLE_OFFSET + output.section.ordinal() * CatalogSnapshot.SECTION_ENTRY_SIZE;
+            header.putLong(entry, output.offset);
+            header.putLong(entry + 8, output.length());
+            header.putInt(entry + 16, (int) output.crc.getValue());
+        }
+        CRC32 headerCrc = new CRC32();
+        headerCrc.update(header.duplicate().limit(CatalogSnapshot.HEADER_CRC_OFFSET));
+        header.putInt(CatalogSnapshot.HEADER_CRC_OFFSET, (int) headerCrc.getValue());
+        writeFully(header, 0);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    // 구역 하나를 제 위치부터 이어서 쓴다. 버퍼가 차면 그 부분의 CRC 를 갱신하고 내린다.
+    private final class SectionOutput {
+        private final Section section;
+        private final long offset;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+        private long written;
+
+        private SectionOutput(Section section, long offset) {
+            this.section = section;
+            this.offset = offset;
+        }
+
+        void putLong(long value) {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putInt(int value) {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void put(byte value) {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void put(byte[] bytes) {
+            int position = 0;
+            while (position < bytes.length) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), bytes.length - position);
+                buffer.put(bytes, position, n);
+                position += n;
+            }
+        }
+
+        long length() {
+            return written + buffer.position();
+        }
+
+        long end() {
+            return offset + length();
+        }
+
+        void finish() throws IOException {
+            flush();
+            finished.put(section, this);
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            int n = buffer.remaining();
+            writeFully(buffer, offset + written);
+            written += n;
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+-- 지금까지 ddl-auto: update 로 만들어진 스키마. 이미 운영 중인 DB 는 baseline(V1) 으로 잡고 V2 부터 적용한다.
+CREATE TABLE category (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE book (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    author VARCHAR(255) NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    status VARCHAR(20) DEFAULT 'AVAILABLE'
+);
+
+CREATE TABLE book_category (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    book_id BIGINT,
+    category_id BIGINT,
+    FOREIGN KEY (book_id) REFERENCES book (id),
+    FOREIGN KEY (category_id) REFERENCES category (id)
+);
@@ -0,0 +1,18 @@
+-- BookRepository.findAllByAuthorAndTitle : where author = ? and title = ?
+CREATE INDEX idx_book_author_title ON book (author, title);
+
+-- 상태별 조회. id 까지 넣어서 where status = ? and id > ? order by id 커서 조회도 인덱스만으로 정렬된다.
+CREATE INDEX idx_book_status ON book (status, id);
+
+-- 카테고리별 조회(findAllByCategory, findPageByCategory, findSummariesByCategory) 는 category_id 로 찾고 book_id 만 쓴다.
+-- book_id 까지 넣어두면 book_category 본 테이블을 읽지 않고 인덱스만으로 book 과 조인한다.
+CREATE INDEX idx_book_category_category_book ON book_category (category_id, book_id);
+
+-- 같은 도서에 같은 카테고리가 두번 들어가지 않도록 막는다.
+-- 도서 기준 조회(findAllByBook, findCategoryIdsByBookId, deleteAllByBookIdAndCategoryIdIn) 도 이 인덱스를 탄다.
+-- 예전 데이터에 중복이 있으면 제약을 못 거니 가장 먼저 들어간 행만 남긴다. (MySQL 은 같은 테이블을 서브쿼리로 직접 못 읽어서 한번 더 감싼다)
+DELETE FROM book_category
+WHERE id NOT IN (SELECT keep.id
+                 FROM (SELECT MIN(id) AS id FROM book_category GROUP BY book_id, category_id) keep);
+
+ALTER TABLE book_category ADD CONSTRAINT uk_book_category_book_category UNIQUE (book_id, category_id);
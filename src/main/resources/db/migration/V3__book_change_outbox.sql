@@ -0,0 +1,15 @@
+-- 도서 변경 이벤트 outbox. 변경과 같은 트랜잭션에서 쌓고 OutboxRelay 가 seq 순서대로 sink 에 흘려보낸다.
+-- created_at 은 애플리케이션 시각(epoch millis). seq 사이 빈 번호가 커밋 전인지, 롤백으로 영영 비는지 판단할 때 쓴다.
+CREATE TABLE book_change_outbox (
+    seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(40) NOT NULL,
+    book_id BIGINT NOT NULL,
+    payload VARCHAR(4000) NOT NULL,
+    created_at BIGINT NOT NULL
+);
+
+-- sink 별로 어디까지 전달했는지. 전달한 뒤에 올리기 때문에 중간에 죽으면 같은 이벤트를 다시 보낸다. (at-least-once)
+CREATE TABLE book_change_sink_offset (
+    sink VARCHAR(50) PRIMARY KEY,
+    last_seq BIGINT NOT NULL
+);
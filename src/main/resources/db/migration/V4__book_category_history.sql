@@ -0,0 +1,16 @@
+-- 도서-카테고리 변경 이력. 지우거나 고치지 않고 쌓기만 한다.
+-- op 는 ADD / REMOVE, ts 는 변경이 커밋된 시각(애플리케이션 epoch millis). CategoryHistoryWriter 가 커밋 후에 모아서 넣는다.
+CREATE TABLE book_category_history (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    book_id BIGINT NOT NULL,
+    category_id BIGINT NOT NULL,
+    op VARCHAR(10) NOT NULL,
+    ts BIGINT NOT NULL
+);
+
+-- GET /books/{id}/categories?asOf= : where book_id = ? and ts <= ? order by ts, id
+CREATE INDEX idx_book_category_history_book_ts ON book_category_history (book_id, ts);
+
+-- 이력을 쌓기 전부터 있던 연결은 처음(ts 0)부터 있던 것으로 둔다.
+INSERT INTO book_category_history (book_id, category_id, op, ts)
+SELECT book_id, category_id, 'ADD', 0 FROM book_category;
@@ -0,0 +1,12 @@
+-- 도서(제목)별 실물 권수. 빌려 간(reserved), 파손(damaged), 분실(lost) 을 뺀 나머지가 빌려줄 수 있는 권수다.
+-- reserved/damaged/lost 는 InventoryStore 가 메모리에서 세다가 모아서 쓰고, total 은 관리 API 로만 바꾼다.
+-- 아직 권수를 등록하지 않은 도서는 행이 없다.
+CREATE TABLE book_inventory (
+    book_id BIGINT PRIMARY KEY,
+    total_copies INT NOT NULL,
+    reserved_copies INT NOT NULL DEFAULT 0,
+    damaged_copies INT NOT NULL DEFAULT 0,
+    lost_copies INT NOT NULL DEFAULT 0,
+    updated_at BIGINT NOT NULL,
+    FOREIGN KEY (book_id) REFERENCES book (id)
+);
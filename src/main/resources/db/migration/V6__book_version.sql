@@ -0,0 +1,3 @@
+-- Book.version(@Version) 컬럼. V1 은 baseline 이라 이미 운영 중인 DB 에는 적용되지 않으므로 여기서 붙인다.
+-- 기존 행은 0 부터 센다.
+ALTER TABLE book ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
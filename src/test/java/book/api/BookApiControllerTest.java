@@ -0,0 +1,198 @@
+package book.api;
+
+import book.cache.CatalogVersions;
+import book.cache.RequestCoalescer;
+import book.cache.ResponseCache;
+import book.dto.BookStatusDto;
+import book.dto.ResponseBookDto;
+import book.enums.BookStatus;
+import book.exception.BookVersionConflictException;
+import book.exception.CategoryNotFoundException;
+import book.exception.DuplicateBookIdException;
+import book.exception.ImportJobNotFoundException;
+import book.exception.ImportQueueFullException;
+import book.metrics.QueryStatsFilter;
+import book.outbox.SseChangeStream;
+import book.service.BookBulkService;
+import book.service.BookImportService;
+import book.service.BookSearchService;
+import book.service.BookService;
+import book.service.CatalogExportService;
+import book.service.CategoryHistoryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 컨트롤러와 BookExceptionHandler 만 띄워서 상태 코드와 본문을 확인한다. 서비스는 mock 이다.
+ */
+// QueryStatsFilter 는 MeterRegistry 가 있어야 떠서 뺀다. 지표는 QueryStatsFilterTest 가 본다.
+@WebMvcTest(controllers = BookApiController.class,
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = QueryStatsFilter.class))
+class BookApiControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private BookService bookService;
+    @MockBean
+    private BookSearchService bookSearchService;
+    @MockBean
+    private BookBulkService bookBulkService;
+    @MockBean
+    private BookImportService bookImportService;
+    @MockBean
+    private CatalogExportService catalogExportService;
+    @MockBean
+    private CategoryHistoryService categoryHistoryService;
+    @MockBean
+    private ResponseCache responseCache;
+    @MockBean
+    private RequestCoalescer requestCoalescer;
+    @MockBean
+    private CatalogVersions catalogVersions;
+    @MockBean
+    private SseChangeStream sseChangeStream;
+
+    @Test
+    @DisplayName("도서 상태 변경 - expectedVersion 이 지금 version 과 같으면 200, 다르면 409 와 메시지")
+    void changeBookStatusWithStaleVersion() throws Exception {
+        // Given
+        given(bookService.changeBookStatus(1L, BookStatus.UNAVAILABLE, 3L))
+                .willReturn(new BookStatusDto(1L, BookStatus.UNAVAILABLE, 4L));
+        given(bookService.changeBookStatus(1L, BookStatus.AVAILABLE, 3L))
+                .willThrow(new BookVersionConflictException("Book version mismatch. id: 1, expected: 3, actual: 4"));
+
+        // When & Then
+        mockMvc.perform(patch("/books/1/changeStatus/UNAVAILABLE").param("expectedVersion", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(4));
+        mockMvc.perform(patch("/books/1/changeStatus/AVAILABLE").param("expectedVersion", "3"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Book version mismatch. id: 1, expected: 3, actual: 4"));
+    }
+
+    @Test
+    @DisplayName("도서 가져오기 - 대기열이 차면 503, 없는 작업의 상태를 물으면 404")
+    void importQueueFullAndUnknownJob() throws Exception {
+        // Given
+        MockMultipartFile file = new MockMultipartFile("file", "books.csv", "text/csv",
+                "title,author\n제목,지은이\n".getBytes());
+        given(bookImportService.submit(any(), isNull()))
+                .willThrow(new ImportQueueFullException("import queue is full, retry later. maxQueuedJobs=4"));
+        given(bookImportService.getStatus("unknown"))
+                .willThrow(new ImportJobNotFoundException("import job is NotFound: unknown"));
+
+        // When & Then
+        mockMvc.perform(multipart("/books/import").file(file))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.message").value("import queue is full, retry later. maxQueuedJobs=4"));
+        mockMvc.perform(get("/books/import/unknown"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("import job is NotFound: unknown"));
+    }
+
+    @Test
+    @DisplayName("카테고리 일괄 변경 - 같은 도서가 두번 나오면 400, 1000 건을 넘으면 서비스까지 가지 않고 400")
+    void changeCategoriesInBulkRejected() throws Exception {
+        // Given
+        List<BookApiController.BookCategoryChange> duplicated = List.of(
+                new BookApiController.BookCategoryChange(1L, List.of(1L)),
+                new BookApiController.BookCategoryChange(1L, List.of(2L)));
+        willThrow(new DuplicateBookIdException("bookId is duplicated: [1]"))
+                .given(bookService).changeCategoriesInBulk(anyList());
+        List<BookApiController.BookCategoryChange> tooMany = LongStream.rangeClosed(1, 1001)
+                .mapToObj(id -> new BookApiController.BookCategoryChange(id, List.of(1L)))
+                .toList();
+
+        // When & Then
+        mockMvc.perform(put("/books/categories/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BookApiController.BulkUpdateBookCategoryCommand(duplicated))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("bookId is duplicated: [1]"));
+        verify(bookService).changeCategoriesInBulk(anyList());
+
+        mockMvc.perform(put("/books/categories/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BookApiController.BulkUpdateBookCategoryCommand(tooMany))))
+                .andExpect(status().isBadRequest());
+        // 두번째 요청은 검증에서 막혀 서비스 호출이 처음 한번 그대로다.
+        verify(bookService).changeCategoriesInBulk(anyList());
+    }
+
+    @Test
+    @DisplayName("카테고리 NDJSON 스트리밍 - application/x-ndjson 으로 도서 하나당 한 줄, 받은 순서대로. 없는 카테고리는 404")
+    void streamBooksByCategoryAsNdjson() throws Exception {
+        // Given
+        List<ResponseBookDto> books = List.of(
+                new ResponseBookDto(3L, "도서1", "황성태", List.of()),
+                new ResponseBookDto(7L, "도서2", "황성태", List.of()),
+                new ResponseBookDto(9L, "도서3", "황성태", List.of()));
+        willAnswer(invocation -> {
+            Consumer<ResponseBookDto> consumer = invocation.getArgument(1);
+            books.forEach(consumer);
+            return null;
+        }).given(bookService).streamBooksByCategory(eq(1L), any());
+        willThrow(new CategoryNotFoundException("Category not found with id: 2"))
+                .given(bookService).checkCategoryExists(2L);
+
+        // When - StreamingResponseBody 는 async 로 쓰인다.
+        MvcResult started = mockMvc.perform(get("/books/by-category/1/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn();
+
+        // Then
+        String[] lines = result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(books.size(), lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            ResponseBookDto line = objectMapper.readValue(lines[i], ResponseBookDto.class);
+            assertEquals(books.get(i).bookId(), line.bookId());
+            assertEquals(books.get(i).title(), line.title());
+        }
+        mockMvc.perform(get("/books/by-category/2/stream"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Category not found with id: 2"));
+    }
+}
@@ -0,0 +1,77 @@
+package book.api;
+
+import book.exception.CopiesUnavailableException;
+import book.exception.InventoryNotFoundException;
+import book.inventory.InventoryStore;
+import book.metrics.QueryStatsFilter;
+import book.repository.BookRepository;
+import book.service.InventoryService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * InventoryService 는 실제 빈으로 띄워 count 검사를 거치게 하고, 권수를 세는 InventoryStore 만 mock 이다.
+ */
+@WebMvcTest(controllers = BookInventoryController.class,
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = QueryStatsFilter.class))
+@Import(InventoryService.class)
+class BookInventoryControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private InventoryStore inventoryStore;
+    @MockBean
+    private BookRepository bookRepository;
+
+    @Test
+    @DisplayName("빌리기 - 남은 권수보다 많이 빌리면 409, 권수 행이 없으면 404")
+    void reserveWhenExhausted() throws Exception {
+        // Given
+        given(inventoryStore.reserve(1L, 1)).willReturn(0L);
+        given(inventoryStore.reserve(1L, 2)).willThrow(new CopiesUnavailableException("Not enough available copies. bookId: 1, count: 2"));
+        given(inventoryStore.reserve(2L, 1)).willThrow(new InventoryNotFoundException("Inventory not found for book id: 2"));
+
+        // When & Then
+        mockMvc.perform(post("/books/1/inventory/reserve").param("count", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.availableCopies").value(0));
+        mockMvc.perform(post("/books/1/inventory/reserve").param("count", "2"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Not enough available copies. bookId: 1, count: 2"));
+        mockMvc.perform(post("/books/2/inventory/reserve"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("빌리기, 돌려주기 - count 가 1 보다 작으면 InventoryStore 까지 가지 않고 400")
+    void countBelowOne() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/books/1/inventory/reserve").param("count", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("count must be at least 1: 0"));
+        mockMvc.perform(post("/books/1/inventory/release").param("count", "-1"))
+                .andExpect(status().isBadRequest());
+
+        verify(inventoryStore, never()).reserve(anyLong(), anyInt());
+        verify(inventoryStore, never()).release(anyLong(), anyInt(), any());
+    }
+}
@@ -0,0 +1,139 @@
+package book.cache;
+
+import book.entity.Category;
+import book.event.CategoryChangedEvent;
+import book.repository.CategoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class CategoryCacheTest {
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private CategoryCache categoryCache;
+
+    // 다시 읽기 작업을 바로 돌리지 않고 모아뒀다가 테스트에서 돌린다.
+    private final Queue<Runnable> refreshTasks = new ArrayDeque<>();
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(Category.builder().name("인문학").build());
+        categoryCache = new CategoryCache(categoryRepository);
+        ReflectionTestUtils.setField(categoryCache, "refreshExecutor", (Executor) refreshTasks::add);
+        categoryCache.warmUp();
+    }
+
+    @Test
+    @DisplayName("ttl 이 지나면 요청 스레드는 이전 값을 바로 받고 다시 읽기는 한번만 따로 돈다")
+    void refreshAsynchronouslyAfterTtl() {
+        // Given - DB 의 이름만 바꾼다. (이벤트 없음)
+        ReflectionTestUtils.setField(categoryCache, "ttl", Duration.ZERO);
+        rename(category.getId(), "철학");
+
+        // When
+        String beforeRefresh = categoryCache.get(category.getId()).orElseThrow().getName();
+        categoryCache.get(category.getId());
+        int scheduled = refreshTasks.size();
+        refreshTasks.poll().run();
+        String afterRefresh = categoryCache.get(category.getId()).orElseThrow().getName();
+
+        // Then
+        assertEquals("인문학", beforeRefresh);
+        assertEquals(1, scheduled);
+        assertEquals("철학", afterRefresh);
+    }
+
+    @Test
+    @DisplayName("다시 읽기를 못 맡겨도 이전 스냅샷으로 답하고 다음 요청에서 다시 맡긴다")
+    void keepSnapshotWhenRefreshRejected() {
+        // Given
+        ReflectionTestUtils.setField(categoryCache, "ttl", Duration.ZERO);
+        ReflectionTestUtils.setField(categoryCache, "refreshExecutor", (Executor) task -> {
+            throw new RejectedExecutionException("busy");
+        });
+
+        // When
+        Optional<Category> whileRejected = categoryCache.get(category.getId());
+        ReflectionTestUtils.setField(categoryCache, "refreshExecutor", (Executor) refreshTasks::add);
+        categoryCache.get(category.getId());
+
+        // Then
+        assertEquals("인문학", whileRejected.orElseThrow().getName());
+        assertEquals(1, refreshTasks.size());
+    }
+
+    @Test
+    @DisplayName("없는 id 는 negative-ttl 동안 DB 를 다시 보지 않고, CategoryChangedEvent 가 오면 바로 다시 찾는다")
+    void cacheMissingIds() {
+        // Given
+        long missingId = category.getId() + 1000;
+
+        // When - 처음 한번만 DB 에서 못 찾고, 그 뒤 DB 에 생겨도 기억해 둔 결과를 쓴다.
+        Optional<Category> first = categoryCache.get(missingId);
+        long missesAfterFirst = categoryCache.missCount();
+        insertCategory(missingId, "과학");
+        Optional<Category> second = categoryCache.get(missingId);
+        long missesAfterSecond = categoryCache.missCount();
+        categoryCache.on(new CategoryChangedEvent(missingId));
+        Optional<Category> afterEvent = categoryCache.get(missingId);
+
+        // Then
+        assertTrue(first.isEmpty());
+        assertTrue(second.isEmpty());
+        assertEquals(missesAfterFirst, missesAfterSecond);
+        assertEquals("과학", afterEvent.orElseThrow().getName());
+    }
+
+    @Test
+    @DisplayName("negative-ttl 이 지나면 없는 id 도 다시 DB 에서 찾는다")
+    void expireMissingIds() {
+        // Given
+        ReflectionTestUtils.setField(categoryCache, "negativeTtl", Duration.ZERO);
+        long missingId = category.getId() + 1000;
+        categoryCache.get(missingId);
+        insertCategory(missingId, "과학");
+
+        // When
+        Optional<Category> found = categoryCache.get(missingId);
+
+        // Then
+        assertEquals("과학", found.orElseThrow().getName());
+    }
+
+    private void rename(Long categoryId, String name) {
+        jdbcTemplate.update("update category set name = ? where id = ?", name, categoryId);
+        entityManager.clear();
+    }
+
+    private void insertCategory(long categoryId, String name) {
+        jdbcTemplate.update("insert into category (id, name) values (?, ?)", categoryId, name);
+        entityManager.clear();
+    }
+}
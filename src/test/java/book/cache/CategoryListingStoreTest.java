@@ -0,0 +1,108 @@
+package book.cache;
+
+import book.dto.CategoryListingStatsDto;
+import book.dto.ResponseBookDto;
+import book.entity.Book;
+import book.entity.BookCategory;
+import book.entity.Category;
+import book.enums.BookStatus;
+import book.event.BookCategoriesChangedEvent;
+import book.event.BookRegisteredEvent;
+import book.event.BookStatusChangedEvent;
+import book.repository.BookCategoryRepository;
+import book.repository.BookJdbcRepository;
+import book.repository.BookRepository;
+import book.repository.CategoryRepository;
+import book.search.BookSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class CategoryListingStoreTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BookCategoryRepository bookCategoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private CategoryListingStore store;
+
+    private Category it;
+    private Book first;
+    private Book second;
+
+    @BeforeEach
+    void setUp() {
+        store = new CategoryListingStore(new BookJdbcRepository(jdbcTemplate), new BookSearchIndex(null), new SyncTaskExecutor());
+        // 테스트에서는 쌓인 delta 를 읽을 때 바로 합친다.
+        ReflectionTestUtils.setField(store, "maxStaleness", Duration.ZERO);
+
+        it = categoryRepository.save(Category.builder().name("목록IT").build());
+        first = bookRepository.save(Book.builder().title("자바의 정석").author("남궁성").status(BookStatus.AVAILABLE).build());
+        second = bookRepository.save(Book.builder().title("토비의 스프링").author("이일민").status(BookStatus.AVAILABLE).build());
+        bookCategoryRepository.save(BookCategory.builder().book(first).category(it).build());
+        bookCategoryRepository.save(BookCategory.builder().book(second).category(it).build());
+        // 목록은 JDBC 로 읽으니 JPA 로 넣은 것을 먼저 내린다.
+        bookRepository.flush();
+    }
+
+    @Test
+    @DisplayName("카테고리 목록 - DB 에서 만든 뒤 등록, 카테고리 변경을 delta 로 합치고 id 순서를 지킨다")
+    void mergeDeltas() {
+        // Given
+        store.rebuild(it.getId());
+        long builtVersion = store.version(it.getId());
+
+        // When
+        store.on(new BookRegisteredEvent(first.getId() - 1, "새 책, 쉼표", "새 지은이", BookStatus.AVAILABLE, List.of(it.getId())));
+        store.on(new BookCategoriesChangedEvent(second.getId(), List.of(), List.of(it.getId())));
+        store.on(new BookStatusChangedEvent(first.getId(), BookStatus.UNAVAILABLE));
+
+        // Then
+        List<ResponseBookDto> books = store.find(it.getId()).orElseThrow();
+        assertEquals(List.of(first.getId() - 1, first.getId()), books.stream().map(ResponseBookDto::bookId).toList());
+        assertEquals("새 책, 쉼표", books.get(0).title());
+        assertEquals("남궁성", books.get(1).author());
+        assertTrue(store.version(it.getId()) > builtVersion);
+
+        CategoryListingStatsDto stats = store.stats().get(0);
+        assertTrue(stats.ready());
+        assertEquals(2, stats.books());
+        assertEquals(0, stats.pendingDeltas());
+    }
+
+    @Test
+    @DisplayName("카테고리 목록 - 만들어 두지 않은 카테고리는 empty 를 돌려줘서 DB 에서 읽게 한다")
+    void notMaterialized() {
+        // Given
+        ReflectionTestUtils.setField(store, "materializeAfterHits", 0L);
+
+        // When
+        boolean found = store.find(it.getId()).isPresent();
+
+        // Then
+        assertFalse(found);
+        assertEquals(0, store.version(it.getId()));
+        assertTrue(store.stats().isEmpty());
+    }
+}
@@ -0,0 +1,136 @@
+package book.cache;
+
+import book.datasource.ReadYourWritesContext;
+import book.exception.CategoryNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+
+    private RequestCoalescer coalescer;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new RequestCoalescer();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("같은 key 로 동시에 들어온 요청은 loader 를 한번만 부르고 결과를 같이 받는다")
+    void coalesceConcurrentRequests() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Future<List<String>> leader = executor.submit(() -> coalescer.execute("by-category:1#0", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return List.of("자바의 정석");
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        // When
+        Future<List<String>> follower = executor.submit(() -> coalescer.execute("by-category:1#0", () -> {
+            calls.incrementAndGet();
+            return List.of("follower");
+        }));
+        while (coalescer.followerCount() == 0) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        // Then
+        assertEquals(List.of("자바의 정석"), leader.get(5, TimeUnit.SECONDS));
+        assertSame(leader.get(), follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(0, coalescer.inFlightCount());
+        assertEquals(0.5, coalescer.coalescedRatio());
+    }
+
+    @Test
+    @DisplayName("쓰기 직후 primary 로 읽는 요청은 진행 중인 계산에 붙지 않고 직접 계산한다")
+    void skipCoalescingWhenPinnedToPrimary() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<List<String>> leader = executor.submit(() -> coalescer.execute("page:1:null:50#0", () -> {
+            started.countDown();
+            await(release);
+            return List.of("replica");
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        // When
+        Future<List<String>> pinned = executor.submit(() -> {
+            ReadYourWritesContext.begin();
+            ReadYourWritesContext.restore(System.currentTimeMillis() + 60_000);
+            try {
+                return coalescer.execute("page:1:null:50#0", () -> List.of("primary"));
+            } finally {
+                ReadYourWritesContext.clear();
+            }
+        });
+        List<String> pinnedResult = pinned.get(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        // Then
+        assertEquals(List.of("primary"), pinnedResult);
+        assertEquals(List.of("replica"), leader.get(5, TimeUnit.SECONDS));
+        assertEquals(0, coalescer.followerCount());
+    }
+
+    @Test
+    @DisplayName("leader 가 실패하면 기다리던 요청도 같은 예외를 받고, 끝난 뒤의 요청은 다시 loader 를 부른다")
+    void shareFailureOnlyWhileInFlight() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> leader = executor.submit(() -> coalescer.execute("by-category:404#0", () -> {
+            started.countDown();
+            await(release);
+            throw new CategoryNotFoundException("Category not found with id: 404");
+        }));
+        started.await(5, TimeUnit.SECONDS);
+        Future<Object> follower = executor.submit(() -> coalescer.execute("by-category:404#0", () -> "follower"));
+        while (coalescer.followerCount() == 0) {
+            Thread.sleep(5);
+        }
+
+        // When
+        release.countDown();
+
+        // Then
+        Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        Exception followerError = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(CategoryNotFoundException.class, leaderError.getCause());
+        assertInstanceOf(CategoryNotFoundException.class, followerError.getCause());
+        assertEquals("later", coalescer.execute("by-category:404#0", () -> "later"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package book.cache;
+
+import book.api.BookApiController;
+import book.datasource.ReadYourWritesContext;
+import book.dto.ResponseBookDto;
+import book.enums.BookStatus;
+import book.event.BookRegisteredEvent;
+import book.search.BookSearchIndex;
+import book.service.BookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private static final long CATEGORY_ID = 1L;
+
+    private ResponseCache responseCache;
+    private CatalogVersions catalogVersions;
+
+    @BeforeEach
+    void setUp() {
+        responseCache = new ResponseCache(new ObjectMapper(), new RequestCoalescer(), DataSize.ofMegabytes(1));
+        BookSearchIndex bookSearchIndex = new BookSearchIndex(null);
+        catalogVersions = new CatalogVersions(bookSearchIndex,
+                new CategoryListingStore(null, bookSearchIndex, new SyncTaskExecutor()));
+    }
+
+    @Test
+    @DisplayName("버전이 같으면 loader 를 다시 부르지 않고 캐시된 byte[] 를 준다")
+    void serveSameVersionFromCache() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        CachedResponse first = responseCache.getOrCompute("by-category:1", 3, 0L, () -> List.of("v" + calls.incrementAndGet()));
+        CachedResponse second = responseCache.getOrCompute("by-category:1", 3, 0L, () -> List.of("v" + calls.incrementAndGet()));
+
+        // Then
+        assertEquals(1, calls.get());
+        assertSame(first, second);
+        assertEquals("[\"v1\"]", new String(second.body(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("버전이 바뀌면 캐시된 응답을 쓰지 않고, 늦게 끝난 이전 버전 계산이 새 버전을 덮지 않는다")
+    void neverServeStaleVersion() {
+        // Given
+        responseCache.getOrCompute("by-category:1", 1, 0L, () -> List.of("old"));
+
+        // When - 버전 2 로 다시 만든 뒤, 버전 1 로 시작했던 요청이 늦게 끝난다.
+        CachedResponse current = responseCache.getOrCompute("by-category:1", 2, 0L, () -> List.of("new"));
+        CachedResponse late = responseCache.getOrCompute("by-category:1", 1, 0L, () -> List.of("late"));
+        CachedResponse next = responseCache.getOrCompute("by-category:1", 2, 0L, () -> List.of("recomputed"));
+
+        // Then
+        assertEquals("[\"new\"]", new String(current.body(), StandardCharsets.UTF_8));
+        assertEquals("[\"late\"]", new String(late.body(), StandardCharsets.UTF_8));
+        assertSame(current, next);
+    }
+
+    @Test
+    @DisplayName("If-None-Match 가 지금 ETag 와 같으면 304, 쓰기가 커밋되어 버전이 바뀌면 새 본문과 새 ETag 로 200")
+    void notModifiedUntilWriteCommits() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        List<ResponseBookDto> books = new ArrayList<>(List.of(book(1L, "자바의 정석")));
+        BookApiController controller = controller(new StubBookService(() -> {
+            calls.incrementAndGet();
+            return List.copyOf(books);
+        }));
+        ResponseEntity<byte[]> first = controller.getBooksByCategory(CATEGORY_ID, null);
+        String etag = first.getHeaders().getETag();
+
+        // When
+        ResponseEntity<byte[]> notModified = controller.getBooksByCategory(CATEGORY_ID, etag);
+        books.add(book(2L, "토비의 스프링"));
+        catalogVersions.on(new BookRegisteredEvent(2L, "토비의 스프링", "이일민", BookStatus.AVAILABLE, List.of(CATEGORY_ID)));
+        ResponseEntity<byte[]> afterWrite = controller.getBooksByCategory(CATEGORY_ID, etag);
+
+        // Then
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertNull(notModified.getBody());
+        assertEquals(etag, notModified.getHeaders().getETag());
+        assertEquals(HttpStatus.OK, afterWrite.getStatusCode());
+        assertNotEquals(etag, afterWrite.getHeaders().getETag());
+        assertTrue(new String(afterWrite.getBody(), StandardCharsets.UTF_8).contains("토비의 스프링"));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("다른 카테고리에 쓰기가 커밋되면 이 카테고리의 캐시는 그대로 쓴다")
+    void keepEntryOfOtherCategory() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        BookApiController controller = controller(new StubBookService(() -> {
+            calls.incrementAndGet();
+            return List.of(book(1L, "자바의 정석"));
+        }));
+        String etag = controller.getBooksByCategory(CATEGORY_ID, null).getHeaders().getETag();
+
+        // When
+        catalogVersions.on(new BookRegisteredEvent(2L, "토비의 스프링", "이일민", BookStatus.AVAILABLE, List.of(CATEGORY_ID + 1)));
+        ResponseEntity<byte[]> response = controller.getBooksByCategory(CATEGORY_ID, etag);
+
+        // Then
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("버전이 바뀐 뒤 replica 지연 안에 만든 응답은 캐시에 넣지 않는다")
+    void skipStoreWithinReplicaLag() {
+        // Given
+        ReflectionTestUtils.setField(responseCache, "replicationEnabled", true);
+        AtomicInteger calls = new AtomicInteger();
+        long justChanged = System.nanoTime();
+        long settled = justChanged - Duration.ofSeconds(3).toNanos();
+
+        // When
+        responseCache.getOrCompute("by-category:1", 1, justChanged, () -> List.of("v" + calls.incrementAndGet()));
+        responseCache.getOrCompute("by-category:1", 1, justChanged, () -> List.of("v" + calls.incrementAndGet()));
+        responseCache.getOrCompute("by-category:1", 1, settled, () -> List.of("v" + calls.incrementAndGet()));
+        CachedResponse cached = responseCache.getOrCompute("by-category:1", 1, settled, () -> List.of("v" + calls.incrementAndGet()));
+
+        // Then
+        assertEquals(3, calls.get());
+        assertEquals("[\"v3\"]", new String(cached.body(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("쓰기 직후 primary 로 읽는 요청은 캐시를 쓰지도 채우지도 않는다")
+    void bypassWhenPinnedToPrimary() {
+        // Given
+        responseCache.getOrCompute("by-category:1", 1, 0L, () -> List.of("replica"));
+        ReadYourWritesContext.begin();
+        ReadYourWritesContext.restore(System.currentTimeMillis() + 60_000);
+
+        try {
+            // When
+            CachedResponse pinned = responseCache.getOrCompute("by-category:1", 1, 0L, () -> List.of("primary"));
+            ReadYourWritesContext.clear();
+            CachedResponse other = responseCache.getOrCompute("by-category:1", 1, 0L, () -> List.of("recomputed"));
+
+            // Then
+            assertEquals("[\"primary\"]", new String(pinned.body(), StandardCharsets.UTF_8));
+            assertEquals("[\"replica\"]", new String(other.body(), StandardCharsets.UTF_8));
+        } finally {
+            ReadYourWritesContext.clear();
+        }
+    }
+
+    // 이 경로는 bookService, responseCache, catalogVersions 만 쓴다.
+    private BookApiController controller(BookService bookService) {
+        return new BookApiController(bookService, null, null, null, null, null,
+                responseCache, null, catalogVersions, null, new ObjectMapper());
+    }
+
+    private static ResponseBookDto book(Long id, String title) {
+        return ResponseBookDto.builder().bookId(id).title(title).author("지은이").build();
+    }
+
+    private static class StubBookService extends BookService {
+        private final Supplier<List<ResponseBookDto>> books;
+
+        StubBookService(Supplier<List<ResponseBookDto>> books) {
+            super(null, null, null, null, null, null, null, null);
+            this.books = books;
+        }
+
+        @Override
+        public List<ResponseBookDto> getBooksByCategory(Long categoryId) {
+            return books.get();
+        }
+    }
+}
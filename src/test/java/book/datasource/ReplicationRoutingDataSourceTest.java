@@ -0,0 +1,209 @@
+package book.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 내장 H2 두 개를 primary, replica 로 두고 어느 쪽에서 읽었는지 node 테이블 값으로 확인한다.
+ */
+class ReplicationRoutingDataSourceTest {
+
+    private HikariDataSource primary;
+    private HikariDataSource replicaPoolDataSource;
+    private SwitchableDataSource replica;
+    private ReplicaPool replicaPool;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate writeTransaction;
+
+    @BeforeEach
+    void setUp() {
+        primary = h2("primary");
+        replicaPoolDataSource = h2("replica");
+        replica = new SwitchableDataSource(replicaPoolDataSource);
+        replicaPool = new ReplicaPool(List.of(new ReplicaPool.Replica("replica-1", replica)),
+                Duration.ofSeconds(5), Duration.ofSeconds(1));
+
+        ReplicationRoutingDataSource routingDataSource =
+                new ReplicationRoutingDataSource(primary, replicaPool, Duration.ofSeconds(2));
+        routingDataSource.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        // ReadYourWritesFilter 가 요청마다 하는 일
+        ReadYourWritesContext.begin();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWritesContext.clear();
+        primary.close();
+        replicaPoolDataSource.close();
+    }
+
+    @Test
+    @DisplayName("readOnly 트랜잭션은 replica, 나머지는 primary")
+    void routeByReadOnly() {
+        assertEquals("replica", readOnlyTransaction.execute(status -> node()));
+        assertEquals("primary", writeTransaction.execute(status -> node()));
+    }
+
+    @Test
+    @DisplayName("쓰기 직후에는 readOnly 트랜잭션도 primary 에서 읽는다")
+    void readYourWrites() {
+        // Given
+        writeTransaction.executeWithoutResult(status -> jdbcTemplate.update("update node set name = name"));
+
+        // When
+        String pinned = readOnlyTransaction.execute(status -> node());
+        ReadYourWritesContext.begin();
+        String afterWindow = readOnlyTransaction.execute(status -> node());
+
+        // Then
+        assertEquals("primary", pinned);
+        assertEquals("replica", afterWindow);
+        assertEquals(0L, ReadYourWritesContext.writtenUntil());
+    }
+
+    @Test
+    @DisplayName("트랜잭션 밖에서 primary 로 간 조회, 롤백된 쓰기는 primary 로 고정하지 않는다")
+    void pinOnlyAfterCommit() {
+        // Given
+        String outsideTransaction = node();
+        writeTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.update("update node set name = name");
+            status.setRollbackOnly();
+        });
+
+        // When
+        String afterRollback = readOnlyTransaction.execute(status -> node());
+
+        // Then
+        assertEquals("primary", outsideTransaction);
+        assertEquals("replica", afterRollback);
+        assertEquals(0L, ReadYourWritesContext.writtenUntil());
+    }
+
+    @Test
+    @DisplayName("요청 밖 스레드의 쓰기는 아무것도 남기지 않는다")
+    void noPinOutsideRequest() {
+        // Given
+        ReadYourWritesContext.clear();
+
+        // When
+        writeTransaction.executeWithoutResult(status -> jdbcTemplate.update("update node set name = name"));
+
+        // Then
+        assertEquals("replica", readOnlyTransaction.execute(status -> node()));
+        assertEquals(0L, ReadYourWritesContext.writtenUntil());
+    }
+
+    @Test
+    @DisplayName("wrap 으로 넘긴 비동기 스레드도 요청 스레드처럼 primary 에서 읽고, 끝나면 그 스레드에서 지운다")
+    void propagateToAsyncThread() throws Exception {
+        // Given
+        writeTransaction.executeWithoutResult(status -> jdbcTemplate.update("update node set name = name"));
+        AtomicReference<String> node = new AtomicReference<>();
+        Runnable task = ReadYourWritesContext.wrap(() -> node.set(readOnlyTransaction.execute(status -> node())));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // When
+            executor.submit(task).get();
+            boolean leftOnPoolThread = executor.submit(ReadYourWritesContext::isPinnedToPrimary).get();
+
+            // Then
+            assertEquals("primary", node.get());
+            assertFalse(leftOnPoolThread);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("이전 요청의 쓰기 시각을 되살리면 그 시각까지 primary 에서 읽는다")
+    void restoreFromPreviousRequest() {
+        ReadYourWritesContext.restore(System.currentTimeMillis() + 60_000);
+        assertEquals("primary", readOnlyTransaction.execute(status -> node()));
+
+        ReadYourWritesContext.restore(System.currentTimeMillis() - 1);
+        assertEquals("replica", readOnlyTransaction.execute(status -> node()));
+    }
+
+    @Test
+    @DisplayName("replica 커넥션을 못 얻으면 primary 로 넘기고, 헬스 체크를 통과하면 다시 replica 로 읽는다")
+    void failover() {
+        // Given
+        replica.down = true;
+
+        // When
+        String duringOutage = readOnlyTransaction.execute(status -> node());
+        replicaPool.checkHealth();
+        boolean healthyDuringOutage = replicaPool.replicas().get(0).healthy();
+
+        replica.down = false;
+        replicaPool.checkHealth();
+        String afterRecovery = readOnlyTransaction.execute(status -> node());
+
+        // Then
+        assertEquals("primary", duringOutage);
+        assertFalse(healthyDuringOutage);
+        assertEquals("replica", afterRecovery);
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private static HikariDataSource h2(String node) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + node + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        dataSource.setMaximumPoolSize(2);
+        new JdbcTemplate(dataSource).execute("create table node (name varchar(20)); insert into node values ('" + node + "')");
+        return dataSource;
+    }
+
+    // 장애를 흉내내기 위해 커넥션 획득만 실패시킨다.
+    private static final class SwitchableDataSource extends DelegatingDataSource {
+
+        private volatile boolean down;
+
+        private SwitchableDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("replica is down");
+            }
+            return super.getConnection();
+        }
+    }
+}
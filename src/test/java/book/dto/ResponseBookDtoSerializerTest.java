@@ -0,0 +1,36 @@
+package book.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseBookDtoSerializerTest {
+
+    private final ObjectMapper reflectionMapper = new ObjectMapper();
+    private final ObjectMapper tunedMapper = new ObjectMapper()
+            .registerModule(new SimpleModule().addSerializer(ResponseBookDto.class, new ResponseBookDtoSerializer()));
+
+    @Test
+    @DisplayName("손으로 쓴 serializer 는 기본 BeanSerializer 와 같은 JSON 을 만든다")
+    void sameAsBeanSerializer() throws Exception {
+        // Given
+        List<ResponseBookDto> books = List.of(
+                new ResponseBookDto(1L, "너에게 \"해주지\" 못한 말들", "권태영",
+                        List.of(new CategorySummaryDto(1L, "문학"), new CategorySummaryDto(2L, "에세이"))),
+                new ResponseBookDto(null, null, "지은이", null));
+
+        // When
+        String tuned = tunedMapper.writeValueAsString(books);
+
+        // Then
+        assertEquals(reflectionMapper.writeValueAsString(books), tuned);
+        assertEquals("[{\"bookId\":1,\"title\":\"너에게 \\\"해주지\\\" 못한 말들\",\"author\":\"권태영\",\"categories\":[" +
+                "{\"categoryId\":1,\"name\":\"문학\"},{\"categoryId\":2,\"name\":\"에세이\"}]}," +
+                "{\"bookId\":null,\"title\":null,\"author\":\"지은이\",\"categories\":[]}]", tuned);
+    }
+}
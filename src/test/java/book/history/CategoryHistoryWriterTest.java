@@ -0,0 +1,73 @@
+package book.history;
+
+import book.enums.BookStatus;
+import book.event.BookRegisteredEvent;
+import book.repository.CategoryHistoryRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class CategoryHistoryWriterTest {
+
+    @Test
+    @DisplayName("쓰기가 계속 실패해도 버리지 않고 성공할 때까지 다시 쓴다")
+    void retryUntilWritten() {
+        // Given - DB 가 여섯번 실패한 뒤에 돌아온다.
+        CategoryHistoryRepository repository = mock(CategoryHistoryRepository.class);
+        doThrow(new DataAccessResourceFailureException("db down")).doThrow(new DataAccessResourceFailureException("db down"))
+                .doThrow(new DataAccessResourceFailureException("db down")).doThrow(new DataAccessResourceFailureException("db down"))
+                .doThrow(new DataAccessResourceFailureException("db down")).doThrow(new DataAccessResourceFailureException("db down"))
+                .doNothing()
+                .when(repository).insert(anyList());
+        CategoryHistoryWriter writer = writer(repository, 100);
+        writer.start();
+
+        // When
+        writer.on(new BookRegisteredEvent(1L, "제목", "지은이", BookStatus.AVAILABLE, List.of(10L, 20L)));
+        writer.stop();
+
+        // Then
+        assertEquals(2, writer.writtenCount());
+        assertEquals(6, writer.failureCount());
+        assertEquals(0, writer.pendingCount());
+        verify(repository, times(7)).insert(anyList());
+    }
+
+    @Test
+    @DisplayName("큐가 가득 차면 받은 스레드에서 성공할 때까지 다시 써서 요청을 늦춘다")
+    void directWriteRetriesOnCallerThread() {
+        // Given - 큐에 한 행만 들어가고, flush 스레드는 돌지 않는다.
+        CategoryHistoryRepository repository = mock(CategoryHistoryRepository.class);
+        doThrow(new DataAccessResourceFailureException("db down")).doThrow(new DataAccessResourceFailureException("db down"))
+                .doNothing()
+                .when(repository).insert(anyList());
+        CategoryHistoryWriter writer = writer(repository, 1);
+        ReflectionTestUtils.setField(writer, "running", true);
+
+        // When - 세 행 중 두 행은 큐에 못 들어간다.
+        writer.on(new BookRegisteredEvent(1L, "제목", "지은이", BookStatus.AVAILABLE, List.of(10L, 20L, 30L)));
+
+        // Then - on() 이 돌아왔을 때 이미 다 썼다.
+        assertEquals(1, writer.pendingCount());
+        assertEquals(2, writer.directWriteCount());
+        assertEquals(2, writer.writtenCount());
+        assertEquals(2, writer.failureCount());
+    }
+
+    private static CategoryHistoryWriter writer(CategoryHistoryRepository repository, int capacity) {
+        CategoryHistoryWriter writer = new CategoryHistoryWriter(repository, mock(PlatformTransactionManager.class), capacity);
+        ReflectionTestUtils.setField(writer, "flushInterval", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(writer, "retryBackoff", Duration.ofMillis(1));
+        ReflectionTestUtils.setField(writer, "maxRetryBackoff", Duration.ofMillis(4));
+        return writer;
+    }
+}
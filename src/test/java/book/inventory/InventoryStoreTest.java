@@ -0,0 +1,168 @@
+package book.inventory;
+
+import book.dto.BookInventoryDto;
+import book.enums.CopyCondition;
+import book.exception.CopiesUnavailableException;
+import book.exception.InventoryConflictException;
+import book.repository.InventoryRepository;
+import book.repository.InventoryRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(InventoryRepository.class)
+// flush 는 REQUIRES_NEW 로 따로 커밋해서 테스트 트랜잭션 안에서 돌리면 몫을 받으며 잡은 행 락을 기다린다. 밖에서 돌리고 끝나면 지운다.
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryStoreTest {
+
+    private static final long BOOK_ID = 900_001L;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("insert into book (id, author, title, status, version) values (?, '재고지은이', '재고제목', 'AVAILABLE', 0)", BOOK_ID);
+        inventoryRepository.insertIfAbsent(new InventoryRow(BOOK_ID, 20, 0, 0, 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from book_inventory where book_id = ?", BOOK_ID);
+        jdbcTemplate.update("delete from book where id = ?", BOOK_ID);
+    }
+
+    @Test
+    @DisplayName("인스턴스마다 몫을 받아도 DB 의 남은 권수보다 많이 빌려주지 않는다")
+    void leaseWithinDatabaseAvailability() {
+        // Given - 20 권, 두 인스턴스가 16 권씩 받으려 한다.
+        InventoryStore first = store(16);
+        InventoryStore second = store(16);
+
+        // When - 첫번째가 16 권을 받아 가면 두번째는 남은 4 권까지만 받는다.
+        first.reserve(BOOK_ID, 1);
+        assertThrows(CopiesUnavailableException.class, () -> second.reserve(BOOK_ID, 5));
+        long remaining = second.reserve(BOOK_ID, 4);
+
+        // Then
+        assertEquals(0, remaining);
+        assertEquals(20, row().reservedCopies());
+        assertEquals(15, first.get(BOOK_ID).availableCopies());
+        assertEquals(0, second.get(BOOK_ID).availableCopies());
+        assertEquals(2, first.leaseCount() + second.leaseCount());
+    }
+
+    @Test
+    @DisplayName("flush 는 값을 덮어쓰지 않고 인스턴스마다 모은 파손, 분실, 남은 몫을 더하고 뺀다")
+    void flushDeltas() {
+        // Given - leaseSize 4 인 두 인스턴스가 각자 2 권씩 빌려준다.
+        InventoryStore first = store(4);
+        InventoryStore second = store(4);
+        first.reserve(BOOK_ID, 2);
+        second.reserve(BOOK_ID, 2);
+
+        // When - 첫번째는 파손, 두번째는 분실로 한 권씩 돌려받는다.
+        first.release(BOOK_ID, 1, CopyCondition.DAMAGED);
+        first.flush();
+        second.release(BOOK_ID, 1, CopyCondition.LOST);
+        second.flush();
+        InventoryRow afterRetire = row();
+
+        // When - 첫번째가 몫을 더 받아 빌려줬다가 다 돌려받아서 몫이 leaseSize 를 넘는다.
+        first.reserve(BOOK_ID, 5);
+        first.release(BOOK_ID, 6, CopyCondition.GOOD);
+        first.flush();
+
+        // Then - 두 인스턴스의 변경이 다 남고, reserved 는 두번째의 3 권(빌려 간 1 + 몫 2) + 첫번째가 남겨 둔 4 권이다.
+        assertEquals(new InventoryRow(BOOK_ID, 20, 6, 1, 1), afterRetire);
+        assertEquals(new InventoryRow(BOOK_ID, 20, 7, 1, 1), row());
+        assertEquals(15, first.get(BOOK_ID).availableCopies());
+    }
+
+    @Test
+    @DisplayName("오래 안 쓰인 카운터는 남은 몫을 돌려주고 내리며, 다시 쓰면 새 카운터로 몫을 다시 받는다")
+    void evictAndReload() {
+        // Given - flush 한번 동안 안 쓰이면 내린다.
+        InventoryStore store = store(16);
+        ReflectionTestUtils.setField(store, "evictAfter", Duration.ofMillis(200));
+        store.reserve(BOOK_ID, 3);
+
+        // When
+        store.flush();
+        int residentBeforeIdle = store.residentCount();
+        store.flush();
+
+        // Then - 빌려주지 않은 13 권을 돌려주고, 빌려 간 3 권만 reserved 로 남는다.
+        assertEquals(1, residentBeforeIdle);
+        assertEquals(0, store.residentCount());
+        assertEquals(1, store.evictionCount());
+        assertEquals(3, row().reservedCopies());
+
+        // When - 내린 뒤 돌려받은 책은 DB 의 reserved 에서 바로 빼고, 다시 빌리면 몫을 새로 받는다.
+        store.release(BOOK_ID, 3, CopyCondition.GOOD);
+        int reservedAfterRelease = row().reservedCopies();
+        store.reserve(BOOK_ID, 1);
+
+        // Then
+        assertEquals(0, reservedAfterRelease);
+        assertEquals(16, row().reservedCopies());
+        assertEquals(2, store.leaseCount());
+        assertEquals(19, store.get(BOOK_ID).availableCopies());
+        assertThrows(InventoryConflictException.class, () -> store.release(BOOK_ID, 17, CopyCondition.GOOD));
+
+        // When - 멈출 때는 남은 몫을 모두 돌려준다.
+        store.stop();
+
+        // Then
+        assertEquals(1, row().reservedCopies());
+    }
+
+    @Test
+    @DisplayName("관리 API 로 권수를 줄일 때 빌려 간 권수와 받아 둔 몫보다 적게는 못 줄인다")
+    void setCopiesAboveReserved() {
+        // Given - 한 권 빌려주면서 16 권을 몫으로 받아 둔다.
+        InventoryStore store = store(16);
+        store.reserve(BOOK_ID, 1);
+
+        // When
+        BookInventoryDto changed = store.setCopies(BOOK_ID, 18, 1, 1);
+
+        // Then
+        assertEquals(18, row().totalCopies());
+        assertEquals(15, changed.availableCopies());
+        assertThrows(InventoryConflictException.class, () -> store.setCopies(BOOK_ID, 16, 1, 0));
+    }
+
+    private InventoryStore store(int leaseSize) {
+        InventoryStore store = new InventoryStore(inventoryRepository, transactionManager);
+        ReflectionTestUtils.setField(store, "stripes", 4);
+        ReflectionTestUtils.setField(store, "leaseSize", leaseSize);
+        return store;
+    }
+
+    private InventoryRow row() {
+        return inventoryRepository.findByBookId(BOOK_ID).orElseThrow();
+    }
+}
@@ -0,0 +1,114 @@
+package book.inventory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static book.inventory.StripedCopyCounter.Result.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedCopyCounterTest {
+
+    private static final int THREADS = 16;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("여러 스레드가 동시에 빌려도 남은 권수보다 많이 빌려주지 않는다")
+    void neverReserveMoreThanAvailable() throws Exception {
+        // Given - 8 칸에 1000 권, 16 스레드가 2 권씩 100 번
+        StripedCopyCounter counter = new StripedCopyCounter(1L, 8, 1_000, 0);
+        AtomicInteger reserved = new AtomicInteger();
+
+        // When
+        runConcurrently(() -> {
+            for (int i = 0; i < 100; i++) {
+                if (counter.reserve(2) == DONE) {
+                    reserved.addAndGet(2);
+                }
+            }
+        });
+
+        // Then - 칸에 조금씩 남아도 모아서 빌려주므로 다 빌려 간다.
+        assertEquals(1_000, reserved.get());
+        assertEquals(0, counter.available());
+        assertEquals(1_000, counter.reserved());
+        assertEquals(INSUFFICIENT, counter.reserve(1));
+    }
+
+    @Test
+    @DisplayName("빌리기와 돌려주기가 섞여도 전체 권수는 그대로이고 빌려 간 것보다 많이 돌려받지 않는다")
+    void reserveAndReleaseKeepTotal() throws Exception {
+        // Given
+        StripedCopyCounter counter = new StripedCopyCounter(1L, 8, 50, 0);
+
+        // When - 빌린 만큼만 돌려준다.
+        runConcurrently(() -> {
+            for (int i = 0; i < 10_000; i++) {
+                if (counter.reserve(1) == DONE) {
+                    assertEquals(DONE, counter.release(1));
+                }
+            }
+        });
+
+        // Then
+        assertEquals(50, counter.available());
+        assertEquals(0, counter.reserved());
+        assertEquals(INSUFFICIENT, counter.release(1));
+    }
+
+    @Test
+    @DisplayName("칸의 합이 받아 둔 몫과 같을 때만 내보내고, 내보낸 뒤의 요청은 EVICTED 를 받는다")
+    void evictOnlyWhenAllotmentMatches() {
+        // Given - 받아 둔 10 권 중 3 권 빌려 감
+        StripedCopyCounter counter = new StripedCopyCounter(1L, 4, 10, 0);
+        assertEquals(DONE, counter.reserve(3));
+
+        // When - 몫이 맞지 않을 때(모으는 중이라 칸 밖에 있는 권수가 있을 때와 같다), 맞을 때
+        long mismatched = counter.tryEvict(12);
+        long evicted = counter.tryEvict(10);
+
+        // Then - 내보낼 때는 빌려주지 않은 7 권을 돌려준다.
+        assertEquals(-1, mismatched);
+        assertEquals(7, evicted);
+        assertTrue(counter.isEvicted());
+        assertEquals(EVICTED, counter.reserve(1));
+        assertEquals(EVICTED, counter.release(1));
+    }
+
+    private void runConcurrently(Runnable task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package book.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentedJdbcTemplateTest {
+
+    // 행마다 이만큼 쉬는 RowMapper 로 매핑 시간이 DB 시간에 섞이는지 본다.
+    private static final long MAPPING_MILLIS = 50;
+
+    private SingleConnectionDataSource dataSource;
+    private InstrumentedJdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:query_stats;DB_CLOSE_DELAY=-1", true);
+        jdbcTemplate = new InstrumentedJdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists t (id bigint primary key)");
+        jdbcTemplate.execute("delete from t");
+        jdbcTemplate.update("insert into t values (1), (2), (3)");
+        RequestQueryStats.current().reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestQueryStats.current().reset();
+        dataSource.destroy();
+    }
+
+    @Test
+    @DisplayName("RowMapper 가 돈 시간은 DB 시간에 넣지 않는다")
+    void excludeRowMapping() {
+        // When
+        List<Long> ids = jdbcTemplate.query("select id from t where id > ? order by id", (rs, rowNum) -> {
+            sleep(MAPPING_MILLIS);
+            return rs.getLong(1);
+        }, 0);
+
+        // Then
+        RequestQueryStats stats = RequestQueryStats.current();
+        assertEquals(List.of(1L, 2L, 3L), ids);
+        assertEquals(1, stats.statementCount());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(stats.statementNanos()) < MAPPING_MILLIS,
+                "statementNanos=" + stats.statementNanos());
+    }
+
+    @Test
+    @DisplayName("RowCallbackHandler 가 돈 시간도 DB 시간에 넣지 않는다")
+    void excludeRowCallback() {
+        // When
+        jdbcTemplate.query("select id from t", (RowCallbackHandler) rs -> sleep(MAPPING_MILLIS));
+
+        // Then
+        RequestQueryStats stats = RequestQueryStats.current();
+        assertEquals(1, stats.statementCount());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(stats.statementNanos()) < MAPPING_MILLIS,
+                "statementNanos=" + stats.statementNanos());
+    }
+
+    @Test
+    @DisplayName("ConnectionCallback 은 statement 실행만 세고 콜백의 나머지 시간은 넣지 않는다")
+    void countOnlyExecutionInConnectionCallback() {
+        // When
+        Integer count = jdbcTemplate.execute((ConnectionCallback<Integer>) con -> {
+            try (PreparedStatement ps = con.prepareStatement("insert into t values (?)")) {
+                ps.setLong(1, 4);
+                ps.addBatch();
+                ps.setLong(1, 5);
+                ps.addBatch();
+                ps.executeBatch();
+            }
+            sleep(MAPPING_MILLIS);
+            return 2;
+        });
+
+        // Then
+        RequestQueryStats stats = RequestQueryStats.current();
+        assertEquals(2, count);
+        assertEquals(1, stats.statementCount());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(stats.statementNanos()) < MAPPING_MILLIS,
+                "statementNanos=" + stats.statementNanos());
+        assertEquals(5, jdbcTemplate.queryForObject("select count(*) from t", Integer.class));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package book.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryStatsFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private QueryStatsFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new QueryStatsFilter(meterRegistry);
+        RequestQueryStats.current().reset();
+    }
+
+    @Test
+    @DisplayName("요청 하나 동안 기록된 SQL 수와 DB 시간을 요청 단위로 남기고 다음 요청을 위해 비운다")
+    void recordPerRequest() throws Exception {
+        // Given - 이전 요청에서 남은 값이 있어도 새 요청에는 섞이지 않는다.
+        RequestQueryStats.current().record(TimeUnit.MILLISECONDS.toNanos(999));
+
+        // When
+        filter.doFilter(new MockHttpServletRequest("GET", "/books/1"), new MockHttpServletResponse(), (request, response) -> {
+            RequestQueryStats.current().record(TimeUnit.MILLISECONDS.toNanos(3));
+            RequestQueryStats.current().record(TimeUnit.MILLISECONDS.toNanos(4));
+        });
+        filter.doFilter(new MockHttpServletRequest("GET", "/books/2"), new MockHttpServletResponse(), (request, response) -> {
+        });
+
+        // Then
+        assertEquals(2, meterRegistry.get("book.request.sql.statements").summary().count());
+        assertEquals(2.0, meterRegistry.get("book.request.sql.statements").summary().totalAmount());
+        assertEquals(7.0, meterRegistry.get("book.request.sql.time").timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(0, RequestQueryStats.current().statementCount());
+        assertEquals(0, RequestQueryStats.current().statementNanos());
+    }
+
+    @Test
+    @DisplayName("요청 처리 중 예외가 나도 기록하고 비운다")
+    void recordWhenChainThrows() {
+        // When
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(new MockHttpServletRequest("GET", "/books/1"),
+                new MockHttpServletResponse(), (request, response) -> {
+                    RequestQueryStats.current().record(TimeUnit.MILLISECONDS.toNanos(5));
+                    throw new IllegalStateException("boom");
+                }));
+
+        // Then
+        assertEquals(1.0, meterRegistry.get("book.request.sql.statements").summary().totalAmount());
+        assertEquals(5.0, meterRegistry.get("book.request.sql.time").timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(0, RequestQueryStats.current().statementCount());
+    }
+
+    @Test
+    @DisplayName("statementStarted ~ statementFinished 에서 빼달라고 한 시간은 DB 시간에 넣지 않는다")
+    void excludeFromStatement() throws Exception {
+        // When
+        RequestQueryStats stats = RequestQueryStats.current();
+        stats.statementStarted();
+        Thread.sleep(30);
+        stats.excludeFromStatement(TimeUnit.MILLISECONDS.toNanos(30));
+        stats.statementFinished();
+
+        // Then
+        assertEquals(1, stats.statementCount());
+        assertTrue(stats.statementNanos() < TimeUnit.MILLISECONDS.toNanos(30), "statementNanos=" + stats.statementNanos());
+    }
+
+    @Test
+    @DisplayName("비동기로 넘어간 요청은 끝날 때 요청 스레드와 wrap 으로 넘긴 비동기 스레드의 SQL 을 합쳐서 한번 기록한다")
+    void recordAsyncRequestOnComplete() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/books/by-category/1/stream");
+        request.setAsyncSupported(true);
+        List<Runnable> lateTasks = new ArrayList<>();
+
+        // When - 요청 스레드에서 1 건, 비동기 스레드에서 2 건
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.startAsync();
+            RequestQueryStats.current().record(TimeUnit.MILLISECONDS.toNanos(1));
+            Runnable streaming = RequestQueryStats.wrap(() -> {
+                RequestQueryStats.current().record(TimeUnit.MILLISECONDS.toNanos(2));
+                RequestQueryStats.current().record(TimeUnit.MILLISECONDS.toNanos(3));
+            });
+            try {
+                executor.submit(streaming).get();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            lateTasks.add(RequestQueryStats.wrap(() -> RequestQueryStats.current().record(TimeUnit.MILLISECONDS.toNanos(100))));
+        });
+        long recordedBeforeComplete = meterRegistry.get("book.request.sql.statements").summary().count();
+        request.getAsyncContext().complete();
+        // 요청이 끝난 뒤에 돈 작업은 섞이지 않는다.
+        executor.submit(lateTasks.get(0)).get();
+        int workerCount = executor.submit(() -> RequestQueryStats.current().statementCount()).get();
+        executor.shutdown();
+
+        // Then
+        assertEquals(0, recordedBeforeComplete);
+        assertEquals(1, meterRegistry.get("book.request.sql.statements").summary().count());
+        assertEquals(3.0, meterRegistry.get("book.request.sql.statements").summary().totalAmount());
+        assertEquals(6.0, meterRegistry.get("book.request.sql.time").timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(0, workerCount);
+        assertEquals(0, RequestQueryStats.current().statementCount());
+    }
+
+    @Test
+    @DisplayName("요청 밖에서 wrap 한 작업은 그대로 돌려준다")
+    void wrapOutsideRequest() {
+        // Given
+        Runnable task = () -> {
+        };
+
+        // When & Then
+        assertSame(task, RequestQueryStats.wrap(task));
+    }
+}
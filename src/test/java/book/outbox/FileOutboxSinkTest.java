@@ -0,0 +1,52 @@
+package book.outbox;
+
+import book.enums.ChangeEventType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileOutboxSinkTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    @DisplayName("한 줄에 이벤트 하나씩 이어 쓰고, 닫았다 다시 열어도 뒤에 붙인다")
+    void appendNdjson() throws Exception {
+        // Given
+        Path path = dir.resolve("changes/book-changes.ndjson");
+        FileOutboxSink sink = new FileOutboxSink(objectMapper);
+        ReflectionTestUtils.setField(sink, "path", path);
+
+        // When
+        sink.deliver(List.of(event(1L, 10L), event(2L, 20L)));
+        sink.close();
+        sink.deliver(List.of(event(3L, 30L)));
+        sink.close();
+
+        // Then
+        List<String> lines = Files.readAllLines(path);
+        assertEquals(3, lines.size());
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals(1L, first.get("seq").asLong());
+        assertEquals("BOOK_STATUS_CHANGED", first.get("type").asText());
+        // payload 는 문자열이 아니라 JSON 그대로 들어간다.
+        assertEquals(10L, first.get("payload").get("bookId").asLong());
+        assertEquals(3L, objectMapper.readTree(lines.get(2)).get("seq").asLong());
+    }
+
+    private static ChangeEvent event(long seq, long bookId) {
+        return new ChangeEvent(seq, ChangeEventType.BOOK_STATUS_CHANGED, bookId, "{\"bookId\":" + bookId + "}", 0L);
+    }
+}
@@ -0,0 +1,117 @@
+package book.outbox;
+
+import book.enums.ChangeEventType;
+import book.repository.NewOutboxRow;
+import book.repository.OutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(OutboxRepository.class)
+class OutboxRelayTest {
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private CapturingSink sink;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        sink = new CapturingSink();
+        relay = new OutboxRelay(outboxRepository, List.of(sink));
+        // 처음 붙는 sink 는 지금 시점(마지막 seq)부터 받는다. 롤백돼도 auto increment 는 돌아가지 않으니 기준 행을 하나 넣어둔다.
+        outboxRepository.insert(List.of(row(0L)), System.currentTimeMillis());
+        relay.relay();
+    }
+
+    @Test
+    @DisplayName("seq 순서대로 전달하고 offset 을 저장한다")
+    void deliverInOrder() {
+        // Given
+        long now = System.currentTimeMillis();
+        outboxRepository.insert(List.of(row(1L), row(2L), row(3L)), now);
+
+        // When
+        relay.relay();
+        relay.relay();
+
+        // Then
+        assertEquals(List.of(1L, 2L, 3L), sink.received.stream().map(ChangeEvent::bookId).toList());
+        assertEquals(outboxRepository.maxSeq(), outboxRepository.findOffset("in-process").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("앞 번호가 비어 있으면 settle-delay 동안 기다렸다가, 오래된 빈 번호는 롤백으로 보고 넘어간다")
+    void waitForGap() {
+        // Given - 두번째 이벤트는 아직 커밋 전이라 안 보이는 상황
+        long now = System.currentTimeMillis();
+        outboxRepository.insert(List.of(row(1L), row(2L), row(3L)), now);
+        long gapSeq = outboxRepository.maxSeq() - 1;
+        jdbcTemplate.update("delete from book_change_outbox where seq = ?", gapSeq);
+
+        // When
+        relay.relay();
+        List<Long> beforeSettled = sink.received.stream().map(ChangeEvent::bookId).toList();
+        jdbcTemplate.update("update book_change_outbox set created_at = ? where seq > ?", now - 60_000, gapSeq);
+        relay.relay();
+
+        // Then
+        assertEquals(List.of(1L), beforeSettled);
+        assertEquals(List.of(1L, 3L), sink.received.stream().map(ChangeEvent::bookId).toList());
+    }
+
+    @Test
+    @DisplayName("sink 가 실패하면 offset 을 올리지 않고 다음에 같은 이벤트부터 다시 보낸다")
+    void redeliverAfterFailure() {
+        // Given
+        outboxRepository.insert(List.of(row(1L), row(2L)), System.currentTimeMillis());
+        sink.failNext = true;
+
+        // When
+        relay.relay();
+        relay.relay();
+
+        // Then
+        assertEquals(List.of(1L, 2L), sink.received.stream().map(ChangeEvent::bookId).toList());
+    }
+
+    private static NewOutboxRow row(long bookId) {
+        return new NewOutboxRow(ChangeEventType.BOOK_STATUS_CHANGED, bookId, "{\"bookId\":" + bookId + "}");
+    }
+
+    private static final class CapturingSink implements OutboxSink {
+
+        private final List<ChangeEvent> received = new ArrayList<>();
+        private boolean failNext;
+
+        @Override
+        public String name() {
+            return "in-process";
+        }
+
+        @Override
+        public void deliver(List<ChangeEvent> events) {
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("sink unavailable");
+            }
+            received.addAll(events);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package book.outbox;
+
+import book.enums.ChangeEventType;
+import book.repository.NewOutboxRow;
+import book.repository.OutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(OutboxRepository.class)
+class SseChangeStreamTest {
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    private SseChangeStream changeStream;
+
+    @BeforeEach
+    void setUp() {
+        // 보내기를 호출한 스레드에서 바로 돌려서 tail() 이 끝나면 전송도 끝나 있게 한다.
+        changeStream = new SseChangeStream(outboxRepository, new TaskExecutorAdapter(new SyncTaskExecutor()));
+        outboxRepository.insert(List.of(row(0L)), System.currentTimeMillis());
+        // 처음 읽기는 지금 마지막 seq 를 시작점으로 잡기만 한다.
+        changeStream.tail();
+    }
+
+    @Test
+    @DisplayName("relay 없이 이 인스턴스가 테이블을 읽어서 구독자에게 보낸다")
+    void tailWithoutRelay() {
+        // Given
+        CapturingEmitter emitter = new CapturingEmitter();
+        changeStream.subscribe(emitter, null);
+        long base = outboxRepository.maxSeq();
+
+        // When
+        outboxRepository.insert(List.of(row(1L), row(2L)), System.currentTimeMillis());
+        changeStream.tail();
+
+        // Then
+        assertEquals(List.of(base + 1, base + 2), emitter.ids);
+    }
+
+    @Test
+    @DisplayName("since 이후를 테이블에서 따라잡고, 이어서 새로 읽은 이벤트를 중복 없이 보낸다")
+    void catchUpThenFollow() {
+        // Given
+        long base = outboxRepository.maxSeq();
+        outboxRepository.insert(List.of(row(1L), row(2L), row(3L)), System.currentTimeMillis());
+        changeStream.tail();
+        CapturingEmitter emitter = new CapturingEmitter();
+
+        // When
+        changeStream.subscribe(emitter, base + 1);
+        outboxRepository.insert(List.of(row(4L)), System.currentTimeMillis());
+        changeStream.tail();
+
+        // Then
+        assertEquals(List.of(base + 2, base + 3, base + 4), emitter.ids);
+    }
+
+    @Test
+    @DisplayName("보내다 끊긴 구독만 정리하고 다른 구독은 계속 받는다")
+    void dropBrokenSubscription() {
+        // Given
+        CapturingEmitter broken = new CapturingEmitter();
+        broken.broken = true;
+        CapturingEmitter healthy = new CapturingEmitter();
+        changeStream.subscribe(broken, null);
+        changeStream.subscribe(healthy, null);
+        long base = outboxRepository.maxSeq();
+
+        // When
+        outboxRepository.insert(List.of(row(1L)), System.currentTimeMillis());
+        changeStream.tail();
+
+        // Then
+        assertEquals(1, changeStream.subscriberCount());
+        assertEquals(List.of(base + 1), healthy.ids);
+        assertTrue(broken.ids.isEmpty());
+    }
+
+    private static NewOutboxRow row(long bookId) {
+        return new NewOutboxRow(ChangeEventType.BOOK_STATUS_CHANGED, bookId, "{\"bookId\":" + bookId + "}");
+    }
+
+    // 핸들러에 붙이지 않은 emitter 라서 보낸 이벤트의 id 만 모아둔다.
+    private static final class CapturingEmitter extends SseEmitter {
+
+        private static final Pattern ID = Pattern.compile("^id:(\\d+)$", Pattern.MULTILINE);
+
+        private final List<Long> ids = new ArrayList<>();
+        private boolean broken;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (broken) {
+                throw new IOException("client disconnected");
+            }
+            for (DataWithMediaType data : builder.build()) {
+                Matcher matcher = ID.matcher(data.getData().toString());
+                if (matcher.find()) {
+                    ids.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+    }
+}
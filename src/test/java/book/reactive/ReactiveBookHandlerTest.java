@@ -0,0 +1,114 @@
+package book.reactive;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 라우터를 서버 없이 WebTestClient 로 부르고, 저장소는 r2dbc-h2 인메모리 DB 를 쓴다.
+ */
+class ReactiveBookHandlerTest {
+
+    private ReactiveBookRepository reactiveBookRepository;
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        ConnectionPool connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(
+                        ConnectionFactories.get("r2dbc:h2:mem:///reactive-" + UUID.randomUUID() + "?options=DB_CLOSE_DELAY=-1"))
+                .maxSize(2)
+                .build());
+        DatabaseClient databaseClient = DatabaseClient.create(connectionPool);
+        for (String sql : new String[]{
+                "create table category (id bigint primary key, name varchar(255))",
+                "create table book (id bigint primary key, title varchar(255), author varchar(255), status varchar(20))",
+                "create table book_category (id bigint auto_increment primary key, book_id bigint, category_id bigint)",
+                "insert into category values (1, '문학'), (2, 'IT')",
+                "insert into book values (1, '너에게 해주지 못한 말들', '권태영', 'AVAILABLE'), " +
+                        "(2, '단순하게 배부르게', '현영서', 'AVAILABLE'), (3, '자바의 정석', '남궁성', 'AVAILABLE')",
+                "insert into book_category (book_id, category_id) values (1, 1), (2, 1), (3, 2)"}) {
+            databaseClient.sql(sql).then().block();
+        }
+        reactiveBookRepository = new ReactiveBookRepository(connectionPool);
+        webTestClient = WebTestClient.bindToRouterFunction(new ReactiveBookHandler(reactiveBookRepository).routes()).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reactiveBookRepository.destroy();
+    }
+
+    @Test
+    @DisplayName("카테고리 별 조회 - Accept 가 없으면 JSON 배열로 id 순서대로")
+    void getBooksByCategoryAsJsonArray() {
+        webTestClient.get().uri("/books/by-category/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].bookId").isEqualTo(1)
+                .jsonPath("$[1].title").isEqualTo("단순하게 배부르게");
+    }
+
+    @Test
+    @DisplayName("카테고리 별 조회 - Accept 가 application/x-ndjson 이면 한 줄에 한 권씩")
+    void getBooksByCategoryAsNdjson() {
+        String body = webTestClient.get().uri("/books/by-category/1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        String[] lines = body.strip().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{") && lines[0].contains("\"bookId\":1"), lines[0]);
+        assertTrue(lines[1].contains("\"bookId\":2"), lines[1]);
+    }
+
+    @Test
+    @DisplayName("없는 카테고리는 404")
+    void unknownCategory() {
+        webTestClient.get().uri("/books/by-category/99")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.result").isEqualTo(false)
+                .jsonPath("$.message").isEqualTo("Category not found with id: 99");
+    }
+
+    @Test
+    @DisplayName("제목 및 지은이로 검색 - 둘 중 하나라도 없으면 400")
+    void getBooksByAuthorAndTitle() {
+        webTestClient.get().uri("/books/by-author-and-title?author=남궁성&title=자바의 정석")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].bookId").isEqualTo(3);
+
+        webTestClient.get().uri("/books/by-author-and-title?author=남궁성")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("author and title are required");
+
+        webTestClient.get().uri("/books/by-author-and-title?title=자바의 정석&author=")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,92 @@
+package book.repository;
+
+import book.config.QueryDSLConfig;
+import book.dto.BookSummaryDto;
+import book.entity.Book;
+import book.entity.BookCategory;
+import book.entity.Category;
+import book.enums.BookStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Import({QueryDSLConfig.class, BookQueryRepository.class})
+class BookQueryRepositoryTest {
+
+    private static final int BOOK_COUNT = 1_000;
+
+    @Autowired
+    private BookQueryRepository bookQueryRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BookCategoryRepository bookCategoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("카테고리별 프로젝션 조회 - 도서 1000권이어도 쿼리는 2번")
+    void findSummariesByCategoryWithConstantQueryCount() {
+        // Given
+        Category it = categoryRepository.save(Category.builder().name("IT").build());
+        Category science = categoryRepository.save(Category.builder().name("과학").build());
+
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOK_COUNT; i++) {
+            books.add(Book.builder()
+                    .title("도서" + i)
+                    .author("지은이" + i)
+                    .status(BookStatus.AVAILABLE)
+                    .build());
+        }
+        bookRepository.saveAll(books);
+
+        List<BookCategory> bookCategories = new ArrayList<>();
+        for (Book book : books) {
+            bookCategories.add(BookCategory.builder().book(book).category(it).build());
+            bookCategories.add(BookCategory.builder().book(book).category(science).build());
+        }
+        bookCategoryRepository.saveAll(bookCategories);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When
+        List<BookSummaryDto> summaries = bookQueryRepository.findSummariesByCategory(it.getId());
+
+        // Then
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(BOOK_COUNT, summaries.size());
+        assertEquals("도서0", summaries.get(0).title());
+        assertEquals(BookStatus.AVAILABLE, summaries.get(0).status());
+        assertTrue(summaries.stream().allMatch(summary -> summary.categories().size() == 2));
+        assertEquals("IT", summaries.get(0).categories().get(0).name());
+    }
+}
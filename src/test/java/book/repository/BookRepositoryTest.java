@@ -7,6 +7,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.List;
@@ -101,4 +102,30 @@ class BookRepositoryTest {
         assertEquals("도서1", books.get(0).getTitle());
         assertEquals("도서2", books.get(1).getTitle());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("카테고리별 keyset 페이지 쿼리 테스트 - cursor 다음 id 부터 id 순서로 limit 만큼")
+    void findPageByCategory() {
+        // Given - 다른 카테고리 도서가 사이에 끼어 있다.
+        Category category = categoryRepository.save(Category.builder().name("인문학").build());
+        Category other = categoryRepository.save(Category.builder().name("IT").build());
+        List<Book> books = bookRepository.saveAll(List.of(
+                Book.builder().title("도서1").author("황성태").build(),
+                Book.builder().title("다른 카테고리").author("황성태").build(),
+                Book.builder().title("도서2").author("황성태").build(),
+                Book.builder().title("도서3").author("황성태").build()));
+        bookCategoryRepository.saveAll(List.of(
+                BookCategory.builder().book(books.get(0)).category(category).build(),
+                BookCategory.builder().book(books.get(1)).category(other).build(),
+                BookCategory.builder().book(books.get(2)).category(category).build(),
+                BookCategory.builder().book(books.get(3)).category(category).build()));
+
+        // When
+        List<Book> first = bookRepository.findPageByCategory(category, 0L, PageRequest.of(0, 2));
+        List<Book> next = bookRepository.findPageByCategory(category, first.get(1).getId(), PageRequest.of(0, 2));
+
+        // Then
+        assertEquals(List.of("도서1", "도서2"), first.stream().map(Book::getTitle).toList());
+        assertEquals(List.of("도서3"), next.stream().map(Book::getTitle).toList());
+    }
+}
@@ -0,0 +1,348 @@
+package book.repository;
+
+import book.config.QueryDSLConfig;
+import book.entity.Book;
+import book.entity.Category;
+import book.enums.BookStatus;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 리포지토리 쿼리가 인덱스를 타는지 실행 계획으로 확인한다.
+ * Hibernate 가 실제로 만든 SQL 을 StatementInspector 로 가로채서 MySQL 모드 H2 에 EXPLAIN 을 걸고,
+ * book / book_category 를 tableScan 하면 실패한다. (category 는 CategoryCache 에 통째로 올라가는 작은 테이블이라 제외)
+ * 건수가 적으면 옵티마이저가 인덱스를 안 쓰는 게 맞을 수 있어서 도서 10만권을 넣고 ANALYZE 한 뒤에 본다.
+ * (100만권은 인메모리 H2 가 1g 힙을 넘겨서 GC 만 돈다. 더 넣어보려면 -Dplan.bookCount 와 힙을 같이 늘린다)
+ * JdbcTemplate 쿼리(BookJdbcRepository)는 커넥션에서 prepare 되는 SQL 을 가로채서 같은 방식으로 본다.
+ * 테이블 전체를 읽는 게 목적인 streamAllBooks, streamAllBookCategories, countBooks, countBookCategories 는 보지 않는다.
+ * 오래 걸려서 기본 test 에서는 빠지고 ./gradlew queryPlanTest 로 따로 돌린다.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.url=jdbc:h2:mem:plan;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=book.repository.QueryPlanTest$SqlCapture"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({QueryDSLConfig.class, BookQueryRepository.class})
+@Tag("query-plan")
+// 10만건을 테스트 트랜잭션 안에서 넣으면 언두 로그가 메모리에 쌓이니 커밋해두고 모든 테스트가 같이 쓴다.
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class QueryPlanTest {
+
+    private static final int BOOK_COUNT = Integer.getInteger("plan.bookCount", 100_000);
+    private static final int CATEGORY_COUNT = 50;
+    private static final Pattern LARGE_TABLE_SCAN = Pattern.compile("\\b(book|book_category)\\.tableScan", Pattern.CASE_INSENSITIVE);
+
+    private static boolean seeded;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookCategoryRepository bookCategoryRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BookQueryRepository bookQueryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void seed() {
+        if (seeded) {
+            return;
+        }
+        jdbcTemplate.update("insert into category (id, name) select x, concat('카테고리', x) from system_range(1, ?) r(x)", CATEGORY_COUNT);
+        jdbcTemplate.update("insert into book (id, title, author, status, version) " +
+                        "select x, concat('도서', mod(x, 200000)), concat('지은이', mod(x, 20000)), " +
+                        "case when mod(x, 20) = 0 then 'UNAVAILABLE' else 'AVAILABLE' end, 0 " +
+                        "from system_range(1, ?) r(x)",
+                BOOK_COUNT);
+        // 모든 도서는 카테고리 1개, 짝수 id 는 하나 더. (7x + 3) 과 x 는 50 으로 나눈 나머지가 절대 같지 않아서 중복이 없다.
+        jdbcTemplate.update("insert into book_category (book_id, category_id) select x, 1 + mod(x, ?) from system_range(1, ?) r(x)",
+                CATEGORY_COUNT, BOOK_COUNT);
+        jdbcTemplate.update("insert into book_category (book_id, category_id) select x, 1 + mod(7 * x + 3, ?) from system_range(1, ?) r(x) where mod(x, 2) = 0",
+                CATEGORY_COUNT, BOOK_COUNT);
+        jdbcTemplate.execute("analyze");
+        seeded = true;
+    }
+
+    @Test
+    @DisplayName("카테고리별 도서 조회 - book_category(category_id, book_id) 인덱스")
+    void findAllByCategory() {
+        Category category = categoryRepository.getReferenceById(7L);
+
+        String plan = explain(() -> bookRepository.findAllByCategory(category), 7L);
+
+        assertIndexOnly(plan);
+        assertTrue(plan.contains("idx_book_category_category_book"), plan);
+    }
+
+    @Test
+    @DisplayName("카테고리별 커서 페이징 - book_category(category_id, book_id) 인덱스")
+    void findPageByCategory() {
+        Category category = categoryRepository.getReferenceById(7L);
+
+        String plan = explain(() -> bookRepository.findPageByCategory(category, 500_000L, PageRequest.ofSize(50)), 7L, 500_000L, 0, 50);
+
+        assertIndexOnly(plan);
+        assertTrue(plan.contains("idx_book_category_category_book"), plan);
+    }
+
+    @Test
+    @DisplayName("id 목록 존재 확인 - PK")
+    void findIdsByIdIn() {
+        String plan = explain(() -> bookRepository.findIdsByIdIn(List.of(1L, 2L, 3L)), 1L, 2L, 3L);
+
+        assertIndexOnly(plan);
+    }
+
+    @Test
+    @DisplayName("지은이, 제목 조회 - book(author, title) 인덱스")
+    void findAllByAuthorAndTitle() {
+        String plan = explain(() -> bookRepository.findAllByAuthorAndTitle("지은이3", "도서3"), "지은이3", "도서3");
+
+        assertIndexOnly(plan);
+        assertTrue(plan.contains("idx_book_author_title"), plan);
+    }
+
+    @Test
+    @DisplayName("도서의 카테고리 연결 조회 - book_category(book_id, category_id) 유니크 인덱스")
+    void findAllByBook() {
+        Book book = bookRepository.getReferenceById(10L);
+
+        String plan = explain(() -> bookCategoryRepository.findAllByBook(book), 10L);
+
+        assertIndexOnly(plan);
+        assertTrue(plan.contains("uk_book_category_book_category"), plan);
+    }
+
+    @Test
+    @DisplayName("도서의 카테고리 id 조회 - book_category(book_id, category_id) 유니크 인덱스")
+    void findCategoryIdsByBookId() {
+        String plan = explain(() -> bookCategoryRepository.findCategoryIdsByBookId(10L), 10L);
+
+        assertIndexOnly(plan);
+        assertTrue(plan.contains("uk_book_category_book_category"), plan);
+    }
+
+    @Test
+    @DisplayName("도서의 카테고리 연결 삭제 - book_category book_id 인덱스")
+    void deleteAllByBookIdAndCategoryIdIn() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        String plan = explain(() -> transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return bookCategoryRepository.deleteAllByBookIdAndCategoryIdIn(10L, List.of(11L, 24L));
+        }), 10L, 11L, 24L);
+
+        assertIndexOnly(plan);
+        // H2 는 DELETE 에서 유니크 인덱스 대신 book_id 외래 키 인덱스(CONSTRAINT_INDEX_n)를 고른다. book_id 로 찾기만 하면 된다.
+        assertTrue(plan.contains(": book_id = ?1 */"), plan);
+    }
+
+    @Test
+    @DisplayName("카테고리별 프로젝션 조회 - 도서 목록, 카테고리 목록 두 쿼리 모두 인덱스")
+    void findSummariesByCategory() {
+        SqlCapture.start();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> bookQueryRepository.findSummariesByCategory(7L));
+        List<String> statements = SqlCapture.stop();
+
+        assertEquals(2, statements.size(), statements::toString);
+        assertIndexOnly(explain(statements.get(0), 7L));
+        assertIndexOnly(explain(statements.get(1), 7L));
+    }
+
+    @Test
+    @DisplayName("JDBC 상태 변경 - version 비교 update 는 PK")
+    void updateStatusIfVersion() {
+        // version 이 맞지 않아 아무 행도 바뀌지 않는다.
+        String plan = explain(() -> bookJdbcRepository().updateStatusIfVersion(10L, BookStatus.UNAVAILABLE, 999L),
+                "UNAVAILABLE", 10L, 999L);
+
+        assertIndexOnly(plan);
+        assertTrue(plan.contains("PRIMARY_KEY"), plan);
+    }
+
+    @Test
+    @DisplayName("JDBC 일괄 상태 변경 - id in (...) 잠금 조회와 update 모두 PK")
+    void lockIdsAndUpdateStatusAll() {
+        // 1, 2, 3 은 이미 AVAILABLE 이라 잠그거나 바뀌는 행이 없다.
+        List<Long> ids = List.of(1L, 2L, 3L);
+        String lockPlan = explain(() -> bookJdbcRepository().lockIdsWithStatusOtherThan(ids, BookStatus.AVAILABLE),
+                1L, 2L, 3L, "AVAILABLE");
+        String updatePlan = explain(() -> bookJdbcRepository().updateStatusAll(ids, BookStatus.AVAILABLE),
+                "AVAILABLE", 1L, 2L, 3L, "AVAILABLE");
+
+        assertIndexOnly(lockPlan);
+        assertTrue(lockPlan.contains("PRIMARY_KEY"), lockPlan);
+        assertIndexOnly(updatePlan);
+        assertTrue(updatePlan.contains("PRIMARY_KEY"), updatePlan);
+    }
+
+    @Test
+    @DisplayName("JDBC 도서들의 카테고리 연결 조회 - book_category(book_id, category_id) 유니크 인덱스")
+    void findBookCategoriesByBookIds() {
+        String plan = explain(() -> bookJdbcRepository().findBookCategoriesByBookIds(List.of(10L, 11L, 12L)), 10L, 11L, 12L);
+
+        assertIndexOnly(plan);
+        assertTrue(plan.contains("uk_book_category_book_category"), plan);
+    }
+
+    @Test
+    @DisplayName("JDBC 카테고리별 스트리밍 - book_category(category_id, book_id) 인덱스로 찾고 book 은 PK")
+    void streamByCategory() {
+        String ndjsonPlan = explain(() -> bookJdbcRepository().streamByCategory(7L, book -> {
+        }), 7L);
+        String snapshotPlan = explain(() -> bookJdbcRepository().streamCategoryBooks(7L, book -> {
+        }), 7L);
+
+        assertIndexOnly(ndjsonPlan);
+        assertTrue(ndjsonPlan.contains("idx_book_category_category_book"), ndjsonPlan);
+        assertIndexOnly(snapshotPlan);
+        assertTrue(snapshotPlan.contains("idx_book_category_category_book"), snapshotPlan);
+    }
+
+    @Test
+    @DisplayName("JDBC 카탈로그 전체 내보내기 - book 은 한번 읽고 book_category, category 는 인덱스로 붙인다")
+    void streamCatalog() {
+        // 첫 행에서 멈춘다. SQL 만 있으면 된다.
+        String plan = explain(() -> {
+            try {
+                bookJdbcRepository().streamCatalog(row -> {
+                    throw new StopStreaming();
+                });
+            } catch (StopStreaming ignored) {
+            }
+        });
+
+        // 전체를 내보내니 book 은 tableScan 이 맞다. 도서마다 붙이는 조인이 인덱스를 타야 10만권이 10만번 스캔이 되지 않는다.
+        assertTrue(plan.contains("uk_book_category_book_category_INDEX") && plan.contains(": book_id = b.id"), plan);
+        assertTrue(plan.contains("PRIMARY_KEY") && plan.contains(": id = bc.category_id"), plan);
+        assertFalse(Pattern.compile("\\b(book_category|category)\\.tableScan").matcher(plan).find(), plan);
+    }
+
+    // 리포지토리 메서드가 처음 실행한 SQL 을 그대로 EXPLAIN 한다. 이어서 나가는 즉시 로딩 쿼리는 PK 조회라 보지 않는다.
+    private String explain(Runnable repositoryCall, Object... parameters) {
+        List<String> statements;
+        SqlCapture.start();
+        try {
+            repositoryCall.run();
+        } finally {
+            statements = SqlCapture.stop();
+        }
+        assertFalse(statements.isEmpty(), "no statement captured");
+        return explain(statements.get(0), parameters);
+    }
+
+    private String explain(String sql, Object... parameters) {
+        long placeholders = sql.chars().filter(ch -> ch == '?').count();
+        assertEquals(parameters.length, placeholders, sql);
+        return jdbcTemplate.queryForObject("explain " + sql, String.class, parameters);
+    }
+
+    // JdbcTemplate 으로 나가는 SQL 은 StatementInspector 를 거치지 않으니 커넥션에서 prepare 되는 SQL 을 가로챈다.
+    private BookJdbcRepository bookJdbcRepository() {
+        DataSource capturing = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(dataSource, method, args);
+                    if (result instanceof Connection connection) {
+                        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                                (conProxy, conMethod, conArgs) -> {
+                                    if (conMethod.getName().startsWith("prepare") && conArgs != null && conArgs[0] instanceof String sql) {
+                                        SqlCapture.record(sql);
+                                    }
+                                    return invoke(connection, conMethod, conArgs);
+                                });
+                    }
+                    return result;
+                });
+        return new BookJdbcRepository(new JdbcTemplate(capturing));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static void assertIndexOnly(String plan) {
+        assertFalse(LARGE_TABLE_SCAN.matcher(plan).find(), () -> "full table scan\n" + plan);
+    }
+
+    public static class SqlCapture implements StatementInspector {
+
+        private static final List<String> captured = new ArrayList<>();
+        private static volatile boolean capturing;
+
+        static void start() {
+            synchronized (captured) {
+                captured.clear();
+            }
+            capturing = true;
+        }
+
+        static List<String> stop() {
+            capturing = false;
+            synchronized (captured) {
+                return List.copyOf(captured);
+            }
+        }
+
+        static void record(String sql) {
+            if (capturing) {
+                synchronized (captured) {
+                    captured.add(sql);
+                }
+            }
+        }
+
+        @Override
+        public String inspect(String sql) {
+            record(sql);
+            return sql;
+        }
+    }
+
+    private static class StopStreaming extends RuntimeException {
+    }
+}
@@ -0,0 +1,66 @@
+package book.search;
+
+import book.enums.BookStatus;
+import book.enums.SearchField;
+import book.enums.SearchMode;
+import book.event.BookCategoriesChangedEvent;
+import book.event.BookRegisteredEvent;
+import book.event.BookStatusChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // 시작 시 재구축은 DB 가 필요하니 이벤트로만 채운다.
+        index = new BookSearchIndex(null);
+        index.on(new BookRegisteredEvent(1L, "너에게 해주지 못한 말들", "권태영", BookStatus.AVAILABLE, List.of(1L)));
+        index.on(new BookRegisteredEvent(2L, "게으른 사랑", "권태영", BookStatus.AVAILABLE, List.of(1L)));
+        index.on(new BookRegisteredEvent(3L, "-1년차 게임 개발", "위성원", BookStatus.AVAILABLE, List.of(4L)));
+        index.on(new BookRegisteredEvent(4L, "Skye가 알려주는 피부 채색의 비결", "권태영", BookStatus.AVAILABLE, List.of(4L)));
+    }
+
+    @Test
+    @DisplayName("제목 prefix, substring, exact 검색")
+    void searchTitle() {
+        assertEquals(List.of(2L), ids(index.search("게으", SearchField.TITLE, SearchMode.PREFIX, null, 10)));
+        assertEquals(List.of(1L, 2L, 3L), ids(index.search("게", SearchField.TITLE, SearchMode.SUBSTRING, null, 10)));
+        assertEquals(List.of(3L), ids(index.search("게임개발", SearchField.TITLE, SearchMode.SUBSTRING, null, 10)));
+        assertEquals(List.of(4L), ids(index.search("skye", SearchField.TITLE, SearchMode.PREFIX, null, 10)));
+        assertEquals(List.of(), ids(index.search("게으른", SearchField.TITLE, SearchMode.EXACT, null, 10)));
+        assertEquals(List.of(2L), ids(index.search("게으른 사랑", SearchField.TITLE, SearchMode.EXACT, null, 10)));
+    }
+
+    @Test
+    @DisplayName("초성 검색 및 지은이 검색")
+    void searchChoseongAndAuthor() {
+        assertEquals(List.of(2L), ids(index.search("ㄱㅇㄹ", SearchField.TITLE, SearchMode.PREFIX, null, 10)));
+        assertEquals(List.of(1L, 2L, 4L), ids(index.search("권태", SearchField.AUTHOR, SearchMode.PREFIX, null, 10)));
+        assertEquals(List.of(1L, 2L, 4L), ids(index.search("ㄱㅌㅇ", SearchField.ALL, SearchMode.EXACT, null, 10)));
+    }
+
+    @Test
+    @DisplayName("카테고리 변경, 상태 변경 이벤트 반영")
+    void applyEvents() {
+        index.on(new BookCategoriesChangedEvent(2L, List.of(4L), List.of(1L)));
+        index.on(new BookStatusChangedEvent(2L, BookStatus.UNAVAILABLE));
+
+        List<BookSearchHit> hits = index.search("권태영", SearchField.AUTHOR, SearchMode.EXACT, 4L, 10);
+
+        assertEquals(List.of(2L, 4L), ids(hits));
+        assertEquals(BookStatus.UNAVAILABLE, hits.get(0).status());
+        assertEquals(List.of(1L), ids(index.search("권태영", SearchField.AUTHOR, SearchMode.EXACT, 1L, 10)));
+    }
+
+    private static List<Long> ids(List<BookSearchHit> hits) {
+        return hits.stream().map(BookSearchHit::bookId).toList();
+    }
+}
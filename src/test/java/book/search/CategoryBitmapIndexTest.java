@@ -0,0 +1,153 @@
+package book.search;
+
+import book.enums.BookStatus;
+import book.enums.CategoryOperator;
+import book.event.BookCategoriesChangedEvent;
+import book.event.BookRegisteredEvent;
+import book.event.BookStatusChangedEvent;
+import book.repository.BookRow;
+import book.repository.CatalogSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryBitmapIndexTest {
+
+    private static final long LITERATURE = 1L;
+    private static final long HUMANITIES = 2L;
+    private static final long IT = 3L;
+    private static final long SCIENCE = 4L;
+
+    private CategoryBitmapIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // 시작 시 재구축은 DB 가 필요하니 이벤트로만 채운다.
+        index = new CategoryBitmapIndex(null);
+        index.on(new BookRegisteredEvent(1L, "문학1", "지은이", BookStatus.AVAILABLE, List.of(LITERATURE)));
+        index.on(new BookRegisteredEvent(2L, "인문1", "지은이", BookStatus.UNAVAILABLE, List.of(HUMANITIES)));
+        index.on(new BookRegisteredEvent(3L, "IT과학1", "지은이", BookStatus.AVAILABLE, List.of(IT, SCIENCE)));
+        index.on(new BookRegisteredEvent(4L, "IT1", "지은이", BookStatus.AVAILABLE, List.of(IT)));
+        index.on(new BookRegisteredEvent(5L, "문학인문1", "지은이", BookStatus.UNAVAILABLE, List.of(LITERATURE, HUMANITIES)));
+        index.on(new BookRegisteredEvent(6L, "과학1", "지은이", BookStatus.AVAILABLE, List.of(SCIENCE)));
+    }
+
+    @Test
+    @DisplayName("AND - 모든 카테고리에 속한 도서, 없는 카테고리가 섞이면 결과 없음")
+    void searchAnd() {
+        assertArrayEquals(new long[]{3L}, index.search(List.of(IT, SCIENCE), CategoryOperator.AND, null, 0, 10));
+        assertArrayEquals(new long[]{5L}, index.search(List.of(LITERATURE, HUMANITIES), CategoryOperator.AND, null, 0, 10));
+        assertArrayEquals(new long[0], index.search(List.of(IT, 99L), CategoryOperator.AND, null, 0, 10));
+    }
+
+    @Test
+    @DisplayName("OR - 하나라도 속한 도서, 없는 카테고리는 건너뛴다")
+    void searchOr() {
+        assertArrayEquals(new long[]{1L, 2L, 5L}, index.search(List.of(LITERATURE, HUMANITIES), CategoryOperator.OR, null, 0, 10));
+        assertArrayEquals(new long[]{3L, 4L}, index.search(List.of(IT, 99L), CategoryOperator.OR, null, 0, 10));
+        assertArrayEquals(new long[0], index.search(List.of(99L), CategoryOperator.OR, null, 0, 10));
+    }
+
+    @Test
+    @DisplayName("NOT - 어느 카테고리에도 속하지 않은 도서, 없는 카테고리는 아무것도 빼지 않는다")
+    void searchNot() {
+        assertArrayEquals(new long[]{1L, 2L, 5L, 6L}, index.search(List.of(IT), CategoryOperator.NOT, null, 0, 10));
+        assertArrayEquals(new long[]{3L, 4L, 6L}, index.search(List.of(LITERATURE, HUMANITIES), CategoryOperator.NOT, null, 0, 10));
+        assertArrayEquals(new long[]{1L, 2L, 3L, 4L, 5L, 6L}, index.search(List.of(99L), CategoryOperator.NOT, null, 0, 10));
+    }
+
+    @Test
+    @DisplayName("상태 조건 - 단독으로, 그리고 AND, OR, NOT 결과와 교집합")
+    void searchWithStatus() {
+        assertArrayEquals(new long[]{2L, 5L}, index.search(List.of(), CategoryOperator.OR, BookStatus.UNAVAILABLE, 0, 10));
+        assertArrayEquals(new long[]{1L}, index.search(List.of(LITERATURE, HUMANITIES), CategoryOperator.OR, BookStatus.AVAILABLE, 0, 10));
+        assertArrayEquals(new long[]{5L}, index.search(List.of(LITERATURE, HUMANITIES), CategoryOperator.AND, BookStatus.UNAVAILABLE, 0, 10));
+        assertArrayEquals(new long[]{3L, 4L, 6L}, index.search(List.of(LITERATURE), CategoryOperator.NOT, BookStatus.AVAILABLE, 0, 10));
+        assertArrayEquals(new long[]{2L}, index.search(List.of(LITERATURE), CategoryOperator.NOT, BookStatus.UNAVAILABLE, 0, 10));
+    }
+
+    @Test
+    @DisplayName("결과는 도서 id 순으로 afterBookId 다음부터 limit 개")
+    void paginateByBookId() {
+        assertArrayEquals(new long[]{1L, 2L}, index.search(List.of(IT), CategoryOperator.NOT, null, 0, 2));
+        assertArrayEquals(new long[]{5L, 6L}, index.search(List.of(IT), CategoryOperator.NOT, null, 2, 2));
+        assertArrayEquals(new long[0], index.search(List.of(IT), CategoryOperator.NOT, null, 6, 2));
+    }
+
+    @Test
+    @DisplayName("카테고리 변경, 상태 변경 이벤트 반영")
+    void applyEvents() {
+        // When - 4 번 도서를 IT 에서 과학으로 옮기고 대여 불가로 바꾼다.
+        index.on(new BookCategoriesChangedEvent(4L, List.of(SCIENCE), List.of(IT)));
+        index.on(new BookStatusChangedEvent(4L, BookStatus.UNAVAILABLE));
+
+        // Then
+        assertArrayEquals(new long[]{3L}, index.search(List.of(IT), CategoryOperator.OR, null, 0, 10));
+        assertArrayEquals(new long[]{3L, 4L, 6L}, index.search(List.of(IT, SCIENCE), CategoryOperator.OR, null, 0, 10));
+        assertArrayEquals(new long[]{4L}, index.search(List.of(SCIENCE), CategoryOperator.AND, BookStatus.UNAVAILABLE, 0, 10));
+    }
+
+    @Test
+    @DisplayName("재구축 - source 로 새로 만들고 catchUpEvents, 재구축 중에 들어온 이벤트 순서로 다시 반영한다")
+    void rebuildWithPendingEvents() {
+        // Given - source 에는 1, 2 번 도서만 있다.
+        CatalogSource source = source(
+                List.of(new BookRow(1L, "문학1", "지은이", BookStatus.AVAILABLE), new BookRow(2L, "인문1", "지은이", BookStatus.AVAILABLE)),
+                new long[][]{{1L, LITERATURE}, {2L, HUMANITIES}});
+        index.beginRebuild();
+        index.on(new BookRegisteredEvent(7L, "IT2", "지은이", BookStatus.AVAILABLE, List.of(IT)));
+
+        // When
+        index.completeRebuild(source, List.of(new BookStatusChangedEvent(2L, BookStatus.UNAVAILABLE)));
+
+        // Then
+        assertArrayEquals(new long[]{7L}, index.search(List.of(IT), CategoryOperator.OR, null, 0, 10));
+        assertArrayEquals(new long[]{2L}, index.search(List.of(), CategoryOperator.OR, BookStatus.UNAVAILABLE, 0, 10));
+        assertArrayEquals(new long[]{1L, 7L}, index.search(List.of(HUMANITIES), CategoryOperator.NOT, null, 0, 10));
+    }
+
+    @Test
+    @DisplayName("재구축이 실패하면 기존 색인을 그대로 쓴다")
+    void keepIndexWhenRebuildFails() {
+        // Given
+        CatalogSource failing = new CatalogSource() {
+            @Override
+            public void streamAllBooks(Consumer<BookRow> consumer) {
+                throw new IllegalStateException("db down");
+            }
+
+            @Override
+            public void streamAllBookCategories(BookCategoryRowHandler handler) {
+            }
+        };
+        index.beginRebuild();
+
+        // When
+        assertThrows(IllegalStateException.class, () -> index.completeRebuild(failing, List.of()));
+        index.on(new BookRegisteredEvent(7L, "IT2", "지은이", BookStatus.AVAILABLE, List.of(IT)));
+
+        // Then
+        assertArrayEquals(new long[]{3L, 4L, 7L}, index.search(List.of(IT), CategoryOperator.OR, null, 0, 10));
+    }
+
+    private static CatalogSource source(List<BookRow> books, long[][] bookCategories) {
+        return new CatalogSource() {
+            @Override
+            public void streamAllBooks(Consumer<BookRow> consumer) {
+                books.forEach(consumer);
+            }
+
+            @Override
+            public void streamAllBookCategories(BookCategoryRowHandler handler) {
+                for (long[] row : bookCategories) {
+                    handler.accept(row[0], row[1]);
+                }
+            }
+        };
+    }
+}
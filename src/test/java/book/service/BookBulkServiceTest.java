@@ -0,0 +1,120 @@
+package book.service;
+
+import book.api.BookApiController;
+import book.cache.CategoryCache;
+import book.dto.BulkBookResultDto;
+import book.entity.Category;
+import book.repository.BookCategoryRepository;
+import book.repository.BookJdbcRepository;
+import book.repository.BookRepository;
+import book.repository.CategoryRepository;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class BookBulkServiceTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BookCategoryRepository bookCategoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private BookBulkService bookBulkService;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(Category.builder().name("인문학").build());
+        bookBulkService = new BookBulkService(new BookJdbcRepository(jdbcTemplate), new CategoryCache(categoryRepository),
+                eventPublisher, Validation.buildDefaultValidatorFactory().getValidator(), transactionManager);
+        // chunk 경계를 넘기도록 작게 둔다.
+        ReflectionTestUtils.setField(bookBulkService, "chunkSize", 2);
+    }
+
+    @Test
+    @DisplayName("일괄 등록 - 잘못된 행만 실패로 남기고 나머지는 chunk 로 나눠 넣는다")
+    void registerNewBooks() {
+        // Given - 3 번째 행은 없는 카테고리, 4 번째 행은 제목이 없다.
+        List<BookApiController.CreateBookCommand> commands = List.of(
+                command("도서1", category.getId()),
+                command("도서2", category.getId(), category.getId()),
+                command("도서3", Long.MAX_VALUE),
+                new BookApiController.CreateBookCommand(null, "황성태", List.of(category.getId())),
+                command("도서5", category.getId()));
+
+        // When
+        List<BulkBookResultDto> results = bookBulkService.registerNewBooks(commands.iterator());
+
+        // Then
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(BulkBookResultDto::index).toList());
+        assertEquals(List.of(true, true, false, false, true), results.stream().map(BulkBookResultDto::success).toList());
+        assertEquals("category is NotFound: " + Long.MAX_VALUE, results.get(2).message());
+        assertEquals("도서2", bookRepository.findById(results.get(1).bookId()).orElseThrow().getTitle());
+        // 같은 카테고리를 두번 줘도 연결은 하나
+        assertEquals(List.of(category.getId()), bookCategoryRepository.findCategoryIdsByBookId(results.get(1).bookId()));
+        assertEquals(3, bookRepository.count());
+    }
+
+    @Test
+    @DisplayName("일괄 등록 - 본문이 중간에 깨지면 그 앞까지 넣은 결과와 깨진 행 index 를 돌려준다")
+    void registerNewBooksWithBrokenBody() throws Exception {
+        // Given - NDJSON 4 번째 줄이 JSON 이 아니다.
+        String body = """
+                {"title":"도서1","author":"황성태","categoryIds":[%1$d]}
+                {"title":"도서2","author":"황성태","categoryIds":[%1$d]}
+                {"title":"도서3","author":"황성태","categoryIds":[%1$d]}
+                {"title":"도서4",
+                {"title":"도서5","author":"황성태","categoryIds":[%1$d]}
+                """.formatted(category.getId());
+
+        // When
+        List<BulkBookResultDto> results;
+        try (MappingIterator<BookApiController.CreateBookCommand> commands = new ObjectMapper()
+                .readerFor(BookApiController.CreateBookCommand.class)
+                .readValues(body)) {
+            results = bookBulkService.registerNewBooks(commands);
+        }
+
+        // Then
+        assertEquals(4, results.size());
+        assertTrue(results.subList(0, 3).stream().allMatch(BulkBookResultDto::success));
+        assertEquals(3, results.get(3).index());
+        assertFalse(results.get(3).success());
+        assertTrue(results.get(3).message().startsWith("unreadable row"));
+        assertEquals(3, bookRepository.count());
+    }
+
+    private static BookApiController.CreateBookCommand command(String title, Long... categoryIds) {
+        return new BookApiController.CreateBookCommand(title, "황성태", List.of(categoryIds));
+    }
+}
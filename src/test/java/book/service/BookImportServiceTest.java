@@ -0,0 +1,210 @@
+package book.service;
+
+import book.cache.CategoryCache;
+import book.dto.BookImportStatusDto;
+import book.dto.BulkBookResultDto;
+import book.enums.ImportFormat;
+import book.enums.ImportJobState;
+import book.exception.ImportQueueFullException;
+import book.repository.BookJdbcRepository;
+import book.repository.CategoryRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+// 가져오기는 다른 스레드에서 chunk 마다 커밋하기 때문에 테스트 트랜잭션 밖에서 돌리고 끝나면 지운다.
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookImportServiceTest {
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private BookImportService bookImportService;
+
+    @BeforeEach
+    void setUp() {
+        BookBulkService bookBulkService = new BookBulkService(new BookJdbcRepository(jdbcTemplate),
+                new CategoryCache(categoryRepository), eventPublisher,
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionManager);
+        bookImportService = new BookImportService(bookBulkService, categoryRepository, eventPublisher);
+        bookImportService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookImportService.stop();
+        jdbcTemplate.update("delete from book_category where book_id in (select id from book where author like '가져오기%')");
+        jdbcTemplate.update("delete from book where author like '가져오기%'");
+        jdbcTemplate.update("delete from category where name like '가져오기%'");
+    }
+
+    @Test
+    @DisplayName("README 형식 가져오기 - 없는 카테고리는 만들고, 잘못된 줄은 줄 번호와 함께 건너뛴다")
+    void importReadmeFormat() throws Exception {
+        // Given
+        String content = """
+                [가져오기문학] 너에게 해주지 못한 말들, 가져오기권태영
+                [가져오기경제][가져오기문학] 재테크, 투자 바이블, 가져오기홍길동
+
+                제목만 있는 줄
+                - [가져오기경제] 부자 아빠, 가져오기로버트
+                """;
+        MockMultipartFile file = new MockMultipartFile("file", "books.md", "text/markdown",
+                content.getBytes(StandardCharsets.UTF_8));
+
+        // When
+        BookImportStatusDto status = awaitFinished(bookImportService.submit(file, null).jobId());
+
+        // Then
+        assertEquals(ImportJobState.COMPLETED, status.state());
+        assertEquals(ImportFormat.README, status.format());
+        assertEquals(4, status.rowsRead());
+        assertEquals(3, status.rowsImported());
+        assertEquals(1, status.rowsRejected());
+        assertEquals(4, status.errors().get(0).line());
+        assertEquals(2, status.categoriesCreated());
+        assertEquals(List.of("재테크, 투자 바이블"),
+                jdbcTemplate.queryForList("select title from book where author = '가져오기홍길동'", String.class));
+        assertEquals(2, jdbcTemplate.queryForObject("select count(*) from book_category bc join book b on b.id = bc.book_id " +
+                "where b.author = '가져오기홍길동'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("CSV 가져오기 - 헤더 순서대로 열을 읽고, 따옴표 안의 쉼표와 줄바꿈을 살린다")
+    void importCsvWithHeader() throws Exception {
+        // Given
+        String content = "author,title,categories\r\n" +
+                "가져오기작가1,\"제목, 쉼표\",가져오기IT|가져오기과학\r\n" +
+                "가져오기작가2,\"두 줄\n제목\",가져오기IT\r\n";
+        MockMultipartFile file = new MockMultipartFile("file", "books.csv", "text/csv",
+                content.getBytes(StandardCharsets.UTF_8));
+
+        // When
+        BookImportStatusDto status = awaitFinished(bookImportService.submit(file, ImportFormat.CSV).jobId());
+
+        // Then
+        assertEquals(ImportJobState.COMPLETED, status.state());
+        assertEquals(2, status.rowsImported());
+        assertEquals(0, status.rowsRejected());
+        assertEquals(List.of("제목, 쉼표", "두 줄\n제목"),
+                jdbcTemplate.queryForList("select title from book where author like '가져오기작가%' order by author", String.class));
+    }
+
+    @Test
+    @DisplayName("기다리는 작업이 max-queued-jobs 를 넘으면 503 으로 거절하고, 종료할 때 시작 못 한 작업의 파일을 지운다")
+    void rejectWhenQueueFullAndCleanUpOnStop(@TempDir Path workDir) throws Exception {
+        // Given - 작업 하나가 쓰기에서 멈춰 있고, 하나가 기다린다.
+        bookImportService.stop();
+        CountDownLatch release = new CountDownLatch(1);
+        bookImportService = new BookImportService(new BlockingBulkService(release), categoryRepository, eventPublisher);
+        ReflectionTestUtils.setField(bookImportService, "workDir", workDir.toString());
+        ReflectionTestUtils.setField(bookImportService, "maxConcurrentJobs", 1);
+        ReflectionTestUtils.setField(bookImportService, "maxQueuedJobs", 1);
+        bookImportService.start();
+        String running = bookImportService.submit(csv("가져오기대기1"), null).jobId();
+        awaitState(running, ImportJobState.RUNNING);
+        String queued = bookImportService.submit(csv("가져오기대기2"), null).jobId();
+
+        try {
+            // When
+            ImportQueueFullException rejected = assertThrows(ImportQueueFullException.class,
+                    () -> bookImportService.submit(csv("가져오기대기3"), null));
+            long filesWhenRejected;
+            try (Stream<Path> files = Files.list(workDir)) {
+                filesWhenRejected = files.count();
+            }
+            bookImportService.stop();
+
+            // Then
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatus());
+            assertEquals(2, filesWhenRejected);
+            assertEquals(ImportJobState.FAILED, bookImportService.getStatus(queued).state());
+            assertFalse(Files.exists(workDir.resolve(queued + ".import")));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static MockMultipartFile csv(String author) {
+        String content = "title,author,categories\n제목," + author + ",가져오기IT\n";
+        return new MockMultipartFile("file", "books.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void awaitState(String jobId, ImportJobState state) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (bookImportService.getStatus(jobId).state() == state) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("import job did not reach " + state);
+    }
+
+    private BookImportStatusDto awaitFinished(String jobId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            BookImportStatusDto status = bookImportService.getStatus(jobId);
+            if (status.state() == ImportJobState.COMPLETED || status.state() == ImportJobState.FAILED) {
+                return status;
+            }
+            Thread.sleep(50);
+        }
+        fail("import did not finish");
+        return null;
+    }
+
+    // 풀 수 있을 때까지 쓰기에서 멈춘다.
+    private class BlockingBulkService extends BookBulkService {
+        private final CountDownLatch release;
+
+        BlockingBulkService(CountDownLatch release) {
+            super(new BookJdbcRepository(jdbcTemplate), new CategoryCache(categoryRepository), eventPublisher,
+                    Validation.buildDefaultValidatorFactory().getValidator(), transactionManager);
+            this.release = release;
+        }
+
+        @Override
+        List<BulkBookResultDto> writeChunk(List<PendingBook> chunk) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted", e);
+            }
+            return List.of();
+        }
+    }
+}
@@ -1,29 +1,57 @@
 package book.service;
 import book.api.BookApiController;
+import book.cache.CategoryCache;
+import book.cache.CategoryListingStore;
+import book.config.QueryDSLConfig;
+import book.common.BookCursor;
+import book.dto.BookPageDto;
 import book.dto.ResponseBookDto;
 import book.entity.Book;
 import book.entity.BookCategory;
 import book.entity.Category;
 import book.enums.BookStatus;
+import book.event.BookStatusChangedEvent;
+import book.dto.BookStatusBulkResultDto;
+import book.dto.BookStatusDto;
 import book.exception.BookCategoryNotFoundException;
+import book.exception.BookVersionConflictException;
+import book.exception.DuplicateBookIdException;
+import book.exception.InvalidCursorException;
 import book.repository.BookCategoryRepository;
+import book.repository.BookJdbcRepository;
+import book.repository.BookQueryRepository;
 import book.repository.BookRepository;
 import book.repository.CategoryRepository;
+import book.search.BookSearchIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.test.context.NestedTestConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 @ActiveProfiles("test")
 @DataJpaTest
+@Import({QueryDSLConfig.class, BookQueryRepository.class})
+@RecordApplicationEvents
 class BookServiceTest {
     @Autowired
     private BookRepository bookRepository;
@@ -34,11 +62,32 @@ class BookServiceTest {
     @Autowired
     private BookCategoryRepository bookCategoryRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BookQueryRepository bookQueryRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
     private BookService bookService;
 
+    private BookJdbcRepository bookJdbcRepository;
+
     @BeforeEach
     void setUp() {
-        bookService = new BookService(bookRepository, categoryRepository, bookCategoryRepository);
+        bookJdbcRepository = new BookJdbcRepository(jdbcTemplate);
+        CategoryListingStore categoryListingStore = new CategoryListingStore(bookJdbcRepository,
+                new BookSearchIndex(bookJdbcRepository), new SyncTaskExecutor());
+        bookService = new BookService(bookRepository, new CategoryCache(categoryRepository), bookCategoryRepository,
+                bookJdbcRepository, bookQueryRepository, categoryListingStore, eventPublisher, new TransactionTemplate(transactionManager));
     }
 
     @Test
@@ -69,6 +118,55 @@ class BookServiceTest {
         assertEquals(BookStatus.UNAVAILABLE, book.getStatus());
     }
 
+    @Test
+    @DisplayName("도서 상태 변경 - version 이 다르면 덮어쓰지 않고 예외")
+    void changeBookStatusWithStaleVersion() {
+        // Given
+        Book book = bookRepository.save(Book.builder()
+                .title("Test Title")
+                .author("Test Author")
+                .status(BookStatus.AVAILABLE)
+                .build());
+        long version = bookJdbcRepository.findStatus(book.getId()).orElseThrow().version();
+
+        // When
+        BookStatusDto changed = bookService.changeBookStatus(book.getId(), BookStatus.UNAVAILABLE, version);
+
+        // Then
+        assertEquals(version + 1, changed.version());
+        assertThrows(BookVersionConflictException.class,
+                () -> bookService.changeBookStatus(book.getId(), BookStatus.AVAILABLE, version));
+        assertEquals(BookStatus.UNAVAILABLE, bookJdbcRepository.findStatus(book.getId()).orElseThrow().status());
+    }
+
+    @Test
+    @DisplayName("여러 도서 일괄 대여 중단 - 이미 중단된 도서는 바꾸지 않고 이벤트도 바뀐 도서에만 보낸다")
+    void markUnavailable() {
+        // Given
+        Book available = bookRepository.save(Book.builder()
+                .title("대여 가능")
+                .author("Test Author")
+                .status(BookStatus.AVAILABLE)
+                .build());
+        Book unavailable = bookRepository.save(Book.builder()
+                .title("대여 중단")
+                .author("Test Author")
+                .status(BookStatus.UNAVAILABLE)
+                .build());
+
+        // When
+        BookStatusBulkResultDto result = bookService.markUnavailable(
+                List.of(available.getId(), unavailable.getId(), available.getId()));
+
+        // Then
+        assertEquals(2, result.requested());
+        assertEquals(1, result.changed());
+        assertEquals(BookStatus.UNAVAILABLE, bookJdbcRepository.findStatus(available.getId()).orElseThrow().status());
+        assertEquals(0L, bookJdbcRepository.findStatus(unavailable.getId()).orElseThrow().version());
+        assertEquals(List.of(new BookStatusChangedEvent(available.getId(), BookStatus.UNAVAILABLE)),
+                applicationEvents.stream(BookStatusChangedEvent.class).toList());
+    }
+
     @Test
     @DisplayName("도서 등록 성공 테스트")
     void registerNewBook() {
@@ -90,12 +188,12 @@ class BookServiceTest {
 
         ResponseBookDto bookDto = bookService.registerNewBook(createCommand);
 
-        Book book = bookRepository.findById(bookDto.getBookId()).orElseGet(null);
+        Book book = bookRepository.findById(bookDto.bookId()).orElseGet(null);
         List<BookCategory> bookCategory = bookCategoryRepository.findAllByBook(book);
 
         assertEquals(book.getTitle(), createCommand.getTitle());
         assertEquals(book.getAuthor(), createCommand.getAuthor());
-        assertEquals(bookCategory.size(), bookDto.getCategories().size());
+        assertEquals(bookCategory.size(), bookDto.categories().size());
     }
 
     @Transactional
@@ -192,4 +290,150 @@ class BookServiceTest {
             bookService.changeCategories(book.getId(), command);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("카테고리 일괄 변경 성공 테스트")
+    void changeCategoriesInBulk() {
+        // Given
+        List<Category> categories = List.of(
+                Category.builder().name("인문학").build(),
+                Category.builder().name("사회학").build(),
+                Category.builder().name("IT").build()
+        );
+        categoryRepository.saveAll(categories);
+
+        List<Book> books = List.of(
+                Book.builder().title("도서1").author("황성태").status(BookStatus.AVAILABLE).build(),
+                Book.builder().title("도서2").author("황성태").status(BookStatus.AVAILABLE).build()
+        );
+        bookRepository.saveAll(books);
+
+        bookCategoryRepository.saveAll(List.of(
+                BookCategory.builder().book(books.get(0)).category(categories.get(0)).build(),
+                BookCategory.builder().book(books.get(1)).category(categories.get(0)).build(),
+                BookCategory.builder().book(books.get(1)).category(categories.get(1)).build()
+        ));
+
+        List<BookApiController.BookCategoryChange> changes = List.of(
+                new BookApiController.BookCategoryChange(books.get(0).getId(),
+                        List.of(categories.get(0).getId(), categories.get(2).getId())),
+                new BookApiController.BookCategoryChange(books.get(1).getId(),
+                        List.of(categories.get(2).getId()))
+        );
+
+        //when
+        bookService.changeCategoriesInBulk(changes);
+
+        //than
+        assertEquals(List.of(categories.get(0).getId(), categories.get(2).getId()),
+                bookCategoryRepository.findCategoryIdsByBookId(books.get(0).getId()).stream().sorted().toList());
+        assertEquals(List.of(categories.get(2).getId()),
+                bookCategoryRepository.findCategoryIdsByBookId(books.get(1).getId()));
+    }
+
+    @Test
+    @DisplayName("카테고리 일괄 변경 실패 테스트 - 같은 도서가 두번 나오면 아무것도 바꾸지 않는다")
+    void changeCategoriesInBulkWithDuplicateBookId() {
+        // Given
+        Category humanities = categoryRepository.save(Category.builder().name("인문학").build());
+        Category it = categoryRepository.save(Category.builder().name("IT").build());
+        Book book = bookRepository.save(Book.builder().title("도서1").author("황성태").status(BookStatus.AVAILABLE).build());
+        bookCategoryRepository.save(BookCategory.builder().book(book).category(humanities).build());
+
+        List<BookApiController.BookCategoryChange> changes = List.of(
+                new BookApiController.BookCategoryChange(book.getId(), List.of(it.getId())),
+                new BookApiController.BookCategoryChange(book.getId(), List.of(humanities.getId(), it.getId()))
+        );
+
+        // When
+        DuplicateBookIdException exception = assertThrows(DuplicateBookIdException.class, () -> {
+            bookService.changeCategoriesInBulk(changes);
+        });
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        assertEquals("bookId is duplicated: [" + book.getId() + "]", exception.getMessage());
+        assertEquals(List.of(humanities.getId()), bookCategoryRepository.findCategoryIdsByBookId(book.getId()));
+    }
+
+    @Test
+    @DisplayName("커서 인코딩 - 마지막 도서 id 로 되돌아오고, 없으면 처음부터")
+    void bookCursorRoundTrip() {
+        // When
+        String cursor = BookCursor.encode(42L);
+
+        // Then
+        assertEquals(42L, BookCursor.decode(cursor));
+        assertEquals(0L, BookCursor.decode(null));
+        assertEquals(0L, BookCursor.decode(" "));
+    }
+
+    @Test
+    @DisplayName("카테고리 페이지 조회 - 잘못된 커서는 InvalidCursorException")
+    void getBookPageByCategoryWithInvalidCursor() {
+        // Given
+        Category category = categoryRepository.save(Category.builder().name("인문학").build());
+        String notBase64 = "not a cursor!";
+        String wrongPrefix = Base64.getUrlEncoder().withoutPadding().encodeToString("x:1".getBytes(StandardCharsets.UTF_8));
+        String notNumber = Base64.getUrlEncoder().withoutPadding().encodeToString("b:abc".getBytes(StandardCharsets.UTF_8));
+
+        // Then
+        assertThrows(InvalidCursorException.class, () -> bookService.getBookPageByCategory(category.getId(), notBase64, 2));
+        assertThrows(InvalidCursorException.class, () -> bookService.getBookPageByCategory(category.getId(), wrongPrefix, 2));
+        assertThrows(InvalidCursorException.class, () -> bookService.getBookPageByCategory(category.getId(), notNumber, 2));
+    }
+
+    @Test
+    @DisplayName("카테고리 페이지 조회 - 마지막 페이지만 nextCursor 가 없고, 딱 나눠떨어지면 빈 페이지를 더 주지 않는다")
+    void getBookPageByCategoryBoundaries() {
+        // Given - 도서 4권을 2권씩
+        Category category = categoryRepository.save(Category.builder().name("인문학").build());
+        List<Book> books = saveBooksInCategory(category, 4);
+
+        // When
+        BookPageDto first = bookService.getBookPageByCategory(category.getId(), null, 2);
+        BookPageDto second = bookService.getBookPageByCategory(category.getId(), first.getNextCursor(), 2);
+        BookPageDto whole = bookService.getBookPageByCategory(category.getId(), null, 4);
+        BookPageDto oneMore = bookService.getBookPageByCategory(category.getId(), null, 3);
+
+        // Then
+        assertEquals(List.of(books.get(0).getId(), books.get(1).getId()), bookIds(first));
+        assertEquals(BookCursor.encode(books.get(1).getId()), first.getNextCursor());
+        assertEquals(List.of(books.get(2).getId(), books.get(3).getId()), bookIds(second));
+        assertNull(second.getNextCursor());
+        assertEquals(4, whole.getSize());
+        assertNull(whole.getNextCursor());
+        assertEquals(3, oneMore.getSize());
+        assertEquals(BookCursor.encode(books.get(2).getId()), oneMore.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("카테고리 스트리밍 - 커서에서 읽히는 대로 id 순서로 한 권씩 넘겨준다")
+    void streamBooksByCategoryInIdOrder() {
+        // Given
+        Category category = categoryRepository.save(Category.builder().name("인문학").build());
+        List<Book> books = saveBooksInCategory(category, 3);
+
+        // When
+        List<ResponseBookDto> streamed = new ArrayList<>();
+        bookService.streamBooksByCategory(category.getId(), streamed::add);
+
+        // Then
+        assertEquals(books.stream().map(Book::getId).toList(), streamed.stream().map(ResponseBookDto::bookId).toList());
+        assertEquals(books.stream().map(Book::getTitle).toList(), streamed.stream().map(ResponseBookDto::title).toList());
+    }
+
+    private List<Book> saveBooksInCategory(Category category, int count) {
+        List<Book> books = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Book book = bookRepository.save(Book.builder().title("도서" + i).author("황성태").status(BookStatus.AVAILABLE).build());
+            bookCategoryRepository.save(BookCategory.builder().book(book).category(category).build());
+            books.add(book);
+        }
+        return books;
+    }
+
+    private static List<Long> bookIds(BookPageDto page) {
+        return page.getBooks().stream().map(ResponseBookDto::bookId).toList();
+    }
+}
@@ -0,0 +1,125 @@
+package book.service;
+
+import book.entity.Book;
+import book.entity.BookCategory;
+import book.entity.Category;
+import book.enums.BookStatus;
+import book.enums.ExportFormat;
+import book.repository.BookCategoryRepository;
+import book.repository.BookJdbcRepository;
+import book.repository.BookRepository;
+import book.repository.CategoryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class CatalogExportServiceTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BookCategoryRepository bookCategoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CatalogExportService catalogExportService;
+
+    private Book novel;
+    private Book uncategorized;
+
+    @BeforeEach
+    void setUp() {
+        catalogExportService = new CatalogExportService(new BookJdbcRepository(jdbcTemplate), new ObjectMapper(), transactionManager);
+
+        Category literature = categoryRepository.save(Category.builder().name("문학").build());
+        Category essay = categoryRepository.save(Category.builder().name("에세이").build());
+        novel = bookRepository.save(Book.builder().title("제목, 쉼표").author("내보내기").status(BookStatus.AVAILABLE).build());
+        uncategorized = bookRepository.save(Book.builder().title("카테고리 없음").author("내보내기").status(BookStatus.UNAVAILABLE).build());
+        bookCategoryRepository.save(BookCategory.builder().book(novel).category(literature).build());
+        bookCategoryRepository.save(BookCategory.builder().book(novel).category(essay).build());
+        // 내보내기는 JDBC 로 읽으니 JPA 로 넣은 것을 먼저 내린다.
+        bookRepository.flush();
+    }
+
+    @Test
+    @DisplayName("CSV 내보내기 - 도서 한 권이 한 행, 카테고리는 | 로 이어 붙이고 카테고리 없는 도서도 나온다")
+    void exportCsv() throws Exception {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long count = catalogExportService.export(ExportFormat.CSV, true, out);
+
+        // Then
+        List<String> lines = Arrays.asList(new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8).split("\r\n"));
+        assertEquals("id,title,author,status,categories,category_ids", lines.get(0));
+        assertEquals(count, lines.size() - 1);
+        assertTrue(lines.contains(novel.getId() + ",\"제목, 쉼표\",내보내기,AVAILABLE,문학|에세이,"
+                + categoryIds(novel)), lines::toString);
+        assertTrue(lines.contains(uncategorized.getId() + ",카테고리 없음,내보내기,UNAVAILABLE,,"), lines::toString);
+    }
+
+    @Test
+    @DisplayName("parquet-lite 내보내기 - 앞뒤 magic 과 footer 의 전체 행 수")
+    void exportColumnar() throws Exception {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long count = catalogExportService.export(ExportFormat.PARQUET_LITE, false, out);
+
+        // Then
+        byte[] bytes = out.toByteArray();
+        assertEquals("BKPQ", new String(bytes, 0, 4, StandardCharsets.US_ASCII));
+        assertEquals("BKPQ", new String(bytes, bytes.length - 4, 4, StandardCharsets.US_ASCII));
+        int footerLength = ByteBuffer.wrap(bytes, bytes.length - 8, 4).getInt();
+        assertTrue(footerLength > 0 && footerLength < bytes.length);
+        // footer 는 전체 행 수 varint 로 끝난다.
+        byte[] expectedCount = varLong(count);
+        assertArrayEquals(expectedCount, Arrays.copyOfRange(bytes, bytes.length - 8 - expectedCount.length, bytes.length - 8));
+        assertEquals(jdbcTemplate.queryForObject("select count(*) from book", Long.class), count);
+    }
+
+    private String categoryIds(Book book) {
+        List<Long> ids = jdbcTemplate.queryForList("select category_id from book_category where book_id = ? order by category_id",
+                Long.class, book.getId());
+        return ids.get(0) + "|" + ids.get(1);
+    }
+
+    private static byte[] varLong(long value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+        return out.toByteArray();
+    }
+}
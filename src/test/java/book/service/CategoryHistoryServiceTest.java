@@ -0,0 +1,79 @@
+package book.service;
+
+import book.cache.CategoryCache;
+import book.dto.BookCategoriesDto;
+import book.dto.CategorySummaryDto;
+import book.entity.Book;
+import book.entity.Category;
+import book.enums.BookStatus;
+import book.enums.CategoryHistoryOp;
+import book.repository.BookCategoryRepository;
+import book.repository.BookRepository;
+import book.repository.CategoryHistoryRepository;
+import book.repository.CategoryHistoryRow;
+import book.repository.CategoryRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(CategoryHistoryRepository.class)
+class CategoryHistoryServiceTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BookCategoryRepository bookCategoryRepository;
+
+    @Autowired
+    private CategoryHistoryRepository categoryHistoryRepository;
+
+    @Test
+    @DisplayName("asOf 시각까지의 이력을 순서대로 적용한 카테고리를 돌려준다")
+    void getCategoriesAsOf() {
+        // Given - 1000 에 문학, IT 로 등록, 2000 에 IT -> 과학, 3000 에 문학 삭제
+        Category literature = categoryRepository.save(Category.builder().name("문학").build());
+        Category it = categoryRepository.save(Category.builder().name("IT").build());
+        Category science = categoryRepository.save(Category.builder().name("과학").build());
+        Book book = bookRepository.save(Book.builder().title("도서").author("지은이").status(BookStatus.AVAILABLE).build());
+        long bookId = book.getId();
+        categoryHistoryRepository.insert(List.of(
+                new CategoryHistoryRow(bookId, literature.getId(), CategoryHistoryOp.ADD, 1000L),
+                new CategoryHistoryRow(bookId, it.getId(), CategoryHistoryOp.ADD, 1000L),
+                new CategoryHistoryRow(bookId, it.getId(), CategoryHistoryOp.REMOVE, 2000L),
+                new CategoryHistoryRow(bookId, science.getId(), CategoryHistoryOp.ADD, 2000L),
+                new CategoryHistoryRow(bookId, literature.getId(), CategoryHistoryOp.REMOVE, 3000L)));
+        CategoryCache categoryCache = new CategoryCache(categoryRepository);
+        CategoryHistoryService service = new CategoryHistoryService(bookRepository, bookCategoryRepository,
+                categoryHistoryRepository, categoryCache);
+
+        // When
+        BookCategoriesDto before = service.getCategories(bookId, Instant.ofEpochMilli(999L));
+        BookCategoriesDto registered = service.getCategories(bookId, Instant.ofEpochMilli(1500L));
+        BookCategoriesDto changed = service.getCategories(bookId, Instant.ofEpochMilli(2000L));
+        BookCategoriesDto latest = service.getCategories(bookId, Instant.ofEpochMilli(5000L));
+
+        // Then
+        assertEquals(List.of(), names(before));
+        assertEquals(List.of("문학", "IT"), names(registered));
+        assertEquals(List.of("문학", "과학"), names(changed));
+        assertEquals(List.of("과학"), names(latest));
+    }
+
+    private static List<String> names(BookCategoriesDto dto) {
+        return dto.categories().stream().map(CategorySummaryDto::name).toList();
+    }
+}
@@ -0,0 +1,76 @@
+package book.snapshot;
+
+import book.enums.BookStatus;
+import book.repository.BookRow;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("스냅샷으로 쓴 도서와 카테고리를 map 해서 같은 순서로 다시 읽는다")
+    void writeAndRead() throws IOException {
+        // Given
+        Path file = dir.resolve("catalog.bksn");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            CatalogSnapshotWriter writer = new CatalogSnapshotWriter(channel, 3, 3);
+            writer.book(new BookRow(1L, "너에게 해주지 못한 말들", "권태영", BookStatus.AVAILABLE));
+            writer.book(new BookRow(3L, null, "권태영", BookStatus.UNAVAILABLE));
+            writer.book(new BookRow(7L, "-1년차 게임 개발", null, BookStatus.AVAILABLE));
+            writer.bookCategory(1L, 1L);
+            writer.bookCategory(1L, 4L);
+            // 스냅샷에 없는 도서의 카테고리는 버린다.
+            writer.bookCategory(5L, 4L);
+            writer.bookCategory(7L, 4L);
+            writer.finish(1_000L, 42L);
+        }
+
+        // When
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file, true);
+        List<BookRow> books = new ArrayList<>();
+        snapshot.streamAllBooks(books::add);
+        List<String> categories = new ArrayList<>();
+        snapshot.streamAllBookCategories((bookId, categoryId) -> categories.add(bookId + ":" + categoryId));
+
+        // Then
+        assertEquals(42L, snapshot.highWaterSeq());
+        assertEquals(1_000L, snapshot.createdAt());
+        assertEquals(List.of(
+                new BookRow(1L, "너에게 해주지 못한 말들", "권태영", BookStatus.AVAILABLE),
+                new BookRow(3L, null, "권태영", BookStatus.UNAVAILABLE),
+                new BookRow(7L, "-1년차 게임 개발", null, BookStatus.AVAILABLE)), books);
+        assertEquals(List.of("1:1", "1:4", "7:4"), categories);
+    }
+
+    @Test
+    @DisplayName("구역 내용이 깨진 스냅샷은 열지 않는다")
+    void rejectCorrupted() throws IOException {
+        // Given
+        Path file = dir.resolve("catalog.bksn");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            CatalogSnapshotWriter writer = new CatalogSnapshotWriter(channel, 1, 0);
+            writer.book(new BookRow(1L, "게으른 사랑", "권태영", BookStatus.AVAILABLE));
+            writer.finish(1_000L, 0L);
+            // When
+            channel.write(ByteBuffer.wrap(new byte[]{9}), CatalogSnapshot.HEADER_SIZE);
+        }
+
+        // Then
+        assertThrows(IOException.class, () -> CatalogSnapshot.open(file, true));
+    }
+}